@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import static guava.base.Preconditions.checkArgument;
+import static guava.base.Preconditions.checkElementIndex;
+import static guava.base.Preconditions.checkNotNull;
+
+import guava.annotations.GwtCompatible;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Skeleton of a fixed-size {@link Table} whose values are stored row-major in
+ * a single primitive array. Subclasses provide the array and the boxing
+ * accessors; this class maps keys to flat indices and supplies the
+ * {@code Table} views, which behave like those of {@link ArrayTable}.
+ *
+ * <p>The cell for row index {@code r} and column index {@code c} is stored at
+ * flat index {@code r * columnCount() + c}.
+ */
+@GwtCompatible
+abstract class AbstractPrimitiveArrayTable<R, C, V extends Number>
+    extends AbstractTable<R, C, V> implements Serializable {
+  final ImmutableList<R> rowList;
+  final ImmutableList<C> columnList;
+  final ImmutableMap<R, Integer> rowKeyToIndex;
+  final ImmutableMap<C, Integer> columnKeyToIndex;
+
+  AbstractPrimitiveArrayTable(Iterable<? extends R> rowKeys,
+      Iterable<? extends C> columnKeys) {
+    this.rowList = ImmutableList.copyOf(rowKeys);
+    this.columnList = ImmutableList.copyOf(columnKeys);
+    checkArgument(!rowList.isEmpty());
+    checkArgument(!columnList.isEmpty());
+    checkArgument((long) rowList.size() * columnList.size() <= Integer.MAX_VALUE,
+        "table too large: %s rows x %s columns", rowList.size(), columnList.size());
+    rowKeyToIndex = index(rowList);
+    columnKeyToIndex = index(columnList);
+  }
+
+  AbstractPrimitiveArrayTable(AbstractPrimitiveArrayTable<R, C, ?> table) {
+    this.rowList = table.rowList;
+    this.columnList = table.columnList;
+    this.rowKeyToIndex = table.rowKeyToIndex;
+    this.columnKeyToIndex = table.columnKeyToIndex;
+  }
+
+  private static <E> ImmutableMap<E, Integer> index(List<E> list) {
+    ImmutableMap.Builder<E, Integer> builder = ImmutableMap.builder();
+    for (int i = 0; i < list.size(); i++) {
+      builder.put(list.get(i), i);
+    }
+    return builder.build();
+  }
+
+  /** Returns the boxed value at the given flat index. */
+  abstract V getBoxed(int index);
+
+  /**
+   * Stores {@code value} at the given flat index and returns the boxed
+   * previous value.
+   *
+   * @throws NullPointerException if {@code value} is null
+   */
+  abstract V setBoxed(int index, V value);
+
+  /** Returns the value that {@code erase} and {@code eraseAll} store. */
+  abstract V zero();
+
+  /**
+   * Returns the flat index of the cell at the given row and column indices.
+   *
+   * @throws IndexOutOfBoundsException if either index is negative or not less
+   *     than the number of row or column keys
+   */
+  final int flatIndex(int rowIndex, int columnIndex) {
+    checkElementIndex(rowIndex, rowList.size());
+    checkElementIndex(columnIndex, columnList.size());
+    return rowIndex * columnList.size() + columnIndex;
+  }
+
+  /**
+   * Returns, as an immutable list, the row keys provided when the table was
+   * constructed, including those that are mapped to zero values only.
+   */
+  public ImmutableList<R> rowKeyList() {
+    return rowList;
+  }
+
+  /**
+   * Returns, as an immutable list, the column keys provided when the table was
+   * constructed, including those that are mapped to zero values only.
+   */
+  public ImmutableList<C> columnKeyList() {
+    return columnList;
+  }
+
+  /**
+   * Not supported. Use {@code eraseAll} instead.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Use {@code eraseAll}
+   */
+  @Override
+  @Deprecated public void clear() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Returns {@code true} if the provided keys are among the keys provided when
+   * the table was constructed.
+   */
+  @Override
+  public boolean contains(@Nullable Object rowKey, @Nullable Object columnKey) {
+    return containsRow(rowKey) && containsColumn(columnKey);
+  }
+
+  @Override
+  public boolean containsColumn(@Nullable Object columnKey) {
+    return columnKeyToIndex.containsKey(columnKey);
+  }
+
+  @Override
+  public boolean containsRow(@Nullable Object rowKey) {
+    return rowKeyToIndex.containsKey(rowKey);
+  }
+
+  @Override
+  public V get(@Nullable Object rowKey, @Nullable Object columnKey) {
+    Integer rowIndex = rowKeyToIndex.get(rowKey);
+    Integer columnIndex = columnKeyToIndex.get(columnKey);
+    return (rowIndex == null || columnIndex == null)
+        ? null : getBoxed(flatIndex(rowIndex, columnIndex));
+  }
+
+  /**
+   * Always returns {@code false}.
+   */
+  @Override
+  public boolean isEmpty() {
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws NullPointerException if {@code value} is null
+   * @throws IllegalArgumentException if {@code rowKey} is not in {@link
+   *     #rowKeySet()} or {@code columnKey} is not in {@link #columnKeySet()}.
+   */
+  @Override
+  public V put(R rowKey, C columnKey, V value) {
+    checkNotNull(rowKey);
+    checkNotNull(columnKey);
+    Integer rowIndex = rowKeyToIndex.get(rowKey);
+    checkArgument(rowIndex != null, "Row %s not in %s", rowKey, rowList);
+    Integer columnIndex = columnKeyToIndex.get(columnKey);
+    checkArgument(columnIndex != null,
+        "Column %s not in %s", columnKey, columnList);
+    return setBoxed(flatIndex(rowIndex, columnIndex), checkNotNull(value));
+  }
+
+  /**
+   * Not supported. Use {@link #erase} instead.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Use {@link #erase}
+   */
+  @Override
+  @Deprecated public V remove(Object rowKey, Object columnKey) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Resets the value at the specified keys to zero, assuming both keys are
+   * valid. If either key is null or isn't among the keys provided during
+   * construction, this method has no effect.
+   *
+   * @return the value previously associated with the keys, or {@code null} if
+   *     either key is invalid
+   */
+  public V erase(@Nullable Object rowKey, @Nullable Object columnKey) {
+    Integer rowIndex = rowKeyToIndex.get(rowKey);
+    Integer columnIndex = columnKeyToIndex.get(columnKey);
+    if (rowIndex == null || columnIndex == null) {
+      return null;
+    }
+    return setBoxed(flatIndex(rowIndex, columnIndex), zero());
+  }
+
+  @Override
+  public int size() {
+    return rowList.size() * columnList.size();
+  }
+
+  @Override
+  Iterator<Cell<R, C, V>> cellIterator() {
+    return new AbstractIndexedListIterator<Cell<R, C, V>>(size()) {
+      @Override protected Cell<R, C, V> get(final int index) {
+        return new Tables.AbstractCell<R, C, V>() {
+          @Override
+          public R getRowKey() {
+            return rowList.get(index / columnList.size());
+          }
+          @Override
+          public C getColumnKey() {
+            return columnList.get(index % columnList.size());
+          }
+          @Override
+          public V getValue() {
+            return getBoxed(index);
+          }
+        };
+      }
+    };
+  }
+
+  @Override
+  Iterator<V> valuesIterator() {
+    return new AbstractIndexedListIterator<V>(size()) {
+      @Override protected V get(int index) {
+        return getBoxed(index);
+      }
+    };
+  }
+
+  @Override
+  public Map<R, V> column(C columnKey) {
+    checkNotNull(columnKey);
+    Integer columnIndex = columnKeyToIndex.get(columnKey);
+    return (columnIndex == null)
+        ? ImmutableMap.<R, V>of() : new Column(columnIndex);
+  }
+
+  private class Column extends ArrayTable.ArrayMap<R, V> {
+    final int columnIndex;
+
+    Column(int columnIndex) {
+      super(rowKeyToIndex);
+      this.columnIndex = columnIndex;
+    }
+
+    @Override
+    String getKeyRole() {
+      return "Row";
+    }
+
+    @Override
+    V getValue(int index) {
+      return getBoxed(flatIndex(index, columnIndex));
+    }
+
+    @Override
+    V setValue(int index, V newValue) {
+      return setBoxed(flatIndex(index, columnIndex), checkNotNull(newValue));
+    }
+  }
+
+  @Override
+  public ImmutableSet<C> columnKeySet() {
+    return columnKeyToIndex.keySet();
+  }
+
+  private transient ColumnMap columnMap;
+
+  @Override
+  public Map<C, Map<R, V>> columnMap() {
+    ColumnMap map = columnMap;
+    return (map == null) ? columnMap = new ColumnMap() : map;
+  }
+
+  private class ColumnMap extends ArrayTable.ArrayMap<C, Map<R, V>> {
+    private ColumnMap() {
+      super(columnKeyToIndex);
+    }
+
+    @Override
+    String getKeyRole() {
+      return "Column";
+    }
+
+    @Override
+    Map<R, V> getValue(int index) {
+      return new Column(index);
+    }
+
+    @Override
+    Map<R, V> setValue(int index, Map<R, V> newValue) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<R, V> put(C key, Map<R, V> value) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  @Override
+  public Map<C, V> row(R rowKey) {
+    checkNotNull(rowKey);
+    Integer rowIndex = rowKeyToIndex.get(rowKey);
+    return (rowIndex == null) ? ImmutableMap.<C, V>of() : new Row(rowIndex);
+  }
+
+  private class Row extends ArrayTable.ArrayMap<C, V> {
+    final int rowIndex;
+
+    Row(int rowIndex) {
+      super(columnKeyToIndex);
+      this.rowIndex = rowIndex;
+    }
+
+    @Override
+    String getKeyRole() {
+      return "Column";
+    }
+
+    @Override
+    V getValue(int index) {
+      return getBoxed(flatIndex(rowIndex, index));
+    }
+
+    @Override
+    V setValue(int index, V newValue) {
+      return setBoxed(flatIndex(rowIndex, index), checkNotNull(newValue));
+    }
+  }
+
+  @Override
+  public ImmutableSet<R> rowKeySet() {
+    return rowKeyToIndex.keySet();
+  }
+
+  private transient RowMap rowMap;
+
+  @Override
+  public Map<R, Map<C, V>> rowMap() {
+    RowMap map = rowMap;
+    return (map == null) ? rowMap = new RowMap() : map;
+  }
+
+  private class RowMap extends ArrayTable.ArrayMap<R, Map<C, V>> {
+    private RowMap() {
+      super(rowKeyToIndex);
+    }
+
+    @Override
+    String getKeyRole() {
+      return "Row";
+    }
+
+    @Override
+    Map<C, V> getValue(int index) {
+      return new Row(index);
+    }
+
+    @Override
+    Map<C, V> setValue(int index, Map<C, V> newValue) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<C, V> put(R key, Map<C, V> value) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private static final long serialVersionUID = 0;
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import static com.github.yingzhuo.commons.collections.CollectPreconditions.checkRemove;
+import static guava.base.Preconditions.checkArgument;
+import static guava.base.Preconditions.checkNotNull;
+
+import com.github.yingzhuo.commons.collections.RadixTree.Node;
+
+import guava.annotations.GwtIncompatible;
+
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nullable;
+
+/**
+ * Skeletal {@link NavigableMap} over a {@link RadixTree}, or over the keys of
+ * one that lie between two optional bounds. Range views share the tree of the
+ * map they came from.
+ */
+@GwtIncompatible("NavigableMap")
+abstract class AbstractRadixTreeMap<K, V> extends AbstractNavigableMap<K, V> {
+  final RadixTree<K, V> tree;
+  // null bounds are unbounded
+  @Nullable final K lowerBound;
+  final boolean lowerInclusive;
+  @Nullable final K upperBound;
+  final boolean upperInclusive;
+
+  AbstractRadixTreeMap(RadixTree<K, V> tree, @Nullable K lowerBound, boolean lowerInclusive,
+      @Nullable K upperBound, boolean upperInclusive) {
+    this.tree = tree;
+    this.lowerBound = lowerBound;
+    this.lowerInclusive = lowerInclusive;
+    this.upperBound = upperBound;
+    this.upperInclusive = upperInclusive;
+  }
+
+  /** Returns a map of the same kind over the given range of {@link #tree}. */
+  abstract AbstractRadixTreeMap<K, V> createView(@Nullable K lowerBound, boolean lowerInclusive,
+      @Nullable K upperBound, boolean upperInclusive);
+
+  /** Removes the mapping of {@code node}, if this map is modifiable. */
+  void removeNode(Node<K, V> node) {
+    throw new UnsupportedOperationException();
+  }
+
+  final boolean isRange() {
+    return lowerBound != null || upperBound != null;
+  }
+
+  private int compare(K left, K right) {
+    return tree.keyType.comparator().compare(left, right);
+  }
+
+  final boolean tooLow(K key) {
+    if (lowerBound == null) {
+      return false;
+    }
+    int cmp = compare(key, lowerBound);
+    return cmp < 0 || (cmp == 0 && !lowerInclusive);
+  }
+
+  final boolean tooHigh(K key) {
+    if (upperBound == null) {
+      return false;
+    }
+    int cmp = compare(key, upperBound);
+    return cmp > 0 || (cmp == 0 && !upperInclusive);
+  }
+
+  final boolean inRange(K key) {
+    return !tooLow(key) && !tooHigh(key);
+  }
+
+  /** Returns the node holding {@code key} if it is in range, or null. */
+  @Nullable final Node<K, V> findNode(@Nullable Object key) {
+    K k = tree.keyType.cast(key);
+    return (k == null || !inRange(k)) ? null : tree.find(k);
+  }
+
+  @Nullable private Node<K, V> lowestNode() {
+    Node<K, V> node = (lowerBound == null)
+        ? tree.first() : tree.ceiling(lowerBound, lowerInclusive);
+    return (node == null || tooHigh(node.key)) ? null : node;
+  }
+
+  @Nullable private Node<K, V> highestNode() {
+    Node<K, V> node = (upperBound == null)
+        ? tree.last() : tree.floor(upperBound, upperInclusive);
+    return (node == null || tooLow(node.key)) ? null : node;
+  }
+
+  @Nullable private Node<K, V> ceilingNode(K key, boolean inclusive) {
+    if (tooLow(key)) {
+      return lowestNode();
+    }
+    Node<K, V> node = tree.ceiling(key, inclusive);
+    return (node == null || tooHigh(node.key)) ? null : node;
+  }
+
+  @Nullable private Node<K, V> floorNode(K key, boolean inclusive) {
+    if (tooHigh(key)) {
+      return highestNode();
+    }
+    Node<K, V> node = tree.floor(key, inclusive);
+    return (node == null || tooLow(node.key)) ? null : node;
+  }
+
+  @Nullable private static <K, V> Entry<K, V> exportEntry(@Nullable Node<K, V> node) {
+    return (node == null) ? null : Maps.immutableEntry(node.key, node.value);
+  }
+
+  @Override
+  @Nullable
+  public V get(@Nullable Object key) {
+    Node<K, V> node = findNode(key);
+    return (node == null) ? null : node.value;
+  }
+
+  @Override
+  public boolean containsKey(@Nullable Object key) {
+    return findNode(key) != null;
+  }
+
+  @Override
+  public int size() {
+    if (!isRange()) {
+      return tree.size;
+    }
+    return Iterators.size(entryIterator());
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return lowestNode() == null;
+  }
+
+  @Override
+  public Comparator<? super K> comparator() {
+    return tree.keyType.comparator();
+  }
+
+  /**
+   * Returns the mapping whose key is the longest prefix of {@code key},
+   * including {@code key} itself, or null if no key in this map is a prefix of
+   * {@code key}. Only the units of {@code key} are examined, once each,
+   * regardless of the size of the map.
+   */
+  @Nullable
+  public Entry<K, V> longestPrefixEntry(K key) {
+    int length = tree.keyType.length(checkNotNull(key));
+    Node<K, V> node = tree.root;
+    Node<K, V> longest = null;
+    while (node != null) {
+      if (node.hasValue && inRange(node.key)) {
+        longest = node;
+      }
+      node = (node.depth < length) ? tree.matchingChild(node, key, length) : null;
+    }
+    return exportEntry(longest);
+  }
+
+  /**
+   * Returns a view of the mappings in this map whose keys start with
+   * {@code prefix}, including {@code prefix} itself. The view is backed by
+   * this map, and it rejects insertions of keys without that prefix.
+   */
+  public NavigableMap<K, V> prefixMap(K prefix) {
+    checkNotNull(prefix);
+    K successor = tree.keyType.prefixSuccessor(prefix);
+    K lower = lowerBound;
+    boolean lowerIncl = lowerInclusive;
+    if (lower == null || compare(prefix, lower) > 0) {
+      lower = prefix;
+      lowerIncl = true;
+    }
+    K upper = upperBound;
+    boolean upperIncl = upperInclusive;
+    if (successor != null && (upper == null || compare(successor, upper) <= 0)) {
+      upper = successor;
+      upperIncl = false;
+    }
+    return createView(lower, lowerIncl, upper, upperIncl);
+  }
+
+  // Navigation
+
+  @Override
+  @Nullable
+  public Entry<K, V> firstEntry() {
+    return exportEntry(lowestNode());
+  }
+
+  @Override
+  @Nullable
+  public Entry<K, V> lastEntry() {
+    return exportEntry(highestNode());
+  }
+
+  @Override
+  @Nullable
+  public Entry<K, V> lowerEntry(K key) {
+    return exportEntry(floorNode(checkNotNull(key), false));
+  }
+
+  @Override
+  @Nullable
+  public Entry<K, V> floorEntry(K key) {
+    return exportEntry(floorNode(checkNotNull(key), true));
+  }
+
+  @Override
+  @Nullable
+  public Entry<K, V> ceilingEntry(K key) {
+    return exportEntry(ceilingNode(checkNotNull(key), true));
+  }
+
+  @Override
+  @Nullable
+  public Entry<K, V> higherEntry(K key) {
+    return exportEntry(ceilingNode(checkNotNull(key), false));
+  }
+
+  @Override
+  Iterator<Entry<K, V>> entryIterator() {
+    return new EntryIterator(lowestNode(), false);
+  }
+
+  @Override
+  Iterator<Entry<K, V>> descendingEntryIterator() {
+    return new EntryIterator(highestNode(), true);
+  }
+
+  private final class EntryIterator implements Iterator<Entry<K, V>> {
+    private final boolean descending;
+    @Nullable private Node<K, V> next;
+    @Nullable private Node<K, V> last;
+    private int expectedModCount = tree.modCount;
+
+    EntryIterator(@Nullable Node<K, V> first, boolean descending) {
+      this.next = first;
+      this.descending = descending;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Entry<K, V> next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      checkForComodification();
+      last = next;
+      if (descending) {
+        next = tree.predecessor(last);
+        if (next != null && tooLow(next.key)) {
+          next = null;
+        }
+      } else {
+        next = tree.successor(last);
+        if (next != null && tooHigh(next.key)) {
+          next = null;
+        }
+      }
+      return exportEntry(last);
+    }
+
+    @Override
+    public void remove() {
+      checkRemove(last != null);
+      checkForComodification();
+      removeNode(last);
+      expectedModCount = tree.modCount;
+      last = null;
+    }
+
+    private void checkForComodification() {
+      if (tree.modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+    }
+  }
+
+  // Range views
+
+  @Override
+  public NavigableMap<K, V> subMap(
+      K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+    checkNotNull(fromKey);
+    checkNotNull(toKey);
+    checkArgument(compare(fromKey, toKey) <= 0, "fromKey > toKey");
+    checkArgument(inRange(fromKey, fromInclusive), "fromKey out of range");
+    checkArgument(inRange(toKey, toInclusive), "toKey out of range");
+    return createView(fromKey, fromInclusive, toKey, toInclusive);
+  }
+
+  @Override
+  public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+    checkNotNull(toKey);
+    checkArgument(inRange(toKey, inclusive), "toKey out of range");
+    return createView(lowerBound, lowerInclusive, toKey, inclusive);
+  }
+
+  @Override
+  public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+    checkNotNull(fromKey);
+    checkArgument(inRange(fromKey, inclusive), "fromKey out of range");
+    return createView(fromKey, inclusive, upperBound, upperInclusive);
+  }
+
+  /**
+   * Returns whether {@code key} may bound a range view of this map; an
+   * exclusive bound may coincide with an exclusive bound of this map.
+   */
+  private boolean inRange(K key, boolean inclusive) {
+    return inclusive ? inRange(key) : !tooLowForBound(key) && !tooHighForBound(key);
+  }
+
+  private boolean tooLowForBound(K key) {
+    return lowerBound != null && compare(key, lowerBound) < 0;
+  }
+
+  private boolean tooHighForBound(K key) {
+    return upperBound != null && compare(key, upperBound) > 0;
+  }
+}
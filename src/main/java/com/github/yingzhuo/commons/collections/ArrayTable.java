@@ -193,10 +193,14 @@ public final class ArrayTable<R, C, V> extends AbstractTable<R, C, V> implements
     }
   }
 
-  private abstract static class ArrayMap<K, V> extends Maps.ImprovedAbstractMap<K, V> {
+  /**
+   * A fixed-key map view whose values are located by the index of their key,
+   * shared with {@link AbstractPrimitiveArrayTable}.
+   */
+  abstract static class ArrayMap<K, V> extends Maps.ImprovedAbstractMap<K, V> {
     private final ImmutableMap<K, Integer> keyIndex;
 
-    private ArrayMap(ImmutableMap<K, Integer> keyIndex) {
+    ArrayMap(ImmutableMap<K, Integer> keyIndex) {
       this.keyIndex = keyIndex;
     }
 
@@ -23,6 +23,7 @@ import guava.annotations.GwtCompatible;
 import guava.base.Objects;
 
 import java.io.Serializable;
+import java.util.Arrays;
 
 import javax.annotation.Nullable;
 
@@ -48,6 +49,166 @@ final class ByFunctionOrdering<F, T>
     return ordering.compare(function.apply(left), function.apply(right));
   }
 
+  /** Arrays shorter than this are sorted through {@link #compare}. */
+  private static final int KEY_CACHING_THRESHOLD = 8;
+
+  /**
+   * Sorts {@code array}, applying the function only once per element: the
+   * keys are computed into a parallel array, the indices of the elements are
+   * sorted by key, and the elements are then permuted into place. In natural
+   * or reverse natural order, keys that are all of one primitive wrapper type
+   * or all strings are compared directly; {@code int}-sized keys are further
+   * packed with their indices into {@code long}s and sorted as primitives.
+   */
+  @Override <E extends F> void sort(E[] array) {
+    int n = array.length;
+    if (n < KEY_CACHING_THRESHOLD) {
+      super.sort(array);
+      return;
+    }
+    Object[] keys = new Object[n];
+    for (int i = 0; i < n; i++) {
+      keys[i] = function.apply(array[i]);
+    }
+    int[] order = sortedIndices(keys);
+    Object[] sorted = new Object[n];
+    for (int i = 0; i < n; i++) {
+      sorted[i] = array[order[i]];
+    }
+    System.arraycopy(sorted, 0, array, 0, n);
+  }
+
+  /**
+   * Returns the indices of {@code keys} in the order of their keys, equal
+   * keys keeping the order of their indices.
+   */
+  private int[] sortedIndices(final Object[] keys) {
+    boolean reverse;
+    if (ordering == NaturalOrdering.INSTANCE) {
+      reverse = false;
+    } else if (ordering == ReverseNaturalOrdering.INSTANCE) {
+      reverse = true;
+    } else {
+      return sortIndices(keys.length, byOrdering(keys));
+    }
+
+    // Mixed key types or nulls fall through to compareTo, which throws as
+    // the ordering would.
+    Class<?> keyClass = commonClass(keys);
+    if (keyClass == Integer.class || keyClass == Short.class
+        || keyClass == Byte.class || keyClass == Character.class) {
+      long[] packed = new long[keys.length];
+      for (int i = 0; i < keys.length; i++) {
+        int key = (keyClass == Character.class)
+            ? (Character) keys[i]
+            : ((Number) keys[i]).intValue();
+        packed[i] = ((long) (reverse ? ~key : key) << 32) | i;
+      }
+      Arrays.sort(packed);
+      int[] order = new int[keys.length];
+      for (int i = 0; i < keys.length; i++) {
+        order[i] = (int) packed[i];
+      }
+      return order;
+    } else if (keyClass == Long.class || keyClass == Double.class
+        || keyClass == Float.class) {
+      final long[] longKeys = new long[keys.length];
+      for (int i = 0; i < keys.length; i++) {
+        long key;
+        if (keyClass == Long.class) {
+          key = (Long) keys[i];
+        } else {
+          // the signed order of these bits is the order of Double.compare
+          long bits = Double.doubleToLongBits(((Number) keys[i]).doubleValue());
+          key = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+        }
+        longKeys[i] = reverse ? ~key : key;
+      }
+      return sortIndices(keys.length, new IndexComparator() {
+        @Override public int compare(int a, int b) {
+          return (longKeys[a] < longKeys[b]) ? -1 : ((longKeys[a] > longKeys[b]) ? 1 : 0);
+        }
+      });
+    } else if (keyClass == String.class) {
+      final boolean reversed = reverse;
+      return sortIndices(keys.length, new IndexComparator() {
+        @Override public int compare(int a, int b) {
+          String left = (String) keys[reversed ? b : a];
+          String right = (String) keys[reversed ? a : b];
+          return left.compareTo(right);
+        }
+      });
+    }
+    return sortIndices(keys.length, byOrdering(keys));
+  }
+
+  private IndexComparator byOrdering(final Object[] keys) {
+    return new IndexComparator() {
+      @SuppressWarnings("unchecked") // keys holds only results of function
+      @Override public int compare(int a, int b) {
+        return ordering.compare((T) keys[a], (T) keys[b]);
+      }
+    };
+  }
+
+  /** Returns the class of all of {@code keys}, or null if there is none. */
+  @Nullable private static Class<?> commonClass(Object[] keys) {
+    Class<?> keyClass = (keys[0] == null) ? null : keys[0].getClass();
+    for (Object key : keys) {
+      if (key == null || key.getClass() != keyClass) {
+        return null;
+      }
+    }
+    return keyClass;
+  }
+
+  private interface IndexComparator {
+    int compare(int a, int b);
+  }
+
+  /** Returns the indices from 0 to {@code n - 1}, stably sorted. */
+  private static int[] sortIndices(int n, IndexComparator comparator) {
+    int[] indices = new int[n];
+    for (int i = 0; i < n; i++) {
+      indices[i] = i;
+    }
+    mergeSort(indices.clone(), indices, 0, n, comparator);
+    return indices;
+  }
+
+  /**
+   * Sorts {@code src[from, to)} into {@code dest[from, to)}, which starts out
+   * with the same contents, using {@code src} as scratch space; as in the
+   * merge sort that {@link Arrays#sort(Object[])} used before TimSort.
+   */
+  private static void mergeSort(
+      int[] src, int[] dest, int from, int to, IndexComparator comparator) {
+    if (to - from < 7) {
+      for (int i = from + 1; i < to; i++) {
+        for (int j = i; j > from && comparator.compare(dest[j - 1], dest[j]) > 0; j--) {
+          int t = dest[j];
+          dest[j] = dest[j - 1];
+          dest[j - 1] = t;
+        }
+      }
+      return;
+    }
+    int mid = (from + to) >>> 1;
+    mergeSort(dest, src, from, mid, comparator);
+    mergeSort(dest, src, mid, to, comparator);
+    if (comparator.compare(src[mid - 1], src[mid]) <= 0) {
+      System.arraycopy(src, from, dest, from, to - from);
+      return;
+    }
+    for (int i = from, p = from, q = mid; i < to; i++) {
+      if (q >= to || (p < mid && comparator.compare(src[p], src[q]) <= 0)) {
+        dest[i] = src[p++];
+      } else {
+        dest[i] = src[q++];
+      }
+    }
+  }
+
   @Override public boolean equals(@Nullable Object object) {
     if (object == this) {
       return true;
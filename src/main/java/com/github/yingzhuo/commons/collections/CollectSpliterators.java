@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import static guava.base.Preconditions.checkNotNull;
+
+import guava.annotations.GwtCompatible;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import javax.annotation.Nullable;
+
+/**
+ * Spliterator utilities for the immutable collections.
+ */
+@GwtCompatible
+final class CollectSpliterators {
+  private CollectSpliterators() {}
+
+  /**
+   * Returns a spliterator over the elements {@code function.apply(0)} to
+   * {@code function.apply(size - 1)}, which splits its range of indices in
+   * halves and reports {@link Spliterator#SIZED} and
+   * {@link Spliterator#SUBSIZED} in addition to
+   * {@code extraCharacteristics}.
+   */
+  static <E> Spliterator<E> indexed(
+      int size, int extraCharacteristics, IntFunction<? extends E> function) {
+    return new IndexedSpliterator<E>(0, size,
+        extraCharacteristics | Spliterator.SIZED | Spliterator.SUBSIZED,
+        checkNotNull(function), null);
+  }
+
+  /**
+   * Returns an indexed spliterator as above, whose elements are in the order
+   * of {@code comparator}. It also reports {@link Spliterator#SORTED}, and
+   * its {@link Spliterator#getComparator} returns null, meaning natural
+   * order, if {@code comparator} is {@link Ordering#natural}.
+   */
+  static <E> Spliterator<E> sortedIndexed(int size, int extraCharacteristics,
+      IntFunction<? extends E> function, Comparator<? super E> comparator) {
+    return new IndexedSpliterator<E>(0, size,
+        extraCharacteristics | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.SORTED,
+        checkNotNull(function), checkNotNull(comparator));
+  }
+
+  private static final class IndexedSpliterator<E> implements Spliterator<E> {
+    private int index;
+    private final int end;
+    private final int characteristics;
+    private final IntFunction<? extends E> function;
+    @Nullable private final Comparator<? super E> comparator;
+
+    IndexedSpliterator(int index, int end, int characteristics,
+        IntFunction<? extends E> function, @Nullable Comparator<? super E> comparator) {
+      this.index = index;
+      this.end = end;
+      this.characteristics = characteristics;
+      this.function = function;
+      this.comparator = comparator;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super E> action) {
+      if (index < end) {
+        action.accept(function.apply(index++));
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super E> action) {
+      for (; index < end; index++) {
+        action.accept(function.apply(index));
+      }
+    }
+
+    @Override
+    public Spliterator<E> trySplit() {
+      int mid = (index + end) >>> 1;
+      if (mid <= index) {
+        return null;
+      }
+      Spliterator<E> prefix =
+          new IndexedSpliterator<E>(index, mid, characteristics, function, comparator);
+      index = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return end - index;
+    }
+
+    @Override
+    public int characteristics() {
+      return characteristics;
+    }
+
+    @Override
+    public Comparator<? super E> getComparator() {
+      if (hasCharacteristics(Spliterator.SORTED)) {
+        return (comparator == Ordering.natural()) ? null : comparator;
+      }
+      throw new IllegalStateException();
+    }
+  }
+}
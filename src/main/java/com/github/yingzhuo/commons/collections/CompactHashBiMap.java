@@ -0,0 +1,606 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import static com.github.yingzhuo.commons.collections.CollectPreconditions.checkRemove;
+import static guava.base.Preconditions.checkArgument;
+
+import guava.annotations.Beta;
+import guava.annotations.GwtCompatible;
+import guava.annotations.GwtIncompatible;
+import guava.base.Objects;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link BiMap} that stores its keys and values in two parallel arrays and
+ * finds them through two open-addressed tables of array indices, one per
+ * direction. Unlike {@link HashBiMap}, it allocates no object per entry, and a
+ * lookup in either direction, including through {@link #inverse}, is a
+ * single linear probe sequence over an {@code int[]}. Null keys and values
+ * are permitted.
+ *
+ * <p>Approximate memory use per mapping, not counting the keys and values
+ * themselves, on a 64-bit JVM with compressed references:
+ *
+ * <ul>
+ * <li>{@code HashBiMap}: a 40-byte entry object, plus 8 to 16 bytes of hash
+ *     table slots, for <b>48 to 56 bytes</b>.
+ * <li>{@code EnumHashBiMap}: 4 bytes in the {@code EnumMap} of keys, plus a
+ *     32-byte {@code HashMap} entry and 5 to 11 bytes of its table, for
+ *     <b>41 to 47 bytes</b>, and only for enum keys.
+ * <li>{@code CompactHashBiMap}: 8 to 12 bytes of key and value array slots,
+ *     plus 11 to 22 bytes of index table slots, for <b>19 to 34 bytes</b>.
+ * </ul>
+ *
+ * <p>The price is that removals move the last mapping into the vacated
+ * position and recompute the hash codes of nearby keys and values, and that a
+ * table rebuild recomputes all of them, since hash codes are not stored.
+ * Iteration follows the order of the arrays, which is insertion order until
+ * the first removal.
+ *
+ * <p>This class is not thread-safe. Its views and iterators are fail-fast,
+ * and entries returned by its entry iterators support
+ * {@link Map.Entry#setValue setValue}.
+ */
+@Beta
+@GwtCompatible(emulated = true)
+public final class CompactHashBiMap<K, V> extends AbstractMap<K, V>
+    implements BiMap<K, V>, Serializable {
+
+  /**
+   * Returns a new, empty {@code CompactHashBiMap} with the default initial
+   * capacity (16).
+   */
+  public static <K, V> CompactHashBiMap<K, V> create() {
+    return create(16);
+  }
+
+  /**
+   * Constructs a new, empty bimap with the specified expected size.
+   *
+   * @param expectedSize the expected number of entries
+   * @throws IllegalArgumentException if the specified expected size is
+   *     negative
+   */
+  public static <K, V> CompactHashBiMap<K, V> create(int expectedSize) {
+    return new CompactHashBiMap<K, V>(expectedSize);
+  }
+
+  /**
+   * Constructs a new bimap containing initial values from {@code map}. The
+   * bimap is created with an initial capacity sufficient to hold the mappings
+   * in the specified map.
+   */
+  public static <K, V> CompactHashBiMap<K, V> create(Map<? extends K, ? extends V> map) {
+    CompactHashBiMap<K, V> bimap = create(map.size());
+    bimap.putAll(map);
+    return bimap;
+  }
+
+  // linear probing stays fast up to this load
+  private static final double LOAD_FACTOR = 0.75;
+
+  // the key and value of mapping i are keys[i] and values[i], for i < size
+  private transient Object[] keys;
+  private transient Object[] values;
+  // open-addressed tables of (index into keys or values + 1); 0 marks an
+  // empty slot
+  private transient int[] keyTable;
+  private transient int[] valueTable;
+  private transient int mask;
+  private transient int size;
+  // incremented when mappings are added or removed, which moves indices
+  private transient int modCount;
+
+  private CompactHashBiMap(int expectedSize) {
+    init(expectedSize);
+  }
+
+  private void init(int expectedSize) {
+    checkArgument(expectedSize >= 0, "expectedSize must be >= 0 but was %s", expectedSize);
+    keys = new Object[expectedSize];
+    values = new Object[expectedSize];
+    int tableSize = Hashing.closedTableSize(expectedSize, LOAD_FACTOR);
+    keyTable = new int[tableSize];
+    valueTable = new int[tableSize];
+    mask = tableSize - 1;
+    size = 0;
+  }
+
+  private static int hash(@Nullable Object o) {
+    return Hashing.smear((o == null) ? 0 : o.hashCode());
+  }
+
+  // Each operation below works in either direction: on keys if inverse is
+  // false, on values if it is true.
+
+  private Object[] data(boolean inverse) {
+    return inverse ? values : keys;
+  }
+
+  private int[] table(boolean inverse) {
+    return inverse ? valueTable : keyTable;
+  }
+
+  /** Returns the index of the mapping containing {@code o}, or -1. */
+  private int find(boolean inverse, @Nullable Object o) {
+    Object[] data = data(inverse);
+    int[] table = table(inverse);
+    for (int i = hash(o) & mask; ; i = (i + 1) & mask) {
+      int entry = table[i];
+      if (entry == 0) {
+        return -1;
+      } else if (Objects.equal(o, data[entry - 1])) {
+        return entry - 1;
+      }
+    }
+  }
+
+  private void insertIndex(boolean inverse, int index) {
+    int[] table = table(inverse);
+    int i = hash(data(inverse)[index]) & mask;
+    while (table[i] != 0) {
+      i = (i + 1) & mask;
+    }
+    table[i] = index + 1;
+  }
+
+  /** Returns the table slot holding {@code index}. */
+  private int slotOf(boolean inverse, int index) {
+    int[] table = table(inverse);
+    int i = hash(data(inverse)[index]) & mask;
+    while (table[i] != index + 1) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  private void deleteIndex(boolean inverse, int index) {
+    Object[] data = data(inverse);
+    int[] table = table(inverse);
+    int hole = slotOf(inverse, index);
+    // shift back later members of the probe sequence, so that no search
+    // stops early at the hole
+    for (int i = (hole + 1) & mask; table[i] != 0; i = (i + 1) & mask) {
+      int ideal = hash(data[table[i] - 1]) & mask;
+      if (((i - ideal) & mask) >= ((i - hole) & mask)) {
+        table[hole] = table[i];
+        hole = i;
+      }
+    }
+    table[hole] = 0;
+  }
+
+  /**
+   * Maps {@code a} to {@code b} in the given direction, returning the
+   * previous counterpart of {@code a}.
+   */
+  @Nullable
+  private Object put(boolean inverse, @Nullable Object a, @Nullable Object b, boolean force) {
+    int aIndex = find(inverse, a);
+    if (aIndex >= 0 && Objects.equal(b, data(!inverse)[aIndex])) {
+      return b;
+    }
+    int bIndex = find(!inverse, b);
+    if (bIndex >= 0) {
+      checkArgument(force, "value already present: %s", b);
+      removeEntry(bIndex);
+      if (aIndex == size) {
+        // the mapping of a was the last one, and moved into bIndex
+        aIndex = bIndex;
+      }
+    }
+    if (aIndex >= 0) {
+      Object[] other = data(!inverse);
+      Object oldB = other[aIndex];
+      deleteIndex(!inverse, aIndex);
+      other[aIndex] = b;
+      insertIndex(!inverse, aIndex);
+      return oldB;
+    }
+    ensureCapacity(size + 1);
+    data(inverse)[size] = a;
+    data(!inverse)[size] = b;
+    insertIndex(false, size);
+    insertIndex(true, size);
+    size++;
+    modCount++;
+    return null;
+  }
+
+  /** Removes the mapping at {@code index}, moving the last one into its place. */
+  private void removeEntry(int index) {
+    deleteIndex(false, index);
+    deleteIndex(true, index);
+    int last = size - 1;
+    if (index < last) {
+      int keySlot = slotOf(false, last);
+      int valueSlot = slotOf(true, last);
+      keys[index] = keys[last];
+      values[index] = values[last];
+      keyTable[keySlot] = index + 1;
+      valueTable[valueSlot] = index + 1;
+    }
+    keys[last] = null;
+    values[last] = null;
+    size--;
+    modCount++;
+  }
+
+  private void ensureCapacity(int minCapacity) {
+    if (minCapacity > keys.length) {
+      int newCapacity = Math.max(minCapacity, keys.length + (keys.length >> 1) + 1);
+      keys = ObjectArrays.arraysCopyOf(keys, newCapacity);
+      values = ObjectArrays.arraysCopyOf(values, newCapacity);
+    }
+    if (Hashing.needsResizing(minCapacity, keyTable.length, LOAD_FACTOR)) {
+      int tableSize = keyTable.length * 2;
+      keyTable = new int[tableSize];
+      valueTable = new int[tableSize];
+      mask = tableSize - 1;
+      for (int i = 0; i < size; i++) {
+        insertIndex(false, i);
+        insertIndex(true, i);
+      }
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(@Nullable Object key) {
+    return find(false, key) >= 0;
+  }
+
+  @Override
+  public boolean containsValue(@Nullable Object value) {
+    return find(true, value) >= 0;
+  }
+
+  @SuppressWarnings("unchecked") // only V instances are stored in values
+  @Nullable
+  @Override
+  public V get(@Nullable Object key) {
+    int index = find(false, key);
+    return (index < 0) ? null : (V) values[index];
+  }
+
+  @SuppressWarnings("unchecked") // the previous value is a V
+  @Override
+  public V put(@Nullable K key, @Nullable V value) {
+    return (V) put(false, key, value, false);
+  }
+
+  @SuppressWarnings("unchecked") // the previous value is a V
+  @Override
+  public V forcePut(@Nullable K key, @Nullable V value) {
+    return (V) put(false, key, value, true);
+  }
+
+  @SuppressWarnings("unchecked") // only V instances are stored in values
+  @Nullable
+  @Override
+  public V remove(@Nullable Object key) {
+    int index = find(false, key);
+    if (index < 0) {
+      return null;
+    }
+    V value = (V) values[index];
+    removeEntry(index);
+    return value;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(keys, 0, size, null);
+    Arrays.fill(values, 0, size, null);
+    Arrays.fill(keyTable, 0);
+    Arrays.fill(valueTable, 0);
+    size = 0;
+    modCount++;
+  }
+
+  abstract class Itr<T> implements Iterator<T> {
+    int next = 0;
+    int toRemove = -1;
+    int expectedModCount = modCount;
+
+    private void checkForConcurrentModification() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      checkForConcurrentModification();
+      return next < size;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      toRemove = next++;
+      return output(toRemove);
+    }
+
+    @Override
+    public void remove() {
+      checkForConcurrentModification();
+      checkRemove(toRemove >= 0);
+      removeEntry(toRemove);
+      // the last mapping moved into the removed one's place
+      next = toRemove;
+      expectedModCount = modCount;
+      toRemove = -1;
+    }
+
+    abstract T output(int index);
+  }
+
+  /**
+   * A mapping of this bimap, seen in the given direction. It finds its index
+   * again by key if mappings have been added or removed since.
+   */
+  private final class MapEntry<A, B> extends AbstractMapEntry<A, B> {
+    private final boolean inverse;
+    private final A key;
+    private int lastKnownIndex;
+
+    MapEntry(boolean inverse, int index) {
+      this.inverse = inverse;
+      this.lastKnownIndex = index;
+      @SuppressWarnings("unchecked") // the entry's key side holds A instances
+      A key = (A) data(inverse)[index];
+      this.key = key;
+    }
+
+    @Override public A getKey() {
+      return key;
+    }
+
+    private int index() {
+      Object[] data = data(inverse);
+      if (lastKnownIndex >= size || !Objects.equal(key, data[lastKnownIndex])) {
+        lastKnownIndex = find(inverse, key);
+      }
+      return lastKnownIndex;
+    }
+
+    @SuppressWarnings("unchecked") // the entry's value side holds B instances
+    @Override public B getValue() {
+      int index = index();
+      return (index < 0) ? null : (B) data(!inverse)[index];
+    }
+
+    @SuppressWarnings("unchecked") // the entry's value side holds B instances
+    @Override public B setValue(B value) {
+      return (B) put(inverse, key, value, false);
+    }
+  }
+
+  @Override
+  public Set<K> keySet() {
+    return new KeySet<K, V>(this, false);
+  }
+
+  @Override
+  public Set<V> values() {
+    return inverse().keySet();
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new EntrySet<K, V>(this, false);
+  }
+
+  /** The keys of this bimap, or of its inverse. */
+  private final class KeySet<A, B> extends Maps.KeySet<A, B> {
+    private final boolean inverse;
+
+    KeySet(Map<A, B> map, boolean inverse) {
+      super(map);
+      this.inverse = inverse;
+    }
+
+    @Override
+    public Iterator<A> iterator() {
+      return new Itr<A>() {
+        @SuppressWarnings("unchecked") // the key side holds A instances
+        @Override
+        A output(int index) {
+          return (A) data(inverse)[index];
+        }
+      };
+    }
+
+    @Override
+    public boolean remove(@Nullable Object o) {
+      int index = find(inverse, o);
+      if (index < 0) {
+        return false;
+      }
+      removeEntry(index);
+      return true;
+    }
+  }
+
+  /** The entries of this bimap, or of its inverse. */
+  private final class EntrySet<A, B> extends Maps.EntrySet<A, B> {
+    private final Map<A, B> map;
+    private final boolean inverse;
+
+    EntrySet(Map<A, B> map, boolean inverse) {
+      this.map = map;
+      this.inverse = inverse;
+    }
+
+    @Override
+    Map<A, B> map() {
+      return map;
+    }
+
+    @Override
+    public Iterator<Entry<A, B>> iterator() {
+      return new Itr<Entry<A, B>>() {
+        @Override
+        Entry<A, B> output(int index) {
+          return new MapEntry<A, B>(inverse, index);
+        }
+      };
+    }
+  }
+
+  private transient BiMap<V, K> inverse;
+
+  @Override
+  public BiMap<V, K> inverse() {
+    return (inverse == null) ? inverse = new Inverse() : inverse;
+  }
+
+  private final class Inverse extends AbstractMap<V, K> implements BiMap<V, K>, Serializable {
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public void clear() {
+      CompactHashBiMap.this.clear();
+    }
+
+    @Override
+    public boolean containsKey(@Nullable Object value) {
+      return CompactHashBiMap.this.containsValue(value);
+    }
+
+    @Override
+    public boolean containsValue(@Nullable Object key) {
+      return CompactHashBiMap.this.containsKey(key);
+    }
+
+    @SuppressWarnings("unchecked") // only K instances are stored in keys
+    @Nullable
+    @Override
+    public K get(@Nullable Object value) {
+      int index = find(true, value);
+      return (index < 0) ? null : (K) keys[index];
+    }
+
+    @SuppressWarnings("unchecked") // the previous key is a K
+    @Override
+    public K put(@Nullable V value, @Nullable K key) {
+      return (K) CompactHashBiMap.this.put(true, value, key, false);
+    }
+
+    @SuppressWarnings("unchecked") // the previous key is a K
+    @Override
+    public K forcePut(@Nullable V value, @Nullable K key) {
+      return (K) CompactHashBiMap.this.put(true, value, key, true);
+    }
+
+    @SuppressWarnings("unchecked") // only K instances are stored in keys
+    @Nullable
+    @Override
+    public K remove(@Nullable Object value) {
+      int index = find(true, value);
+      if (index < 0) {
+        return null;
+      }
+      K key = (K) keys[index];
+      removeEntry(index);
+      return key;
+    }
+
+    @Override
+    public BiMap<K, V> inverse() {
+      return CompactHashBiMap.this;
+    }
+
+    @Override
+    public Set<V> keySet() {
+      return new KeySet<V, K>(this, true);
+    }
+
+    @Override
+    public Set<K> values() {
+      return CompactHashBiMap.this.keySet();
+    }
+
+    @Override
+    public Set<Entry<V, K>> entrySet() {
+      return new EntrySet<V, K>(this, true);
+    }
+
+    Object writeReplace() {
+      return new InverseSerializedForm<K, V>(CompactHashBiMap.this);
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  @SuppressWarnings("serial")
+  private static final class InverseSerializedForm<K, V> implements Serializable {
+    private final CompactHashBiMap<K, V> bimap;
+
+    InverseSerializedForm(CompactHashBiMap<K, V> bimap) {
+      this.bimap = bimap;
+    }
+
+    Object readResolve() {
+      return bimap.inverse();
+    }
+  }
+
+  /**
+   * @serialData the number of entries, first key, first value, second key, second value, and so on.
+   */
+  @GwtIncompatible("java.io.ObjectOutputStream")
+  private void writeObject(ObjectOutputStream stream) throws IOException {
+    stream.defaultWriteObject();
+    Serialization.writeMap(this, stream);
+  }
+
+  @GwtIncompatible("java.io.ObjectInputStream")
+  private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+    stream.defaultReadObject();
+    int size = Serialization.readCount(stream);
+    init(size);
+    Serialization.populateMap(this, stream, size);
+  }
+
+  @GwtIncompatible("Not needed in emulated source")
+  private static final long serialVersionUID = 0;
+}
@@ -0,0 +1,847 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import static guava.base.Preconditions.checkArgument;
+import static guava.base.Preconditions.checkNotNull;
+import static guava.base.Preconditions.checkPositionIndexes;
+
+import guava.annotations.Beta;
+import guava.annotations.GwtIncompatible;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UTFDataFormatException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.github.yingzhuo.commons.io.Charsets;
+
+/**
+ * Reads and writes immutable collections in a compact binary format, as an
+ * alternative to Java serialization for exchanging snapshots between
+ * processes.
+ *
+ * <p>A collection is written as its size, followed by its elements, each
+ * written by a caller-provided {@link ElementCodec}; a map as its size
+ * followed by alternating keys and values; a multimap as its number of
+ * values and of keys, followed by each key, its number of values and those
+ * values. All sizes are unsigned <i>varints</i>: seven bits per byte, least
+ * significant group first, with the high bit set on every byte but the last.
+ * No class descriptors, type tags or back-references are written, so the
+ * reader must know what it reads, and pass codecs for the same types.
+ *
+ * <p>Readers build the result directly from the size they read: elements are
+ * read into an array of exactly that size, which becomes the storage of the
+ * returned {@link ImmutableList} or sorted set, and map entries go into a
+ * builder presized to hold them. A sorted set is trusted to be in order, and
+ * only checked; a list multimap large enough to be stored in compressed
+ * sparse row form is read straight into that form.
+ *
+ * <p>Any {@code DataOutput} and {@code DataInput} may be used, but those
+ * returned by {@link #newDataOutput} and {@link #newDataInput} work on a byte
+ * array without synchronization or intermediate copies, and are much faster
+ * than a {@code DataOutputStream} over a {@code ByteArrayOutputStream}.
+ *
+ * <p>The formats are not versioned; use the same codecs and the same version
+ * of this class to write and read. Input is trusted to the extent that a
+ * size read from it is allocated up front.
+ */
+@Beta
+@GwtIncompatible("java.io.DataInput")
+public final class CompactSerialization {
+  private CompactSerialization() {}
+
+  /**
+   * Writes and reads single non-null elements of a collection.
+   * Implementations are typically stateless singletons.
+   */
+  public interface ElementCodec<E> {
+    /** Writes {@code element} to {@code out}. */
+    void write(DataOutput out, E element) throws IOException;
+
+    /**
+     * Reads an element written by {@link #write}. Must not return null.
+     */
+    E read(DataInput in) throws IOException;
+  }
+
+  /**
+   * Returns a codec for strings, written as the varint length of their UTF-8
+   * encoding followed by that encoding. Unlike
+   * {@link DataOutput#writeUTF}, strings of any length are supported.
+   */
+  public static ElementCodec<String> stringCodec() {
+    return StringCodec.INSTANCE;
+  }
+
+  /**
+   * Returns a codec for integers, written as zigzag varints, so that values
+   * of small magnitude take one or two bytes whatever their sign.
+   */
+  public static ElementCodec<Integer> intCodec() {
+    return IntCodec.INSTANCE;
+  }
+
+  /**
+   * Returns a codec for longs, written as zigzag varints.
+   */
+  public static ElementCodec<Long> longCodec() {
+    return LongCodec.INSTANCE;
+  }
+
+  private enum StringCodec implements ElementCodec<String> {
+    INSTANCE;
+
+    @Override public void write(DataOutput out, String element) throws IOException {
+      if (out instanceof ByteArrayDataOutput) {
+        ((ByteArrayDataOutput) out).writeString(element);
+        return;
+      }
+      byte[] bytes = element.getBytes(Charsets.UTF_8);
+      writeVarInt(out, bytes.length);
+      out.write(bytes);
+    }
+
+    @Override public String read(DataInput in) throws IOException {
+      int length = readSize(in);
+      if (in instanceof ByteArrayDataInput) {
+        return ((ByteArrayDataInput) in).readString(length);
+      }
+      byte[] bytes = new byte[length];
+      in.readFully(bytes);
+      return new String(bytes, Charsets.UTF_8);
+    }
+  }
+
+  private enum IntCodec implements ElementCodec<Integer> {
+    INSTANCE;
+
+    @Override public void write(DataOutput out, Integer element) throws IOException {
+      int value = element;
+      writeVarInt(out, (value << 1) ^ (value >> 31));
+    }
+
+    @Override public Integer read(DataInput in) throws IOException {
+      int zigzag = readVarInt(in);
+      return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+  }
+
+  private enum LongCodec implements ElementCodec<Long> {
+    INSTANCE;
+
+    @Override public void write(DataOutput out, Long element) throws IOException {
+      long value = element;
+      writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    @Override public Long read(DataInput in) throws IOException {
+      long zigzag = readVarLong(in);
+      return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+  }
+
+  // In-memory streams
+
+  /**
+   * Returns a new, empty {@code DataOutput} that writes to a growing byte
+   * array.
+   */
+  public static ByteArrayDataOutput newDataOutput() {
+    return new ByteArrayDataOutput(32);
+  }
+
+  /**
+   * Returns a new, empty {@code DataOutput} that writes to a byte array with
+   * room for {@code expectedSize} bytes before it needs to grow.
+   *
+   * @throws IllegalArgumentException if {@code expectedSize} is negative
+   */
+  public static ByteArrayDataOutput newDataOutput(int expectedSize) {
+    checkArgument(expectedSize >= 0, "Invalid expectedSize: %s", expectedSize);
+    return new ByteArrayDataOutput(expectedSize);
+  }
+
+  /**
+   * Returns a {@code DataInput} that reads {@code bytes} from the beginning,
+   * without copying them.
+   */
+  public static DataInput newDataInput(byte[] bytes) {
+    return newDataInput(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Returns a {@code DataInput} that reads {@code length} bytes of
+   * {@code bytes}, from {@code offset}, without copying them.
+   *
+   * @throws IndexOutOfBoundsException if {@code offset} or {@code length} is
+   *     negative, or {@code offset + length} is greater than
+   *     {@code bytes.length}
+   */
+  public static DataInput newDataInput(byte[] bytes, int offset, int length) {
+    checkPositionIndexes(offset, offset + length, bytes.length);
+    return new ByteArrayDataInput(bytes, offset, offset + length);
+  }
+
+  /**
+   * A {@code DataOutput} that writes to a growing byte array, obtained from
+   * {@link #newDataOutput}. Unlike a {@code DataOutputStream} over a
+   * {@code ByteArrayOutputStream}, it is not synchronized and never copies
+   * its buffer except to grow it; the {@link #stringCodec} writes ASCII
+   * strings to it without encoding them to a separate array first.
+   */
+  public static final class ByteArrayDataOutput implements DataOutput {
+    private byte[] buffer;
+    private int count;
+
+    ByteArrayDataOutput(int initialCapacity) {
+      buffer = new byte[initialCapacity];
+    }
+
+    private void ensureRoomFor(int length) {
+      int minCapacity = count + length;
+      if (minCapacity < 0) {
+        throw new OutOfMemoryError("output exceeds the maximum array size");
+      }
+      if (minCapacity > buffer.length) {
+        int newCapacity = buffer.length << 1;
+        buffer = Arrays.copyOf(buffer, (newCapacity - minCapacity < 0) ? minCapacity : newCapacity);
+      }
+    }
+
+    /** Returns the number of bytes written so far. */
+    public int size() {
+      return count;
+    }
+
+    /** Returns a copy of the bytes written so far. */
+    public byte[] toByteArray() {
+      return Arrays.copyOf(buffer, count);
+    }
+
+    @Override public void write(int b) {
+      ensureRoomFor(1);
+      buffer[count++] = (byte) b;
+    }
+
+    @Override public void write(byte[] b) {
+      write(b, 0, b.length);
+    }
+
+    @Override public void write(byte[] b, int off, int len) {
+      checkPositionIndexes(off, off + len, b.length);
+      ensureRoomFor(len);
+      System.arraycopy(b, off, buffer, count, len);
+      count += len;
+    }
+
+    @Override public void writeBoolean(boolean v) {
+      write(v ? 1 : 0);
+    }
+
+    @Override public void writeByte(int v) {
+      write(v);
+    }
+
+    @Override public void writeShort(int v) {
+      ensureRoomFor(2);
+      buffer[count++] = (byte) (v >>> 8);
+      buffer[count++] = (byte) v;
+    }
+
+    @Override public void writeChar(int v) {
+      writeShort(v);
+    }
+
+    @Override public void writeInt(int v) {
+      ensureRoomFor(4);
+      buffer[count++] = (byte) (v >>> 24);
+      buffer[count++] = (byte) (v >>> 16);
+      buffer[count++] = (byte) (v >>> 8);
+      buffer[count++] = (byte) v;
+    }
+
+    @Override public void writeLong(long v) {
+      writeInt((int) (v >>> 32));
+      writeInt((int) v);
+    }
+
+    @Override public void writeFloat(float v) {
+      writeInt(Float.floatToIntBits(v));
+    }
+
+    @Override public void writeDouble(double v) {
+      writeLong(Double.doubleToLongBits(v));
+    }
+
+    @Override public void writeBytes(String s) {
+      int length = s.length();
+      ensureRoomFor(length);
+      for (int i = 0; i < length; i++) {
+        buffer[count++] = (byte) s.charAt(i);
+      }
+    }
+
+    @Override public void writeChars(String s) {
+      int length = s.length();
+      ensureRoomFor(2 * length);
+      for (int i = 0; i < length; i++) {
+        char c = s.charAt(i);
+        buffer[count++] = (byte) (c >>> 8);
+        buffer[count++] = (byte) c;
+      }
+    }
+
+    @Override public void writeUTF(String s) throws IOException {
+      int length = s.length();
+      int utfLength = 0;
+      for (int i = 0; i < length; i++) {
+        char c = s.charAt(i);
+        utfLength += (c >= 0x0001 && c <= 0x007F) ? 1 : (c > 0x07FF) ? 3 : 2;
+      }
+      if (utfLength > 0xFFFF) {
+        throw new UTFDataFormatException("encoded string too long: " + utfLength + " bytes");
+      }
+      ensureRoomFor(2 + utfLength);
+      writeShort(utfLength);
+      for (int i = 0; i < length; i++) {
+        char c = s.charAt(i);
+        if (c >= 0x0001 && c <= 0x007F) {
+          buffer[count++] = (byte) c;
+        } else if (c > 0x07FF) {
+          buffer[count++] = (byte) (0xE0 | ((c >> 12) & 0x0F));
+          buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+          buffer[count++] = (byte) (0x80 | (c & 0x3F));
+        } else {
+          buffer[count++] = (byte) (0xC0 | ((c >> 6) & 0x1F));
+          buffer[count++] = (byte) (0x80 | (c & 0x3F));
+        }
+      }
+    }
+
+    /** Writes {@code value} as by {@link CompactSerialization#writeVarInt}. */
+    void writeVarInt(int value) {
+      ensureRoomFor(5);
+      while ((value & ~0x7F) != 0) {
+        buffer[count++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      buffer[count++] = (byte) value;
+    }
+
+    /** Writes {@code value} as by {@link CompactSerialization#writeVarLong}. */
+    void writeVarLong(long value) {
+      ensureRoomFor(10);
+      while ((value & ~0x7FL) != 0) {
+        buffer[count++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      buffer[count++] = (byte) value;
+    }
+
+    /**
+     * Writes {@code s} in the format of the {@link #stringCodec}, copying
+     * its characters directly if they are all ASCII.
+     */
+    void writeString(String s) throws IOException {
+      int length = s.length();
+      int start = count;
+      writeVarInt(length);
+      ensureRoomFor(length);
+      byte[] buffer = this.buffer;
+      int offset = count;
+      for (int i = 0; i < length; i++) {
+        char c = s.charAt(i);
+        if (c >= 0x80) {
+          // not ASCII: start over with the real UTF-8 length
+          count = start;
+          byte[] bytes = s.getBytes(Charsets.UTF_8);
+          writeVarInt(bytes.length);
+          write(bytes);
+          return;
+        }
+        buffer[offset + i] = (byte) c;
+      }
+      count = offset + length;
+    }
+  }
+
+  /** A {@code DataInput} reading a byte array in place. */
+  private static final class ByteArrayDataInput implements DataInput {
+    /** The length up to which ASCII strings are decoded through {@link #chars}. */
+    private static final int MAX_SCRATCH_LENGTH = 256;
+
+    private final byte[] buffer;
+    private int position;
+    private final int limit;
+    /** Scratch space to widen ASCII strings into, allocated on first use. */
+    private char[] chars;
+
+    ByteArrayDataInput(byte[] buffer, int position, int limit) {
+      this.buffer = buffer;
+      this.position = position;
+      this.limit = limit;
+    }
+
+    /** Advances over {@code length} bytes, and returns the first one's index. */
+    private int advance(int length) throws EOFException {
+      if (limit - position < length) {
+        throw new EOFException();
+      }
+      int start = position;
+      position += length;
+      return start;
+    }
+
+    @Override public void readFully(byte[] b) throws IOException {
+      readFully(b, 0, b.length);
+    }
+
+    @Override public void readFully(byte[] b, int off, int len) throws IOException {
+      checkPositionIndexes(off, off + len, b.length);
+      System.arraycopy(buffer, advance(len), b, off, len);
+    }
+
+    @Override public int skipBytes(int n) {
+      int skipped = Math.max(0, Math.min(n, limit - position));
+      position += skipped;
+      return skipped;
+    }
+
+    @Override public boolean readBoolean() throws IOException {
+      return readUnsignedByte() != 0;
+    }
+
+    @Override public byte readByte() throws IOException {
+      return buffer[advance(1)];
+    }
+
+    @Override public int readUnsignedByte() throws IOException {
+      return buffer[advance(1)] & 0xFF;
+    }
+
+    @Override public short readShort() throws IOException {
+      return (short) readUnsignedShort();
+    }
+
+    @Override public int readUnsignedShort() throws IOException {
+      int i = advance(2);
+      return ((buffer[i] & 0xFF) << 8) | (buffer[i + 1] & 0xFF);
+    }
+
+    @Override public char readChar() throws IOException {
+      return (char) readUnsignedShort();
+    }
+
+    @Override public int readInt() throws IOException {
+      int i = advance(4);
+      return (buffer[i] << 24) | ((buffer[i + 1] & 0xFF) << 16)
+          | ((buffer[i + 2] & 0xFF) << 8) | (buffer[i + 3] & 0xFF);
+    }
+
+    @Override public long readLong() throws IOException {
+      return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    @Override public float readFloat() throws IOException {
+      return Float.intBitsToFloat(readInt());
+    }
+
+    @Override public double readDouble() throws IOException {
+      return Double.longBitsToDouble(readLong());
+    }
+
+    @Override public String readLine() {
+      if (position == limit) {
+        return null;
+      }
+      StringBuilder line = new StringBuilder();
+      while (position < limit) {
+        char c = (char) (buffer[position++] & 0xFF);
+        if (c == '\n') {
+          break;
+        } else if (c == '\r') {
+          if (position < limit && buffer[position] == '\n') {
+            position++;
+          }
+          break;
+        }
+        line.append(c);
+      }
+      return line.toString();
+    }
+
+    @Override public String readUTF() throws IOException {
+      return DataInputStream.readUTF(this);
+    }
+
+    /** Reads a varint as by {@link CompactSerialization#readVarInt}. */
+    int readVarInt() throws IOException {
+      int value = 0;
+      for (int shift = 0; shift < 35; shift += 7) {
+        if (position == limit) {
+          throw new EOFException();
+        }
+        int b = buffer[position++];
+        value |= (b & 0x7F) << shift;
+        if (b >= 0) {
+          return value;
+        }
+      }
+      throw new StreamCorruptedException("malformed varint");
+    }
+
+    /** Reads a varint as by {@link CompactSerialization#readVarLong}. */
+    long readVarLong() throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 70; shift += 7) {
+        if (position == limit) {
+          throw new EOFException();
+        }
+        int b = buffer[position++];
+        value |= (long) (b & 0x7F) << shift;
+        if (b >= 0) {
+          return value;
+        }
+      }
+      throw new StreamCorruptedException("malformed varint");
+    }
+
+    /**
+     * Decodes {@code length} bytes of UTF-8 directly from the array. Short
+     * ASCII strings, the common case, are widened by hand, which is much
+     * cheaper than setting up a charset decoder for each of them.
+     */
+    String readString(int length) throws IOException {
+      int start = advance(length);
+      if (length <= MAX_SCRATCH_LENGTH) {
+        char[] chars = this.chars;
+        if (chars == null) {
+          chars = this.chars = new char[MAX_SCRATCH_LENGTH];
+        }
+        int i = 0;
+        for (; i < length; i++) {
+          byte b = buffer[start + i];
+          if (b < 0) {
+            break;
+          }
+          chars[i] = (char) b;
+        }
+        if (i == length) {
+          return new String(chars, 0, length);
+        }
+      }
+      return new String(buffer, start, length, Charsets.UTF_8);
+    }
+  }
+
+  // Varints
+
+  /**
+   * Writes {@code value} as an unsigned varint of one to five bytes.
+   * Negative values take five bytes.
+   */
+  public static void writeVarInt(DataOutput out, int value) throws IOException {
+    if (out instanceof ByteArrayDataOutput) {
+      ((ByteArrayDataOutput) out).writeVarInt(value);
+      return;
+    }
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  /**
+   * Reads an unsigned varint written by {@link #writeVarInt}.
+   *
+   * @throws StreamCorruptedException if the varint is longer than five bytes
+   */
+  public static int readVarInt(DataInput in) throws IOException {
+    if (in instanceof ByteArrayDataInput) {
+      return ((ByteArrayDataInput) in).readVarInt();
+    }
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new StreamCorruptedException("malformed varint");
+  }
+
+  /**
+   * Writes {@code value} as an unsigned varint of one to ten bytes.
+   */
+  public static void writeVarLong(DataOutput out, long value) throws IOException {
+    if (out instanceof ByteArrayDataOutput) {
+      ((ByteArrayDataOutput) out).writeVarLong(value);
+      return;
+    }
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  /**
+   * Reads an unsigned varint written by {@link #writeVarLong}.
+   *
+   * @throws StreamCorruptedException if the varint is longer than ten bytes
+   */
+  public static long readVarLong(DataInput in) throws IOException {
+    if (in instanceof ByteArrayDataInput) {
+      return ((ByteArrayDataInput) in).readVarLong();
+    }
+    long value = 0;
+    for (int shift = 0; shift < 70; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new StreamCorruptedException("malformed varint");
+  }
+
+  private static int readSize(DataInput in) throws IOException {
+    int size = readVarInt(in);
+    if (size < 0) {
+      throw new StreamCorruptedException("invalid size: " + (size & 0xFFFFFFFFL));
+    }
+    return size;
+  }
+
+  private static <E> E readElement(DataInput in, ElementCodec<? extends E> codec)
+      throws IOException {
+    return checkNotNull(codec.read(in), "%s read a null element", codec);
+  }
+
+  private static <E> Object[] readElements(
+      DataInput in, ElementCodec<? extends E> codec, int size) throws IOException {
+    Object[] elements = new Object[size];
+    for (int i = 0; i < size; i++) {
+      elements[i] = readElement(in, codec);
+    }
+    return elements;
+  }
+
+  // Collections
+
+  /**
+   * Writes the size of {@code collection}, then its elements in iteration
+   * order. The result may be read by {@link #readList}, {@link #readSet} or,
+   * if the collection is sorted, {@link #readSortedSet}.
+   *
+   * @throws NullPointerException if any element is null
+   */
+  public static <E> void writeCollection(DataOutput out, Collection<? extends E> collection,
+      ElementCodec<? super E> codec) throws IOException {
+    writeVarInt(out, collection.size());
+    for (E element : collection) {
+      codec.write(out, checkNotNull(element));
+    }
+  }
+
+  /**
+   * Reads an {@code ImmutableList} written by {@link #writeCollection}. The
+   * array the elements are read into becomes the list's storage.
+   */
+  public static <E> ImmutableList<E> readList(DataInput in, ElementCodec<? extends E> codec)
+      throws IOException {
+    int size = readSize(in);
+    return ImmutableList.asImmutableList(readElements(in, codec, size));
+  }
+
+  /**
+   * Reads an {@code ImmutableSet} written by {@link #writeCollection}, in the
+   * order of the elements read. Duplicate elements are ignored.
+   */
+  public static <E> ImmutableSet<E> readSet(DataInput in, ElementCodec<? extends E> codec)
+      throws IOException {
+    int size = readSize(in);
+    return ImmutableSet.construct(size, readElements(in, codec, size));
+  }
+
+  /**
+   * Reads an {@code ImmutableSortedSet} in natural order, written by
+   * {@link #writeCollection} from a set in that order.
+   */
+  @SuppressWarnings("unchecked") // E is Comparable
+  public static <E extends Comparable<? super E>> ImmutableSortedSet<E> readSortedSet(
+      DataInput in, ElementCodec<? extends E> codec) throws IOException {
+    return readSortedSet(in, codec, (Comparator<? super E>) Ordering.natural());
+  }
+
+  /**
+   * Reads an {@code ImmutableSortedSet} ordered by {@code comparator}, written
+   * by {@link #writeCollection} from a set in that order. If the elements are
+   * in strictly ascending order, which takes one comparison per element to
+   * check, the array they are read into becomes the set's storage; otherwise,
+   * they are sorted and deduplicated as by
+   * {@link ImmutableSortedSet#copyOf(Comparator, Collection)}.
+   */
+  public static <E> ImmutableSortedSet<E> readSortedSet(DataInput in,
+      ElementCodec<? extends E> codec, Comparator<? super E> comparator) throws IOException {
+    checkNotNull(comparator);
+    int size = readSize(in);
+    if (size == 0) {
+      return ImmutableSortedSet.emptySet(comparator);
+    }
+    Object[] elements = readElements(in, codec, size);
+    ImmutableList<E> list = ImmutableList.asImmutableList(elements);
+    @SuppressWarnings("unchecked") // elements were read by an ElementCodec<? extends E>
+    Comparator<Object> unsafeComparator = (Comparator<Object>) comparator;
+    for (int i = 1; i < size; i++) {
+      if (unsafeComparator.compare(elements[i - 1], elements[i]) >= 0) {
+        return ImmutableSortedSet.copyOf(comparator, list);
+      }
+    }
+    return new RegularImmutableSortedSet<E>(list, comparator);
+  }
+
+  // Maps
+
+  /**
+   * Writes the size of {@code map}, then each of its keys followed by its
+   * value, in iteration order.
+   *
+   * @throws NullPointerException if any key or value is null
+   */
+  public static <K, V> void writeMap(DataOutput out, Map<? extends K, ? extends V> map,
+      ElementCodec<? super K> keyCodec, ElementCodec<? super V> valueCodec) throws IOException {
+    writeVarInt(out, map.size());
+    for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+      keyCodec.write(out, checkNotNull(entry.getKey()));
+      valueCodec.write(out, checkNotNull(entry.getValue()));
+    }
+  }
+
+  /**
+   * Reads an {@code ImmutableMap} written by {@link #writeMap}, through a
+   * builder presized to its entries.
+   *
+   * @throws IllegalArgumentException if a key is read twice
+   */
+  public static <K, V> ImmutableMap<K, V> readMap(DataInput in,
+      ElementCodec<? extends K> keyCodec, ElementCodec<? extends V> valueCodec)
+      throws IOException {
+    int size = readSize(in);
+    ImmutableMap.Builder<K, V> builder = new ImmutableMap.Builder<K, V>(size);
+    for (int i = 0; i < size; i++) {
+      K key = readElement(in, keyCodec);
+      builder.put(key, CompactSerialization.<V>readElement(in, valueCodec));
+    }
+    return builder.build();
+  }
+
+  // Multimaps
+
+  /**
+   * Writes the number of values and of keys of {@code multimap}, then each
+   * key followed by its number of values and those values, in the iteration
+   * order of {@link Multimap#asMap}.
+   *
+   * @throws NullPointerException if any key or value is null
+   */
+  public static <K, V> void writeMultimap(DataOutput out,
+      Multimap<? extends K, ? extends V> multimap,
+      ElementCodec<? super K> keyCodec, ElementCodec<? super V> valueCodec) throws IOException {
+    Map<? extends K, ? extends Collection<? extends V>> map = multimap.asMap();
+    writeVarInt(out, multimap.size());
+    writeVarInt(out, map.size());
+    for (Entry<? extends K, ? extends Collection<? extends V>> entry : map.entrySet()) {
+      keyCodec.write(out, checkNotNull(entry.getKey()));
+      writeCollection(out, entry.getValue(), valueCodec);
+    }
+  }
+
+  /**
+   * Reads an {@code ImmutableListMultimap} written by {@link #writeMultimap}.
+   * The values of each key are read into an array that becomes the storage of
+   * its list; if there are enough values for the multimap to be stored in
+   * compressed sparse row form, all are read into one shared array instead.
+   *
+   * @throws IllegalArgumentException if a key is read twice
+   * @throws StreamCorruptedException if the numbers of values read do not add
+   *     up, or a key has no values
+   */
+  public static <K, V> ImmutableListMultimap<K, V> readListMultimap(DataInput in,
+      ElementCodec<? extends K> keyCodec, ElementCodec<? extends V> valueCodec)
+      throws IOException {
+    int valueCount = readSize(in);
+    int keyCount = readSize(in);
+    if (valueCount >= ImmutableListMultimap.CSR_THRESHOLD) {
+      Object[] keys = new Object[keyCount];
+      int[] offsets = new int[keyCount + 1];
+      Object[] values = new Object[valueCount];
+      int offset = 0;
+      for (int i = 0; i < keyCount; i++) {
+        keys[i] = readElement(in, keyCodec);
+        int size = readGroupSize(in, valueCount - offset);
+        for (int end = offset + size; offset < end; offset++) {
+          values[offset] = readElement(in, valueCodec);
+        }
+        offsets[i + 1] = offset;
+      }
+      checkTotal(offset, valueCount);
+      return new ImmutableListMultimap<K, V>(
+          new CsrImmutableMap<K, V>(keys, offsets, values), valueCount);
+    }
+
+    ImmutableMap.Builder<K, ImmutableList<V>> builder =
+        new ImmutableMap.Builder<K, ImmutableList<V>>(keyCount);
+    int total = 0;
+    for (int i = 0; i < keyCount; i++) {
+      K key = readElement(in, keyCodec);
+      int size = readGroupSize(in, valueCount - total);
+      builder.put(key, ImmutableList.<V>asImmutableList(readElements(in, valueCodec, size)));
+      total += size;
+    }
+    checkTotal(total, valueCount);
+    return (keyCount == 0)
+        ? ImmutableListMultimap.<K, V>of()
+        : new ImmutableListMultimap<K, V>(builder.build(), valueCount);
+  }
+
+  private static int readGroupSize(DataInput in, int remaining) throws IOException {
+    int size = readSize(in);
+    if (size == 0 || size > remaining) {
+      throw new StreamCorruptedException("invalid number of values for a key: " + size);
+    }
+    return size;
+  }
+
+  private static void checkTotal(int total, int expected) throws IOException {
+    if (total != expected) {
+      throw new StreamCorruptedException(
+          "expected " + expected + " values in total, but read " + total);
+    }
+  }
+}
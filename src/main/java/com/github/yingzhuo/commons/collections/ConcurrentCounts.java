@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import static com.github.yingzhuo.commons.collections.CollectPreconditions.checkNonnegative;
+import static guava.base.Preconditions.checkArgument;
+import static guava.base.Preconditions.checkNotNull;
+
+import com.github.yingzhuo.commons.math.IntMath;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+/**
+ * Atomic multiset operations on a {@code ConcurrentMap} from elements to their
+ * counts, shared by {@link ConcurrentHashMultiset} and
+ * {@link ConcurrentTreeMultiset}. Each method has the semantics of the
+ * {@link Multiset} method of the same name.
+ */
+/*
+ * The atomic operations are implemented primarily in terms of AtomicInteger's
+ * atomic operations, with some help from ConcurrentMap's atomic operations on
+ * creation and removal (including automatic removal of zeroes). If the
+ * modification of an AtomicInteger results in zero, we compareAndSet the value
+ * to zero; if that succeeds, we remove the entry from the Map. If another
+ * operation sees a zero in the map, it knows that the entry is about to be
+ * removed, so this operation may remove it (often by replacing it with a new
+ * AtomicInteger).
+ */
+final class ConcurrentCounts {
+  private ConcurrentCounts() {}
+
+  static int count(ConcurrentMap<?, AtomicInteger> countMap, @Nullable Object element) {
+    AtomicInteger existingCounter = Maps.safeGet(countMap, element);
+    return (existingCounter == null) ? 0 : existingCounter.get();
+  }
+
+  static <E> int add(ConcurrentMap<E, AtomicInteger> countMap, E element, int occurrences) {
+    checkNotNull(element);
+    if (occurrences == 0) {
+      return count(countMap, element);
+    }
+    checkArgument(occurrences > 0, "Invalid occurrences: %s", occurrences);
+
+    while (true) {
+      AtomicInteger existingCounter = Maps.safeGet(countMap, element);
+      if (existingCounter == null) {
+        existingCounter = countMap.putIfAbsent(element, new AtomicInteger(occurrences));
+        if (existingCounter == null) {
+          return 0;
+        }
+        // existingCounter != null: fall through to operate against the existing AtomicInteger
+      }
+
+      while (true) {
+        int oldValue = existingCounter.get();
+        if (oldValue != 0) {
+          try {
+            int newValue = IntMath.checkedAdd(oldValue, occurrences);
+            if (existingCounter.compareAndSet(oldValue, newValue)) {
+              // newValue can't == 0, so no need to check & remove
+              return oldValue;
+            }
+          } catch (ArithmeticException overflow) {
+            throw new IllegalArgumentException("Overflow adding " + occurrences
+                + " occurrences to a count of " + oldValue);
+          }
+        } else {
+          // In the case of a concurrent remove, we might observe a zero value, which means another
+          // thread is about to remove (element, existingCounter) from the map. Rather than wait,
+          // we can just do that work here.
+          AtomicInteger newCounter = new AtomicInteger(occurrences);
+          if ((countMap.putIfAbsent(element, newCounter) == null)
+              || countMap.replace(element, existingCounter, newCounter)) {
+            return 0;
+          }
+          break;
+        }
+      }
+
+      // If we're still here, there was a race, so just try again.
+    }
+  }
+
+  static int remove(
+      ConcurrentMap<?, AtomicInteger> countMap, @Nullable Object element, int occurrences) {
+    if (occurrences == 0) {
+      return count(countMap, element);
+    }
+    checkArgument(occurrences > 0, "Invalid occurrences: %s", occurrences);
+
+    AtomicInteger existingCounter = Maps.safeGet(countMap, element);
+    if (existingCounter == null) {
+      return 0;
+    }
+    while (true) {
+      int oldValue = existingCounter.get();
+      if (oldValue != 0) {
+        int newValue = Math.max(0, oldValue - occurrences);
+        if (existingCounter.compareAndSet(oldValue, newValue)) {
+          if (newValue == 0) {
+            // Just CASed to 0; remove the entry to clean up the map. If the removal fails,
+            // another thread has already replaced it with a new counter, which is fine.
+            countMap.remove(element, existingCounter);
+          }
+          return oldValue;
+        }
+      } else {
+        return 0;
+      }
+    }
+  }
+
+  static boolean removeExactly(
+      ConcurrentMap<?, AtomicInteger> countMap, @Nullable Object element, int occurrences) {
+    if (occurrences == 0) {
+      return true;
+    }
+    checkArgument(occurrences > 0, "Invalid occurrences: %s", occurrences);
+
+    AtomicInteger existingCounter = Maps.safeGet(countMap, element);
+    if (existingCounter == null) {
+      return false;
+    }
+    while (true) {
+      int oldValue = existingCounter.get();
+      if (oldValue < occurrences) {
+        return false;
+      }
+      int newValue = oldValue - occurrences;
+      if (existingCounter.compareAndSet(oldValue, newValue)) {
+        if (newValue == 0) {
+          // Just CASed to 0; remove the entry to clean up the map. If the removal fails,
+          // another thread has already replaced it with a new counter, which is fine.
+          countMap.remove(element, existingCounter);
+        }
+        return true;
+      }
+    }
+  }
+
+  static <E> int setCount(ConcurrentMap<E, AtomicInteger> countMap, E element, int count) {
+    checkNotNull(element);
+    checkNonnegative(count, "count");
+    while (true) {
+      AtomicInteger existingCounter = Maps.safeGet(countMap, element);
+      if (existingCounter == null) {
+        if (count == 0) {
+          return 0;
+        } else {
+          existingCounter = countMap.putIfAbsent(element, new AtomicInteger(count));
+          if (existingCounter == null) {
+            return 0;
+          }
+          // existingCounter != null: fall through
+        }
+      }
+
+      while (true) {
+        int oldValue = existingCounter.get();
+        if (oldValue == 0) {
+          if (count == 0) {
+            return 0;
+          } else {
+            AtomicInteger newCounter = new AtomicInteger(count);
+            if ((countMap.putIfAbsent(element, newCounter) == null)
+                || countMap.replace(element, existingCounter, newCounter)) {
+              return 0;
+            }
+          }
+          break;
+        } else {
+          if (existingCounter.compareAndSet(oldValue, count)) {
+            if (count == 0) {
+              // Just CASed to 0; remove the entry to clean up the map. If the removal fails,
+              // another thread has already replaced it with a new counter, which is fine.
+              countMap.remove(element, existingCounter);
+            }
+            return oldValue;
+          }
+        }
+      }
+    }
+  }
+
+  static <E> boolean setCount(
+      ConcurrentMap<E, AtomicInteger> countMap, E element, int expectedOldCount, int newCount) {
+    checkNotNull(element);
+    checkNonnegative(expectedOldCount, "oldCount");
+    checkNonnegative(newCount, "newCount");
+
+    AtomicInteger existingCounter = Maps.safeGet(countMap, element);
+    if (existingCounter == null) {
+      if (expectedOldCount != 0) {
+        return false;
+      } else if (newCount == 0) {
+        return true;
+      } else {
+        // if our write lost the race, it must have lost to a nonzero value, so we can stop
+        return countMap.putIfAbsent(element, new AtomicInteger(newCount)) == null;
+      }
+    }
+    int oldValue = existingCounter.get();
+    if (oldValue == expectedOldCount) {
+      if (oldValue == 0) {
+        if (newCount == 0) {
+          // Just observed a 0; try to remove the entry to clean up the map
+          countMap.remove(element, existingCounter);
+          return true;
+        } else {
+          AtomicInteger newCounter = new AtomicInteger(newCount);
+          return (countMap.putIfAbsent(element, newCounter) == null)
+              || countMap.replace(element, existingCounter, newCounter);
+        }
+      } else {
+        if (existingCounter.compareAndSet(oldValue, newCount)) {
+          if (newCount == 0) {
+            // Just CASed to 0; remove the entry to clean up the map. If the removal fails,
+            // another thread has already replaced it with a new counter, which is fine.
+            countMap.remove(element, existingCounter);
+          }
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+}
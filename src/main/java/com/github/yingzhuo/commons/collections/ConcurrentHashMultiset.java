@@ -16,14 +16,11 @@
 
 package com.github.yingzhuo.commons.collections;
 
-import static com.github.yingzhuo.commons.collections.CollectPreconditions.checkNonnegative;
 import static com.github.yingzhuo.commons.collections.CollectPreconditions.checkRemove;
 import static guava.base.Preconditions.checkArgument;
-import static guava.base.Preconditions.checkNotNull;
 
 import com.github.yingzhuo.commons.collections.Serialization.FieldSetter;
 import com.github.yingzhuo.commons.lang.primitive.Ints;
-import com.github.yingzhuo.commons.math.IntMath;
 
 import guava.annotations.Beta;
 import guava.annotations.VisibleForTesting;
@@ -58,13 +55,8 @@ import javax.annotation.Nullable;
 public final class ConcurrentHashMultiset<E> extends AbstractMultiset<E> implements Serializable {
 
   /*
-   * The ConcurrentHashMultiset's atomic operations are implemented primarily in terms of
-   * AtomicInteger's atomic operations, with some help from ConcurrentMap's atomic operations on
-   * creation and removal (including automatic removal of zeroes). If the modification of an
-   * AtomicInteger results in zero, we compareAndSet the value to zero; if that succeeds, we remove
-   * the entry from the Map. If another operation sees a zero in the map, it knows that the entry is
-   * about to be removed, so this operation may remove it (often by replacing it with a new
-   * AtomicInteger).
+   * The ConcurrentHashMultiset's atomic operations are implemented in ConcurrentCounts, primarily in
+   * terms of AtomicInteger's atomic operations.
    */
 
   /** The number of occurrences of each element. */
@@ -153,8 +145,7 @@ public final class ConcurrentHashMultiset<E> extends AbstractMultiset<E> impleme
    * @return the nonnegative number of occurrences of the element
    */
   @Override public int count(@Nullable Object element) {
-    AtomicInteger existingCounter = Maps.safeGet(countMap, element);
-    return (existingCounter == null) ? 0 : existingCounter.get();
+    return ConcurrentCounts.count(countMap, element);
   }
 
   /**
@@ -211,50 +202,7 @@ public final class ConcurrentHashMultiset<E> extends AbstractMultiset<E> impleme
    *     the resulting amount would exceed {@link Integer#MAX_VALUE}
    */
   @Override public int add(E element, int occurrences) {
-    checkNotNull(element);
-    if (occurrences == 0) {
-      return count(element);
-    }
-    checkArgument(occurrences > 0, "Invalid occurrences: %s", occurrences);
-
-    while (true) {
-      AtomicInteger existingCounter = Maps.safeGet(countMap, element);
-      if (existingCounter == null) {
-        existingCounter = countMap.putIfAbsent(element, new AtomicInteger(occurrences));
-        if (existingCounter == null) {
-          return 0;
-        }
-        // existingCounter != null: fall through to operate against the existing AtomicInteger
-      }
-
-      while (true) {
-        int oldValue = existingCounter.get();
-        if (oldValue != 0) {
-          try {
-            int newValue = IntMath.checkedAdd(oldValue, occurrences);
-            if (existingCounter.compareAndSet(oldValue, newValue)) {
-              // newValue can't == 0, so no need to check & remove
-              return oldValue;
-            }
-          } catch (ArithmeticException overflow) {
-            throw new IllegalArgumentException("Overflow adding " + occurrences
-                + " occurrences to a count of " + oldValue);
-          }
-        } else {
-          // In the case of a concurrent remove, we might observe a zero value, which means another
-          // thread is about to remove (element, existingCounter) from the map. Rather than wait,
-          // we can just do that work here.
-          AtomicInteger newCounter = new AtomicInteger(occurrences);
-          if ((countMap.putIfAbsent(element, newCounter) == null)
-              || countMap.replace(element, existingCounter, newCounter)) {
-            return 0;
-          }
-          break;
-        }
-      }
-
-      // If we're still here, there was a race, so just try again.
-    }
+    return ConcurrentCounts.add(countMap, element, occurrences);
   }
 
   /**
@@ -276,31 +224,7 @@ public final class ConcurrentHashMultiset<E> extends AbstractMultiset<E> impleme
    * testRemove_nullAllowed.
    */
   @Override public int remove(@Nullable Object element, int occurrences) {
-    if (occurrences == 0) {
-      return count(element);
-    }
-    checkArgument(occurrences > 0, "Invalid occurrences: %s", occurrences);
-
-    AtomicInteger existingCounter = Maps.safeGet(countMap, element);
-    if (existingCounter == null) {
-      return 0;
-    }
-    while (true) {
-      int oldValue = existingCounter.get();
-      if (oldValue != 0) {
-        int newValue = Math.max(0, oldValue - occurrences);
-        if (existingCounter.compareAndSet(oldValue, newValue)) {
-          if (newValue == 0) {
-            // Just CASed to 0; remove the entry to clean up the map. If the removal fails,
-            // another thread has already replaced it with a new counter, which is fine.
-            countMap.remove(element, existingCounter);
-          }
-          return oldValue;
-        }
-      } else {
-        return 0;
-      }
-    }
+    return ConcurrentCounts.remove(countMap, element, occurrences);
   }
 
   /**
@@ -315,30 +239,7 @@ public final class ConcurrentHashMultiset<E> extends AbstractMultiset<E> impleme
    * @return {@code true} if the removal was possible (including if {@code occurrences} is zero)
    */
   public boolean removeExactly(@Nullable Object element, int occurrences) {
-    if (occurrences == 0) {
-      return true;
-    }
-    checkArgument(occurrences > 0, "Invalid occurrences: %s", occurrences);
-
-    AtomicInteger existingCounter = Maps.safeGet(countMap, element);
-    if (existingCounter == null) {
-      return false;
-    }
-    while (true) {
-      int oldValue = existingCounter.get();
-      if (oldValue < occurrences) {
-        return false;
-      }
-      int newValue = oldValue - occurrences;
-      if (existingCounter.compareAndSet(oldValue, newValue)) {
-        if (newValue == 0) {
-          // Just CASed to 0; remove the entry to clean up the map. If the removal fails,
-          // another thread has already replaced it with a new counter, which is fine.
-          countMap.remove(element, existingCounter);
-        }
-        return true;
-      }
-    }
+    return ConcurrentCounts.removeExactly(countMap, element, occurrences);
   }
 
   /**
@@ -349,47 +250,7 @@ public final class ConcurrentHashMultiset<E> extends AbstractMultiset<E> impleme
    * @throws IllegalArgumentException if {@code count} is negative
    */
   @Override public int setCount(E element, int count) {
-    checkNotNull(element);
-    checkNonnegative(count, "count");
-    while (true) {
-      AtomicInteger existingCounter = Maps.safeGet(countMap, element);
-      if (existingCounter == null) {
-        if (count == 0) {
-          return 0;
-        } else {
-          existingCounter = countMap.putIfAbsent(element, new AtomicInteger(count));
-          if (existingCounter == null) {
-            return 0;
-          }
-          // existingCounter != null: fall through
-        }
-      }
-
-      while (true) {
-        int oldValue = existingCounter.get();
-        if (oldValue == 0) {
-          if (count == 0) {
-            return 0;
-          } else {
-            AtomicInteger newCounter = new AtomicInteger(count);
-            if ((countMap.putIfAbsent(element, newCounter) == null)
-                || countMap.replace(element, existingCounter, newCounter)) {
-              return 0;
-            }
-          }
-          break;
-        } else {
-          if (existingCounter.compareAndSet(oldValue, count)) {
-            if (count == 0) {
-              // Just CASed to 0; remove the entry to clean up the map. If the removal fails,
-              // another thread has already replaced it with a new counter, which is fine.
-              countMap.remove(element, existingCounter);
-            }
-            return oldValue;
-          }
-        }
-      }
-    }
+    return ConcurrentCounts.setCount(countMap, element, count);
   }
 
   /**
@@ -404,45 +265,7 @@ public final class ConcurrentHashMultiset<E> extends AbstractMultiset<E> impleme
    * @throws IllegalArgumentException if {@code expectedOldCount} or {@code newCount} is negative
    */
   @Override public boolean setCount(E element, int expectedOldCount, int newCount) {
-    checkNotNull(element);
-    checkNonnegative(expectedOldCount, "oldCount");
-    checkNonnegative(newCount, "newCount");
-
-    AtomicInteger existingCounter = Maps.safeGet(countMap, element);
-    if (existingCounter == null) {
-      if (expectedOldCount != 0) {
-        return false;
-      } else if (newCount == 0) {
-        return true;
-      } else {
-        // if our write lost the race, it must have lost to a nonzero value, so we can stop
-        return countMap.putIfAbsent(element, new AtomicInteger(newCount)) == null;
-      }
-    }
-    int oldValue = existingCounter.get();
-    if (oldValue == expectedOldCount) {
-      if (oldValue == 0) {
-        if (newCount == 0) {
-          // Just observed a 0; try to remove the entry to clean up the map
-          countMap.remove(element, existingCounter);
-          return true;
-        } else {
-          AtomicInteger newCounter = new AtomicInteger(newCount);
-          return (countMap.putIfAbsent(element, newCounter) == null)
-              || countMap.replace(element, existingCounter, newCounter);
-        }
-      } else {
-        if (existingCounter.compareAndSet(oldValue, newCount)) {
-          if (newCount == 0) {
-            // Just CASed to 0; remove the entry to clean up the map. If the removal fails,
-            // another thread has already replaced it with a new counter, which is fine.
-            countMap.remove(element, existingCounter);
-          }
-          return true;
-        }
-      }
-    }
-    return false;
+    return ConcurrentCounts.setCount(countMap, element, expectedOldCount, newCount);
   }
 
   // Views
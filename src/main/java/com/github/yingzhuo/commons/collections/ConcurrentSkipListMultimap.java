@@ -0,0 +1,607 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import static guava.base.Preconditions.checkNotNull;
+
+import com.github.yingzhuo.commons.lang.primitive.Ints;
+
+import guava.annotations.Beta;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link SortedSetMultimap} that supports concurrent modifications, backed
+ * by a single {@link ConcurrentSkipListSet} of key-value pairs ordered by key
+ * and then by value. Null keys and values are not supported.
+ *
+ * <p>Reads never block, and {@link #put} and {@link #remove(Object, Object)}
+ * are atomic and lock-free. Bulk operations such as {@link #removeAll},
+ * {@link #replaceValues} and {@link #putAll} are not atomic. Iterators and
+ * views are <i>weakly consistent</i>, in the same sense as those of
+ * {@code ConcurrentSkipListSet}: they never throw
+ * {@link java.util.ConcurrentModificationException}, and they reflect some,
+ * all or none of the updates made after they were created. In particular, a
+ * range scan over {@link #subMultimap}, {@link #headMultimap} or
+ * {@link #tailMultimap} can run while other threads keep adding entries.
+ *
+ * <p>Because pairs are stored individually, {@link #size} and the sizes of
+ * the value collections are computed by traversal, and the result may not
+ * reflect concurrent updates.
+ *
+ * <p>As with {@link TreeMultimap}, both comparators must be <i>consistent
+ * with equals</i>.
+ *
+ * @see ConcurrentTreeMultiset
+ */
+@Beta
+public final class ConcurrentSkipListMultimap<K, V> extends AbstractMultimap<K, V>
+    implements SortedSetMultimap<K, V>, Serializable {
+  private transient Comparator<? super K> keyComparator;
+  private transient Comparator<? super V> valueComparator;
+  private transient NavigableSet<Node<K, V>> entries;
+
+  /**
+   * Creates an empty {@code ConcurrentSkipListMultimap} ordered by the natural
+   * ordering of its keys and values.
+   */
+  @SuppressWarnings("rawtypes")
+  public static <K extends Comparable, V extends Comparable>
+      ConcurrentSkipListMultimap<K, V> create() {
+    return new ConcurrentSkipListMultimap<K, V>(Ordering.natural(), Ordering.natural());
+  }
+
+  /**
+   * Creates an empty {@code ConcurrentSkipListMultimap} using explicit
+   * comparators. Neither comparator may be null; use
+   * {@link Ordering#natural()} to specify natural order.
+   *
+   * @param keyComparator the comparator that determines the key ordering
+   * @param valueComparator the comparator that determines the value ordering
+   */
+  public static <K, V> ConcurrentSkipListMultimap<K, V> create(
+      Comparator<? super K> keyComparator,
+      Comparator<? super V> valueComparator) {
+    return new ConcurrentSkipListMultimap<K, V>(checkNotNull(keyComparator),
+        checkNotNull(valueComparator));
+  }
+
+  /**
+   * Constructs a {@code ConcurrentSkipListMultimap}, ordered by the natural
+   * ordering of its keys and values, with the same mappings as the specified
+   * multimap.
+   *
+   * @param multimap the multimap whose contents are copied to this multimap
+   */
+  @SuppressWarnings("rawtypes")
+  public static <K extends Comparable, V extends Comparable>
+      ConcurrentSkipListMultimap<K, V> create(Multimap<? extends K, ? extends V> multimap) {
+    ConcurrentSkipListMultimap<K, V> result = create();
+    result.putAll(multimap);
+    return result;
+  }
+
+  private ConcurrentSkipListMultimap(Comparator<? super K> keyComparator,
+      Comparator<? super V> valueComparator) {
+    this(keyComparator, valueComparator, new ConcurrentSkipListSet<Node<K, V>>(
+        new NodeComparator<K, V>(keyComparator, valueComparator)));
+  }
+
+  private ConcurrentSkipListMultimap(Comparator<? super K> keyComparator,
+      Comparator<? super V> valueComparator, NavigableSet<Node<K, V>> entries) {
+    this.keyComparator = keyComparator;
+    this.valueComparator = valueComparator;
+    this.entries = entries;
+  }
+
+  /**
+   * A key-value pair, or a marker that sorts just before ({@code bound < 0})
+   * or just after ({@code bound > 0}) all pairs with its key.
+   */
+  private static final class Node<K, V> extends AbstractMapEntry<K, V>
+      implements Serializable {
+    final K key;
+    final V value;
+    final int bound;
+
+    Node(K key, V value, int bound) {
+      this.key = key;
+      this.value = value;
+      this.bound = bound;
+    }
+
+    @Override public K getKey() {
+      return key;
+    }
+
+    @Override public V getValue() {
+      return value;
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private static final class NodeComparator<K, V>
+      implements Comparator<Node<K, V>>, Serializable {
+    final Comparator<? super K> keyComparator;
+    final Comparator<? super V> valueComparator;
+
+    NodeComparator(Comparator<? super K> keyComparator,
+        Comparator<? super V> valueComparator) {
+      this.keyComparator = keyComparator;
+      this.valueComparator = valueComparator;
+    }
+
+    @Override public int compare(Node<K, V> left, Node<K, V> right) {
+      int result = keyComparator.compare(left.key, right.key);
+      if (result != 0) {
+        return result;
+      } else if (left.bound != 0 || right.bound != 0) {
+        return Ints.compare(left.bound, right.bound);
+      }
+      return valueComparator.compare(left.value, right.value);
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private static <K, V> Node<K, V> entry(K key, V value) {
+    return new Node<K, V>(checkNotNull(key), checkNotNull(value), 0);
+  }
+
+  @SuppressWarnings("unchecked") // the marker is only handed to the comparator
+  private Node<K, V> marker(Object key, int bound) {
+    return new Node<K, V>((K) checkNotNull(key), null, bound);
+  }
+
+  /** Returns a view of the pairs with the given key. */
+  private NavigableSet<Node<K, V>> pairs(Object key) {
+    return entries.subSet(marker(key, -1), false, marker(key, 1), false);
+  }
+
+  /**
+   * Returns the comparator that orders the multimap keys.
+   */
+  public Comparator<? super K> keyComparator() {
+    return keyComparator;
+  }
+
+  @Override
+  public Comparator<? super V> valueComparator() {
+    return valueComparator;
+  }
+
+  // Query Operations
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The pairs are counted by traversal. If the multimap is modified by
+   * other threads during this method, it is undefined which (if any) of these
+   * modifications will be reflected in the result.
+   */
+  @Override
+  public int size() {
+    return entries.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return entries.isEmpty();
+  }
+
+  @Override
+  public boolean containsKey(@Nullable Object key) {
+    try {
+      return !pairs(key).isEmpty();
+    } catch (ClassCastException e) {
+      return false;
+    } catch (NullPointerException e) {
+      return false;
+    } catch (IllegalArgumentException e) {
+      // key is outside the range of this view
+      return false;
+    }
+  }
+
+  @Override
+  public boolean containsValue(@Nullable Object value) {
+    if (value == null) {
+      return false;
+    }
+    for (Node<K, V> node : entries) {
+      if (value.equals(node.value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean containsEntry(@Nullable Object key, @Nullable Object value) {
+    return key != null && value != null
+        && Collections2.safeContains(entries, new Node<Object, Object>(key, value, 0));
+  }
+
+  // Modification Operations
+
+  /**
+   * Stores a key-value pair in the multimap. This operation is atomic.
+   *
+   * @return {@code true} if the pair was not already present
+   * @throws IllegalArgumentException if this is a range view and {@code key}
+   *     is outside its range
+   */
+  @Override
+  public boolean put(K key, V value) {
+    return entries.add(entry(key, value));
+  }
+
+  /**
+   * Removes a single key-value pair from the multimap, if present. This
+   * operation is atomic.
+   */
+  @Override
+  public boolean remove(@Nullable Object key, @Nullable Object value) {
+    return key != null && value != null
+        && Collections2.safeRemove(entries, new Node<Object, Object>(key, value, 0));
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Each pair is removed atomically, but the operation as a whole is not
+   * atomic. The returned set holds exactly the values removed by this call.
+   */
+  @Override
+  public SortedSet<V> removeAll(@Nullable Object key) {
+    SortedSet<V> removed = Sets.newTreeSet(valueComparator);
+    try {
+      for (Iterator<Node<K, V>> iterator = pairs(key).iterator(); iterator.hasNext();) {
+        Node<K, V> node = iterator.next();
+        if (entries.remove(node)) {
+          removed.add(node.value);
+        }
+      }
+    } catch (ClassCastException e) {
+      // not a key
+    } catch (NullPointerException e) {
+      // not a key
+    } catch (IllegalArgumentException e) {
+      // key is outside the range of this view
+    }
+    return Collections.unmodifiableSortedSet(removed);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>This operation is not atomic: concurrent readers may observe the key
+   * with none, some or all of its old and new values.
+   */
+  @Override
+  public SortedSet<V> replaceValues(K key, Iterable<? extends V> values) {
+    checkNotNull(values);
+    SortedSet<V> result = removeAll(key);
+    putAll(key, values);
+    return result;
+  }
+
+  @Override
+  public void clear() {
+    entries.clear();
+  }
+
+  // Views
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The returned set is a weakly consistent view of the values for
+   * {@code key}; it is computed on demand and never cached. If this is a range
+   * view and {@code key} is outside its range, the returned set is empty and
+   * throws {@link IllegalArgumentException} on {@code add}.
+   */
+  @Override
+  public SortedSet<V> get(@Nullable K key) {
+    checkNotNull(key);
+    try {
+      return new ValueSet(key, pairs(key));
+    } catch (IllegalArgumentException e) {
+      return new ValueSet(key, null);
+    }
+  }
+
+  /**
+   * Values of one key, as a view of a range of {@code entries}. A null range
+   * stands for a key outside the range of this multimap view.
+   */
+  private final class ValueSet extends AbstractSet<V> implements SortedSet<V> {
+    final K key;
+    @Nullable final NavigableSet<Node<K, V>> pairs;
+
+    ValueSet(K key, @Nullable NavigableSet<Node<K, V>> pairs) {
+      this.key = key;
+      this.pairs = pairs;
+    }
+
+    @Override public Iterator<V> iterator() {
+      if (pairs == null) {
+        return Iterators.emptyIterator();
+      }
+      return new TransformedIterator<Node<K, V>, V>(pairs.iterator()) {
+        @Override V transform(Node<K, V> node) {
+          return node.value;
+        }
+      };
+    }
+
+    @Override public int size() {
+      return (pairs == null) ? 0 : pairs.size();
+    }
+
+    @Override public boolean isEmpty() {
+      return pairs == null || pairs.isEmpty();
+    }
+
+    @Override public boolean contains(@Nullable Object o) {
+      return pairs != null && o != null
+          && Collections2.safeContains(pairs, new Node<Object, Object>(key, o, 0));
+    }
+
+    @Override public boolean add(V value) {
+      if (pairs == null) {
+        throw new IllegalArgumentException("key out of range: " + key);
+      }
+      return pairs.add(entry(key, value));
+    }
+
+    @Override public boolean remove(@Nullable Object o) {
+      return pairs != null && o != null
+          && Collections2.safeRemove(pairs, new Node<Object, Object>(key, o, 0));
+    }
+
+    @Override public void clear() {
+      if (pairs != null) {
+        pairs.clear();
+      }
+    }
+
+    @Override public Comparator<? super V> comparator() {
+      return valueComparator;
+    }
+
+    @Override public V first() {
+      if (pairs == null) {
+        throw new NoSuchElementException();
+      }
+      return pairs.first().value;
+    }
+
+    @Override public V last() {
+      if (pairs == null) {
+        throw new NoSuchElementException();
+      }
+      return pairs.last().value;
+    }
+
+    @Override public SortedSet<V> headSet(V toElement) {
+      return new ValueSet(key, (pairs == null)
+          ? null : pairs.headSet(entry(key, toElement), false));
+    }
+
+    @Override public SortedSet<V> tailSet(V fromElement) {
+      return new ValueSet(key, (pairs == null)
+          ? null : pairs.tailSet(entry(key, fromElement), true));
+    }
+
+    @Override public SortedSet<V> subSet(V fromElement, V toElement) {
+      return new ValueSet(key, (pairs == null)
+          ? null : pairs.subSet(entry(key, fromElement), true, entry(key, toElement), false));
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Because a {@code SetMultimap} has unique values for a given key, this
+   * method returns a {@link Set}, instead of the {@link java.util.Collection}
+   * specified in the {@link Multimap} interface. The set is a weakly
+   * consistent view whose iterator does not support {@code remove}.
+   */
+  @Override
+  public Set<Entry<K, V>> entries() {
+    return (Set<Entry<K, V>>) super.entries();
+  }
+
+  @Override
+  Iterator<Entry<K, V>> entryIterator() {
+    final Iterator<Node<K, V>> iterator = entries.iterator();
+    return new UnmodifiableIterator<Entry<K, V>>() {
+      @Override public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override public Entry<K, V> next() {
+        return iterator.next();
+      }
+    };
+  }
+
+  /**
+   * Returns a weakly consistent iterator over the distinct keys, in key order.
+   */
+  private Iterator<K> keyIterator() {
+    return new AbstractIterator<K>() {
+      private Node<K, V> next = first();
+
+      private Node<K, V> first() {
+        try {
+          return entries.first();
+        } catch (NoSuchElementException e) {
+          return null;
+        }
+      }
+
+      @Override protected K computeNext() {
+        if (next == null) {
+          return endOfData();
+        }
+        K key = next.key;
+        next = entries.higher(marker(key, 1));
+        return key;
+      }
+    };
+  }
+
+  @Override
+  Map<K, Collection<V>> createAsMap() {
+    return new AsMap();
+  }
+
+  private final class AsMap extends AbstractMap<K, Collection<V>> {
+    @Override public boolean containsKey(@Nullable Object key) {
+      return ConcurrentSkipListMultimap.this.containsKey(key);
+    }
+
+    @SuppressWarnings("unchecked") // containsKey(key) implies key is a K
+    @Override public Collection<V> get(@Nullable Object key) {
+      return containsKey(key) ? ConcurrentSkipListMultimap.this.get((K) key) : null;
+    }
+
+    @Override public Collection<V> remove(@Nullable Object key) {
+      Collection<V> removed = removeAll(key);
+      return removed.isEmpty() ? null : removed;
+    }
+
+    @Override public void clear() {
+      ConcurrentSkipListMultimap.this.clear();
+    }
+
+    @Override public Set<Entry<K, Collection<V>>> entrySet() {
+      return new AbstractSet<Entry<K, Collection<V>>>() {
+        @Override public Iterator<Entry<K, Collection<V>>> iterator() {
+          final Iterator<K> keyIterator = keyIterator();
+          return new Iterator<Entry<K, Collection<V>>>() {
+            K last;
+
+            @Override public boolean hasNext() {
+              return keyIterator.hasNext();
+            }
+
+            @Override public Entry<K, Collection<V>> next() {
+              last = keyIterator.next();
+              return Maps.<K, Collection<V>>immutableEntry(last, get(last));
+            }
+
+            @Override public void remove() {
+              CollectPreconditions.checkRemove(last != null);
+              ConcurrentSkipListMultimap.this.removeAll(last);
+              last = null;
+            }
+          };
+        }
+
+        @Override public int size() {
+          return Iterators.size(keyIterator());
+        }
+      };
+    }
+  }
+
+  /**
+   * Returns a view of the portion of this multimap whose keys range from
+   * {@code fromKey} to {@code toKey}. The view is weakly consistent and writes
+   * through to this multimap; putting a key outside its range throws
+   * {@link IllegalArgumentException}.
+   *
+   * @throws IllegalArgumentException if {@code fromKey} is greater than
+   *     {@code toKey}, or if this is itself a range view and either key is
+   *     outside its range
+   */
+  public ConcurrentSkipListMultimap<K, V> subMultimap(K fromKey, boolean fromInclusive,
+      K toKey, boolean toInclusive) {
+    return new ConcurrentSkipListMultimap<K, V>(keyComparator, valueComparator,
+        entries.subSet(marker(fromKey, fromInclusive ? -1 : 1), false,
+            marker(toKey, toInclusive ? 1 : -1), false));
+  }
+
+  /**
+   * Returns a view of the portion of this multimap whose keys are less than
+   * (or equal to, if {@code inclusive} is true) {@code toKey}.
+   *
+   * @see #subMultimap
+   */
+  public ConcurrentSkipListMultimap<K, V> headMultimap(K toKey, boolean inclusive) {
+    return new ConcurrentSkipListMultimap<K, V>(keyComparator, valueComparator,
+        entries.headSet(marker(toKey, inclusive ? 1 : -1), false));
+  }
+
+  /**
+   * Returns a view of the portion of this multimap whose keys are greater than
+   * (or equal to, if {@code inclusive} is true) {@code fromKey}.
+   *
+   * @see #subMultimap
+   */
+  public ConcurrentSkipListMultimap<K, V> tailMultimap(K fromKey, boolean inclusive) {
+    return new ConcurrentSkipListMultimap<K, V>(keyComparator, valueComparator,
+        entries.tailSet(marker(fromKey, inclusive ? -1 : 1), false));
+  }
+
+  /**
+   * @serialData key comparator, value comparator, number of distinct keys, and
+   *     then for each distinct key: the key, number of values for that key, and
+   *     key values
+   */
+  private void writeObject(ObjectOutputStream stream) throws IOException {
+    stream.defaultWriteObject();
+    stream.writeObject(keyComparator);
+    stream.writeObject(valueComparator);
+    Serialization.writeMultimap(this, stream);
+  }
+
+  @SuppressWarnings("unchecked") // reading data stored by writeObject
+  private void readObject(ObjectInputStream stream)
+      throws IOException, ClassNotFoundException {
+    stream.defaultReadObject();
+    keyComparator = checkNotNull((Comparator<? super K>) stream.readObject());
+    valueComparator = checkNotNull((Comparator<? super V>) stream.readObject());
+    entries = new ConcurrentSkipListSet<Node<K, V>>(
+        new NodeComparator<K, V>(keyComparator, valueComparator));
+    Serialization.populateMultimap(this, stream);
+  }
+
+  private static final long serialVersionUID = 0;
+}
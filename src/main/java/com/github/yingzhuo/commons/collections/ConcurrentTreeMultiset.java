@@ -0,0 +1,331 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import static com.github.yingzhuo.commons.collections.CollectPreconditions.checkRemove;
+import static guava.base.Preconditions.checkNotNull;
+
+import com.github.yingzhuo.commons.lang.primitive.Ints;
+
+import guava.annotations.Beta;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+/**
+ * A sorted multiset that supports concurrent modifications and that provides
+ * atomic versions of most {@code Multiset} operations, backed by a
+ * {@link ConcurrentSkipListMap} from elements to their counts. Null elements
+ * are not supported.
+ *
+ * <p>Reads never block. Iterators and the range views returned by
+ * {@link #headMultiset}, {@link #tailMultiset} and {@link #subMultiset} are
+ * <i>weakly consistent</i>, in the same sense as those of
+ * {@code ConcurrentSkipListMap}: they never throw
+ * {@link java.util.ConcurrentModificationException}, and they reflect some,
+ * all or none of the updates made after they were created. Range views write
+ * through to this multiset; adding an element outside a view's range throws
+ * {@link IllegalArgumentException}.
+ *
+ * <p>As with {@link ConcurrentHashMultiset}, {@link #size} is a sum over the
+ * distinct elements and may not reflect concurrent updates.
+ *
+ * <p>As with {@link TreeMultiset}, the comparison must be <i>consistent with
+ * equals</i>.
+ *
+ * @see ConcurrentSkipListMultimap
+ */
+@Beta
+public final class ConcurrentTreeMultiset<E> extends AbstractSortedMultiset<E>
+    implements Serializable {
+
+  /** The number of occurrences of each element; see {@link ConcurrentCounts}. */
+  private final transient ConcurrentNavigableMap<E, AtomicInteger> countMap;
+
+  // This constant allows the deserialization code to set a final field. This holder class
+  // makes sure it is not initialized unless an instance is deserialized.
+  private static class FieldSettersHolder {
+    @SuppressWarnings("rawtypes")
+    static final Serialization.FieldSetter<ConcurrentTreeMultiset> COUNT_MAP_FIELD_SETTER =
+        Serialization.getFieldSetter(ConcurrentTreeMultiset.class, "countMap");
+    @SuppressWarnings("rawtypes")
+    static final Serialization.FieldSetter<AbstractSortedMultiset> COMPARATOR_FIELD_SETTER =
+        Serialization.getFieldSetter(AbstractSortedMultiset.class, "comparator");
+  }
+
+  /**
+   * Creates a new, empty multiset, sorted according to the elements' natural
+   * order.
+   */
+  @SuppressWarnings("rawtypes")
+  public static <E extends Comparable> ConcurrentTreeMultiset<E> create() {
+    return new ConcurrentTreeMultiset<E>(Ordering.natural());
+  }
+
+  /**
+   * Creates a new, empty multiset, sorted according to the specified
+   * comparator.
+   */
+  public static <E> ConcurrentTreeMultiset<E> create(Comparator<? super E> comparator) {
+    return new ConcurrentTreeMultiset<E>(checkNotNull(comparator));
+  }
+
+  /**
+   * Creates a new multiset containing the given initial elements, sorted
+   * according to the elements' natural order.
+   */
+  @SuppressWarnings("rawtypes")
+  public static <E extends Comparable> ConcurrentTreeMultiset<E> create(
+      Iterable<? extends E> elements) {
+    ConcurrentTreeMultiset<E> multiset = create();
+    Iterables.addAll(multiset, elements);
+    return multiset;
+  }
+
+  private ConcurrentTreeMultiset(Comparator<? super E> comparator) {
+    this(comparator, new ConcurrentSkipListMap<E, AtomicInteger>(comparator));
+  }
+
+  private ConcurrentTreeMultiset(Comparator<? super E> comparator,
+      ConcurrentNavigableMap<E, AtomicInteger> countMap) {
+    super(comparator);
+    this.countMap = countMap;
+  }
+
+  // Query Operations
+
+  @Override public int count(@Nullable Object element) {
+    return ConcurrentCounts.count(countMap, element);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>If the data in the multiset is modified by any other threads during this method,
+   * it is undefined which (if any) of these modifications will be reflected in the result.
+   */
+  @Override public int size() {
+    long sum = 0L;
+    for (AtomicInteger value : countMap.values()) {
+      sum += value.get();
+    }
+    return Ints.saturatedCast(sum);
+  }
+
+  @Override public boolean isEmpty() {
+    return countMap.isEmpty();
+  }
+
+  /*
+   * Note: the superclass toArray() methods assume that size() gives a correct
+   * answer, which ours does not.
+   */
+
+  @Override public Object[] toArray() {
+    return snapshot().toArray();
+  }
+
+  @Override public <T> T[] toArray(T[] array) {
+    return snapshot().toArray(array);
+  }
+
+  private List<E> snapshot() {
+    List<E> list = Lists.newArrayListWithExpectedSize(size());
+    for (Multiset.Entry<E> entry : entrySet()) {
+      E element = entry.getElement();
+      for (int i = entry.getCount(); i > 0; i--) {
+        list.add(element);
+      }
+    }
+    return list;
+  }
+
+  // Modification Operations
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IllegalArgumentException if {@code occurrences} is negative, if
+   *     the resulting amount would exceed {@link Integer#MAX_VALUE}, or if
+   *     this is a range view and {@code element} is outside its range
+   */
+  @Override public int add(E element, int occurrences) {
+    return ConcurrentCounts.add(countMap, element, occurrences);
+  }
+
+  @Override public int remove(@Nullable Object element, int occurrences) {
+    return ConcurrentCounts.remove(countMap, element, occurrences);
+  }
+
+  /**
+   * Removes exactly the specified number of occurrences of {@code element}, or makes no
+   * change if this is not possible.
+   *
+   * @return {@code true} if the removal was possible (including if {@code occurrences} is zero)
+   * @see ConcurrentHashMultiset#removeExactly
+   */
+  public boolean removeExactly(@Nullable Object element, int occurrences) {
+    return ConcurrentCounts.removeExactly(countMap, element, occurrences);
+  }
+
+  @Override public int setCount(E element, int count) {
+    return ConcurrentCounts.setCount(countMap, element, count);
+  }
+
+  @Override public boolean setCount(E element, int expectedOldCount, int newCount) {
+    return ConcurrentCounts.setCount(countMap, element, expectedOldCount, newCount);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The first element and all of its occurrences are removed atomically.
+   */
+  @Override public Entry<E> pollFirstEntry() {
+    return poll(countMap);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The last element and all of its occurrences are removed atomically.
+   */
+  @Override public Entry<E> pollLastEntry() {
+    return poll(countMap.descendingMap());
+  }
+
+  private static <E> Entry<E> poll(ConcurrentNavigableMap<E, AtomicInteger> map) {
+    while (true) {
+      Map.Entry<E, AtomicInteger> mapEntry = map.firstEntry();
+      if (mapEntry == null) {
+        return null;
+      }
+      E element = mapEntry.getKey();
+      AtomicInteger counter = mapEntry.getValue();
+      int count = counter.getAndSet(0);
+      // Either we just set the counter to zero, or it was already zero and about to be removed.
+      // Both ways it has to go.
+      map.remove(element, counter);
+      if (count != 0) {
+        return Multisets.immutableEntry(element, count);
+      }
+    }
+  }
+
+  @Override public void clear() {
+    countMap.clear();
+  }
+
+  // Views
+
+  @Override int distinctElements() {
+    return countMap.size();
+  }
+
+  @Override Iterator<Entry<E>> entryIterator() {
+    return entryIterator(countMap);
+  }
+
+  @Override Iterator<Entry<E>> descendingEntryIterator() {
+    return entryIterator(countMap.descendingMap());
+  }
+
+  private Iterator<Entry<E>> entryIterator(final Map<E, AtomicInteger> map) {
+    final Iterator<Entry<E>> readOnlyIterator =
+        new AbstractIterator<Entry<E>>() {
+          private Iterator<Map.Entry<E, AtomicInteger>> mapEntries = map.entrySet().iterator();
+
+          @Override protected Entry<E> computeNext() {
+            while (true) {
+              if (!mapEntries.hasNext()) {
+                return endOfData();
+              }
+              Map.Entry<E, AtomicInteger> mapEntry = mapEntries.next();
+              int count = mapEntry.getValue().get();
+              if (count != 0) {
+                return Multisets.immutableEntry(mapEntry.getKey(), count);
+              }
+            }
+          }
+        };
+
+    return new ForwardingIterator<Entry<E>>() {
+      private Entry<E> last;
+
+      @Override protected Iterator<Entry<E>> delegate() {
+        return readOnlyIterator;
+      }
+
+      @Override public Entry<E> next() {
+        last = super.next();
+        return last;
+      }
+
+      @Override public void remove() {
+        checkRemove(last != null);
+        ConcurrentTreeMultiset.this.setCount(last.getElement(), 0);
+        last = null;
+      }
+    };
+  }
+
+  @Override
+  public SortedMultiset<E> headMultiset(E upperBound, BoundType boundType) {
+    return new ConcurrentTreeMultiset<E>(comparator(),
+        countMap.headMap(upperBound, boundType == BoundType.CLOSED));
+  }
+
+  @Override
+  public SortedMultiset<E> tailMultiset(E lowerBound, BoundType boundType) {
+    return new ConcurrentTreeMultiset<E>(comparator(),
+        countMap.tailMap(lowerBound, boundType == BoundType.CLOSED));
+  }
+
+  @Override
+  public SortedMultiset<E> subMultiset(E lowerBound, BoundType lowerBoundType,
+      E upperBound, BoundType upperBoundType) {
+    return new ConcurrentTreeMultiset<E>(comparator(),
+        countMap.subMap(lowerBound, lowerBoundType == BoundType.CLOSED,
+            upperBound, upperBoundType == BoundType.CLOSED));
+  }
+
+  private void writeObject(ObjectOutputStream stream) throws IOException {
+    stream.defaultWriteObject();
+    stream.writeObject(comparator());
+    stream.writeObject(countMap);
+  }
+
+  private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+    stream.defaultReadObject();
+    Object comparator = stream.readObject();
+    FieldSettersHolder.COMPARATOR_FIELD_SETTER.set(this, comparator);
+    FieldSettersHolder.COUNT_MAP_FIELD_SETTER.set(this, stream.readObject());
+  }
+
+  private static final long serialVersionUID = 1;
+}
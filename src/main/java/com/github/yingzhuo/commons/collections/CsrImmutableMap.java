@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import static com.github.yingzhuo.commons.collections.CollectPreconditions.checkEntryNotNull;
+
+import guava.annotations.GwtCompatible;
+
+import java.util.Collection;
+import java.util.Map.Entry;
+
+import javax.annotation.Nullable;
+
+/**
+ * The backing map of a large {@link ImmutableListMultimap}, stored in
+ * compressed sparse row (CSR) form.
+ *
+ * <p>All values live in a single array, grouped by key; {@code offsets[i]} is
+ * the index of the first value of the {@code i}th key and
+ * {@code offsets[i + 1]} is one past its last value. Keys are located through
+ * an open-addressed table of key indices, so no entry object or per-key list
+ * is retained. {@link #get} returns a zero-copy view of the key's range of
+ * the values array.
+ */
+@GwtCompatible(emulated = true)
+@SuppressWarnings("serial") // uses writeReplace(), not default serialization
+final class CsrImmutableMap<K, V> extends ImmutableMap<K, ImmutableList<V>> {
+  // distinct keys in insertion order
+  private final transient Object[] keys;
+  // values of keys[i] are values[offsets[i]] .. values[offsets[i + 1] - 1]
+  private final transient int[] offsets;
+  private final transient Object[] values;
+  // open-addressed table of (index into keys + 1); 0 marks an empty slot
+  private final transient int[] table;
+  // 'and' with an int to get a table index
+  private final transient int mask;
+
+  /**
+   * Returns a CSR map holding the non-empty value collections of
+   * {@code multimap}, in the iteration order of its {@code asMap()} view.
+   *
+   * @throws NullPointerException if any key or value in {@code multimap} is
+   *         null
+   */
+  static <K, V> CsrImmutableMap<K, V> copyOf(
+      Multimap<? extends K, ? extends V> multimap) {
+    int keyCount = multimap.keySet().size();
+    Object[] keys = new Object[keyCount];
+    int[] offsets = new int[keyCount + 1];
+    Object[] values = new Object[multimap.size()];
+    int keyIndex = 0;
+    int valueIndex = 0;
+    for (Entry<? extends K, ? extends Collection<? extends V>> entry
+        : multimap.asMap().entrySet()) {
+      K key = entry.getKey();
+      Collection<? extends V> collection = entry.getValue();
+      if (collection.isEmpty()) {
+        continue;
+      }
+      for (V value : collection) {
+        checkEntryNotNull(key, value);
+        values[valueIndex++] = value;
+      }
+      keys[keyIndex++] = key;
+      offsets[keyIndex] = valueIndex;
+    }
+    if (keyIndex < keys.length) {
+      keys = ObjectArrays.arraysCopyOf(keys, keyIndex);
+      int[] trimmed = new int[keyIndex + 1];
+      System.arraycopy(offsets, 0, trimmed, 0, keyIndex + 1);
+      offsets = trimmed;
+    }
+    if (valueIndex < values.length) {
+      values = ObjectArrays.arraysCopyOf(values, valueIndex);
+    }
+    return new CsrImmutableMap<K, V>(keys, offsets, values);
+  }
+
+  CsrImmutableMap(Object[] keys, int[] offsets, Object[] values) {
+    this.keys = keys;
+    this.offsets = offsets;
+    this.values = values;
+    int tableSize = ImmutableSet.chooseTableSize(Math.max(keys.length, 2));
+    this.table = new int[tableSize];
+    this.mask = tableSize - 1;
+    for (int keyIndex = 0; keyIndex < keys.length; keyIndex++) {
+      Object key = keys[keyIndex];
+      for (int i = Hashing.smear(key.hashCode()); ; i++) {
+        int index = i & mask;
+        int slot = table[index];
+        if (slot == 0) {
+          table[index] = keyIndex + 1;
+          break;
+        }
+        checkNoConflict(!key.equals(keys[slot - 1]), "key",
+            entryOf(key, slice(keyIndex)), entryOf(keys[slot - 1], slice(slot - 1)));
+      }
+    }
+  }
+
+  /** Returns the total number of values across all keys. */
+  int valueCount() {
+    return values.length;
+  }
+
+  private int indexOf(@Nullable Object key) {
+    if (key == null) {
+      return -1;
+    }
+    for (int i = Hashing.smear(key.hashCode()); ; i++) {
+      int slot = table[i & mask];
+      if (slot == 0) {
+        return -1;
+      } else if (key.equals(keys[slot - 1])) {
+        return slot - 1;
+      }
+    }
+  }
+
+  private ImmutableList<V> slice(int keyIndex) {
+    int offset = offsets[keyIndex];
+    return new RegularImmutableList<V>(
+        values, offset, offsets[keyIndex + 1] - offset);
+  }
+
+  @SuppressWarnings("unchecked") // only K instances are stored in keys
+  private K key(int keyIndex) {
+    return (K) keys[keyIndex];
+  }
+
+  @Override public ImmutableList<V> get(@Nullable Object key) {
+    int keyIndex = indexOf(key);
+    return (keyIndex < 0) ? null : slice(keyIndex);
+  }
+
+  @Override public boolean containsKey(@Nullable Object key) {
+    return indexOf(key) >= 0;
+  }
+
+  @Override
+  public int size() {
+    return keys.length;
+  }
+
+  @Override boolean isPartialView() {
+    return false;
+  }
+
+  @Override ImmutableSet<K> createKeySet() {
+    return new KeySet();
+  }
+
+  @Override
+  ImmutableSet<Entry<K, ImmutableList<V>>> createEntrySet() {
+    return new EntrySet();
+  }
+
+  private final class KeySet extends ImmutableSet<K> {
+    @Override
+    public int size() {
+      return keys.length;
+    }
+
+    @Override
+    public boolean contains(@Nullable Object object) {
+      return indexOf(object) >= 0;
+    }
+
+    @Override
+    public UnmodifiableIterator<K> iterator() {
+      return asList().iterator();
+    }
+
+    @Override
+    ImmutableList<K> createAsList() {
+      return new RegularImmutableAsList<K>(this, keys);
+    }
+
+    @Override
+    boolean isPartialView() {
+      return true;
+    }
+  }
+
+  private final class EntrySet
+      extends ImmutableMapEntrySet<K, ImmutableList<V>> {
+    @Override ImmutableMap<K, ImmutableList<V>> map() {
+      return CsrImmutableMap.this;
+    }
+
+    @Override
+    public UnmodifiableIterator<Entry<K, ImmutableList<V>>> iterator() {
+      return asList().iterator();
+    }
+
+    @Override
+    ImmutableList<Entry<K, ImmutableList<V>>> createAsList() {
+      return new ImmutableAsList<Entry<K, ImmutableList<V>>>() {
+        @Override
+        public Entry<K, ImmutableList<V>> get(int index) {
+          return entryOf(key(index), slice(index));
+        }
+
+        @Override
+        ImmutableCollection<Entry<K, ImmutableList<V>>> delegateCollection() {
+          return EntrySet.this;
+        }
+      };
+    }
+  }
+}
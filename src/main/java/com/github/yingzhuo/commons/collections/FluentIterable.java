@@ -16,6 +16,7 @@
 
 package com.github.yingzhuo.commons.collections;
 
+import static guava.base.Preconditions.checkArgument;
 import static guava.base.Preconditions.checkNotNull;
 
 
@@ -28,6 +29,9 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.SortedSet;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nullable;
@@ -121,6 +125,15 @@ public abstract class FluentIterable<E> implements Iterable<E> {
     return Iterables.toString(iterable);
   }
 
+  /**
+   * Returns a sequential {@link Stream} of the elements of this fluent iterable. If it wraps an
+   * {@link ImmutableCollection}, or any collection whose spliterator splits well, that stream
+   * may be made {@linkplain Stream#parallel parallel} efficiently.
+   */
+  public final Stream<E> stream() {
+    return StreamSupport.stream(iterable.spliterator(), false);
+  }
+
   /**
    * Returns the number of elements in this fluent iterable.
    */
@@ -471,6 +484,36 @@ public abstract class FluentIterable<E> implements Iterable<E> {
     return Iterables.get(iterable, position);
   }
 
+  /**
+   * Returns a parallel pipeline over the elements of this fluent iterable, whose terminal
+   * operations run on {@code executor}, in about as many tasks as there are available processors.
+   * Equivalent to {@code parallel(executor, Runtime.getRuntime().availableProcessors())}.
+   *
+   * @see ParallelFluentIterable
+   */
+  @Beta
+  @GwtIncompatible("java.util.concurrent.Executor")
+  public final ParallelFluentIterable<E> parallel(Executor executor) {
+    return parallel(executor, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Returns a parallel pipeline over the elements of this fluent iterable, whose terminal
+   * operations split it into at most {@code parallelism} chunks and process them as tasks on
+   * {@code executor}. The elements are split only if this fluent iterable was obtained by
+   * {@link #from} from a {@link java.util.RandomAccess} list or an {@link ImmutableCollection};
+   * otherwise they are processed on the calling thread. See {@link ParallelFluentIterable} for
+   * details.
+   *
+   * @throws IllegalArgumentException if {@code parallelism} is not positive
+   */
+  @Beta
+  @GwtIncompatible("java.util.concurrent.Executor")
+  public final ParallelFluentIterable<E> parallel(Executor executor, int parallelism) {
+    checkArgument(parallelism > 0, "parallelism must be positive but was %s", parallelism);
+    return ParallelFluentIterable.from(iterable, executor, parallelism);
+  }
+
   /**
    * Function that transforms {@code Iterable<E>} into a fluent iterable.
    */
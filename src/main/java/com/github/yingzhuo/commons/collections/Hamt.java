@@ -0,0 +1,434 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import guava.annotations.GwtCompatible;
+
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nullable;
+
+/**
+ * The hash array mapped trie shared by {@link PersistentHashMap} and
+ * {@link PersistentHashSet}.
+ *
+ * <p>Each level of the trie consumes five bits of the smeared hash code. A
+ * {@link BitmapNode} keeps its entries inline and its subtrees in one array,
+ * entries first and subtrees last, with two bitmaps telling which of the 32
+ * slots hold which. This is the compressed layout described by Steindorfer and
+ * Vinju: the trie stays canonical, because a subtree that shrinks to one entry
+ * is folded back into its parent, so equal maps have equal shapes. Keys whose
+ * hash codes agree in all 32 bits share a {@link CollisionNode}.
+ *
+ * <p>Updates copy the path from the root to the changed slot and share every
+ * other node with the previous version. A node whose {@code edit} token is the
+ * token of the builder performing an update belongs to that builder alone,
+ * and is updated in place instead.
+ */
+@GwtCompatible
+final class Hamt {
+  private Hamt() {}
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+
+  static int hash(Object key) {
+    return Hashing.smear(key.hashCode());
+  }
+
+  private static int bitpos(int hash, int shift) {
+    return 1 << ((hash >>> shift) & MASK);
+  }
+
+  /** What an update did, to let callers maintain their size. */
+  static final class Change {
+    boolean added;
+    @Nullable Object oldValue;
+  }
+
+  static final BitmapNode EMPTY_NODE = new BitmapNode(null, 0, 0, new Object[0]);
+
+  abstract static class Node {
+    @Nullable abstract Object get(Object key, int hash, int shift);
+
+    /**
+     * Returns the node with {@code key} mapped to {@code value}: this node if
+     * nothing changed or the update was made in place, otherwise a copy.
+     */
+    abstract Node put(@Nullable Object edit, Object key, int hash, Object value, int shift,
+        Change change);
+
+    /**
+     * Returns the node without {@code key}: this node if {@code key} was
+     * absent or the update was made in place, otherwise a copy. Sets
+     * {@code change.oldValue} if a mapping was removed.
+     */
+    abstract Node remove(@Nullable Object edit, Object key, int hash, int shift, Change change);
+
+    abstract int payloadArity();
+
+    abstract Object keyAt(int index);
+
+    abstract Object valueAt(int index);
+
+    abstract int nodeArity();
+
+    abstract Node nodeAt(int index);
+  }
+
+  static final class BitmapNode extends Node {
+    @Nullable private final Object edit;
+    private int dataMap;
+    private int nodeMap;
+    // key and value pairs for dataMap, followed by subtrees for nodeMap in
+    // reverse order
+    private Object[] array;
+
+    BitmapNode(@Nullable Object edit, int dataMap, int nodeMap, Object[] array) {
+      this.edit = edit;
+      this.dataMap = dataMap;
+      this.nodeMap = nodeMap;
+      this.array = array;
+    }
+
+    private int dataIndex(int bit) {
+      return Integer.bitCount(dataMap & (bit - 1));
+    }
+
+    private int nodeIndex(int bit) {
+      return array.length - 1 - Integer.bitCount(nodeMap & (bit - 1));
+    }
+
+    @Override int payloadArity() {
+      return Integer.bitCount(dataMap);
+    }
+
+    @Override Object keyAt(int index) {
+      return array[2 * index];
+    }
+
+    @Override Object valueAt(int index) {
+      return array[2 * index + 1];
+    }
+
+    @Override int nodeArity() {
+      return Integer.bitCount(nodeMap);
+    }
+
+    @Override Node nodeAt(int index) {
+      return (Node) array[array.length - 1 - index];
+    }
+
+    @Override Object get(Object key, int hash, int shift) {
+      int bit = bitpos(hash, shift);
+      if ((dataMap & bit) != 0) {
+        int index = dataIndex(bit);
+        return key.equals(array[2 * index]) ? array[2 * index + 1] : null;
+      } else if ((nodeMap & bit) != 0) {
+        return ((Node) array[nodeIndex(bit)]).get(key, hash, shift + BITS);
+      }
+      return null;
+    }
+
+    @Override Node put(@Nullable Object edit, Object key, int hash, Object value, int shift,
+        Change change) {
+      int bit = bitpos(hash, shift);
+      if ((dataMap & bit) != 0) {
+        int index = dataIndex(bit);
+        Object currentKey = array[2 * index];
+        Object currentValue = array[2 * index + 1];
+        if (key.equals(currentKey)) {
+          change.oldValue = currentValue;
+          if (value.equals(currentValue)) {
+            return this;
+          }
+          BitmapNode node = editable(edit);
+          node.array[2 * index + 1] = value;
+          return node;
+        }
+        change.added = true;
+        Node subNode = merge(edit, currentKey, hash(currentKey), currentValue,
+            key, hash, value, shift + BITS);
+        return copyAndMigrateToNode(edit, bit, subNode);
+      } else if ((nodeMap & bit) != 0) {
+        int index = nodeIndex(bit);
+        Node subNode = (Node) array[index];
+        Node newSubNode = subNode.put(edit, key, hash, value, shift + BITS, change);
+        if (newSubNode == subNode) {
+          return this;
+        }
+        BitmapNode node = editable(edit);
+        node.array[index] = newSubNode;
+        return node;
+      }
+      change.added = true;
+      return copyAndInsertValue(edit, bit, key, value);
+    }
+
+    @Override Node remove(@Nullable Object edit, Object key, int hash, int shift, Change change) {
+      int bit = bitpos(hash, shift);
+      if ((dataMap & bit) != 0) {
+        int index = dataIndex(bit);
+        if (!key.equals(array[2 * index])) {
+          return this;
+        }
+        change.oldValue = array[2 * index + 1];
+        return copyAndRemoveValue(edit, bit);
+      } else if ((nodeMap & bit) != 0) {
+        int index = nodeIndex(bit);
+        Node subNode = (Node) array[index];
+        Node newSubNode = subNode.remove(edit, key, hash, shift + BITS, change);
+        if (change.oldValue == null) {
+          return this;
+        }
+        if (newSubNode.nodeArity() == 0 && newSubNode.payloadArity() == 1) {
+          if (shift > 0 && payloadArity() == 0 && nodeArity() == 1) {
+            // this node would be left with a single entry too; let the parent
+            // fold it in
+            return newSubNode;
+          }
+          return copyAndMigrateToInline(edit, bit, newSubNode);
+        }
+        if (newSubNode == subNode) {
+          return this;
+        }
+        BitmapNode node = editable(edit);
+        node.array[index] = newSubNode;
+        return node;
+      }
+      return this;
+    }
+
+    private BitmapNode editable(@Nullable Object edit) {
+      if (edit != null && this.edit == edit) {
+        return this;
+      }
+      return new BitmapNode(edit, dataMap, nodeMap, array.clone());
+    }
+
+    private BitmapNode update(@Nullable Object edit, int dataMap, int nodeMap, Object[] array) {
+      if (edit != null && this.edit == edit) {
+        this.dataMap = dataMap;
+        this.nodeMap = nodeMap;
+        this.array = array;
+        return this;
+      }
+      return new BitmapNode(edit, dataMap, nodeMap, array);
+    }
+
+    private BitmapNode copyAndInsertValue(@Nullable Object edit, int bit, Object key,
+        Object value) {
+      int index = 2 * dataIndex(bit);
+      Object[] newArray = new Object[array.length + 2];
+      System.arraycopy(array, 0, newArray, 0, index);
+      newArray[index] = key;
+      newArray[index + 1] = value;
+      System.arraycopy(array, index, newArray, index + 2, array.length - index);
+      return update(edit, dataMap | bit, nodeMap, newArray);
+    }
+
+    private BitmapNode copyAndRemoveValue(@Nullable Object edit, int bit) {
+      int index = 2 * dataIndex(bit);
+      Object[] newArray = new Object[array.length - 2];
+      System.arraycopy(array, 0, newArray, 0, index);
+      System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+      return update(edit, dataMap ^ bit, nodeMap, newArray);
+    }
+
+    private BitmapNode copyAndMigrateToNode(@Nullable Object edit, int bit, Node subNode) {
+      // the entry at bit moves into subNode, which takes its slot among the
+      // subtrees
+      int oldIndex = 2 * dataIndex(bit);
+      int newIndex = array.length - 2 - Integer.bitCount(nodeMap & (bit - 1));
+      Object[] newArray = new Object[array.length - 1];
+      System.arraycopy(array, 0, newArray, 0, oldIndex);
+      System.arraycopy(array, oldIndex + 2, newArray, oldIndex, newIndex - oldIndex);
+      newArray[newIndex] = subNode;
+      System.arraycopy(array, newIndex + 2, newArray, newIndex + 1, array.length - newIndex - 2);
+      return update(edit, dataMap ^ bit, nodeMap | bit, newArray);
+    }
+
+    private BitmapNode copyAndMigrateToInline(@Nullable Object edit, int bit, Node subNode) {
+      // the single entry of subNode takes the slot of subNode
+      int oldIndex = nodeIndex(bit);
+      int newIndex = 2 * dataIndex(bit);
+      Object[] newArray = new Object[array.length + 1];
+      System.arraycopy(array, 0, newArray, 0, newIndex);
+      newArray[newIndex] = subNode.keyAt(0);
+      newArray[newIndex + 1] = subNode.valueAt(0);
+      System.arraycopy(array, newIndex, newArray, newIndex + 2, oldIndex - newIndex);
+      System.arraycopy(array, oldIndex + 1, newArray, oldIndex + 2, array.length - oldIndex - 1);
+      return update(edit, dataMap | bit, nodeMap ^ bit, newArray);
+    }
+  }
+
+  /** Holds keys whose smeared hash codes are equal. */
+  static final class CollisionNode extends Node {
+    @Nullable private final Object edit;
+    private final int hash;
+    // key and value pairs
+    private Object[] array;
+
+    CollisionNode(@Nullable Object edit, int hash, Object[] array) {
+      this.edit = edit;
+      this.hash = hash;
+      this.array = array;
+    }
+
+    private int indexOf(Object key) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override int payloadArity() {
+      return array.length / 2;
+    }
+
+    @Override Object keyAt(int index) {
+      return array[2 * index];
+    }
+
+    @Override Object valueAt(int index) {
+      return array[2 * index + 1];
+    }
+
+    @Override int nodeArity() {
+      return 0;
+    }
+
+    @Override Node nodeAt(int index) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    @Override Object get(Object key, int hash, int shift) {
+      int index = indexOf(key);
+      return (index < 0) ? null : array[index + 1];
+    }
+
+    @Override Node put(@Nullable Object edit, Object key, int hash, Object value, int shift,
+        Change change) {
+      int index = indexOf(key);
+      Object[] newArray;
+      if (index >= 0) {
+        change.oldValue = array[index + 1];
+        if (value.equals(array[index + 1])) {
+          return this;
+        }
+        newArray = array.clone();
+        newArray[index + 1] = value;
+      } else {
+        change.added = true;
+        newArray = ObjectArrays.arraysCopyOf(array, array.length + 2);
+        newArray[array.length] = key;
+        newArray[array.length + 1] = value;
+      }
+      if (edit != null && this.edit == edit) {
+        array = newArray;
+        return this;
+      }
+      return new CollisionNode(edit, this.hash, newArray);
+    }
+
+    @Override Node remove(@Nullable Object edit, Object key, int hash, int shift, Change change) {
+      int index = indexOf(key);
+      if (index < 0) {
+        return this;
+      }
+      change.oldValue = array[index + 1];
+      if (array.length == 4) {
+        // one entry left; the parent folds it in
+        int other = 2 - index;
+        return new BitmapNode(edit, bitpos(this.hash, shift), 0,
+            new Object[] {array[other], array[other + 1]});
+      }
+      Object[] newArray = new Object[array.length - 2];
+      System.arraycopy(array, 0, newArray, 0, index);
+      System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+      if (edit != null && this.edit == edit) {
+        array = newArray;
+        return this;
+      }
+      return new CollisionNode(edit, this.hash, newArray);
+    }
+  }
+
+  /** Returns a subtree holding two entries whose keys differ. */
+  private static Node merge(@Nullable Object edit, Object key1, int hash1, Object value1,
+      Object key2, int hash2, Object value2, int shift) {
+    if (shift >= Integer.SIZE) {
+      return new CollisionNode(edit, hash1, new Object[] {key1, value1, key2, value2});
+    }
+    int bit1 = bitpos(hash1, shift);
+    int bit2 = bitpos(hash2, shift);
+    if (bit1 == bit2) {
+      Node subNode = merge(edit, key1, hash1, value1, key2, hash2, value2, shift + BITS);
+      return new BitmapNode(edit, 0, bit1, new Object[] {subNode});
+    }
+    Object[] array = (((hash1 >>> shift) & MASK) < ((hash2 >>> shift) & MASK))
+        ? new Object[] {key1, value1, key2, value2}
+        : new Object[] {key2, value2, key1, value1};
+    return new BitmapNode(edit, bit1 | bit2, 0, array);
+  }
+
+  /** Visits the entries of a trie, in no particular order. */
+  abstract static class TrieIterator<T> extends UnmodifiableIterator<T> {
+    // a trie is at most 7 bitmap levels deep, plus a collision level
+    private final Node[] nodes = new Node[8];
+    private final int[] nodeCursors = new int[8];
+    private int depth;
+    private Node current;
+    private int payloadCursor;
+
+    TrieIterator(Node root) {
+      nodes[0] = root;
+      current = root;
+    }
+
+    abstract T output(Object key, Object value);
+
+    @Override
+    public boolean hasNext() {
+      while (payloadCursor >= current.payloadArity()) {
+        while (depth >= 0 && nodeCursors[depth] >= nodes[depth].nodeArity()) {
+          depth--;
+        }
+        if (depth < 0) {
+          return false;
+        }
+        current = nodes[depth].nodeAt(nodeCursors[depth]++);
+        payloadCursor = 0;
+        depth++;
+        nodes[depth] = current;
+        nodeCursors[depth] = 0;
+      }
+      return true;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      int index = payloadCursor++;
+      return output(current.keyAt(index), current.valueAt(index));
+    }
+  }
+}
@@ -27,6 +27,8 @@ import java.io.Serializable;
 import java.util.AbstractCollection;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
 
 import javax.annotation.Nullable;
 
@@ -56,6 +58,23 @@ public abstract class ImmutableCollection<E> extends AbstractCollection<E>
   @Override
   public abstract UnmodifiableIterator<E> iterator();
 
+  /**
+   * The characteristics of the spliterators of all immutable collections.
+   */
+  static final int SPLITERATOR_CHARACTERISTICS =
+      Spliterator.IMMUTABLE | Spliterator.NONNULL | Spliterator.ORDERED;
+
+  /**
+   * Returns a spliterator across the elements in this collection. It reports
+   * {@link Spliterator#SIZED}, {@link Spliterator#IMMUTABLE},
+   * {@link Spliterator#NONNULL} and {@link Spliterator#ORDERED}; subclasses
+   * backed by an array or a list return one that splits evenly.
+   */
+  @Override
+  public Spliterator<E> spliterator() {
+    return Spliterators.spliterator(this, SPLITERATOR_CHARACTERISTICS);
+  }
+
   @Override
   public final Object[] toArray() {
     int size = size();
@@ -32,6 +32,8 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.stream.Collector;
 
 import javax.annotation.Nullable;
 
@@ -345,6 +347,14 @@ public abstract class ImmutableList<E> extends ImmutableCollection<E>
     return listIterator(0);
   }
 
+  /**
+   * Returns a spliterator that splits the range of indices of this list in
+   * halves, and is therefore {@link Spliterator#SUBSIZED} as well.
+   */
+  @Override public Spliterator<E> spliterator() {
+    return CollectSpliterators.indexed(size(), SPLITERATOR_CHARACTERISTICS, this::get);
+  }
+
   @Override public UnmodifiableListIterator<E> listIterator(int index) {
     return new AbstractIndexedListIterator<E>(size(), index) {
       @Override
@@ -604,6 +614,21 @@ public abstract class ImmutableList<E> extends ImmutableCollection<E>
     return new SerializedForm(toArray());
   }
 
+  /**
+   * Returns a {@code Collector} that accumulates the input elements into a new
+   * {@code ImmutableList}, in encounter order. In a parallel stream, each
+   * thread fills its own builder, and the builders are concatenated in order.
+   *
+   * @throws NullPointerException from the collection if any element is null
+   */
+  public static <E> Collector<E, ?, ImmutableList<E>> toImmutableList() {
+    return Collector.of(
+        ImmutableList.Builder<E>::new,
+        ImmutableList.Builder<E>::add,
+        (left, right) -> left.addAll(right.build()),
+        ImmutableList.Builder<E>::build);
+  }
+
   /**
    * Returns a new builder. The generated builder is equivalent to the builder
    * created by the {@link Builder} constructor.
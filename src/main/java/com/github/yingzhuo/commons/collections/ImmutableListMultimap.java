@@ -16,6 +16,7 @@
 
 package com.github.yingzhuo.commons.collections;
 
+import static guava.base.Preconditions.checkNotNull;
 
 import guava.annotations.GwtCompatible;
 import guava.annotations.GwtIncompatible;
@@ -27,6 +28,8 @@ import java.io.ObjectOutputStream;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Map.Entry;
+import java.util.function.Function;
+import java.util.stream.Collector;
 
 import javax.annotation.Nullable;
 
@@ -130,6 +133,28 @@ public class ImmutableListMultimap<K, V>
 
   // looking for of() with > 5 entries? Use the builder instead.
 
+  /**
+   * Returns a {@code Collector} that accumulates the input elements into a new
+   * {@code ImmutableListMultimap}, whose keys and values are the result of
+   * applying {@code keyFunction} and {@code valueFunction} to them. Keys
+   * appear in the order they are first encountered, and the values of each
+   * key in encounter order.
+   *
+   * @throws NullPointerException from the collection if a key or value is
+   *     null
+   */
+  public static <T, K, V> Collector<T, ?, ImmutableListMultimap<K, V>> toImmutableListMultimap(
+      final Function<? super T, ? extends K> keyFunction,
+      final Function<? super T, ? extends V> valueFunction) {
+    checkNotNull(keyFunction);
+    checkNotNull(valueFunction);
+    return Collector.of(
+        ImmutableListMultimap.Builder<K, V>::new,
+        (builder, input) -> builder.put(keyFunction.apply(input), valueFunction.apply(input)),
+        (left, right) -> left.putAll(right.build()),
+        ImmutableListMultimap.Builder<K, V>::build);
+  }
+
   /**
    * Returns a new builder. The generated builder is equivalent to the builder
    * created by the {@link Builder} constructor.
@@ -154,6 +179,10 @@ public class ImmutableListMultimap<K, V>
    * times to build multiple multimaps in series. Each multimap contains the
    * key-value mappings in the previously created multimaps.
    *
+   * <p>Large multimaps are built in a compact representation that keeps all
+   * values in a single array; {@link ImmutableListMultimap#get} then returns
+   * a view of that array rather than a separately allocated list.
+   *
    * @since 2.0 (imported from Google Collections Library)
    */
   public static final class Builder<K, V>
@@ -254,6 +283,11 @@ public class ImmutableListMultimap<K, V>
       }
     }
 
+    if (multimap.size() >= CSR_THRESHOLD) {
+      CsrImmutableMap<K, V> csrMap = CsrImmutableMap.copyOf(multimap);
+      return new ImmutableListMultimap<K, V>(csrMap, csrMap.valueCount());
+    }
+
     ImmutableMap.Builder<K, ImmutableList<V>> builder = ImmutableMap.builder();
     int size = 0;
 
@@ -269,6 +303,13 @@ public class ImmutableListMultimap<K, V>
     return new ImmutableListMultimap<K, V>(builder.build(), size);
   }
 
+  /**
+   * Multimaps with at least this many values are stored in compressed sparse
+   * row form: one shared values array plus per-key offsets, instead of one
+   * {@code ImmutableList} per key. See {@link CsrImmutableMap}.
+   */
+  static final int CSR_THRESHOLD = 1 << 12;
+
   ImmutableListMultimap(ImmutableMap<K, ImmutableList<V>> map, int size) {
     super(map, size);
   }
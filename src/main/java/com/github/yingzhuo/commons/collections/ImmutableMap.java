@@ -30,6 +30,8 @@ import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collector;
 
 import javax.annotation.Nullable;
 
@@ -137,6 +139,29 @@ public abstract class ImmutableMap<K, V> implements Map<K, V>, Serializable {
     return new TerminalEntry<K, V>(key, value);
   }
 
+  /**
+   * Returns a {@code Collector} that accumulates the input elements into a new
+   * {@code ImmutableMap}, whose keys and values are the result of applying
+   * {@code keyFunction} and {@code valueFunction} to them. The entries are in
+   * encounter order.
+   *
+   * @throws IllegalArgumentException from the collection if two elements
+   *     have the same key
+   * @throws NullPointerException from the collection if a key or value is
+   *     null
+   */
+  public static <T, K, V> Collector<T, ?, ImmutableMap<K, V>> toImmutableMap(
+      final Function<? super T, ? extends K> keyFunction,
+      final Function<? super T, ? extends V> valueFunction) {
+    checkNotNull(keyFunction);
+    checkNotNull(valueFunction);
+    return Collector.of(
+        ImmutableMap.Builder<K, V>::new,
+        (builder, input) -> builder.put(keyFunction.apply(input), valueFunction.apply(input)),
+        (left, right) -> left.putAll(right.build()),
+        ImmutableMap.Builder<K, V>::build);
+  }
+
   /**
    * Returns a new builder. The generated builder is equivalent to the builder
    * created by the {@link Builder} constructor.
@@ -22,6 +22,7 @@ import guava.annotations.GwtIncompatible;
 
 import java.io.Serializable;
 import java.util.Map.Entry;
+import java.util.Spliterator;
 
 import javax.annotation.Nullable;
 
@@ -50,6 +51,13 @@ final class ImmutableMapKeySet<K, V> extends ImmutableSet<K> {
     return asList().iterator();
   }
 
+  @Override
+  public Spliterator<K> spliterator() {
+    final ImmutableList<K> list = asList();
+    return CollectSpliterators.indexed(
+        size(), SPLITERATOR_CHARACTERISTICS | Spliterator.DISTINCT, list::get);
+  }
+
   @Override
   public boolean contains(@Nullable Object object) {
     return map.containsKey(object);
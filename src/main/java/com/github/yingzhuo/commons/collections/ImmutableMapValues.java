@@ -22,6 +22,7 @@ import guava.annotations.GwtIncompatible;
 
 import java.io.Serializable;
 import java.util.Map.Entry;
+import java.util.Spliterator;
 
 import javax.annotation.Nullable;
 
@@ -50,6 +51,11 @@ final class ImmutableMapValues<K, V> extends ImmutableCollection<V> {
     return Maps.valueIterator(map.entrySet().iterator());
   }
 
+  @Override
+  public Spliterator<V> spliterator() {
+    return asList().spliterator();
+  }
+
   @Override
   public boolean contains(@Nullable Object object) {
     return object != null && Iterators.contains(iterator(), object);
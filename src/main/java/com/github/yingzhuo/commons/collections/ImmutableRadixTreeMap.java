@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import static com.github.yingzhuo.commons.collections.CollectPreconditions.checkEntryNotNull;
+import static com.github.yingzhuo.commons.collections.ImmutableMap.checkNoConflict;
+
+import com.github.yingzhuo.commons.collections.RadixTree.KeyType;
+import com.github.yingzhuo.commons.collections.RadixTree.Node;
+
+import guava.annotations.Beta;
+import guava.annotations.GwtIncompatible;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.annotation.Nullable;
+
+/**
+ * An immutable {@link java.util.NavigableMap} from {@code String} or
+ * {@code byte[]} keys, stored in a radix tree (a compact trie). It orders and
+ * compares keys exactly as {@link RadixTreeMap} does, and has the same
+ * {@link #prefixMap} and {@link #longestPrefixEntry} queries.
+ *
+ * <p>For a large set of keys with long common prefixes, such as URLs, paths or
+ * encoded row keys, this map is a faster alternative to an
+ * {@link ImmutableSortedMap}: lookups and navigation read each unit of the
+ * query key once instead of binary searching with full key comparisons. Its
+ * child arrays are trimmed to size when it is built.
+ *
+ * <p>Neither null keys nor null values are permitted, and every mutator, on
+ * the map and on its views, throws {@link UnsupportedOperationException}. As
+ * with {@code RadixTreeMap}, the {@code byte[]} keys are not copied and must
+ * not be modified.
+ */
+@Beta
+@GwtIncompatible("NavigableMap")
+public final class ImmutableRadixTreeMap<K, V> extends AbstractRadixTreeMap<K, V> {
+
+  private static final ImmutableRadixTreeMap<String, Object> EMPTY =
+      new ImmutableRadixTreeMap<String, Object>(new RadixTree<String, Object>(RadixTree.STRING_KEYS));
+
+  /** Returns the empty map with {@code String} keys. */
+  @SuppressWarnings("unchecked") // the empty map holds no values
+  public static <V> ImmutableRadixTreeMap<String, V> of() {
+    return (ImmutableRadixTreeMap<String, V>) EMPTY;
+  }
+
+  /**
+   * Returns an immutable map with {@code String} keys and the same mappings as
+   * {@code map}.
+   *
+   * @throws NullPointerException if any key or value in {@code map} is null
+   */
+  public static <V> ImmutableRadixTreeMap<String, V> copyOf(Map<String, ? extends V> map) {
+    if (map instanceof ImmutableRadixTreeMap) {
+      @SuppressWarnings("unchecked") // safe since the map is immutable
+      ImmutableRadixTreeMap<String, V> result = (ImmutableRadixTreeMap<String, V>) map;
+      if (!result.isRange()) {
+        return result;
+      }
+    }
+    return ImmutableRadixTreeMap.<V>builder().putAll(map).build();
+  }
+
+  /**
+   * Returns an immutable map with {@code byte[]} keys and the same mappings as
+   * {@code map}.
+   *
+   * @throws NullPointerException if any key or value in {@code map} is null
+   * @throws IllegalArgumentException if two keys of {@code map} have the same
+   *     contents
+   */
+  public static <V> ImmutableRadixTreeMap<byte[], V> copyOfByteArrayKeys(
+      Map<byte[], ? extends V> map) {
+    return ImmutableRadixTreeMap.<V>byteArrayKeyBuilder().putAll(map).build();
+  }
+
+  /** Returns a new builder for a map with {@code String} keys. */
+  public static <V> Builder<String, V> builder() {
+    return new Builder<String, V>(RadixTree.STRING_KEYS);
+  }
+
+  /** Returns a new builder for a map with {@code byte[]} keys. */
+  public static <V> Builder<byte[], V> byteArrayKeyBuilder() {
+    return new Builder<byte[], V>(RadixTree.BYTE_ARRAY_KEYS);
+  }
+
+  /**
+   * A builder for creating {@code ImmutableRadixTreeMap} instances. Keys may
+   * be added in any order. Builder instances can be reused; each map built is
+   * a superset of the maps built before it.
+   */
+  public static final class Builder<K, V> {
+    private final KeyType<K> keyType;
+    private final List<K> keys = Lists.newArrayList();
+    private final List<V> values = Lists.newArrayList();
+
+    private Builder(KeyType<K> keyType) {
+      this.keyType = keyType;
+    }
+
+    /**
+     * Associates {@code key} with {@code value} in the built map. Duplicate
+     * keys are not allowed, and will cause {@link #build} to fail.
+     */
+    public Builder<K, V> put(K key, V value) {
+      checkEntryNotNull(key, value);
+      keys.add(key);
+      values.add(value);
+      return this;
+    }
+
+    /**
+     * Adds the given {@code entry} to the map. Duplicate keys are not allowed,
+     * and will cause {@link #build} to fail.
+     */
+    public Builder<K, V> put(Entry<? extends K, ? extends V> entry) {
+      return put(entry.getKey(), entry.getValue());
+    }
+
+    /**
+     * Associates all of the given map's keys and values in the built map.
+     * Duplicate keys are not allowed, and will cause {@link #build} to fail.
+     *
+     * @throws NullPointerException if any key or value in {@code map} is null
+     */
+    public Builder<K, V> putAll(Map<? extends K, ? extends V> map) {
+      for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+        put(entry);
+      }
+      return this;
+    }
+
+    /**
+     * Returns a newly-created immutable map.
+     *
+     * @throws IllegalArgumentException if duplicate keys were added
+     */
+    public ImmutableRadixTreeMap<K, V> build() {
+      RadixTree<K, V> tree = new RadixTree<K, V>(keyType);
+      for (int i = 0; i < keys.size(); i++) {
+        K key = keys.get(i);
+        V value = values.get(i);
+        Node<K, V> node = tree.findOrCreate(key);
+        checkNoConflict(!node.hasValue, "key",
+            Maps.immutableEntry(node.key, node.value), Maps.immutableEntry(key, value));
+        tree.setValue(node, key, value);
+      }
+      tree.trimToSize();
+      return new ImmutableRadixTreeMap<K, V>(tree);
+    }
+  }
+
+  private ImmutableRadixTreeMap(RadixTree<K, V> tree) {
+    super(tree, null, false, null, false);
+  }
+
+  private ImmutableRadixTreeMap(RadixTree<K, V> tree, @Nullable K lowerBound,
+      boolean lowerInclusive, @Nullable K upperBound, boolean upperInclusive) {
+    super(tree, lowerBound, lowerInclusive, upperBound, upperInclusive);
+  }
+
+  @Override
+  ImmutableRadixTreeMap<K, V> createView(@Nullable K lowerBound, boolean lowerInclusive,
+      @Nullable K upperBound, boolean upperInclusive) {
+    return new ImmutableRadixTreeMap<K, V>(
+        tree, lowerBound, lowerInclusive, upperBound, upperInclusive);
+  }
+
+  /**
+   * Guaranteed to throw an exception and leave the map unmodified.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Unsupported operation.
+   */
+  @Deprecated
+  @Override
+  public void clear() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public ImmutableRadixTreeMap<K, V> prefixMap(K prefix) {
+    return (ImmutableRadixTreeMap<K, V>) super.prefixMap(prefix);
+  }
+}
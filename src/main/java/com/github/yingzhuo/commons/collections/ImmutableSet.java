@@ -32,6 +32,9 @@ import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Collector;
 
 import javax.annotation.Nullable;
 
@@ -176,7 +179,7 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E>
    * @throws NullPointerException if any of the first {@code n} elements of {@code elements} is
    *          null
    */
-  private static <E> ImmutableSet<E> construct(int n, Object... elements) {
+  static <E> ImmutableSet<E> construct(int n, Object... elements) {
     switch (n) {
       case 0:
         return of();
@@ -407,6 +410,10 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E>
   // ImmutableCollection.iterator() consistent.
   @Override public abstract UnmodifiableIterator<E> iterator();
 
+  @Override public Spliterator<E> spliterator() {
+    return Spliterators.spliterator(this, SPLITERATOR_CHARACTERISTICS | Spliterator.DISTINCT);
+  }
+
   /*
    * This class is used to serialize all ImmutableSet instances, except for
    * ImmutableEnumSet/ImmutableSortedSet, regardless of implementation type. It
@@ -429,6 +436,21 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E>
     return new SerializedForm(toArray());
   }
 
+  /**
+   * Returns a {@code Collector} that accumulates the input elements into a new
+   * {@code ImmutableSet}, keeping the first of each group of equal elements
+   * in encounter order.
+   *
+   * @throws NullPointerException from the collection if any element is null
+   */
+  public static <E> Collector<E, ?, ImmutableSet<E>> toImmutableSet() {
+    return Collector.of(
+        ImmutableSet.Builder<E>::new,
+        ImmutableSet.Builder<E>::add,
+        (left, right) -> left.addAll(right.build()),
+        ImmutableSet.Builder<E>::build);
+  }
+
   /**
    * Returns a new builder. The generated builder is equivalent to the builder
    * created by the {@link Builder} constructor.
@@ -34,6 +34,7 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NavigableSet;
 import java.util.SortedSet;
+import java.util.Spliterator;
 
 import javax.annotation.Nullable;
 
@@ -601,6 +602,18 @@ public abstract class ImmutableSortedSet<E> extends ImmutableSortedSetFauxveride
   @Override // needed to unify the iterator() methods in Collection and SortedIterable
   public abstract UnmodifiableIterator<E> iterator();
 
+  /**
+   * Returns a spliterator that splits the range of indices of {@link #asList}
+   * in halves, and reports {@link Spliterator#SORTED} with the comparator of
+   * this set.
+   */
+  @Override
+  public Spliterator<E> spliterator() {
+    final ImmutableList<E> list = asList();
+    return CollectSpliterators.sortedIndexed(size(),
+        SPLITERATOR_CHARACTERISTICS | Spliterator.DISTINCT, list::get, comparator);
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -14,6 +14,7 @@
 
 package com.github.yingzhuo.commons.collections;
 
+import static guava.base.Preconditions.checkArgument;
 import static guava.base.Preconditions.checkNotNull;
 
 import com.github.yingzhuo.commons.collections.MapMakerInternalMap.ReferenceEntry;
@@ -64,6 +65,32 @@ public final class Interners {
     return new WeakInterner<E>();
   }
 
+  /**
+   * Returns a new thread-safe interner of strings which retains a strong reference to each string
+   * it has interned. Besides strings, it can intern the contents of any {@link CharSequence} or of
+   * a range of a {@code char[]}, allocating a string only when those contents are not interned
+   * yet. Lookups take no lock, and the interner counts its hits and misses; see {@link
+   * StringInterner}.
+   */
+  @GwtIncompatible("java.util.concurrent.locks.ReentrantLock")
+  public static StringInterner newStringInterner() {
+    return new StringInterner();
+  }
+
+  /**
+   * Returns a new thread-safe interner of strings like {@link #newStringInterner()}, which retains
+   * at most {@code maximumSize} strings: once it is full, interning a new string evicts one that
+   * has not been looked up recently. Equal strings interned while both are retained are the same
+   * instance.
+   *
+   * @throws IllegalArgumentException if {@code maximumSize} is not positive
+   */
+  @GwtIncompatible("java.util.concurrent.locks.ReentrantLock")
+  public static StringInterner newStringInterner(int maximumSize) {
+    checkArgument(maximumSize > 0, "maximumSize (%s) must be positive", maximumSize);
+    return new StringInterner(maximumSize);
+  }
+
   private static class WeakInterner<E> implements Interner<E> {
     // MapMaker is our friend, we know about this type
     private final MapMakerInternalMap<E, Dummy> map = new MapMaker()
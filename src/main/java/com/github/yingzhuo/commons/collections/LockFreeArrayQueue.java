@@ -0,0 +1,631 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import static guava.base.Preconditions.checkArgument;
+import static guava.base.Preconditions.checkNotNull;
+
+import com.github.yingzhuo.commons.math.IntMath;
+
+import guava.annotations.Beta;
+import guava.annotations.GwtIncompatible;
+
+import java.math.RoundingMode;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+/**
+ * A bounded, lock-free queue backed by a circular array, for passing elements
+ * between threads without the locks of {@link java.util.concurrent.ArrayBlockingQueue}
+ * or the per-element nodes of {@link java.util.concurrent.ConcurrentLinkedQueue}.
+ * Instances are created by {@link Queues#newSpscArrayQueue},
+ * {@link Queues#newMpscArrayQueue} and {@link Queues#newMpmcArrayQueue}, which
+ * differ in how many threads may offer and poll concurrently: the cheaper
+ * variants are only correct if their callers respect that restriction, which
+ * is not checked.
+ *
+ * <p>The capacity is rounded up to a power of two, and to at least two for
+ * {@link Queues#newMpmcArrayQueue}. The producer and consumer indices are
+ * padded to lie on cache lines of their own, so that producers and consumers
+ * do not slow each other down by writing to the same line.
+ *
+ * <p>In addition to the {@link java.util.Queue} methods, which never block,
+ * these queues offer <i>relaxed</i> variants that may fail spuriously instead
+ * of waiting for a concurrent operation to complete, and batch draining. Their
+ * iterators are weakly consistent snapshots, and they do not support removing
+ * elements other than the head; {@link Queues#asBlockingQueue} views one as a
+ * {@link BlockingQueue}, for use with {@link Queues#drain} and other blocking
+ * consumers. Null elements are not permitted.
+ */
+@Beta
+@GwtIncompatible("java.util.concurrent.atomic")
+public abstract class LockFreeArrayQueue<E> extends AbstractQueue<E> {
+  static final int MAXIMUM_CAPACITY = 1 << 30;
+
+  final AtomicReferenceArray<E> buffer;
+  final int mask;
+
+  private LockFreeArrayQueue(int capacity) {
+    checkArgument(capacity > 0, "capacity (%s) must be positive", capacity);
+    checkArgument(capacity <= MAXIMUM_CAPACITY,
+        "capacity (%s) must not exceed %s", capacity, MAXIMUM_CAPACITY);
+    int length = 1 << IntMath.log2(capacity, RoundingMode.CEILING);
+    this.buffer = new AtomicReferenceArray<E>(length);
+    this.mask = length - 1;
+  }
+
+  /** Returns the maximum number of elements this queue can hold. */
+  public final int capacity() {
+    return mask + 1;
+  }
+
+  /**
+   * Inserts {@code e} if the queue is not full. Unlike {@link #offer}, this
+   * may also fail if a consumer is still removing the element that last
+   * occupied the slot, rather than wait for it.
+   *
+   * @return whether {@code e} was inserted
+   */
+  public abstract boolean relaxedOffer(E e);
+
+  /**
+   * Removes and returns the head of this queue, or returns {@code null} if it
+   * is empty. Unlike {@link #poll}, this may also return {@code null} if a
+   * producer has claimed the head slot but not yet stored its element, rather
+   * than wait for it.
+   */
+  @Nullable public abstract E relaxedPoll();
+
+  /**
+   * Returns the head of this queue without removing it, with the relaxed
+   * semantics of {@link #relaxedPoll}.
+   */
+  @Nullable public abstract E relaxedPeek();
+
+  /**
+   * Removes up to {@code limit} elements from the head of this queue, passing
+   * each to {@code consumer} after removing it, with the relaxed semantics of
+   * {@link #relaxedPoll}. If {@code consumer} throws, the element it was
+   * passed is lost and the exception is propagated.
+   *
+   * @return the number of elements removed
+   */
+  public int drain(Consumer<? super E> consumer, int limit) {
+    checkNotNull(consumer);
+    checkArgument(limit >= 0, "limit (%s) must not be negative", limit);
+    int count = 0;
+    for (E e; count < limit && (e = relaxedPoll()) != null; count++) {
+      consumer.accept(e);
+    }
+    return count;
+  }
+
+  /**
+   * Removes up to {@code limit} elements from the head of this queue and adds
+   * them to {@code collection}, with the relaxed semantics of
+   * {@link #relaxedPoll}.
+   *
+   * @return the number of elements removed
+   * @throws IllegalArgumentException if {@code collection} is this queue
+   */
+  public int drainTo(final Collection<? super E> collection, int limit) {
+    checkArgument(collection != this, "cannot drain a queue into itself");
+    checkNotNull(collection);
+    return drain(new Consumer<E>() {
+      @Override public void accept(E e) {
+        collection.add(e);
+      }
+    }, limit);
+  }
+
+  /**
+   * Returns the number of elements in this queue. The result is exact only if
+   * no other thread modifies the queue concurrently.
+   */
+  @Override public int size() {
+    long after = consumerIndex();
+    while (true) {
+      long before = after;
+      long producerIndex = producerIndex();
+      after = consumerIndex();
+      if (before == after) {
+        return (int) Math.max(0, Math.min(producerIndex - after, capacity()));
+      }
+    }
+  }
+
+  @Override public boolean isEmpty() {
+    return consumerIndex() == producerIndex();
+  }
+
+  /**
+   * Returns an iterator over a snapshot of the elements of this queue, from
+   * head to tail. The iterator is <i>weakly consistent</i>: it never throws
+   * {@link java.util.ConcurrentModificationException} and returns each element
+   * at most once, but it may miss elements removed or added while the snapshot
+   * is taken, and return elements that have since been removed. It does not
+   * support {@link Iterator#remove}.
+   */
+  @Override public Iterator<E> iterator() {
+    /*
+     * Reads each slot between the consumer and producer indices once, skipping
+     * those already freed by consumers or still being filled by producers. A
+     * slot refilled meanwhile yields an element that is still queued, if out
+     * of order.
+     */
+    long index = consumerIndex();
+    long end = Math.min(producerIndex(), index + capacity());
+    ArrayList<E> snapshot = new ArrayList<E>((int) Math.max(0, end - index));
+    for (; index < end; index++) {
+      E e = buffer.get((int) index & mask);
+      if (e != null) {
+        snapshot.add(e);
+      }
+    }
+    return Iterators.unmodifiableIterator(snapshot.iterator());
+  }
+
+  @Override public String toString() {
+    return getClass().getSimpleName() + "[size=" + size() + ", capacity=" + capacity() + "]";
+  }
+
+  abstract long producerIndex();
+
+  abstract long consumerIndex();
+
+  /*
+   * The fields written by producers and by consumers are separated by padding
+   * from each other and from the read-only fields, which requires a class per
+   * group: the JVM may reorder fields within a class, but lays out those of a
+   * superclass first. 16 longs span two cache lines, to also defeat
+   * adjacent-line prefetching.
+   */
+
+  @SuppressWarnings("unused")
+  abstract static class ProducerPad<E> extends LockFreeArrayQueue<E> {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+    long p08, p09, p10, p11, p12, p13, p14, p15;
+
+    ProducerPad(int capacity) {
+      super(capacity);
+    }
+  }
+
+  abstract static class ProducerFields<E> extends ProducerPad<E> {
+    @SuppressWarnings("rawtypes")
+    static final AtomicLongFieldUpdater<ProducerFields> PRODUCER_INDEX =
+        AtomicLongFieldUpdater.newUpdater(ProducerFields.class, "producerIndex");
+
+    volatile long producerIndex;
+    /** A stale lower bound of the consumer index, read by producers only. */
+    long consumerIndexCache;
+
+    ProducerFields(int capacity) {
+      super(capacity);
+    }
+
+    @Override final long producerIndex() {
+      return producerIndex;
+    }
+  }
+
+  @SuppressWarnings("unused")
+  abstract static class ConsumerPad<E> extends ProducerFields<E> {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+    long p08, p09, p10, p11, p12, p13, p14, p15;
+
+    ConsumerPad(int capacity) {
+      super(capacity);
+    }
+  }
+
+  abstract static class ConsumerFields<E> extends ConsumerPad<E> {
+    @SuppressWarnings("rawtypes")
+    static final AtomicLongFieldUpdater<ConsumerFields> CONSUMER_INDEX =
+        AtomicLongFieldUpdater.newUpdater(ConsumerFields.class, "consumerIndex");
+
+    volatile long consumerIndex;
+
+    ConsumerFields(int capacity) {
+      super(capacity);
+    }
+
+    @Override final long consumerIndex() {
+      return consumerIndex;
+    }
+  }
+
+  @SuppressWarnings("unused")
+  abstract static class TrailingPad<E> extends ConsumerFields<E> {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+    long p08, p09, p10, p11, p12, p13, p14, p15;
+
+    TrailingPad(int capacity) {
+      super(capacity);
+    }
+  }
+
+  /**
+   * The consumer side shared by the single-consumer queues: an element is
+   * published by the ordered store of its slot, so the consumer can find the
+   * head by reading its slot, and frees the slot by clearing it before
+   * advancing the consumer index.
+   */
+  abstract static class SingleConsumerQueue<E> extends TrailingPad<E> {
+    SingleConsumerQueue(int capacity) {
+      super(capacity);
+    }
+
+    @Override public E poll() {
+      long index = consumerIndex;
+      int slot = (int) index & mask;
+      E e = buffer.get(slot);
+      if (e == null) {
+        if (index == producerIndex) {
+          return null;
+        }
+        // a producer claimed the slot; its element is about to be stored
+        do {
+          e = buffer.get(slot);
+        } while (e == null);
+      }
+      buffer.lazySet(slot, null);
+      CONSUMER_INDEX.lazySet(this, index + 1);
+      return e;
+    }
+
+    @Override public E relaxedPoll() {
+      long index = consumerIndex;
+      int slot = (int) index & mask;
+      E e = buffer.get(slot);
+      if (e == null) {
+        return null;
+      }
+      buffer.lazySet(slot, null);
+      CONSUMER_INDEX.lazySet(this, index + 1);
+      return e;
+    }
+
+    @Override public E peek() {
+      long index = consumerIndex;
+      int slot = (int) index & mask;
+      E e = buffer.get(slot);
+      if (e == null && index != producerIndex) {
+        do {
+          e = buffer.get(slot);
+        } while (e == null);
+      }
+      return e;
+    }
+
+    @Override public E relaxedPeek() {
+      return buffer.get((int) consumerIndex & mask);
+    }
+
+    @Override public int drain(Consumer<? super E> consumer, int limit) {
+      checkNotNull(consumer);
+      checkArgument(limit >= 0, "limit (%s) must not be negative", limit);
+      long index = consumerIndex;
+      for (int count = 0; count < limit; count++) {
+        int slot = (int) (index + count) & mask;
+        E e = buffer.get(slot);
+        if (e == null) {
+          return count;
+        }
+        buffer.lazySet(slot, null);
+        CONSUMER_INDEX.lazySet(this, index + count + 1);
+        consumer.accept(e);
+      }
+      return limit;
+    }
+  }
+
+  /** A queue for one producer thread and one consumer thread. */
+  static final class SpscArrayQueue<E> extends SingleConsumerQueue<E> {
+    SpscArrayQueue(int capacity) {
+      super(capacity);
+    }
+
+    @Override public boolean offer(E e) {
+      checkNotNull(e);
+      long index = producerIndex;
+      if (index - consumerIndexCache > mask) {
+        consumerIndexCache = consumerIndex;
+        if (index - consumerIndexCache > mask) {
+          return false;
+        }
+      }
+      buffer.lazySet((int) index & mask, e);
+      PRODUCER_INDEX.lazySet(this, index + 1);
+      return true;
+    }
+
+    @Override public boolean relaxedOffer(E e) {
+      return offer(e);
+    }
+  }
+
+  /** A queue for any number of producer threads and one consumer thread. */
+  static final class MpscArrayQueue<E> extends SingleConsumerQueue<E> {
+    MpscArrayQueue(int capacity) {
+      super(capacity);
+    }
+
+    @Override public boolean offer(E e) {
+      checkNotNull(e);
+      long index;
+      do {
+        index = producerIndex;
+        if (index - consumerIndexCache > mask) {
+          // racy but benign: producers only ever store a consumer index they read
+          consumerIndexCache = consumerIndex;
+          if (index - consumerIndexCache > mask) {
+            return false;
+          }
+        }
+      } while (!PRODUCER_INDEX.compareAndSet(this, index, index + 1));
+      buffer.lazySet((int) index & mask, e);
+      return true;
+    }
+
+    @Override public boolean relaxedOffer(E e) {
+      return offer(e);
+    }
+  }
+
+  /**
+   * A queue for any number of producer and consumer threads, after Dmitry
+   * Vyukov's bounded MPMC queue: each slot carries a sequence number telling
+   * which lap of producers or consumers may claim it next. It needs at least
+   * two slots: with one, the sequence of a full slot equals that of the free
+   * slot of the next lap.
+   */
+  static final class MpmcArrayQueue<E> extends TrailingPad<E> {
+    private final AtomicLongArray sequences;
+
+    MpmcArrayQueue(int capacity) {
+      super(capacity == 1 ? 2 : capacity);
+      this.sequences = new AtomicLongArray(mask + 1);
+      for (int i = 0; i <= mask; i++) {
+        sequences.lazySet(i, i);
+      }
+    }
+
+    @Override public boolean offer(E e) {
+      return offer(e, false);
+    }
+
+    @Override public boolean relaxedOffer(E e) {
+      return offer(e, true);
+    }
+
+    private boolean offer(E e, boolean relaxed) {
+      checkNotNull(e);
+      while (true) {
+        long index = producerIndex;
+        int slot = (int) index & mask;
+        long delta = sequences.get(slot) - index;
+        if (delta == 0) {
+          if (PRODUCER_INDEX.compareAndSet(this, index, index + 1)) {
+            buffer.lazySet(slot, e);
+            sequences.lazySet(slot, index + 1);
+            return true;
+          }
+        } else if (delta < 0) {
+          // the slot still holds the element of the previous lap
+          if (relaxed || index - consumerIndex > mask) {
+            return false;
+          }
+          // else a consumer claimed that element and is about to free the slot
+        }
+      }
+    }
+
+    @Override public E poll() {
+      return poll(false);
+    }
+
+    @Override public E relaxedPoll() {
+      return poll(true);
+    }
+
+    @Nullable private E poll(boolean relaxed) {
+      while (true) {
+        long index = consumerIndex;
+        int slot = (int) index & mask;
+        long delta = sequences.get(slot) - (index + 1);
+        if (delta == 0) {
+          if (CONSUMER_INDEX.compareAndSet(this, index, index + 1)) {
+            E e = buffer.get(slot);
+            buffer.lazySet(slot, null);
+            sequences.lazySet(slot, index + mask + 1);
+            return e;
+          }
+        } else if (delta < 0) {
+          // the slot has no element yet
+          if (relaxed || index == producerIndex) {
+            return null;
+          }
+          // else a producer claimed the slot and is about to store its element
+        }
+      }
+    }
+
+    @Override public E peek() {
+      return peek(false);
+    }
+
+    @Override public E relaxedPeek() {
+      return peek(true);
+    }
+
+    @Nullable private E peek(boolean relaxed) {
+      while (true) {
+        long index = consumerIndex;
+        int slot = (int) index & mask;
+        long delta = sequences.get(slot) - (index + 1);
+        if (delta == 0) {
+          E e = buffer.get(slot);
+          // a null or stale element means a consumer took it meanwhile
+          if (e != null && index == consumerIndex) {
+            return e;
+          }
+        } else if (delta < 0 && (relaxed || index == producerIndex)) {
+          return null;
+        }
+      }
+    }
+  }
+
+  /**
+   * A {@link BlockingQueue} view of a lock-free queue, whose blocking methods
+   * wait by spinning, then yielding, then parking for increasing periods.
+   */
+  static final class BlockingView<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+    private static final int SPINS = 100;
+    private static final int YIELDS = 10;
+    private static final long MAXIMUM_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final LockFreeArrayQueue<E> queue;
+
+    BlockingView(LockFreeArrayQueue<E> queue) {
+      this.queue = checkNotNull(queue);
+    }
+
+    /**
+     * Waits after {@code attempt} failed attempts, for at most
+     * {@code remainingNanos}.
+     */
+    private static void idle(int attempt, long remainingNanos) throws InterruptedException {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      if (attempt < SPINS) {
+        return;
+      } else if (attempt < SPINS + YIELDS) {
+        Thread.yield();
+      } else {
+        int shift = Math.min(attempt - SPINS - YIELDS, 20);
+        LockSupport.parkNanos(Math.min(Math.min(1000L << shift, MAXIMUM_PARK_NANOS),
+            remainingNanos));
+      }
+    }
+
+    @Override public boolean offer(E e) {
+      return queue.offer(e);
+    }
+
+    @Override public void put(E e) throws InterruptedException {
+      for (int attempt = 0; !queue.offer(e); attempt++) {
+        idle(attempt, Long.MAX_VALUE);
+      }
+    }
+
+    @Override public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      for (int attempt = 0; !queue.offer(e); attempt++) {
+        long remainingNanos = deadline - System.nanoTime();
+        if (remainingNanos <= 0) {
+          return false;
+        }
+        idle(attempt, remainingNanos);
+      }
+      return true;
+    }
+
+    @Override public E poll() {
+      return queue.poll();
+    }
+
+    @Override public E take() throws InterruptedException {
+      E e;
+      for (int attempt = 0; (e = queue.poll()) == null; attempt++) {
+        idle(attempt, Long.MAX_VALUE);
+      }
+      return e;
+    }
+
+    @Override public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      E e;
+      for (int attempt = 0; (e = queue.poll()) == null; attempt++) {
+        long remainingNanos = deadline - System.nanoTime();
+        if (remainingNanos <= 0) {
+          return null;
+        }
+        idle(attempt, remainingNanos);
+      }
+      return e;
+    }
+
+    @Override public E peek() {
+      return queue.peek();
+    }
+
+    @Override public int remainingCapacity() {
+      return queue.capacity() - queue.size();
+    }
+
+    @Override public int drainTo(Collection<? super E> collection) {
+      return drainTo(collection, Integer.MAX_VALUE);
+    }
+
+    /*
+     * Unlike LockFreeArrayQueue.drainTo, does not stop at an element claimed but
+     * not yet stored by a producer: callers such as
+     * ThreadPoolExecutor.shutdownNow expect the queue to be empty afterwards,
+     * unless elements are added concurrently.
+     */
+    @Override public int drainTo(Collection<? super E> collection, int maxElements) {
+      checkArgument(collection != this && collection != queue,
+          "cannot drain a queue into itself");
+      checkNotNull(collection);
+      int count = 0;
+      for (E e; count < maxElements && (e = queue.poll()) != null; count++) {
+        collection.add(e);
+      }
+      return count;
+    }
+
+    @Override public int size() {
+      return queue.size();
+    }
+
+    @Override public boolean isEmpty() {
+      return queue.isEmpty();
+    }
+
+    @Override public Iterator<E> iterator() {
+      return queue.iterator();
+    }
+
+    @Override public String toString() {
+      return queue.toString();
+    }
+  }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import static guava.base.Preconditions.checkArgument;
+import static guava.base.Preconditions.checkElementIndex;
+
+import guava.annotations.Beta;
+import guava.annotations.GwtCompatible;
+
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+/**
+ * Fixed-size {@link Table} of {@code long} values, stored row-major in a
+ * single {@code long[]}.
+ *
+ * <p>This is the primitive counterpart of {@link ArrayTable}: the allowed row
+ * and column keys are supplied when the table is created, and the table always
+ * contains a mapping for every row key / column pair. Values start out as
+ * {@code 0L} and can never be null; {@link #erase} and {@link #eraseAll}
+ * reset cells to zero.
+ *
+ * <p>The {@code Table} methods box their values. Tight loops should use the
+ * index-based {@link #at} and {@link #set} methods, the bulk {@code fill}
+ * methods, or the {@link Vector} views returned by {@link #rowVector} and
+ * {@link #columnVector}, none of which box.
+ *
+ * <p>As with {@code ArrayTable}, this class is not synchronized, and
+ * synchronization is unnecessary between a thread that writes to one cell and
+ * a thread that reads from another.
+ *
+ * @see LongArrayTable
+ */
+@Beta
+@GwtCompatible
+public final class LongArrayTable<R, C>
+    extends AbstractPrimitiveArrayTable<R, C, Long> {
+
+  /**
+   * Creates a {@code LongArrayTable} filled with zeros.
+   *
+   * @param rowKeys row keys that may be stored in the generated table
+   * @param columnKeys column keys that may be stored in the generated table
+   * @throws NullPointerException if any of the provided keys is null
+   * @throws IllegalArgumentException if {@code rowKeys} or {@code columnKeys}
+   *     contains duplicates or is empty
+   */
+  public static <R, C> LongArrayTable<R, C> create(
+      Iterable<? extends R> rowKeys, Iterable<? extends C> columnKeys) {
+    return new LongArrayTable<R, C>(rowKeys, columnKeys);
+  }
+
+  /**
+   * Creates a {@code LongArrayTable} with the mappings in the provided
+   * table. The row and column keys are those of {@code table}, and cells
+   * missing from {@code table} are zero.
+   *
+   * @throws NullPointerException if any of the provided table's row keys,
+   *     column keys, or values, are null
+   * @throws IllegalArgumentException if {@code table} is empty
+   */
+  @SuppressWarnings("unchecked") // a Table<R, C, ?> that is a LongArrayTable is a LongArrayTable<R, C>
+  public static <R, C> LongArrayTable<R, C> create(
+      Table<R, C, ? extends Number> table) {
+    if (table instanceof LongArrayTable<?, ?>) {
+      return new LongArrayTable<R, C>((LongArrayTable<R, C>) table);
+    }
+    LongArrayTable<R, C> result = new LongArrayTable<R, C>(
+        table.rowKeySet(), table.columnKeySet());
+    for (Cell<R, C, ? extends Number> cell : table.cellSet()) {
+      result.put(cell.getRowKey(), cell.getColumnKey(),
+          cell.getValue().longValue());
+    }
+    return result;
+  }
+
+  private final long[] array;
+
+  private LongArrayTable(Iterable<? extends R> rowKeys,
+      Iterable<? extends C> columnKeys) {
+    super(rowKeys, columnKeys);
+    array = new long[rowList.size() * columnList.size()];
+  }
+
+  private LongArrayTable(LongArrayTable<R, C> table) {
+    super(table);
+    array = table.array.clone();
+  }
+
+  /**
+   * Returns the value corresponding to the specified row and column indices.
+   *
+   * @throws IndexOutOfBoundsException if either index is negative, {@code
+   *     rowIndex} is greater than or equal to the number of allowed row keys,
+   *     or {@code columnIndex} is greater than or equal to the number of
+   *     allowed column keys
+   */
+  public long at(int rowIndex, int columnIndex) {
+    return array[flatIndex(rowIndex, columnIndex)];
+  }
+
+  /**
+   * Associates {@code value} with the specified row and column indices.
+   *
+   * @return the previous value at the specified indices
+   * @throws IndexOutOfBoundsException if either index is negative, {@code
+   *     rowIndex} is greater than or equal to the number of allowed row keys,
+   *     or {@code columnIndex} is greater than or equal to the number of
+   *     allowed column keys
+   */
+  public long set(int rowIndex, int columnIndex, long value) {
+    int index = flatIndex(rowIndex, columnIndex);
+    long oldValue = array[index];
+    array[index] = value;
+    return oldValue;
+  }
+
+  @Override Long getBoxed(int index) {
+    return array[index];
+  }
+
+  @Override Long setBoxed(int index, Long value) {
+    long oldValue = array[index];
+    array[index] = value;
+    return oldValue;
+  }
+
+  @Override Long zero() {
+    return 0L;
+  }
+
+  /** Sets every cell of the table to {@code value}. */
+  public void fill(long value) {
+    Arrays.fill(array, value);
+  }
+
+  /** Sets every cell of the table to zero. */
+  public void eraseAll() {
+    fill(0L);
+  }
+
+  /**
+   * Copies {@code values}, given in row-major order, into the table.
+   *
+   * @throws IllegalArgumentException if {@code values.length} is not equal to
+   *     {@link #size()}
+   */
+  public void setAll(long[] values) {
+    checkArgument(values.length == array.length,
+        "expected %s values but got %s", array.length, values.length);
+    System.arraycopy(values, 0, array, 0, values.length);
+  }
+
+  /**
+   * Returns a copy of the table's values as a two-dimensional array, indexed
+   * by row index and then by column index.
+   */
+  public long[][] toArray() {
+    int columns = columnList.size();
+    long[][] copy = new long[rowList.size()][columns];
+    for (int i = 0; i < copy.length; i++) {
+      System.arraycopy(array, i * columns, copy[i], 0, columns);
+    }
+    return copy;
+  }
+
+  @Override
+  public boolean containsValue(@Nullable Object value) {
+    if (value instanceof Long) {
+      long target = (Long) value;
+      for (long element : array) {
+        if (element == target) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns a live view of the row with the given index. Changes to the view
+   * write through to the table, and vice versa.
+   *
+   * @throws IndexOutOfBoundsException if {@code rowIndex} is negative or not
+   *     less than the number of row keys
+   */
+  public Vector rowVector(int rowIndex) {
+    checkElementIndex(rowIndex, rowList.size());
+    int columns = columnList.size();
+    return new Vector(rowIndex * columns, 1, columns);
+  }
+
+  /**
+   * Returns a live view of the column with the given index. Changes to the
+   * view write through to the table, and vice versa.
+   *
+   * @throws IndexOutOfBoundsException if {@code columnIndex} is negative or
+   *     not less than the number of column keys
+   */
+  public Vector columnVector(int columnIndex) {
+    checkElementIndex(columnIndex, columnList.size());
+    int columns = columnList.size();
+    return new Vector(columnIndex, columns, rowList.size());
+  }
+
+  /**
+   * A row or column of a {@code LongArrayTable}, read and written without
+   * boxing. Element {@code i} of a row vector is the cell in column index
+   * {@code i}; element {@code i} of a column vector is the cell in row index
+   * {@code i}.
+   */
+  public final class Vector {
+    private final int start;
+    private final int stride;
+    private final int length;
+
+    private Vector(int start, int stride, int length) {
+      this.start = start;
+      this.stride = stride;
+      this.length = length;
+    }
+
+    /** Returns the number of elements in this vector. */
+    public int size() {
+      return length;
+    }
+
+    /** Returns the element at {@code index}. */
+    public long get(int index) {
+      checkElementIndex(index, length);
+      return array[start + index * stride];
+    }
+
+    /** Replaces the element at {@code index}, returning the previous one. */
+    public long set(int index, long value) {
+      checkElementIndex(index, length);
+      int i = start + index * stride;
+      long oldValue = array[i];
+      array[i] = value;
+      return oldValue;
+    }
+
+    /** Sets every element of this vector to {@code value}. */
+    public void fill(long value) {
+      if (stride == 1) {
+        Arrays.fill(array, start, start + length, value);
+      } else {
+        for (int i = 0, j = start; i < length; i++, j += stride) {
+          array[j] = value;
+        }
+      }
+    }
+
+    /**
+     * Returns the sum of the elements of this vector. Like ordinary
+     * {@code long} addition, the sum silently overflows.
+     */
+    public long sum() {
+      long sum = 0L;
+      for (int i = 0, j = start; i < length; i++, j += stride) {
+        sum += array[j];
+      }
+      return sum;
+    }
+
+    /** Returns the least element of this vector. */
+    public long min() {
+      long min = array[start];
+      for (int i = 1, j = start + stride; i < length; i++, j += stride) {
+        min = Math.min(min, array[j]);
+      }
+      return min;
+    }
+
+    /** Returns the greatest element of this vector. */
+    public long max() {
+      long max = array[start];
+      for (int i = 1, j = start + stride; i < length; i++, j += stride) {
+        max = Math.max(max, array[j]);
+      }
+      return max;
+    }
+
+    /** Returns a copy of the elements of this vector. */
+    public long[] toArray() {
+      long[] copy = new long[length];
+      if (stride == 1) {
+        System.arraycopy(array, start, copy, 0, length);
+      } else {
+        for (int i = 0, j = start; i < length; i++, j += stride) {
+          copy[i] = array[j];
+        }
+      }
+      return copy;
+    }
+
+    @Override public String toString() {
+      return Arrays.toString(toArray());
+    }
+  }
+
+  private static final long serialVersionUID = 0;
+}
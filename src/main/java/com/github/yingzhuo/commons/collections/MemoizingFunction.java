@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import static guava.base.Preconditions.checkArgument;
+import static guava.base.Preconditions.checkNotNull;
+
+import com.github.yingzhuo.commons.exception.ThrowableUtils;
+import com.github.yingzhuo.commons.functor.Function;
+import com.github.yingzhuo.commons.functor.FunctionUtils;
+
+import guava.annotations.Beta;
+import guava.annotations.GwtIncompatible;
+
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * A function that caches the results of another in a computing map of
+ * {@link MapMaker}, as returned by {@link FunctionUtils#memoize} and
+ * {@link FunctionUtils#memoizeWithWeakKeys}.
+ *
+ * <p>The result for a key is computed at most once at a time: threads that
+ * ask for a key while it is being computed wait for that computation instead
+ * of starting their own. The cache holds at most {@code maximumSize} results,
+ * evicting those least recently used, and drops results not used for
+ * {@code expireAfter}. If the function throws, nothing is cached and the
+ * exception is rethrown if unchecked, or wrapped in a
+ * {@link ComputationException} otherwise.
+ *
+ * <p>A memoizing function is serializable if the memoized function is; it is
+ * deserialized with an empty cache.
+ */
+@Beta
+@GwtIncompatible("MapMaker.expireAfterAccess")
+public final class MemoizingFunction<F, T> implements Function<F, T>, Serializable {
+
+  /**
+   * Returns a function that memoizes {@code function}, comparing its
+   * arguments by {@link Object#equals}. Prefer
+   * {@link FunctionUtils#memoize}.
+   */
+  public static <F, T> MemoizingFunction<F, T> create(
+      Function<? super F, ? extends T> function, int maximumSize, long expireAfter, TimeUnit unit) {
+    return new MemoizingFunction<F, T>(function, maximumSize, unit.toNanos(expireAfter), false);
+  }
+
+  /**
+   * Returns a function that memoizes {@code function}, comparing its
+   * arguments by identity and holding them weakly. Prefer
+   * {@link FunctionUtils#memoizeWithWeakKeys}.
+   */
+  public static <F, T> MemoizingFunction<F, T> createWithWeakKeys(
+      Function<? super F, ? extends T> function, int maximumSize, long expireAfter, TimeUnit unit) {
+    return new MemoizingFunction<F, T>(function, maximumSize, unit.toNanos(expireAfter), true);
+  }
+
+  private final Function<? super F, ? extends T> function;
+  private final int maximumSize;
+  private final long expireAfterNanos;
+  private final boolean weakKeys;
+  private final transient ConcurrentMap<F, T> cache;
+
+  @SuppressWarnings("deprecation") // the caching features of MapMaker are internal
+  private MemoizingFunction(Function<? super F, ? extends T> function,
+      int maximumSize, long expireAfterNanos, boolean weakKeys) {
+    checkArgument(maximumSize >= 0, "maximumSize (%s) must not be negative", maximumSize);
+    checkArgument(expireAfterNanos >= 0,
+        "expireAfter (%s ns) must not be negative", expireAfterNanos);
+    this.function = checkNotNull(function);
+    this.maximumSize = maximumSize;
+    this.expireAfterNanos = expireAfterNanos;
+    this.weakKeys = weakKeys;
+    MapMaker mapMaker = new MapMaker()
+        .maximumSize(maximumSize)
+        .expireAfterAccess(expireAfterNanos, TimeUnit.NANOSECONDS);
+    if (weakKeys) {
+      mapMaker.weakKeys();
+    }
+    this.cache = mapMaker.makeComputingMap(function);
+  }
+
+  /**
+   * Returns the cached result for {@code input}, computing it if there is
+   * none.
+   *
+   * @throws NullPointerException if {@code input} is null, or if the memoized
+   *     function returns null
+   */
+  @Override public T apply(@Nullable F input) {
+    checkNotNull(input, "memoized functions do not accept null arguments");
+    try {
+      return cache.get(input);
+    } catch (ComputationException e) {
+      ThrowableUtils.propagateIfPossible(e.getCause());
+      throw e;
+    }
+  }
+
+  @Override public String toString() {
+    return "FunctionUtils." + (weakKeys ? "memoizeWithWeakKeys(" : "memoize(") + function
+        + ", " + maximumSize + ", " + expireAfterNanos + ", NANOSECONDS)";
+  }
+
+  private Object readResolve() {
+    return new MemoizingFunction<F, T>(function, maximumSize, expireAfterNanos, weakKeys);
+  }
+
+  private static final long serialVersionUID = 0;
+}
@@ -78,6 +78,9 @@ import java.util.Queue;
  *     O(log n) time}
  * <li>The {@link #remove(Object)} and {@link #contains} operations require
  *     linear ({@code O(n)}) time
+ * <li>{@link #create(Iterable)} and {@link #addAll} into a queue no larger
+ *     than the batch run in linear time, and once a bounded queue is full,
+ *     an element that would be evicted right away costs one comparison
  * <li>If you only access one end of the queue, and don't use a maximum size,
  *     this class is functionally equivalent to {@link PriorityQueue}, but
  *     significantly slower.
@@ -207,9 +210,7 @@ public final class MinMaxPriorityQueue<E> extends AbstractQueue<E> {
         Iterable<? extends T> initialContents) {
       MinMaxPriorityQueue<T> queue = new MinMaxPriorityQueue<T>(
           this, initialQueueSize(expectedSize, maximumSize, initialContents));
-      for (T element : initialContents) {
-        queue.offer(element);
-      }
+      queue.offerAll(initialContents);
       return queue;
     }
 
@@ -255,13 +256,44 @@ public final class MinMaxPriorityQueue<E> extends AbstractQueue<E> {
     return true;
   }
 
+  /**
+   * Adds all of the given elements to this queue, with the same result as
+   * adding them one at a time, but faster for large batches: while the queue
+   * has room, the elements are appended and the heap is rebuilt once in linear
+   * time if the batch is at least as large as the queue was; once the queue is
+   * full, elements that are no less than its greatest element are discarded
+   * with a single comparison.
+   *
+   * @return {@code true} if {@code newElements} was not empty
+   */
   @Override public boolean addAll(Collection<? extends E> newElements) {
-    boolean modified = false;
-    for (E element : newElements) {
-      offer(element);
-      modified = true;
+    return offerAll(newElements);
+  }
+
+  private boolean offerAll(Iterable<? extends E> newElements) {
+    Iterator<? extends E> iterator = newElements.iterator();
+    if (!iterator.hasNext()) {
+      return false;
     }
-    return modified;
+    modCount++;
+    int oldSize = size;
+    while (size < maximumSize && iterator.hasNext()) {
+      E element = checkNotNull(iterator.next());
+      size++;
+      growIfNeeded();
+      queue[size - 1] = element;
+    }
+    if (size - oldSize >= oldSize) {
+      heapify();
+    } else {
+      for (int i = oldSize; i < size; i++) {
+        heapForIndex(i).bubbleUp(i, elementData(i));
+      }
+    }
+    while (iterator.hasNext()) {
+      offerToFullQueue(checkNotNull(iterator.next()));
+    }
+    return true;
   }
 
   /**
@@ -273,6 +305,9 @@ public final class MinMaxPriorityQueue<E> extends AbstractQueue<E> {
   @Override public boolean offer(E element) {
     checkNotNull(element);
     modCount++;
+    if (size == maximumSize) {
+      return offerToFullQueue(element);
+    }
     int insertIndex = size++;
 
     growIfNeeded();
@@ -280,7 +315,45 @@ public final class MinMaxPriorityQueue<E> extends AbstractQueue<E> {
     // Adds the element to the end of the heap and bubbles it up to the correct
     // position.
     heapForIndex(insertIndex).bubbleUp(insertIndex, element);
-    return size <= maximumSize || pollLast() != element;
+    return true;
+  }
+
+  /**
+   * Adds {@code element} to this queue, which holds {@link #maximumSize}
+   * elements, in place of its greatest element. Returns {@code false}, leaving
+   * the queue unchanged, if {@code element} is no less than that element, as it
+   * would be evicted right away.
+   */
+  private boolean offerToFullQueue(E element) {
+    int maxIndex = getMaxElementIndex();
+    if (minHeap.ordering.compare(element, elementData(maxIndex)) >= 0) {
+      return false;
+    }
+    if (maxIndex == 0) {
+      queue[0] = element;
+      return true;
+    }
+    // The greatest element sits just below the root; if element is less than
+    // the root, it becomes the new root and the old root takes its place.
+    E root = elementData(0);
+    if (minHeap.ordering.compare(element, root) < 0) {
+      queue[0] = element;
+      element = root;
+    }
+    queue[maxIndex] = element;
+    maxHeap.trickleDown(maxIndex);
+    return true;
+  }
+
+  /**
+   * Restores the heap invariants over the whole array in linear time, by
+   * trickling down each element that has children, from the last one to the
+   * root (the construction of Atkinson et al., after Floyd).
+   */
+  private void heapify() {
+    for (int i = (size >>> 1) - 1; i >= 0; i--) {
+      heapForIndex(i).trickleDown(i);
+    }
   }
 
   @Override public E poll() {
@@ -365,6 +438,37 @@ public final class MinMaxPriorityQueue<E> extends AbstractQueue<E> {
     return isEmpty() ? null : elementData(getMaxElementIndex());
   }
 
+  /**
+   * Removes all the elements of this queue and adds them to the given
+   * collection, least first. Equivalent to {@code drainTo(c,
+   * Integer.MAX_VALUE)}.
+   *
+   * @return the number of elements transferred
+   * @throws IllegalArgumentException if {@code c} is this queue
+   */
+  public int drainTo(Collection<? super E> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Removes at most {@code maxElements} of the least elements of this queue
+   * and adds them to the given collection, in ascending order. Each element is
+   * polled straight into {@code c}, without an intermediate copy.
+   *
+   * @return the number of elements transferred
+   * @throws IllegalArgumentException if {@code c} is this queue
+   */
+  public int drainTo(Collection<? super E> c, int maxElements) {
+    checkNotNull(c);
+    checkArgument(c != this, "cannot drain a queue into itself");
+    int count = 0;
+    while (count < maxElements && !isEmpty()) {
+      c.add(removeAndGet(0));
+      count++;
+    }
+    return count;
+  }
+
   /**
    * Removes the element at position {@code index}.
    *
@@ -586,6 +690,47 @@ public final class MinMaxPriorityQueue<E> extends AbstractQueue<E> {
       return minIndex;
     }
 
+    /**
+     * Moves the element at {@code index} down the levels of this heap until it
+     * is no greater than any of its children and grandchildren, assuming the
+     * subtrees below it are already intact.
+     */
+    void trickleDown(int index) {
+      E x = elementData(index);
+      while (true) {
+        int minChildIndex = findMinChild(index);
+        if (minChildIndex < 0) {
+          break;
+        }
+        int minGrandChildIndex = findMinGrandChild(index);
+        if (minGrandChildIndex > 0
+            && compareElements(minGrandChildIndex, minChildIndex) < 0) {
+          E grandChild = elementData(minGrandChildIndex);
+          if (ordering.compare(grandChild, x) >= 0) {
+            break;
+          }
+          queue[index] = grandChild;
+          index = minGrandChildIndex;
+          // x passes the parent of its new position, which belongs to the
+          // other heap; swap them if x belongs on that level instead.
+          int parentIndex = getParentIndex(index);
+          E parent = elementData(parentIndex);
+          if (ordering.compare(parent, x) < 0) {
+            queue[parentIndex] = x;
+            x = parent;
+          }
+        } else {
+          E child = elementData(minChildIndex);
+          if (ordering.compare(child, x) < 0) {
+            queue[index] = child;
+            index = minChildIndex;
+          }
+          break;
+        }
+      }
+      queue[index] = x;
+    }
+
     /**
      * Returns the minimum child or {@code -1} if no child exists.
      */
@@ -361,6 +361,10 @@ public abstract class Ordering<T> implements Comparator<T> {
    *
    *   Ordering.from(String.CASE_INSENSITIVE_ORDER)
    *       .onResultOf(Functions.toStringFunction())}</pre>
+   *
+   * <p>The {@link #sortedCopy} and {@link #immutableSortedCopy} methods of the
+   * returned ordering apply {@code function} once per element, rather than
+   * twice per comparison.
    */
   @GwtCompatible(serializable = true)
   public <F> Ordering<F> onResultOf(Function<F, ? extends T> function) {
@@ -807,10 +811,20 @@ public abstract class Ordering<T> implements Comparator<T> {
   public <E extends T> List<E> sortedCopy(Iterable<E> iterable) {
     @SuppressWarnings("unchecked") // does not escape, and contains only E's
     E[] array = (E[]) Iterables.toArray(iterable);
-    Arrays.sort(array, this);
+    sort(array);
     return Lists.newArrayList(Arrays.asList(array));
   }
 
+  /**
+   * Sorts {@code array} by this ordering, stably, as {@link #sortedCopy} and
+   * {@link #immutableSortedCopy} require. Orderings that can sort faster than
+   * through repeated calls to {@link #compare}, such as those returned by
+   * {@link #onResultOf}, override this.
+   */
+  <E extends T> void sort(E[] array) {
+    Arrays.sort(array, this);
+  }
+
   /**
    * Returns an <i>immutable</i> copy of the given iterable sorted by this
    * ordering. The input is not modified.
@@ -833,7 +847,7 @@ public abstract class Ordering<T> implements Comparator<T> {
     for (E e : elements) {
       checkNotNull(e);
     }
-    Arrays.sort(elements, this);
+    sort(elements);
     return ImmutableList.asImmutableList(elements);
   }
 
@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import static guava.base.Preconditions.checkNotNull;
+
+import guava.annotations.Beta;
+import guava.annotations.GwtIncompatible;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.CheckReturnValue;
+
+import com.github.yingzhuo.commons.exception.ThrowableUtils;
+import com.github.yingzhuo.commons.functor.Function;
+import com.github.yingzhuo.commons.functor.Predicate;
+
+/**
+ * A {@link FluentIterable} pipeline whose terminal operations run on an
+ * {@link Executor}, obtained from {@link FluentIterable#parallel}. Its
+ * {@link #filter} and {@link #transform} stages are recorded, not run; a
+ * terminal operation such as {@link #toList} or {@link #index} splits the
+ * source into chunks, runs the stages and a partial result for each chunk as
+ * a separate task, and merges the partial results in chunk order. Each result
+ * is therefore equal to that of the same operation on the sequential
+ * {@code FluentIterable}, including its iteration order. <pre>   {@code
+ *
+ *   ImmutableListMultimap<Region, Order> ordersByRegion = FluentIterable
+ *       .from(orders)
+ *       .parallel(executor)
+ *       .filter(shippedLastMonth())
+ *       .index(regionFunction());}</pre>
+ *
+ * <p>Only a source that is a {@link RandomAccess} {@link List} or an
+ * {@link ImmutableCollection} can be split, so {@code parallel} must be
+ * called on the fluent iterable returned by {@link FluentIterable#from},
+ * before any stage. Any other source is processed as a single chunk, on the
+ * calling thread. The calling thread also processes the first chunk itself,
+ * then every chunk that no thread of the executor has started, and waits for
+ * the others; so a saturated executor, or a terminal operation run by a task
+ * of the executor, slows the operation down rather than deadlocking it. The
+ * source must not be modified meanwhile.
+ *
+ * <p>Predicates and functions are called from several threads at once, in no
+ * particular order, and must be thread-safe. If one of them throws, the
+ * terminal operation rethrows the exception thrown for the earliest chunk,
+ * after all the chunks have finished.
+ */
+@Beta
+@GwtIncompatible("java.util.concurrent.Executor")
+public final class ParallelFluentIterable<E> {
+  // chunks smaller than this are not worth a separate task
+  private static final int MIN_CHUNK_SIZE = 256;
+
+  private final Iterable<?> source;
+  // applies the recorded stages to one chunk of the source, lazily
+  private final Function<Iterable<?>, Iterable<E>> stages;
+  private final Executor executor;
+  private final int parallelism;
+
+  ParallelFluentIterable(Iterable<?> source, Function<Iterable<?>, Iterable<E>> stages,
+      Executor executor, int parallelism) {
+    this.source = checkNotNull(source);
+    this.stages = checkNotNull(stages);
+    this.executor = checkNotNull(executor);
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Returns the pipeline of {@code source} with no stages.
+   */
+  static <E> ParallelFluentIterable<E> from(
+      Iterable<E> source, Executor executor, int parallelism) {
+    Function<Iterable<?>, Iterable<E>> identity = new Function<Iterable<?>, Iterable<E>>() {
+      @SuppressWarnings("unchecked") // every chunk is a part of source
+      @Override
+      public Iterable<E> apply(Iterable<?> chunk) {
+        return (Iterable<E>) chunk;
+      }
+    };
+    return new ParallelFluentIterable<E>(source, identity, executor, parallelism);
+  }
+
+  /**
+   * Returns this pipeline followed by a stage that keeps only the elements
+   * satisfying {@code predicate}.
+   */
+  @CheckReturnValue
+  public ParallelFluentIterable<E> filter(final Predicate<? super E> predicate) {
+    checkNotNull(predicate);
+    return then(new Function<Iterable<E>, Iterable<E>>() {
+      @Override
+      public Iterable<E> apply(Iterable<E> elements) {
+        return Iterables.filter(elements, predicate);
+      }
+    });
+  }
+
+  /**
+   * Returns this pipeline followed by a stage that keeps only the elements
+   * that are instances of {@code type}.
+   */
+  @CheckReturnValue
+  public <T> ParallelFluentIterable<T> filter(final Class<T> type) {
+    checkNotNull(type);
+    return then(new Function<Iterable<E>, Iterable<T>>() {
+      @Override
+      public Iterable<T> apply(Iterable<E> elements) {
+        return Iterables.filter(elements, type);
+      }
+    });
+  }
+
+  /**
+   * Returns this pipeline followed by a stage that applies {@code function}
+   * to each element.
+   */
+  @CheckReturnValue
+  public <T> ParallelFluentIterable<T> transform(final Function<? super E, T> function) {
+    checkNotNull(function);
+    return then(new Function<Iterable<E>, Iterable<T>>() {
+      @Override
+      public Iterable<T> apply(Iterable<E> elements) {
+        return Iterables.transform(elements, function);
+      }
+    });
+  }
+
+  private <T> ParallelFluentIterable<T> then(final Function<Iterable<E>, Iterable<T>> stage) {
+    Function<Iterable<?>, Iterable<T>> composed = new Function<Iterable<?>, Iterable<T>>() {
+      @Override
+      public Iterable<T> apply(Iterable<?> chunk) {
+        return stage.apply(stages.apply(chunk));
+      }
+    };
+    return new ParallelFluentIterable<T>(source, composed, executor, parallelism);
+  }
+
+  /**
+   * Returns a sequential fluent iterable over the elements of this pipeline.
+   * Its stages run lazily, on the iterating thread.
+   */
+  public FluentIterable<E> sequential() {
+    return FluentIterable.from(stages.apply(source));
+  }
+
+  /**
+   * Returns an {@code ImmutableList} containing all of the elements of this
+   * pipeline, in the order of the source.
+   *
+   * @see FluentIterable#toList
+   */
+  public ImmutableList<E> toList() {
+    List<ImmutableList<E>> parts = run(new Function<Iterable<E>, ImmutableList<E>>() {
+      @Override
+      public ImmutableList<E> apply(Iterable<E> elements) {
+        return ImmutableList.copyOf(elements);
+      }
+    });
+    if (parts.size() == 1) {
+      return parts.get(0);
+    }
+    int size = 0;
+    for (ImmutableList<E> part : parts) {
+      size += part.size();
+    }
+    ImmutableList.Builder<E> builder = new ImmutableList.Builder<E>(size);
+    for (ImmutableList<E> part : parts) {
+      builder.addAll(part);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns an {@code ImmutableSet} containing all of the elements of this
+   * pipeline, with duplicates removed, in the order of their first appearance.
+   * Duplicates are removed within each chunk in parallel, then across chunks.
+   *
+   * @see FluentIterable#toSet
+   */
+  public ImmutableSet<E> toSet() {
+    List<ImmutableSet<E>> parts = run(new Function<Iterable<E>, ImmutableSet<E>>() {
+      @Override
+      public ImmutableSet<E> apply(Iterable<E> elements) {
+        return ImmutableSet.copyOf(elements);
+      }
+    });
+    if (parts.size() == 1) {
+      return parts.get(0);
+    }
+    ImmutableSet.Builder<E> builder = ImmutableSet.builder();
+    for (ImmutableSet<E> part : parts) {
+      builder.addAll(part);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns an immutable map whose keys are the distinct elements of this
+   * pipeline, in the order of their first appearance, mapped to values by
+   * {@code valueFunction}, which is called in parallel.
+   *
+   * @see FluentIterable#toMap
+   */
+  public <V> ImmutableMap<E, V> toMap(final Function<? super E, V> valueFunction) {
+    checkNotNull(valueFunction);
+    List<ImmutableMap<E, V>> parts = run(new Function<Iterable<E>, ImmutableMap<E, V>>() {
+      @Override
+      public ImmutableMap<E, V> apply(Iterable<E> elements) {
+        return Maps.toMap(elements, valueFunction);
+      }
+    });
+    if (parts.size() == 1) {
+      return parts.get(0);
+    }
+    // a key may appear in several chunks; keep its first position
+    Map<E, V> merged = new LinkedHashMap<E, V>();
+    for (ImmutableMap<E, V> part : parts) {
+      for (Map.Entry<E, V> entry : part.entrySet()) {
+        if (!merged.containsKey(entry.getKey())) {
+          merged.put(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+    return ImmutableMap.copyOf(merged);
+  }
+
+  /**
+   * Returns an {@code ImmutableListMultimap} of the elements of this pipeline,
+   * indexed by {@code keyFunction}, which is called in parallel. Keys appear
+   * in the order they are first encountered, and the values of each key in
+   * the order of the source.
+   *
+   * @see FluentIterable#index
+   */
+  public <K> ImmutableListMultimap<K, E> index(final Function<? super E, K> keyFunction) {
+    checkNotNull(keyFunction);
+    List<ImmutableListMultimap<K, E>> parts =
+        run(new Function<Iterable<E>, ImmutableListMultimap<K, E>>() {
+          @Override
+          public ImmutableListMultimap<K, E> apply(Iterable<E> elements) {
+            return Multimaps.index(elements, keyFunction);
+          }
+        });
+    if (parts.size() == 1) {
+      return parts.get(0);
+    }
+    ImmutableListMultimap.Builder<K, E> builder = ImmutableListMultimap.builder();
+    for (ImmutableListMultimap<K, E> part : parts) {
+      builder.putAll(part);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns an immutable map whose values are the elements of this pipeline,
+   * in the order of the source, keyed by {@code keyFunction}, which is called
+   * in parallel.
+   *
+   * @throws IllegalArgumentException if {@code keyFunction} produces the same
+   *     key for more than one element
+   * @see FluentIterable#uniqueIndex
+   */
+  public <K> ImmutableMap<K, E> uniqueIndex(final Function<? super E, K> keyFunction) {
+    checkNotNull(keyFunction);
+    List<ImmutableMap<K, E>> parts = run(new Function<Iterable<E>, ImmutableMap<K, E>>() {
+      @Override
+      public ImmutableMap<K, E> apply(Iterable<E> elements) {
+        return Maps.uniqueIndex(elements, keyFunction);
+      }
+    });
+    if (parts.size() == 1) {
+      return parts.get(0);
+    }
+    ImmutableMap.Builder<K, E> builder = ImmutableMap.builder();
+    for (ImmutableMap<K, E> part : parts) {
+      builder.putAll(part);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Splits the source into chunks, and returns the result of {@code terminal}
+   * for the elements of each chunk, in chunk order.
+   */
+  private <R> List<R> run(final Function<Iterable<E>, R> terminal) {
+    List<? extends Iterable<?>> chunks = chunks();
+    List<FutureTask<R>> tasks = new ArrayList<FutureTask<R>>(chunks.size());
+    for (final Iterable<?> chunk : chunks) {
+      tasks.add(new FutureTask<R>(new Callable<R>() {
+        @Override
+        public R call() {
+          return terminal.apply(stages.apply(chunk));
+        }
+      }));
+    }
+    // run the first chunk on this thread rather than wait idly for it
+    for (int i = 1; i < tasks.size(); i++) {
+      try {
+        executor.execute(tasks.get(i));
+      } catch (RejectedExecutionException e) {
+        // run by this thread below
+      }
+    }
+    tasks.get(0).run();
+    /*
+     * Then run the chunks the executor has not started, last first, since it
+     * likely starts them in order: it may be saturated, or be running this
+     * thread, and never start them. FutureTask.run does nothing if the task
+     * has started.
+     */
+    for (int i = tasks.size() - 1; i > 0; i--) {
+      tasks.get(i).run();
+    }
+
+    List<R> results = new ArrayList<R>(tasks.size());
+    Throwable failure = null;
+    boolean interrupted = false;
+    for (Future<R> task : tasks) {
+      while (true) {
+        try {
+          R result = task.get();
+          results.add(result);
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = e.getCause();
+          }
+          break;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (failure != null) {
+      throw ThrowableUtils.propagate(failure);
+    }
+    return results;
+  }
+
+  private List<? extends Iterable<?>> chunks() {
+    List<?> list;
+    if (source instanceof ImmutableCollection) {
+      list = ((ImmutableCollection<?>) source).asList();
+    } else if (source instanceof List && source instanceof RandomAccess) {
+      list = (List<?>) source;
+    } else {
+      return Collections.singletonList(source);
+    }
+    int size = list.size();
+    int chunkCount = Math.max(1, Math.min(parallelism, size / MIN_CHUNK_SIZE));
+    List<List<?>> chunks = new ArrayList<List<?>>(chunkCount);
+    for (int i = 0; i < chunkCount; i++) {
+      // spread the remainder over the chunks, so sizes differ by at most one
+      int from = (int) ((long) size * i / chunkCount);
+      int to = (int) ((long) size * (i + 1) / chunkCount);
+      chunks.add(list.subList(from, to));
+    }
+    return chunks;
+  }
+}
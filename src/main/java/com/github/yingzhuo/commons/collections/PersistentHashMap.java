@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import static com.github.yingzhuo.commons.collections.CollectPreconditions.checkEntryNotNull;
+
+import guava.annotations.Beta;
+import guava.annotations.GwtCompatible;
+
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * An {@link ImmutableMap} stored in a hash array mapped trie, whose
+ * {@link #with} and {@link #without} methods return an updated copy in
+ * O(log<sub>32</sub>&nbsp;n) time. The copy shares all but the O(log n) nodes
+ * on the path to the changed entry with the original, so keeping many versions
+ * of a large map is cheap, and neither version is affected by the other.
+ *
+ * <p>This makes copy-on-write updates practical. Replacing
+ * <pre>   {@code
+ *
+ *   map = ImmutableMap.<K, V>builder().putAll(map).put(key, value).build();}</pre>
+ *
+ * which copies every entry, with {@code map = map.with(key, value)} costs a
+ * handful of small allocations. Several updates at once are best made with
+ * {@link #toBuilder}, whose builder updates the nodes it has already copied in
+ * place.
+ *
+ * <p>A {@code PersistentHashMap} is an {@code ImmutableMap} in every respect:
+ * {@link ImmutableMap#copyOf} returns it unchanged, it rejects null keys and
+ * values, and its views are immutable. Unlike most immutable maps, it does
+ * <i>not</i> iterate in insertion order; the order depends on the hash codes
+ * of the keys, as in a {@code HashMap}.
+ *
+ * @see PersistentHashSet
+ */
+@Beta
+@GwtCompatible
+@SuppressWarnings("serial") // uses writeReplace(), not default serialization
+public final class PersistentHashMap<K, V> extends ImmutableMap<K, V> {
+
+  private static final PersistentHashMap<Object, Object> EMPTY =
+      new PersistentHashMap<Object, Object>(Hamt.EMPTY_NODE, 0);
+
+  /** Returns the empty persistent map. */
+  @SuppressWarnings("unchecked") // the empty map holds no keys or values
+  public static <K, V> PersistentHashMap<K, V> of() {
+    return (PersistentHashMap<K, V>) EMPTY;
+  }
+
+  /**
+   * Returns a persistent map containing the same entries as {@code map}. If
+   * {@code map} is itself a {@code PersistentHashMap}, it is returned.
+   *
+   * @throws NullPointerException if any key or value in {@code map} is null
+   */
+  public static <K, V> PersistentHashMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+    if (map instanceof PersistentHashMap) {
+      @SuppressWarnings("unchecked") // safe since the map is immutable
+      PersistentHashMap<K, V> result = (PersistentHashMap<K, V>) map;
+      return result;
+    }
+    return PersistentHashMap.<K, V>builder().putAll(map).build();
+  }
+
+  /** Returns a new builder, starting from the empty map. */
+  public static <K, V> Builder<K, V> builder() {
+    return new Builder<K, V>(Hamt.EMPTY_NODE, 0);
+  }
+
+  private final transient Hamt.Node root;
+  private final transient int size;
+
+  private PersistentHashMap(Hamt.Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  /**
+   * Returns a map with the mappings of this map, except that {@code key} maps
+   * to {@code value}. Returns this map if it already maps {@code key} to a
+   * value equal to {@code value}.
+   *
+   * @throws NullPointerException if {@code key} or {@code value} is null
+   */
+  public PersistentHashMap<K, V> with(K key, V value) {
+    checkEntryNotNull(key, value);
+    Hamt.Change change = new Hamt.Change();
+    Hamt.Node newRoot = root.put(null, key, Hamt.hash(key), value, 0, change);
+    return (newRoot == root) ? this
+        : new PersistentHashMap<K, V>(newRoot, change.added ? size + 1 : size);
+  }
+
+  /**
+   * Returns a map with the mappings of this map, except for any mapping for
+   * {@code key}. Returns this map if it does not contain {@code key}.
+   */
+  public PersistentHashMap<K, V> without(@Nullable Object key) {
+    if (key == null) {
+      return this;
+    }
+    Hamt.Change change = new Hamt.Change();
+    Hamt.Node newRoot = root.remove(null, key, Hamt.hash(key), 0, change);
+    if (newRoot == root) {
+      return this;
+    }
+    return (size == 1) ? PersistentHashMap.<K, V>of()
+        : new PersistentHashMap<K, V>(newRoot, size - 1);
+  }
+
+  /**
+   * Returns a map with the mappings of this map and of {@code map}, where
+   * those of {@code map} take precedence.
+   *
+   * @throws NullPointerException if any key or value in {@code map} is null
+   */
+  public PersistentHashMap<K, V> withAll(Map<? extends K, ? extends V> map) {
+    return toBuilder().putAll(map).build();
+  }
+
+  /** Returns a new builder, starting from the mappings of this map. */
+  public Builder<K, V> toBuilder() {
+    return new Builder<K, V>(root, size);
+  }
+
+  @SuppressWarnings("unchecked") // only V instances are stored as values
+  @Override public V get(@Nullable Object key) {
+    return (key == null) ? null : (V) root.get(key, Hamt.hash(key), 0);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override boolean isPartialView() {
+    return false;
+  }
+
+  @Override ImmutableSet<Entry<K, V>> createEntrySet() {
+    return new ImmutableMapEntrySet<K, V>() {
+      @Override ImmutableMap<K, V> map() {
+        return PersistentHashMap.this;
+      }
+
+      @Override
+      public UnmodifiableIterator<Entry<K, V>> iterator() {
+        return new Hamt.TrieIterator<Entry<K, V>>(root) {
+          @SuppressWarnings("unchecked") // only K and V instances are stored
+          @Override Entry<K, V> output(Object key, Object value) {
+            return Maps.immutableEntry((K) key, (V) value);
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * A builder for {@code PersistentHashMap} instances. Unlike a plain
+   * {@link ImmutableMap.Builder}, it holds a map rather than a list of
+   * entries: a repeated key replaces the earlier value instead of making
+   * {@link #build} fail, and mappings can be {@linkplain #remove removed}.
+   *
+   * <p>The builder copies a node of the trie the first time it changes it and
+   * updates its copies in place afterwards, so a batch of updates allocates
+   * far less than the same calls to {@link PersistentHashMap#with}. Building
+   * is O(1) and does not disturb the maps built before; the builder may be
+   * reused, and each map built reflects all the updates made before it.
+   */
+  public static final class Builder<K, V> extends ImmutableMap.Builder<K, V> {
+    // owner token of the nodes this builder may update in place; replaced by
+    // build() so that built maps are never changed
+    private Object edit = new Object();
+    private Hamt.Node root;
+    private int size;
+
+    private Builder(Hamt.Node root, int size) {
+      super(0);
+      this.root = root;
+      this.size = size;
+    }
+
+    /**
+     * Associates {@code key} with {@code value} in the built map, replacing
+     * any value previously associated with {@code key}.
+     */
+    @Override public Builder<K, V> put(K key, V value) {
+      checkEntryNotNull(key, value);
+      Hamt.Change change = new Hamt.Change();
+      root = root.put(edit, key, Hamt.hash(key), value, 0, change);
+      if (change.added) {
+        size++;
+      }
+      return this;
+    }
+
+    @Override public Builder<K, V> put(Entry<? extends K, ? extends V> entry) {
+      return put(entry.getKey(), entry.getValue());
+    }
+
+    @Override public Builder<K, V> putAll(Map<? extends K, ? extends V> map) {
+      for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+        put(entry.getKey(), entry.getValue());
+      }
+      return this;
+    }
+
+    /** Removes the mapping for {@code key} from the built map, if present. */
+    public Builder<K, V> remove(@Nullable Object key) {
+      if (key != null) {
+        Hamt.Change change = new Hamt.Change();
+        root = root.remove(edit, key, Hamt.hash(key), 0, change);
+        if (change.oldValue != null) {
+          size--;
+        }
+      }
+      return this;
+    }
+
+    /** Returns a newly-created persistent map. */
+    @Override public PersistentHashMap<K, V> build() {
+      edit = new Object();
+      return (size == 0) ? PersistentHashMap.<K, V>of() : new PersistentHashMap<K, V>(root, size);
+    }
+  }
+
+  private static class SerializedForm extends ImmutableMap.SerializedForm {
+    SerializedForm(PersistentHashMap<?, ?> map) {
+      super(map);
+    }
+
+    @Override Object readResolve() {
+      return createMap(PersistentHashMap.<Object, Object>builder());
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  @Override Object writeReplace() {
+    return new SerializedForm(this);
+  }
+}
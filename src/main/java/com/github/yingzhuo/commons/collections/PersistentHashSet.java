@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import static guava.base.Preconditions.checkNotNull;
+
+import guava.annotations.Beta;
+import guava.annotations.GwtCompatible;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Iterator;
+
+import javax.annotation.Nullable;
+
+/**
+ * An {@link ImmutableSet} stored in a hash array mapped trie, whose
+ * {@link #with} and {@link #without} methods return an updated copy in
+ * O(log<sub>32</sub>&nbsp;n) time, sharing structure with the original. It is
+ * to {@link ImmutableSet} what {@link PersistentHashMap} is to
+ * {@link ImmutableMap}; see there for details.
+ *
+ * <p>Unlike most immutable sets, a {@code PersistentHashSet} does <i>not</i>
+ * iterate in insertion order; the order depends on the hash codes of the
+ * elements, as in a {@code HashSet}.
+ */
+@Beta
+@GwtCompatible
+@SuppressWarnings("serial") // uses writeReplace(), not default serialization
+public final class PersistentHashSet<E> extends ImmutableSet<E> {
+
+  private static final PersistentHashSet<Object> EMPTY =
+      new PersistentHashSet<Object>(Hamt.EMPTY_NODE, 0);
+
+  /** Returns the empty persistent set. */
+  @SuppressWarnings("unchecked") // the empty set holds no elements
+  public static <E> PersistentHashSet<E> of() {
+    return (PersistentHashSet<E>) EMPTY;
+  }
+
+  /**
+   * Returns a persistent set containing each of {@code elements}, minus
+   * duplicates. If {@code elements} is itself a {@code PersistentHashSet}, it
+   * is returned.
+   *
+   * @throws NullPointerException if any of {@code elements} is null
+   */
+  public static <E> PersistentHashSet<E> copyOf(Iterable<? extends E> elements) {
+    if (elements instanceof PersistentHashSet) {
+      @SuppressWarnings("unchecked") // safe since the set is immutable
+      PersistentHashSet<E> result = (PersistentHashSet<E>) elements;
+      return result;
+    }
+    return PersistentHashSet.<E>builder().addAll(elements).build();
+  }
+
+  /**
+   * Returns a persistent set containing each of {@code elements}, minus
+   * duplicates. If {@code elements} is itself a {@code PersistentHashSet}, it
+   * is returned.
+   *
+   * @throws NullPointerException if any of {@code elements} is null
+   */
+  public static <E> PersistentHashSet<E> copyOf(Collection<? extends E> elements) {
+    return copyOf((Iterable<? extends E>) elements);
+  }
+
+  /** Returns a new builder, starting from the empty set. */
+  public static <E> Builder<E> builder() {
+    return new Builder<E>(Hamt.EMPTY_NODE, 0);
+  }
+
+  // each element is stored as its own value
+  private final transient Hamt.Node root;
+  private final transient int size;
+
+  private PersistentHashSet(Hamt.Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  /**
+   * Returns a set with the elements of this set and {@code element}. Returns
+   * this set if it already contains {@code element}.
+   *
+   * @throws NullPointerException if {@code element} is null
+   */
+  public PersistentHashSet<E> with(E element) {
+    checkNotNull(element);
+    Hamt.Change change = new Hamt.Change();
+    Hamt.Node newRoot = root.put(null, element, Hamt.hash(element), element, 0, change);
+    return (newRoot == root) ? this : new PersistentHashSet<E>(newRoot, size + 1);
+  }
+
+  /**
+   * Returns a set with the elements of this set except {@code element}.
+   * Returns this set if it does not contain {@code element}.
+   */
+  public PersistentHashSet<E> without(@Nullable Object element) {
+    if (element == null) {
+      return this;
+    }
+    Hamt.Change change = new Hamt.Change();
+    Hamt.Node newRoot = root.remove(null, element, Hamt.hash(element), 0, change);
+    if (newRoot == root) {
+      return this;
+    }
+    return (size == 1) ? PersistentHashSet.<E>of() : new PersistentHashSet<E>(newRoot, size - 1);
+  }
+
+  /**
+   * Returns a set with the elements of this set and of {@code elements}.
+   *
+   * @throws NullPointerException if any of {@code elements} is null
+   */
+  public PersistentHashSet<E> withAll(Iterable<? extends E> elements) {
+    return toBuilder().addAll(elements).build();
+  }
+
+  /** Returns a new builder, starting from the elements of this set. */
+  public Builder<E> toBuilder() {
+    return new Builder<E>(root, size);
+  }
+
+  @Override public boolean contains(@Nullable Object target) {
+    return target != null && root.get(target, Hamt.hash(target), 0) != null;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override public UnmodifiableIterator<E> iterator() {
+    return new Hamt.TrieIterator<E>(root) {
+      @SuppressWarnings("unchecked") // only E instances are stored
+      @Override E output(Object key, Object value) {
+        return (E) key;
+      }
+    };
+  }
+
+  @Override boolean isPartialView() {
+    return false;
+  }
+
+  /**
+   * A builder for {@code PersistentHashSet} instances, which also supports
+   * {@linkplain #remove removing} elements. As with
+   * {@link PersistentHashMap.Builder}, trie nodes are copied once and then
+   * updated in place, building is O(1), and the builder may be reused.
+   */
+  public static final class Builder<E> extends ImmutableSet.Builder<E> {
+    // owner token of the nodes this builder may update in place; replaced by
+    // build() so that built sets are never changed
+    private Object edit = new Object();
+    private Hamt.Node root;
+    private int size;
+
+    private Builder(Hamt.Node root, int size) {
+      super(0);
+      this.root = root;
+      this.size = size;
+    }
+
+    @Override public Builder<E> add(E element) {
+      checkNotNull(element);
+      Hamt.Change change = new Hamt.Change();
+      root = root.put(edit, element, Hamt.hash(element), element, 0, change);
+      if (change.added) {
+        size++;
+      }
+      return this;
+    }
+
+    @Override public Builder<E> add(E... elements) {
+      for (E element : elements) {
+        add(element);
+      }
+      return this;
+    }
+
+    @Override public Builder<E> addAll(Iterable<? extends E> elements) {
+      return addAll(elements.iterator());
+    }
+
+    @Override public Builder<E> addAll(Iterator<? extends E> elements) {
+      while (elements.hasNext()) {
+        add(elements.next());
+      }
+      return this;
+    }
+
+    /** Removes {@code element} from the built set, if present. */
+    public Builder<E> remove(@Nullable Object element) {
+      if (element != null) {
+        Hamt.Change change = new Hamt.Change();
+        root = root.remove(edit, element, Hamt.hash(element), 0, change);
+        if (change.oldValue != null) {
+          size--;
+        }
+      }
+      return this;
+    }
+
+    /** Returns a newly-created persistent set. */
+    @Override public PersistentHashSet<E> build() {
+      edit = new Object();
+      return (size == 0) ? PersistentHashSet.<E>of() : new PersistentHashSet<E>(root, size);
+    }
+  }
+
+  private static class SerializedForm implements Serializable {
+    final Object[] elements;
+
+    SerializedForm(Object[] elements) {
+      this.elements = elements;
+    }
+
+    Object readResolve() {
+      return PersistentHashSet.<Object>builder().add(elements).build();
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  @Override Object writeReplace() {
+    return new SerializedForm(toArray());
+  }
+}
@@ -16,6 +16,7 @@ package com.github.yingzhuo.commons.collections;
 
 
 import guava.annotations.Beta;
+import guava.annotations.GwtIncompatible;
 import guava.base.Preconditions;
 
 import java.util.ArrayDeque;
@@ -176,6 +177,70 @@ public final class Queues {
 
   // LinkedList: see {@link com.google.common.collect.Lists}
 
+  // LockFreeArrayQueue
+
+  /**
+   * Creates an empty lock-free queue for use by a single producer thread and a
+   * single consumer thread, holding at least {@code capacity} elements.
+   *
+   * @throws IllegalArgumentException if {@code capacity} is not positive or
+   *     exceeds 2<sup>30</sup>
+   */
+  @Beta
+  @GwtIncompatible("java.util.concurrent.atomic")
+  public static <E> LockFreeArrayQueue<E> newSpscArrayQueue(int capacity) {
+    return new LockFreeArrayQueue.SpscArrayQueue<E>(capacity);
+  }
+
+  /**
+   * Creates an empty lock-free queue for use by any number of producer
+   * threads and a single consumer thread, holding at least {@code capacity}
+   * elements.
+   *
+   * @throws IllegalArgumentException if {@code capacity} is not positive or
+   *     exceeds 2<sup>30</sup>
+   */
+  @Beta
+  @GwtIncompatible("java.util.concurrent.atomic")
+  public static <E> LockFreeArrayQueue<E> newMpscArrayQueue(int capacity) {
+    return new LockFreeArrayQueue.MpscArrayQueue<E>(capacity);
+  }
+
+  /**
+   * Creates an empty lock-free queue for use by any number of producer and
+   * consumer threads, holding at least {@code capacity} elements, and at
+   * least two.
+   *
+   * @throws IllegalArgumentException if {@code capacity} is not positive or
+   *     exceeds 2<sup>30</sup>
+   */
+  @Beta
+  @GwtIncompatible("java.util.concurrent.atomic")
+  public static <E> LockFreeArrayQueue<E> newMpmcArrayQueue(int capacity) {
+    return new LockFreeArrayQueue.MpmcArrayQueue<E>(capacity);
+  }
+
+  /**
+   * Returns a {@link BlockingQueue} view of {@code queue}, so that it can be
+   * passed to {@link #drain} and other consumers of blocking queues. Blocking
+   * methods of the view wait by spinning, then yielding, then parking for up
+   * to a millisecond at a time, since the queue has no means to signal
+   * waiting threads. The view is subject to the same restrictions on
+   * concurrent producers and consumers as {@code queue}.
+   *
+   * <p>The view's iterator is a weakly consistent snapshot, so
+   * {@code contains} and {@code toArray} work, but removing elements other
+   * than the head, through {@code remove(Object)} or the iterator, throws
+   * {@link UnsupportedOperationException}. A {@code ThreadPoolExecutor} using
+   * the view supports {@code shutdownNow}, which drains the queue, but not
+   * {@code remove(Runnable)} or {@code purge}.
+   */
+  @Beta
+  @GwtIncompatible("java.util.concurrent.locks.LockSupport")
+  public static <E> BlockingQueue<E> asBlockingQueue(LockFreeArrayQueue<E> queue) {
+    return new LockFreeArrayQueue.BlockingView<E>(queue);
+  }
+
   // PriorityBlockingQueue
 
   /**
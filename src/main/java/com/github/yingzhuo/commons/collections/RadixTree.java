@@ -0,0 +1,462 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import com.github.yingzhuo.commons.lang.primitive.UnsignedBytes;
+
+import guava.annotations.GwtIncompatible;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import javax.annotation.Nullable;
+
+/**
+ * The compact trie behind {@link RadixTreeMap} and
+ * {@link ImmutableRadixTreeMap}.
+ *
+ * <p>Keys are read as sequences of {@code char} units: the chars of a
+ * {@code String}, or the bytes of a {@code byte[]} taken as unsigned. Each
+ * node stands for the prefix of length {@code depth} of its {@code key}, so an
+ * edge label is never copied; the label of the edge into a node is the range
+ * {@code [parent.depth, depth)} of that node's key. Children are kept sorted
+ * by the first unit of their label, which makes a preorder walk visit keys in
+ * lexicographical order. Every node other than the root either holds a value
+ * or has at least two children.
+ */
+@GwtIncompatible("NavigableMap")
+final class RadixTree<K, V> {
+
+  /** How the keys of a tree are split into units and ordered. */
+  abstract static class KeyType<K> {
+    abstract int length(K key);
+
+    abstract char unitAt(K key, int index);
+
+    /** The order of keys; must agree with comparing them unit by unit. */
+    abstract Comparator<? super K> comparator();
+
+    /** Returns {@code object} as a key, or null if it cannot be one. */
+    @Nullable abstract K cast(@Nullable Object object);
+
+    /**
+     * Returns the least key greater than every key that starts with
+     * {@code prefix}, or null if there is none.
+     */
+    @Nullable abstract K prefixSuccessor(K prefix);
+  }
+
+  static final KeyType<String> STRING_KEYS = new KeyType<String>() {
+    @Override int length(String key) {
+      return key.length();
+    }
+
+    @Override char unitAt(String key, int index) {
+      return key.charAt(index);
+    }
+
+    @Override Comparator<? super String> comparator() {
+      return Ordering.natural();
+    }
+
+    @Override String cast(@Nullable Object object) {
+      return (object instanceof String) ? (String) object : null;
+    }
+
+    @Override String prefixSuccessor(String prefix) {
+      for (int i = prefix.length() - 1; i >= 0; i--) {
+        char c = prefix.charAt(i);
+        if (c != Character.MAX_VALUE) {
+          return prefix.substring(0, i) + (char) (c + 1);
+        }
+      }
+      return null;
+    }
+  };
+
+  static final KeyType<byte[]> BYTE_ARRAY_KEYS = new KeyType<byte[]>() {
+    @Override int length(byte[] key) {
+      return key.length;
+    }
+
+    @Override char unitAt(byte[] key, int index) {
+      return (char) UnsignedBytes.toInt(key[index]);
+    }
+
+    @Override Comparator<? super byte[]> comparator() {
+      return UnsignedBytes.lexicographicalComparator();
+    }
+
+    @Override byte[] cast(@Nullable Object object) {
+      return (object instanceof byte[]) ? (byte[]) object : null;
+    }
+
+    @Override byte[] prefixSuccessor(byte[] prefix) {
+      for (int i = prefix.length - 1; i >= 0; i--) {
+        if (prefix[i] != (byte) 0xFF) {
+          byte[] successor = Arrays.copyOf(prefix, i + 1);
+          successor[i]++;
+          return successor;
+        }
+      }
+      return null;
+    }
+  };
+
+  private static final char[] NO_UNITS = new char[0];
+  private static final Object[] NO_CHILDREN = new Object[0];
+
+  static final class Node<K, V> {
+    // a key whose first depth units spell this node's prefix; the mapped key
+    // if hasValue
+    K key;
+    final int depth;
+    boolean hasValue;
+    V value;
+    Node<K, V> parent;
+    // first unit of each child's label, ascending
+    char[] units = NO_UNITS;
+    Object[] children = NO_CHILDREN;
+    int childCount;
+
+    Node(K key, int depth) {
+      this.key = key;
+      this.depth = depth;
+    }
+
+    @SuppressWarnings("unchecked") // only nodes are stored in children
+    Node<K, V> child(int index) {
+      return (Node<K, V>) children[index];
+    }
+
+    int indexOf(char unit) {
+      return Arrays.binarySearch(units, 0, childCount, unit);
+    }
+
+    void insertChild(int index, char unit, Node<K, V> child) {
+      if (childCount == units.length) {
+        int newCapacity = Math.max(2, childCount * 2);
+        units = Arrays.copyOf(units, newCapacity);
+        children = Arrays.copyOf(children, newCapacity);
+      }
+      System.arraycopy(units, index, units, index + 1, childCount - index);
+      System.arraycopy(children, index, children, index + 1, childCount - index);
+      units[index] = unit;
+      children[index] = child;
+      childCount++;
+      child.parent = this;
+    }
+
+    void removeChild(int index) {
+      childCount--;
+      System.arraycopy(units, index + 1, units, index, childCount - index);
+      System.arraycopy(children, index + 1, children, index, childCount - index);
+      children[childCount] = null;
+    }
+  }
+
+  final KeyType<K> keyType;
+  Node<K, V> root;
+  int size;
+  // incremented on structural changes, as in TreeMap
+  int modCount;
+
+  RadixTree(KeyType<K> keyType) {
+    this.keyType = keyType;
+    this.root = new Node<K, V>(null, 0);
+  }
+
+  /**
+   * Returns the position of the first unit in {@code [from, min(child.depth,
+   * length))} at which {@code key} and {@code child}'s label differ, or that
+   * upper bound if they agree throughout.
+   */
+  private int mismatch(K key, int length, Node<K, V> child, int from) {
+    int end = Math.min(child.depth, length);
+    K childKey = child.key;
+    for (int i = from; i < end; i++) {
+      if (keyType.unitAt(key, i) != keyType.unitAt(childKey, i)) {
+        return i;
+      }
+    }
+    return end;
+  }
+
+  /**
+   * Returns the child of {@code node} whose whole prefix is a prefix of
+   * {@code key}, or null if there is none. Requires
+   * {@code node.depth < length}.
+   */
+  @Nullable Node<K, V> matchingChild(Node<K, V> node, K key, int length) {
+    int index = node.indexOf(keyType.unitAt(key, node.depth));
+    if (index < 0) {
+      return null;
+    }
+    Node<K, V> child = node.child(index);
+    if (child.depth > length || mismatch(key, length, child, node.depth + 1) < child.depth) {
+      return null;
+    }
+    return child;
+  }
+
+  /** Returns the node holding the value for {@code key}, or null. */
+  @Nullable Node<K, V> find(K key) {
+    int length = keyType.length(key);
+    Node<K, V> node = root;
+    while (node != null && node.depth < length) {
+      node = matchingChild(node, key, length);
+    }
+    return (node != null && node.hasValue) ? node : null;
+  }
+
+  /**
+   * Returns the node holding the value for {@code key}, creating it, and
+   * splitting an edge if needed, when there is none. Callers set the value of
+   * a new node with {@link #setValue}.
+   */
+  Node<K, V> findOrCreate(K key) {
+    int length = keyType.length(key);
+    Node<K, V> node = root;
+    while (node.depth < length) {
+      char unit = keyType.unitAt(key, node.depth);
+      int index = node.indexOf(unit);
+      if (index < 0) {
+        Node<K, V> leaf = new Node<K, V>(key, length);
+        node.insertChild(-index - 1, unit, leaf);
+        return leaf;
+      }
+      Node<K, V> child = node.child(index);
+      int split = mismatch(key, length, child, node.depth + 1);
+      if (split < child.depth) {
+        Node<K, V> middle = new Node<K, V>(key, split);
+        middle.parent = node;
+        node.children[index] = middle;
+        middle.insertChild(0, keyType.unitAt(child.key, split), child);
+        if (split == length) {
+          return middle;
+        }
+        Node<K, V> leaf = new Node<K, V>(key, length);
+        char leafUnit = keyType.unitAt(key, split);
+        middle.insertChild((leafUnit < middle.units[0]) ? 0 : 1, leafUnit, leaf);
+        return leaf;
+      }
+      node = child;
+    }
+    return node;
+  }
+
+  /** Maps {@code node}, obtained from {@link #findOrCreate}, to a value. */
+  @Nullable V setValue(Node<K, V> node, K key, @Nullable V value) {
+    V oldValue = node.value;
+    node.value = value;
+    if (!node.hasValue) {
+      node.key = key;
+      node.hasValue = true;
+      size++;
+      modCount++;
+    }
+    return oldValue;
+  }
+
+  /**
+   * Removes the mapping of {@code node}, then merges away any node that is
+   * left with neither a value nor a second child. A node already reached by
+   * an iterator stays valid, since only valueless nodes are merged.
+   */
+  void removeNode(Node<K, V> node) {
+    node.hasValue = false;
+    node.value = null;
+    size--;
+    modCount++;
+    if (node == root) {
+      return;
+    }
+    if (node.childCount == 0) {
+      Node<K, V> parent = node.parent;
+      parent.removeChild(indexInParent(node));
+      if (parent != root && !parent.hasValue && parent.childCount == 1) {
+        collapse(parent);
+      }
+    } else if (node.childCount == 1) {
+      collapse(node);
+    }
+  }
+
+  /** Replaces a valueless, single-child, non-root node by its child. */
+  private void collapse(Node<K, V> node) {
+    Node<K, V> child = node.child(0);
+    Node<K, V> parent = node.parent;
+    parent.children[indexInParent(node)] = child;
+    child.parent = parent;
+  }
+
+  void clear() {
+    root = new Node<K, V>(null, 0);
+    size = 0;
+    modCount++;
+  }
+
+  /** Shrinks every child array to its exact size. */
+  void trimToSize() {
+    trimToSize(root);
+  }
+
+  private static <K, V> void trimToSize(Node<K, V> node) {
+    if (node.childCount < node.units.length) {
+      node.units = Arrays.copyOf(node.units, node.childCount);
+      node.children = Arrays.copyOf(node.children, node.childCount);
+    }
+    for (int i = 0; i < node.childCount; i++) {
+      trimToSize(node.child(i));
+    }
+  }
+
+  private int indexInParent(Node<K, V> node) {
+    Node<K, V> parent = node.parent;
+    return parent.indexOf(keyType.unitAt(node.key, parent.depth));
+  }
+
+  // Navigation. Every non-root subtree holds at least one value.
+
+  @Nullable Node<K, V> first() {
+    return (size == 0) ? null : first(root);
+  }
+
+  @Nullable Node<K, V> last() {
+    return (size == 0) ? null : last(root);
+  }
+
+  /** The least valued node of a non-empty subtree. */
+  private static <K, V> Node<K, V> first(Node<K, V> node) {
+    while (!node.hasValue) {
+      node = node.child(0);
+    }
+    return node;
+  }
+
+  /** The greatest valued node of a non-empty subtree. */
+  private static <K, V> Node<K, V> last(Node<K, V> node) {
+    while (node.childCount > 0) {
+      node = node.child(node.childCount - 1);
+    }
+    return node;
+  }
+
+  /** The least valued node after the subtree of {@code node}. */
+  @Nullable private Node<K, V> nextAfterSubtree(Node<K, V> node) {
+    while (node != root) {
+      Node<K, V> parent = node.parent;
+      int index = indexInParent(node) + 1;
+      if (index < parent.childCount) {
+        return first(parent.child(index));
+      }
+      node = parent;
+    }
+    return null;
+  }
+
+  /**
+   * The greatest valued node before the child at {@code index} of
+   * {@code node}, which is the previous sibling's subtree, {@code node}
+   * itself, or whatever precedes {@code node}.
+   */
+  @Nullable private Node<K, V> beforeChild(Node<K, V> node, int index) {
+    if (index > 0) {
+      return last(node.child(index - 1));
+    }
+    return node.hasValue ? node : predecessor(node);
+  }
+
+  @Nullable Node<K, V> successor(Node<K, V> node) {
+    return (node.childCount > 0) ? first(node.child(0)) : nextAfterSubtree(node);
+  }
+
+  @Nullable Node<K, V> predecessor(Node<K, V> node) {
+    while (node != root) {
+      Node<K, V> parent = node.parent;
+      int index = indexInParent(node);
+      if (index > 0) {
+        return last(parent.child(index - 1));
+      } else if (parent.hasValue) {
+        return parent;
+      }
+      node = parent;
+    }
+    return null;
+  }
+
+  /**
+   * Returns the least valued node whose key is greater than (or, if
+   * {@code inclusive}, equal to) {@code key}.
+   */
+  @Nullable Node<K, V> ceiling(K key, boolean inclusive) {
+    int length = keyType.length(key);
+    Node<K, V> node = root;
+    while (node.depth < length) {
+      char unit = keyType.unitAt(key, node.depth);
+      int index = node.indexOf(unit);
+      if (index < 0) {
+        index = -index - 1;
+        return (index < node.childCount) ? first(node.child(index)) : nextAfterSubtree(node);
+      }
+      Node<K, V> child = node.child(index);
+      int split = mismatch(key, length, child, node.depth + 1);
+      if (split < child.depth) {
+        // the whole subtree of child is either above or below key
+        if (split == length || keyType.unitAt(child.key, split) > keyType.unitAt(key, split)) {
+          return first(child);
+        }
+        return nextAfterSubtree(child);
+      }
+      node = child;
+    }
+    if (node.hasValue && inclusive) {
+      return node;
+    }
+    return (node.childCount > 0) ? first(node.child(0)) : nextAfterSubtree(node);
+  }
+
+  /**
+   * Returns the greatest valued node whose key is less than (or, if
+   * {@code inclusive}, equal to) {@code key}.
+   */
+  @Nullable Node<K, V> floor(K key, boolean inclusive) {
+    int length = keyType.length(key);
+    Node<K, V> node = root;
+    while (node.depth < length) {
+      char unit = keyType.unitAt(key, node.depth);
+      int index = node.indexOf(unit);
+      if (index < 0) {
+        return beforeChild(node, -index - 1);
+      }
+      Node<K, V> child = node.child(index);
+      int split = mismatch(key, length, child, node.depth + 1);
+      if (split < child.depth) {
+        // the whole subtree of child is either above or below key
+        if (split < length && keyType.unitAt(child.key, split) < keyType.unitAt(key, split)) {
+          return last(child);
+        }
+        return beforeChild(node, index);
+      }
+      node = child;
+    }
+    if (node.hasValue && inclusive) {
+      return node;
+    }
+    return predecessor(node);
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import static guava.base.Preconditions.checkArgument;
+import static guava.base.Preconditions.checkNotNull;
+
+import com.github.yingzhuo.commons.collections.RadixTree.Node;
+
+import guava.annotations.Beta;
+import guava.annotations.GwtIncompatible;
+
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link java.util.NavigableMap} from {@code String} or {@code byte[]} keys,
+ * stored in a radix tree (a compact trie).
+ *
+ * <p>A lookup reads each unit of the key at most once, however many keys share
+ * its prefix, whereas a {@link java.util.TreeMap} compares the key against
+ * about log<sub>2</sub>(n) others and rescans their common prefix every time.
+ * The trie also answers two queries that a comparison-based map cannot answer
+ * directly: {@link #prefixMap} views all keys that start with a given prefix,
+ * and {@link #longestPrefixEntry} finds the longest key that is a prefix of a
+ * given one, as needed for routing tables.
+ *
+ * <p>{@code String} keys are ordered by {@link String#compareTo}, that is char
+ * by char. {@code byte[]} keys are ordered by
+ * {@link com.github.yingzhuo.commons.lang.primitive.UnsignedBytes#lexicographicalComparator},
+ * and, as in a {@code TreeMap} using that comparator, two arrays are the same
+ * key when they have the same contents. A {@code byte[]} must not be modified
+ * while it is a key in the map.
+ *
+ * <p>Null keys are not permitted; null values are. The entries returned by
+ * this map and its views are snapshots that do not support
+ * {@code setValue}. Like {@code TreeMap}, this class is not thread-safe, and
+ * its iterators are fail-fast. Range views, including those returned by
+ * {@link #prefixMap}, write through to this map.
+ *
+ * @see ImmutableRadixTreeMap
+ */
+@Beta
+@GwtIncompatible("NavigableMap")
+public final class RadixTreeMap<K, V> extends AbstractRadixTreeMap<K, V> {
+
+  /** Creates an empty {@code RadixTreeMap} with {@code String} keys. */
+  public static <V> RadixTreeMap<String, V> create() {
+    return new RadixTreeMap<String, V>(new RadixTree<String, V>(RadixTree.STRING_KEYS));
+  }
+
+  /**
+   * Creates a {@code RadixTreeMap} with {@code String} keys and the same
+   * mappings as {@code map}.
+   *
+   * @throws NullPointerException if any key in {@code map} is null
+   */
+  public static <V> RadixTreeMap<String, V> create(Map<String, ? extends V> map) {
+    RadixTreeMap<String, V> result = create();
+    result.putAll(map);
+    return result;
+  }
+
+  /** Creates an empty {@code RadixTreeMap} with {@code byte[]} keys. */
+  public static <V> RadixTreeMap<byte[], V> createWithByteArrayKeys() {
+    return new RadixTreeMap<byte[], V>(new RadixTree<byte[], V>(RadixTree.BYTE_ARRAY_KEYS));
+  }
+
+  private RadixTreeMap(RadixTree<K, V> tree) {
+    super(tree, null, false, null, false);
+  }
+
+  private RadixTreeMap(RadixTree<K, V> tree, @Nullable K lowerBound, boolean lowerInclusive,
+      @Nullable K upperBound, boolean upperInclusive) {
+    super(tree, lowerBound, lowerInclusive, upperBound, upperInclusive);
+  }
+
+  @Override
+  RadixTreeMap<K, V> createView(@Nullable K lowerBound, boolean lowerInclusive,
+      @Nullable K upperBound, boolean upperInclusive) {
+    return new RadixTreeMap<K, V>(tree, lowerBound, lowerInclusive, upperBound, upperInclusive);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IllegalArgumentException if this is a range view and {@code key}
+   *     is outside its range
+   */
+  @Override
+  @Nullable
+  public V put(K key, @Nullable V value) {
+    checkNotNull(key);
+    checkArgument(inRange(key), "key out of range");
+    return tree.setValue(tree.findOrCreate(key), key, value);
+  }
+
+  @Override
+  @Nullable
+  public V remove(@Nullable Object key) {
+    Node<K, V> node = findNode(key);
+    if (node == null) {
+      return null;
+    }
+    V oldValue = node.value;
+    tree.removeNode(node);
+    return oldValue;
+  }
+
+  @Override
+  void removeNode(Node<K, V> node) {
+    tree.removeNode(node);
+  }
+
+  @Override
+  public void clear() {
+    if (isRange()) {
+      // AbstractMap.clear() would clear the entry set, which clears this map again
+      Iterators.clear(entryIterator());
+    } else {
+      tree.clear();
+    }
+  }
+
+  @Override
+  public RadixTreeMap<K, V> prefixMap(K prefix) {
+    return (RadixTreeMap<K, V>) super.prefixMap(prefix);
+  }
+}
@@ -23,7 +23,11 @@ import guava.annotations.GwtCompatible;
 import guava.annotations.GwtIncompatible;
 
 import java.io.Serializable;
+import java.math.BigInteger;
 import java.util.Collection;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntFunction;
 
 import javax.annotation.Nullable;
 
@@ -95,6 +99,40 @@ final class RegularContiguousSet<C extends Comparable> extends ContiguousSet<C>
     };
   }
 
+  /**
+   * Returns a spliterator that computes the elements from their indices, and
+   * so splits evenly, if the domain is that of integers, longs or big
+   * integers and this set has fewer than {@code Integer.MAX_VALUE} elements;
+   * otherwise, one that follows the iterator of this set.
+   */
+  @SuppressWarnings("unchecked") // function yields values of the domain, which are Cs
+  @Override public Spliterator<C> spliterator() {
+    int characteristics = SPLITERATOR_CHARACTERISTICS | Spliterator.DISTINCT;
+    long distance = domain.distance(first(), last());
+    if (distance < Integer.MAX_VALUE) {
+      final IntFunction<?> function;
+      if (domain.equals(DiscreteDomain.integers())) {
+        final int first = (Integer) first();
+        function = index -> first + index;
+      } else if (domain.equals(DiscreteDomain.longs())) {
+        final long first = (Long) first();
+        function = index -> first + index;
+      } else if (domain.equals(DiscreteDomain.bigIntegers())) {
+        final BigInteger first = (BigInteger) first();
+        function = index -> first.add(BigInteger.valueOf(index));
+      } else {
+        function = null;
+      }
+      if (function != null) {
+        return CollectSpliterators.sortedIndexed(
+            (int) distance + 1, characteristics, (IntFunction<C>) function, comparator());
+      }
+    }
+    // ContiguousSet is in natural order, which an iterator spliterator reports
+    long size = (distance == Long.MAX_VALUE) ? Long.MAX_VALUE : distance + 1;
+    return Spliterators.spliterator(iterator(), size, characteristics | Spliterator.SORTED);
+  }
+
   private static boolean equalsOrThrow(Comparable<?> left, @Nullable Comparable<?> right) {
     return right != null && Range.compareOrThrow(left, right) == 0;
   }
@@ -19,6 +19,8 @@ package com.github.yingzhuo.commons.collections;
 import guava.annotations.GwtCompatible;
 import guava.annotations.GwtIncompatible;
 
+import java.util.Spliterator;
+
 /**
  * An {@link ImmutableAsList} implementation specialized for when the delegate collection is
  * already backed by an {@code ImmutableList} or array.
@@ -55,6 +57,12 @@ class RegularImmutableAsList<E> extends ImmutableAsList<E> {
     return (UnmodifiableListIterator<E>) delegateList.listIterator(index);
   }
 
+  @SuppressWarnings("unchecked")  // safe covariant cast!
+  @Override
+  public Spliterator<E> spliterator() {
+    return (Spliterator<E>) delegateList.spliterator();
+  }
+
   @GwtIncompatible("not present in emulated superclass")
   @Override
   int copyIntoArray(Object[] dst, int offset) {
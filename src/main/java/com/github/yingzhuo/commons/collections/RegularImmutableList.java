@@ -19,6 +19,8 @@ package com.github.yingzhuo.commons.collections;
 import guava.annotations.GwtCompatible;
 import guava.base.Preconditions;
 
+import java.util.Spliterator;
+import java.util.Spliterators;
 
 import javax.annotation.Nullable;
 
@@ -53,6 +55,11 @@ class RegularImmutableList<E> extends ImmutableList<E> {
     return size != array.length;
   }
 
+  @Override
+  public Spliterator<E> spliterator() {
+    return Spliterators.spliterator(array, offset, offset + size, SPLITERATOR_CHARACTERISTICS);
+  }
+
   @Override
   int copyIntoArray(Object[] dst, int dstOff) {
     System.arraycopy(array, offset, dst, dstOff, size);
@@ -19,6 +19,9 @@ package com.github.yingzhuo.commons.collections;
 import static com.github.yingzhuo.commons.collections.CollectPreconditions.checkEntryNotNull;
 import guava.annotations.GwtCompatible;
 
+import java.util.Spliterator;
+import java.util.Spliterators;
+
 import com.github.yingzhuo.commons.collections.ImmutableMapEntry.TerminalEntry;
 
 import javax.annotation.Nullable;
@@ -197,6 +200,11 @@ final class RegularImmutableMap<K, V> extends ImmutableMap<K, V> {
       return asList().iterator();
     }
 
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+      return Spliterators.spliterator(entries, SPLITERATOR_CHARACTERISTICS | Spliterator.DISTINCT);
+    }
+
     @Override
     ImmutableList<Entry<K, V>> createAsList() {
       return new RegularImmutableAsList<Entry<K, V>>(this, entries);
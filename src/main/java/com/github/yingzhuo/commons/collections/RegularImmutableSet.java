@@ -19,6 +19,9 @@ package com.github.yingzhuo.commons.collections;
 import guava.annotations.GwtCompatible;
 import guava.annotations.VisibleForTesting;
 
+import java.util.Spliterator;
+import java.util.Spliterators;
+
 /**
  * Implementation of {@link ImmutableSet} with two or more elements.
  *
@@ -68,6 +71,11 @@ final class RegularImmutableSet<E> extends ImmutableSet<E> {
     return (UnmodifiableIterator<E>) Iterators.forArray(elements);
   }
 
+  @Override
+  public Spliterator<E> spliterator() {
+    return Spliterators.spliterator(elements, SPLITERATOR_CHARACTERISTICS | Spliterator.DISTINCT);
+  }
+
   @Override
   int copyIntoArray(Object[] dst, int offset) {
     System.arraycopy(elements, 0, dst, offset, elements.length);
@@ -0,0 +1,757 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import static guava.base.Preconditions.checkArgument;
+import static guava.base.Preconditions.checkNotNull;
+import static guava.base.Preconditions.checkState;
+
+import com.github.yingzhuo.commons.functor.Supplier;
+import com.github.yingzhuo.commons.math.IntMath;
+
+import guava.annotations.Beta;
+import guava.annotations.GwtIncompatible;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A pre-allocated ring of mutable events passed from producers to a graph of
+ * consumers, in the manner of the LMAX Disruptor. Unlike a queue, the ring
+ * allocates nothing per event and hands events over without locks: producers
+ * claim a sequence number, fill in the event at that sequence and publish it;
+ * each {@link Processor} runs a handler over the published events in order,
+ * in batches of whatever is available, and may wait for other processors to
+ * have handled an event first.
+ *
+ * <pre>   {@code
+ *
+ *   RingBuffer<LogEvent> ring = RingBuffer.createMultiProducer(
+ *       LogEvent.FACTORY, 1024, RingBuffer.WaitStrategy.blocking());
+ *   RingBuffer.Processor<LogEvent> parser = ring.newProcessor(parseHandler);
+ *   RingBuffer.Processor<LogEvent> indexer = ring.newProcessor(indexHandler, parser);
+ *   RingBuffer.Processor<LogEvent> archiver = ring.newProcessor(archiveHandler, parser);
+ *   executor.execute(parser);
+ *   executor.execute(indexer);
+ *   executor.execute(archiver);
+ *
+ *   long sequence = ring.next();
+ *   try {
+ *     ring.get(sequence).set(line);
+ *   } finally {
+ *     ring.publish(sequence);
+ *   }}</pre>
+ *
+ * <p>Producers wait for the slowest processors that no other processor
+ * depends on before reusing a slot, so the graph should be built before the
+ * first event is published; a ring without processors never makes producers
+ * wait. Processors wait for events according to the ring's
+ * {@link WaitStrategy}.
+ *
+ * <p>A ring created by {@link #createSingleProducer} must only be published
+ * to by one thread at a time; this is not checked.
+ */
+@Beta
+@GwtIncompatible("java.util.concurrent.atomic")
+public abstract class RingBuffer<E> {
+  private static final Logger logger = Logger.getLogger(RingBuffer.class.getName());
+
+  /**
+   * Creates a ring of {@code bufferSize} events created by
+   * {@code eventFactory}, for use by a single producer thread.
+   *
+   * @throws IllegalArgumentException if {@code bufferSize} is not a positive
+   *     power of two
+   */
+  public static <E> RingBuffer<E> createSingleProducer(
+      Supplier<? extends E> eventFactory, int bufferSize, WaitStrategy waitStrategy) {
+    return new SingleProducerRingBuffer<E>(eventFactory, bufferSize, waitStrategy);
+  }
+
+  /**
+   * Creates a ring of {@code bufferSize} events created by
+   * {@code eventFactory}, for use by any number of producer threads.
+   *
+   * @throws IllegalArgumentException if {@code bufferSize} is not a positive
+   *     power of two
+   */
+  public static <E> RingBuffer<E> createMultiProducer(
+      Supplier<? extends E> eventFactory, int bufferSize, WaitStrategy waitStrategy) {
+    return new MultiProducerRingBuffer<E>(eventFactory, bufferSize, waitStrategy);
+  }
+
+  private final Object[] events;
+  final int mask;
+  final WaitStrategy waitStrategy;
+
+  /**
+   * For a single producer, the last published sequence; for multiple
+   * producers, the last claimed one.
+   */
+  final Sequence cursor = new Sequence(Sequence.INITIAL_VALUE);
+
+  /** The sequences producers must not overtake, copied on write. */
+  volatile Sequence[] gatingSequences = new Sequence[0];
+  private final List<Processor<?>> processors = new ArrayList<Processor<?>>();
+
+  private RingBuffer(Supplier<? extends E> eventFactory, int bufferSize,
+      WaitStrategy waitStrategy) {
+    checkNotNull(eventFactory);
+    checkArgument(bufferSize > 0 && IntMath.isPowerOfTwo(bufferSize),
+        "bufferSize (%s) must be a positive power of two", bufferSize);
+    this.waitStrategy = checkNotNull(waitStrategy);
+    this.events = new Object[bufferSize];
+    for (int i = 0; i < bufferSize; i++) {
+      events[i] = checkNotNull(eventFactory.get(), "%s returned null", eventFactory);
+    }
+    this.mask = bufferSize - 1;
+  }
+
+  /** Returns the number of events in this ring. */
+  public final int bufferSize() {
+    return mask + 1;
+  }
+
+  /**
+   * Returns the event at {@code sequence}, which the caller must have claimed
+   * and not yet published, or be handling.
+   */
+  @SuppressWarnings("unchecked") // events only holds Es
+  public final E get(long sequence) {
+    return (E) events[(int) sequence & mask];
+  }
+
+  /**
+   * Claims the next sequence, waiting for processors to free its slot if the
+   * ring is full. The caller must fill in the event at that sequence and then
+   * {@link #publish} it, even if filling it in fails.
+   */
+  public final long next() {
+    return next(1);
+  }
+
+  /**
+   * Claims the next {@code n} sequences and returns the highest, waiting for
+   * processors to free their slots if needed. The caller must publish all of
+   * them, for example with {@link #publish(long, long)}.
+   *
+   * @throws IllegalArgumentException if {@code n} is not positive or exceeds
+   *     the buffer size
+   */
+  public abstract long next(int n);
+
+  /**
+   * Claims the next sequence if its slot is free, and returns it; otherwise
+   * returns -1 without waiting.
+   */
+  public abstract long tryNext();
+
+  /** Publishes the event at {@code sequence} to processors. */
+  public abstract void publish(long sequence);
+
+  /**
+   * Publishes the events from sequence {@code low} to {@code high},
+   * inclusive, to processors.
+   */
+  public abstract void publish(long low, long high);
+
+  /**
+   * Returns the number of slots producers can claim without waiting.
+   */
+  public final long remainingCapacity() {
+    long produced = cursor.get();
+    return bufferSize() - (produced - Sequence.minimum(gatingSequences, produced));
+  }
+
+  /** Returns the highest sequence up to which all events are published. */
+  abstract long highestPublished(long low, long available);
+
+  /**
+   * Creates a processor that passes each published event to {@code handler},
+   * after all of the processors {@code dependencies} of this ring have
+   * handled it. The processor must be run by a thread of its own, typically
+   * from an {@link java.util.concurrent.Executor}.
+   *
+   * <p>From then on, producers no longer wait for the dependencies to free a
+   * slot, but for the new processor, which waits for them. The processor
+   * starts after the slowest of its dependencies, so that it sees every event
+   * they have yet to hand over, or, without dependencies, after the highest
+   * sequence up to which all events are published, so that it sees every
+   * event not yet published.
+   */
+  public final synchronized Processor<E> newProcessor(
+      EventHandler<? super E> handler, Processor<?>... dependencies) {
+    checkNotNull(handler);
+    Sequence[] dependentSequences;
+    if (dependencies.length == 0) {
+      dependentSequences = new Sequence[] {cursor};
+    } else {
+      dependentSequences = new Sequence[dependencies.length];
+      for (int i = 0; i < dependencies.length; i++) {
+        checkArgument(processors.contains(dependencies[i]),
+            "%s is not a processor of this ring", dependencies[i]);
+        dependentSequences[i] = dependencies[i].sequence;
+        dependencies[i].hasDownstream = true;
+      }
+    }
+    Processor<E> processor = new Processor<E>(this, handler, new Barrier(this, dependentSequences));
+    long current = cursor.get();
+    if (dependencies.length == 0) {
+      // claimed sequences are at most a lap ahead of the slowest processor, if any
+      long handled = Math.max(current - bufferSize(), Sequence.INITIAL_VALUE);
+      if (gatingSequences.length > 0) {
+        handled = Math.max(handled, Sequence.minimum(gatingSequences, current));
+      }
+      processor.sequence.set(highestPublished(handled + 1, current));
+    } else {
+      processor.sequence.set(Sequence.minimum(dependentSequences, current));
+    }
+    processors.add(processor);
+
+    List<Sequence> gating = new ArrayList<Sequence>();
+    for (Processor<?> p : processors) {
+      if (!p.hasDownstream) {
+        gating.add(p.sequence);
+      }
+    }
+    gatingSequences = gating.toArray(new Sequence[gating.size()]);
+    return processor;
+  }
+
+  @Override public String toString() {
+    return getClass().getSimpleName() + "[bufferSize=" + bufferSize()
+        + ", cursor=" + cursor.get() + ", waitStrategy=" + waitStrategy + "]";
+  }
+
+  private static final class SingleProducerRingBuffer<E> extends RingBuffer<E> {
+    // only accessed by the producer thread
+    private long nextValue = Sequence.INITIAL_VALUE;
+    private long cachedGatingValue = Sequence.INITIAL_VALUE;
+
+    SingleProducerRingBuffer(Supplier<? extends E> eventFactory, int bufferSize,
+        WaitStrategy waitStrategy) {
+      super(eventFactory, bufferSize, waitStrategy);
+    }
+
+    @Override public long next(int n) {
+      checkArgument(n > 0 && n <= bufferSize(), "n (%s) must be in [1, %s]", n, bufferSize());
+      long nextSequence = nextValue + n;
+      long wrapPoint = nextSequence - bufferSize();
+      if (wrapPoint > cachedGatingValue || cachedGatingValue > nextValue) {
+        long minimum;
+        while (wrapPoint > (minimum = Sequence.minimum(gatingSequences, nextValue))) {
+          LockSupport.parkNanos(1);
+        }
+        cachedGatingValue = minimum;
+      }
+      nextValue = nextSequence;
+      return nextSequence;
+    }
+
+    @Override public long tryNext() {
+      long nextSequence = nextValue + 1;
+      long wrapPoint = nextSequence - bufferSize();
+      if (wrapPoint > cachedGatingValue || cachedGatingValue > nextValue) {
+        long minimum = Sequence.minimum(gatingSequences, nextValue);
+        cachedGatingValue = minimum;
+        if (wrapPoint > minimum) {
+          return -1;
+        }
+      }
+      nextValue = nextSequence;
+      return nextSequence;
+    }
+
+    @Override public void publish(long sequence) {
+      cursor.set(sequence);
+      waitStrategy.signalAllWhenBlocking();
+    }
+
+    @Override public void publish(long low, long high) {
+      publish(high);
+    }
+
+    @Override long highestPublished(long low, long available) {
+      return available;
+    }
+  }
+
+  /**
+   * A ring whose producers claim sequences by CAS on the cursor, and publish
+   * them by marking their slots with the lap of the sequence, since they may
+   * publish out of order.
+   */
+  private static final class MultiProducerRingBuffer<E> extends RingBuffer<E> {
+    private final Sequence gatingSequenceCache = new Sequence(Sequence.INITIAL_VALUE);
+    private final AtomicIntegerArray published;
+    private final int indexShift;
+
+    MultiProducerRingBuffer(Supplier<? extends E> eventFactory, int bufferSize,
+        WaitStrategy waitStrategy) {
+      super(eventFactory, bufferSize, waitStrategy);
+      this.published = new AtomicIntegerArray(bufferSize);
+      for (int i = 0; i < bufferSize; i++) {
+        published.lazySet(i, -1);
+      }
+      this.indexShift = Integer.numberOfTrailingZeros(bufferSize);
+    }
+
+    @Override public long next(int n) {
+      checkArgument(n > 0 && n <= bufferSize(), "n (%s) must be in [1, %s]", n, bufferSize());
+      while (true) {
+        long current = cursor.get();
+        long next = current + n;
+        long wrapPoint = next - bufferSize();
+        long cachedGatingValue = gatingSequenceCache.get();
+        if (wrapPoint > cachedGatingValue || cachedGatingValue > current) {
+          long minimum = Sequence.minimum(gatingSequences, current);
+          if (wrapPoint > minimum) {
+            LockSupport.parkNanos(1);
+            continue;
+          }
+          gatingSequenceCache.set(minimum);
+        } else if (cursor.compareAndSet(current, next)) {
+          return next;
+        }
+      }
+    }
+
+    @Override public long tryNext() {
+      while (true) {
+        long current = cursor.get();
+        long next = current + 1;
+        if (next - bufferSize() > Sequence.minimum(gatingSequences, current)) {
+          return -1;
+        }
+        if (cursor.compareAndSet(current, next)) {
+          return next;
+        }
+      }
+    }
+
+    @Override public void publish(long sequence) {
+      published.lazySet((int) sequence & mask, (int) (sequence >>> indexShift));
+      waitStrategy.signalAllWhenBlocking();
+    }
+
+    @Override public void publish(long low, long high) {
+      for (long sequence = low; sequence <= high; sequence++) {
+        published.lazySet((int) sequence & mask, (int) (sequence >>> indexShift));
+      }
+      waitStrategy.signalAllWhenBlocking();
+    }
+
+    @Override long highestPublished(long low, long available) {
+      for (long sequence = low; sequence <= available; sequence++) {
+        if (published.get((int) sequence & mask) != (int) (sequence >>> indexShift)) {
+          return sequence - 1;
+        }
+      }
+      return available;
+    }
+  }
+
+  /**
+   * Handles the events of a {@link Processor}.
+   */
+  @Beta
+  public interface EventHandler<E> {
+    /**
+     * Handles {@code event}, published at {@code sequence}. The handler may
+     * modify the event for processors that depend on its processor, but must
+     * not keep a reference to it, as the event is reused.
+     *
+     * @param endOfBatch whether this is the last event currently available,
+     *     for handlers that flush or commit in batches
+     * @throws Exception which the processor logs before moving on to the next
+     *     event
+     */
+    void onEvent(E event, long sequence, boolean endOfBatch) throws Exception;
+  }
+
+  /**
+   * Runs an {@link EventHandler} over the events of a ring, in batches of the
+   * events available each time it wakes up, until it is {@linkplain #halt
+   * halted}. Created by {@link RingBuffer#newProcessor}.
+   */
+  @Beta
+  public static final class Processor<E> implements Runnable {
+    private final RingBuffer<E> ring;
+    private final EventHandler<? super E> handler;
+    private final Barrier barrier;
+    final Sequence sequence = new Sequence(Sequence.INITIAL_VALUE);
+    private final AtomicBoolean running = new AtomicBoolean();
+    boolean hasDownstream; // guarded by ring
+
+    Processor(RingBuffer<E> ring, EventHandler<? super E> handler, Barrier barrier) {
+      this.ring = ring;
+      this.handler = handler;
+      this.barrier = barrier;
+    }
+
+    /** Returns the highest sequence this processor has handled. */
+    public long sequence() {
+      return sequence.get();
+    }
+
+    /** Returns whether this processor is running. */
+    public boolean isRunning() {
+      return running.get();
+    }
+
+    /**
+     * Makes this processor stop after the event it is handling, if any, and
+     * return from {@link #run}. Events published afterwards may be left
+     * unhandled.
+     */
+    public void halt() {
+      running.set(false);
+      barrier.alert();
+    }
+
+    /**
+     * Handles events until halted or interrupted.
+     *
+     * @throws IllegalStateException if this processor is already running
+     */
+    @Override public void run() {
+      checkState(running.compareAndSet(false, true), "%s is already running", this);
+      barrier.clearAlert();
+      long nextSequence = sequence.get() + 1;
+      try {
+        while (true) {
+          long available;
+          try {
+            available = barrier.waitFor(nextSequence);
+          } catch (AlertException e) {
+            if (!running.get()) {
+              return;
+            }
+            continue;
+          }
+          while (nextSequence <= available) {
+            E event = ring.get(nextSequence);
+            try {
+              handler.onEvent(event, nextSequence, nextSequence == available);
+            } catch (Exception e) {
+              logger.log(Level.SEVERE,
+                  "Could not handle event at sequence " + nextSequence + " by " + handler, e);
+            }
+            nextSequence++;
+          }
+          sequence.set(available);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        running.set(false);
+      }
+    }
+
+    @Override public String toString() {
+      return "RingBuffer.Processor[" + handler + ", sequence=" + sequence.get() + "]";
+    }
+  }
+
+  /**
+   * Tracks the sequences a processor waits for: the cursor of the ring, or
+   * the processors it depends on.
+   */
+  static final class Barrier {
+    private final RingBuffer<?> ring;
+    private final Sequence[] dependentSequences;
+    private volatile boolean alerted;
+
+    Barrier(RingBuffer<?> ring, Sequence[] dependentSequences) {
+      this.ring = ring;
+      this.dependentSequences = dependentSequences;
+    }
+
+    /**
+     * Waits until the event at {@code sequence} is available and returns the
+     * highest available sequence, which may be lower if producers of a
+     * multi-producer ring publish out of order.
+     */
+    long waitFor(long sequence) throws AlertException, InterruptedException {
+      checkAlert();
+      long available = ring.waitStrategy.waitFor(sequence, ring.cursor, dependentSequences, this);
+      if (available < sequence) {
+        return available;
+      }
+      return ring.highestPublished(sequence, available);
+    }
+
+    void alert() {
+      alerted = true;
+      ring.waitStrategy.signalAllWhenBlocking();
+    }
+
+    void clearAlert() {
+      alerted = false;
+    }
+
+    void checkAlert() throws AlertException {
+      if (alerted) {
+        throw AlertException.INSTANCE;
+      }
+    }
+  }
+
+  /** Thrown to a waiting processor when it is halted. */
+  static final class AlertException extends Exception {
+    static final AlertException INSTANCE = new AlertException();
+
+    private AlertException() {}
+
+    @Override public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  /**
+   * How processors wait for events to be published, trading latency for CPU
+   * use. Only the strategies returned by the factory methods of this class are
+   * supported; it cannot be extended by users.
+   */
+  @Beta
+  public abstract static class WaitStrategy {
+    WaitStrategy() {}
+
+    /**
+     * Returns a strategy that spins without pause, for the lowest latency
+     * when each processor has a core to itself.
+     */
+    public static WaitStrategy busySpin() {
+      return BusySpinWaitStrategy.INSTANCE;
+    }
+
+    /**
+     * Returns a strategy that spins for a while, then yields the processor's
+     * thread between checks; low latency without monopolizing a core when
+     * there are more busy threads than cores.
+     */
+    public static WaitStrategy yielding() {
+      return YieldingWaitStrategy.INSTANCE;
+    }
+
+    /**
+     * Returns a strategy that spins for a while, then parks the processor's
+     * thread for {@code parkTime} between checks.
+     */
+    public static WaitStrategy parking(long parkTime, TimeUnit unit) {
+      return new ParkingWaitStrategy(unit.toNanos(parkTime));
+    }
+
+    /**
+     * Returns a strategy that blocks processors waiting for producers on a
+     * lock and condition, which producers signal on each publish; the least
+     * CPU use, at the cost of latency and of a lock acquisition per publish.
+     */
+    public static WaitStrategy blocking() {
+      return new BlockingWaitStrategy();
+    }
+
+    /**
+     * Waits until the minimum of {@code dependents} reaches
+     * {@code sequence}, and returns it.
+     */
+    abstract long waitFor(long sequence, Sequence cursor, Sequence[] dependents,
+        Barrier barrier) throws AlertException, InterruptedException;
+
+    /** Wakes processors blocked waiting for the cursor. */
+    void signalAllWhenBlocking() {}
+  }
+
+  private static final class BusySpinWaitStrategy extends WaitStrategy {
+    static final BusySpinWaitStrategy INSTANCE = new BusySpinWaitStrategy();
+
+    @Override long waitFor(long sequence, Sequence cursor, Sequence[] dependents,
+        Barrier barrier) throws AlertException {
+      long available;
+      while ((available = Sequence.minimum(dependents, Long.MAX_VALUE)) < sequence) {
+        barrier.checkAlert();
+      }
+      return available;
+    }
+
+    @Override public String toString() {
+      return "WaitStrategy.busySpin()";
+    }
+  }
+
+  private static final int SPIN_TRIES = 100;
+
+  private static final class YieldingWaitStrategy extends WaitStrategy {
+    static final YieldingWaitStrategy INSTANCE = new YieldingWaitStrategy();
+
+    @Override long waitFor(long sequence, Sequence cursor, Sequence[] dependents,
+        Barrier barrier) throws AlertException {
+      long available;
+      for (int tries = 0;
+          (available = Sequence.minimum(dependents, Long.MAX_VALUE)) < sequence; tries++) {
+        barrier.checkAlert();
+        if (tries >= SPIN_TRIES) {
+          Thread.yield();
+        }
+      }
+      return available;
+    }
+
+    @Override public String toString() {
+      return "WaitStrategy.yielding()";
+    }
+  }
+
+  private static final class ParkingWaitStrategy extends WaitStrategy {
+    private final long parkNanos;
+
+    ParkingWaitStrategy(long parkNanos) {
+      checkArgument(parkNanos > 0, "parkTime (%s ns) must be positive", parkNanos);
+      this.parkNanos = parkNanos;
+    }
+
+    @Override long waitFor(long sequence, Sequence cursor, Sequence[] dependents,
+        Barrier barrier) throws AlertException, InterruptedException {
+      long available;
+      for (int tries = 0;
+          (available = Sequence.minimum(dependents, Long.MAX_VALUE)) < sequence; tries++) {
+        barrier.checkAlert();
+        if (tries >= SPIN_TRIES) {
+          LockSupport.parkNanos(parkNanos);
+          if (Thread.interrupted()) {
+            throw new InterruptedException();
+          }
+        }
+      }
+      return available;
+    }
+
+    @Override public String toString() {
+      return "WaitStrategy.parking(" + parkNanos + ", NANOSECONDS)";
+    }
+  }
+
+  /**
+   * Blocks on a condition until the cursor reaches the sequence, then spins
+   * for the dependent processors, which do not signal.
+   */
+  private static final class BlockingWaitStrategy extends WaitStrategy {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+
+    @Override long waitFor(long sequence, Sequence cursor, Sequence[] dependents,
+        Barrier barrier) throws AlertException, InterruptedException {
+      if (cursor.get() < sequence) {
+        lock.lock();
+        try {
+          while (cursor.get() < sequence) {
+            barrier.checkAlert();
+            published.await();
+          }
+        } finally {
+          lock.unlock();
+        }
+      }
+      long available;
+      while ((available = Sequence.minimum(dependents, Long.MAX_VALUE)) < sequence) {
+        barrier.checkAlert();
+        Thread.yield();
+      }
+      return available;
+    }
+
+    @Override void signalAllWhenBlocking() {
+      lock.lock();
+      try {
+        published.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override public String toString() {
+      return "WaitStrategy.blocking()";
+    }
+  }
+
+  /*
+   * A sequence is padded by a class on each side, since the JVM lays out the
+   * fields of a superclass first but may reorder those within a class.
+   */
+
+  @SuppressWarnings("unused")
+  static class SequenceLeftPad {
+    long p01, p02, p03, p04, p05, p06, p07;
+    long p08, p09, p10, p11, p12, p13, p14, p15;
+  }
+
+  static class SequenceValue extends SequenceLeftPad {
+    @SuppressWarnings("rawtypes")
+    static final AtomicLongFieldUpdater<SequenceValue> VALUE =
+        AtomicLongFieldUpdater.newUpdater(SequenceValue.class, "value");
+
+    volatile long value;
+  }
+
+  /** A counter padded to occupy cache lines of its own. */
+  @SuppressWarnings("unused")
+  static final class Sequence extends SequenceValue {
+    static final long INITIAL_VALUE = -1;
+
+    long p01, p02, p03, p04, p05, p06, p07;
+    long p08, p09, p10, p11, p12, p13, p14, p15;
+
+    Sequence(long initialValue) {
+      VALUE.lazySet(this, initialValue);
+    }
+
+    long get() {
+      return value;
+    }
+
+    /** Sets the value with an ordered store. */
+    void set(long newValue) {
+      VALUE.lazySet(this, newValue);
+    }
+
+    boolean compareAndSet(long expect, long update) {
+      return VALUE.compareAndSet(this, expect, update);
+    }
+
+    /**
+     * Returns the minimum of {@code sequences}, or {@code minimum} if it is
+     * lower.
+     */
+    static long minimum(Sequence[] sequences, long minimum) {
+      for (Sequence sequence : sequences) {
+        minimum = Math.min(minimum, sequence.get());
+      }
+      return minimum;
+    }
+  }
+}
@@ -0,0 +1,462 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.collections;
+
+import static guava.base.Preconditions.checkArgument;
+import static guava.base.Preconditions.checkNotNull;
+import static guava.base.Preconditions.checkPositionIndexes;
+
+import guava.annotations.Beta;
+import guava.annotations.GwtIncompatible;
+import guava.base.Objects;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nullable;
+
+/**
+ * A thread-safe interner of strings, which can also find the canonical
+ * instance for the contents of any {@link CharSequence} or of a range of a
+ * {@code char[]}, so that a parser can intern its tokens without first
+ * building a {@code String} for each: a string is only allocated when its
+ * contents are not interned yet.
+ *
+ * <p>The strings are held in open-addressing hash tables, split into shards
+ * chosen by hash, each with its own lock. Lookups take no lock; only a miss
+ * locks its shard, to insert the new string or to find one inserted
+ * concurrently. Hits and misses are counted in {@link LongAdder}s, whose cells
+ * are padded against false sharing; see {@link #stats}.
+ *
+ * <p>An interner created with a maximum size holds at most that many strings.
+ * When a shard is full, it evicts a string that was not looked up since the
+ * last time the shard's clock hand passed it (the CLOCK approximation of
+ * least-recently-used), which makes it safe to intern data of unbounded
+ * cardinality; the interner then only guarantees that equal strings interned
+ * while both are retained are the same instance. Without a maximum size, every
+ * string interned is retained, as by {@link Interners#newStrongInterner}.
+ *
+ * <p>Instances are created by {@link Interners#newStringInterner()} and
+ * {@link Interners#newStringInterner(int)}.
+ */
+@Beta
+@GwtIncompatible("java.util.concurrent.locks.ReentrantLock")
+public final class StringInterner implements Interner<String> {
+  private static final int UNBOUNDED = -1;
+  private static final int MAX_SHARDS = 1 << 10;
+  /** Keeps bounded shards large enough for their clocks to tell hot from cold. */
+  private static final int MIN_BOUNDED_SHARD_CAPACITY = 16;
+  private static final int INITIAL_TABLE_SIZE = 16;
+  private static final double LOAD_FACTOR = 0.75;
+
+  private final Shard[] shards;
+  private final int shardShift;
+  private final int shardMask;
+  private final int maximumSize;
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+
+  StringInterner() {
+    this(UNBOUNDED);
+  }
+
+  StringInterner(int maximumSize) {
+    checkArgument(maximumSize > 0 || maximumSize == UNBOUNDED,
+        "maximumSize (%s) must be positive", maximumSize);
+    this.maximumSize = maximumSize;
+    int shardCount = Math.min(4 * Runtime.getRuntime().availableProcessors(), MAX_SHARDS);
+    if (maximumSize != UNBOUNDED) {
+      shardCount = Math.min(shardCount, Math.max(1, maximumSize / MIN_BOUNDED_SHARD_CAPACITY));
+    }
+    int shardBits = 32 - Integer.numberOfLeadingZeros(shardCount - 1);
+    shardCount = 1 << shardBits;
+    this.shardShift = 32 - shardBits;
+    this.shardMask = shardCount - 1;
+    this.shards = new Shard[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      // the first maximumSize % shardCount shards take the remainder
+      int capacity = (maximumSize == UNBOUNDED)
+          ? UNBOUNDED
+          : maximumSize / shardCount + ((i < maximumSize % shardCount) ? 1 : 0);
+      shards[i] = new Shard(capacity);
+    }
+  }
+
+  /**
+   * Returns the canonical instance equal to {@code sample}, which becomes the
+   * canonical instance if there is none yet.
+   */
+  @Override public String intern(String sample) {
+    int hash = checkNotNull(sample).hashCode();
+    String canonical = shardFor(hash).find(hash, sample);
+    if (canonical != null) {
+      hitCount.increment();
+      return canonical;
+    }
+    missCount.increment();
+    return shardFor(hash).put(hash, sample);
+  }
+
+  /**
+   * Returns the canonical string with the same characters as {@code chars}.
+   * If there is none yet, {@code chars.toString()} becomes the canonical
+   * instance.
+   */
+  public String intern(CharSequence chars) {
+    if (checkNotNull(chars) instanceof String) {
+      return intern((String) chars);
+    }
+    int hash = hash(chars);
+    String canonical = shardFor(hash).find(hash, chars);
+    if (canonical != null) {
+      hitCount.increment();
+      return canonical;
+    }
+    missCount.increment();
+    return shardFor(hash).put(hash, chars.toString());
+  }
+
+  /**
+   * Returns the canonical string with the characters {@code chars[offset]}
+   * to {@code chars[offset + length - 1]}. If there is none yet, a new string
+   * of those characters becomes the canonical instance.
+   *
+   * @throws IndexOutOfBoundsException if {@code offset} or {@code length} is
+   *     negative, or {@code offset + length} is greater than
+   *     {@code chars.length}
+   */
+  public String intern(char[] chars, int offset, int length) {
+    checkPositionIndexes(offset, offset + length, chars.length);
+    int hash = hash(chars, offset, length);
+    String canonical = shardFor(hash).find(hash, chars, offset, length);
+    if (canonical != null) {
+      hitCount.increment();
+      return canonical;
+    }
+    missCount.increment();
+    return shardFor(hash).put(hash, new String(chars, offset, length));
+  }
+
+  /** Returns the number of strings this interner currently retains. */
+  public int size() {
+    long size = 0;
+    for (Shard shard : shards) {
+      size += shard.count;
+    }
+    return (int) size;
+  }
+
+  /**
+   * Returns a snapshot of this interner's statistics. The counts of different
+   * shards are not read atomically together, so concurrent interning may make
+   * the snapshot slightly inconsistent.
+   */
+  public Stats stats() {
+    long evictionCount = 0;
+    for (Shard shard : shards) {
+      evictionCount += shard.evictionCount;
+    }
+    return new Stats(hitCount.sum(), missCount.sum(), evictionCount, size());
+  }
+
+  @Override public String toString() {
+    return Objects.toStringHelper(this)
+        .add("maximumSize", (maximumSize == UNBOUNDED) ? "unbounded" : maximumSize)
+        .add("shards", shards.length)
+        .add("stats", stats())
+        .toString();
+  }
+
+  /**
+   * Statistics about the use of a {@link StringInterner}. A request is a call
+   * to one of the {@code intern} methods; it is a hit if the canonical
+   * instance was found without locking, and a miss otherwise.
+   */
+  @Beta
+  public static final class Stats {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final int size;
+
+    Stats(long hitCount, long missCount, long evictionCount, int size) {
+      this.hitCount = hitCount;
+      this.missCount = missCount;
+      this.evictionCount = evictionCount;
+      this.size = size;
+    }
+
+    /** Returns the number of requests, that is, of hits and misses. */
+    public long requestCount() {
+      return hitCount + missCount;
+    }
+
+    /** Returns the number of requests that found their canonical instance. */
+    public long hitCount() {
+      return hitCount;
+    }
+
+    /**
+     * Returns the number of requests that did not find their canonical
+     * instance without locking. Each allocated a string, unless its argument
+     * was one.
+     */
+    public long missCount() {
+      return missCount;
+    }
+
+    /**
+     * Returns the ratio of hits to requests, or {@code 1.0} if there were no
+     * requests.
+     */
+    public double hitRate() {
+      long requestCount = requestCount();
+      return (requestCount == 0) ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    /** Returns the number of strings evicted to respect the maximum size. */
+    public long evictionCount() {
+      return evictionCount;
+    }
+
+    /** Returns the number of strings retained when the snapshot was taken. */
+    public int size() {
+      return size;
+    }
+
+    @Override public boolean equals(@Nullable Object object) {
+      if (object instanceof Stats) {
+        Stats that = (Stats) object;
+        return hitCount == that.hitCount
+            && missCount == that.missCount
+            && evictionCount == that.evictionCount
+            && size == that.size;
+      }
+      return false;
+    }
+
+    @Override public int hashCode() {
+      return Objects.hashCode(hitCount, missCount, evictionCount, size);
+    }
+
+    @Override public String toString() {
+      return Objects.toStringHelper(this)
+          .add("hitCount", hitCount)
+          .add("missCount", missCount)
+          .add("evictionCount", evictionCount)
+          .add("size", size)
+          .toString();
+    }
+  }
+
+  private Shard shardFor(int hash) {
+    return shards[(Hashing.smear(hash) >>> shardShift) & shardMask];
+  }
+
+  /** Returns the hash code a string with the characters of {@code chars} has. */
+  private static int hash(CharSequence chars) {
+    int hash = 0;
+    for (int i = 0, length = chars.length(); i < length; i++) {
+      hash = 31 * hash + chars.charAt(i);
+    }
+    return hash;
+  }
+
+  /** Returns the hash code a string with the given characters has. */
+  private static int hash(char[] chars, int offset, int length) {
+    int hash = 0;
+    for (int i = offset, end = offset + length; i < end; i++) {
+      hash = 31 * hash + chars[i];
+    }
+    return hash;
+  }
+
+  private static boolean contentEquals(String string, char[] chars, int offset, int length) {
+    if (string.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (string.charAt(i) != chars[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * A linear-probing table of strings. Readers probe it without locking:
+   * strings are safely published by their final fields, and a reader that
+   * misses a concurrent insertion, move or resize falls back to {@link #put},
+   * which probes again under the lock.
+   */
+  @SuppressWarnings("serial") // never serialized
+  private static final class Shard extends ReentrantLock {
+    /** The maximum number of strings, or {@link #UNBOUNDED}. */
+    final int capacity;
+
+    /**
+     * For bounded shards, whether the string in each slot was looked up
+     * since the clock hand last passed it. Written by readers without
+     * locking; a lost write only makes eviction slightly less accurate.
+     */
+    @Nullable final byte[] referenced;
+
+    volatile String[] table;
+    volatile int count; // written under the lock
+    volatile long evictionCount; // written under the lock
+    int hand; // guarded by the lock
+
+    Shard(int capacity) {
+      this.capacity = capacity;
+      int tableSize = (capacity == UNBOUNDED)
+          ? INITIAL_TABLE_SIZE
+          : Hashing.closedTableSize(capacity, LOAD_FACTOR);
+      this.table = new String[tableSize];
+      this.referenced = (capacity == UNBOUNDED) ? null : new byte[tableSize];
+    }
+
+    @Nullable String find(int hash, CharSequence chars) {
+      String[] table = this.table;
+      int mask = table.length - 1;
+      for (int i = Hashing.smear(hash) & mask; ; i = (i + 1) & mask) {
+        String string = table[i];
+        if (string == null) {
+          return null;
+        }
+        if (string.hashCode() == hash && string.contentEquals(chars)) {
+          markReferenced(i);
+          return string;
+        }
+      }
+    }
+
+    @Nullable String find(int hash, char[] chars, int offset, int length) {
+      String[] table = this.table;
+      int mask = table.length - 1;
+      for (int i = Hashing.smear(hash) & mask; ; i = (i + 1) & mask) {
+        String string = table[i];
+        if (string == null) {
+          return null;
+        }
+        if (string.hashCode() == hash && contentEquals(string, chars, offset, length)) {
+          markReferenced(i);
+          return string;
+        }
+      }
+    }
+
+    private void markReferenced(int i) {
+      // a bounded shard never replaces its table
+      if (referenced != null && referenced[i] == 0) {
+        referenced[i] = 1;
+      }
+    }
+
+    /**
+     * Returns the string equal to {@code string} in this shard, inserting
+     * {@code string} if there is none.
+     */
+    String put(int hash, String string) {
+      lock();
+      try {
+        String canonical = find(hash, string);
+        if (canonical != null) {
+          return canonical;
+        }
+        if (capacity == UNBOUNDED) {
+          if (count + 1 > table.length * LOAD_FACTOR) {
+            expand();
+          }
+        } else if (count == capacity) {
+          evict();
+        }
+        String[] table = this.table;
+        int mask = table.length - 1;
+        int i = Hashing.smear(hash) & mask;
+        while (table[i] != null) {
+          i = (i + 1) & mask;
+        }
+        table[i] = string;
+        count++;
+        return string;
+      } finally {
+        unlock();
+      }
+    }
+
+    /** Doubles the table. Called under the lock, for unbounded shards only. */
+    private void expand() {
+      String[] oldTable = table;
+      String[] newTable = new String[oldTable.length * 2];
+      int mask = newTable.length - 1;
+      for (String string : oldTable) {
+        if (string != null) {
+          int i = Hashing.smear(string.hashCode()) & mask;
+          while (newTable[i] != null) {
+            i = (i + 1) & mask;
+          }
+          newTable[i] = string;
+        }
+      }
+      table = newTable;
+    }
+
+    /**
+     * Advances the clock hand, clearing reference bits, to the first string
+     * not referenced since the last pass, and removes it. Called under the
+     * lock, for full bounded shards only.
+     */
+    private void evict() {
+      String[] table = this.table;
+      int mask = table.length - 1;
+      while (true) {
+        int i = hand;
+        hand = (hand + 1) & mask;
+        if (table[i] != null) {
+          if (referenced[i] == 0) {
+            remove(table, i);
+            // an entry may have shifted into slot i; let the hand see it
+            hand = i;
+            count--;
+            evictionCount++;
+            return;
+          }
+          referenced[i] = 0;
+        }
+      }
+    }
+
+    /**
+     * Empties slot {@code i}, shifting back later entries of its probe run
+     * that would otherwise become unreachable.
+     */
+    private void remove(String[] table, int i) {
+      int mask = table.length - 1;
+      for (int j = (i + 1) & mask; table[j] != null; j = (j + 1) & mask) {
+        int home = Hashing.smear(table[j].hashCode()) & mask;
+        // move the entry at j to i if i lies cyclically within [home, j)
+        if (((j - home) & mask) >= ((j - i) & mask)) {
+          table[i] = table[j];
+          referenced[i] = referenced[j];
+          i = j;
+        }
+      }
+      table[i] = null;
+      referenced[i] = 0;
+    }
+  }
+}
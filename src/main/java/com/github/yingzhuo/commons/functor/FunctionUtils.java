@@ -18,14 +18,19 @@ package com.github.yingzhuo.commons.functor;
 
 import static guava.base.Preconditions.checkArgument;
 import static guava.base.Preconditions.checkNotNull;
+
 import guava.annotations.Beta;
+import guava.annotations.GwtIncompatible;
 import guava.base.Objects;
 
 import java.io.Serializable;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
+import com.github.yingzhuo.commons.collections.MemoizingFunction;
+
 /**
  * Static utility methods pertaining to {@code Function} instances.
  *
@@ -352,4 +357,40 @@ public final class FunctionUtils {
     
     private static final long serialVersionUID = 0;
   }
+
+  /**
+   * Returns a function that caches the results of {@code function}, which should be free of side
+   * effects, so that each is computed once until it is evicted. Arguments are compared by {@link
+   * Object#equals}. Threads that apply the function to an argument whose result is being computed
+   * wait for that computation instead of repeating it.
+   *
+   * <p>At most {@code maximumSize} results are cached, the least recently used being evicted
+   * first, and results not used for {@code expireAfter} are dropped; pass {@link
+   * Integer#MAX_VALUE} and {@link Long#MAX_VALUE} for a cache without bounds. The returned
+   * function does not accept null arguments, and {@code function} must not return null. It can be
+   * passed directly to transforms such as {@code Lists.transform} or {@code
+   * Maps.transformValues}, whose views then reuse the cached results.
+   *
+   * @throws IllegalArgumentException if {@code maximumSize} or {@code expireAfter} is negative
+   */
+  @Beta
+  @GwtIncompatible("MapMaker.expireAfterAccess")
+  public static <F, T> Function<F, T> memoize(
+      Function<? super F, ? extends T> function, int maximumSize, long expireAfter, TimeUnit unit) {
+    return MemoizingFunction.create(function, maximumSize, expireAfter, unit);
+  }
+
+  /**
+   * Returns a function that caches the results of {@code function} like {@link #memoize}, except
+   * that arguments are compared by identity ({@code ==}) and are only weakly referenced, so that
+   * results are dropped once their arguments are garbage-collected.
+   *
+   * @throws IllegalArgumentException if {@code maximumSize} or {@code expireAfter} is negative
+   */
+  @Beta
+  @GwtIncompatible("java.lang.ref.WeakReference")
+  public static <F, T> Function<F, T> memoizeWithWeakKeys(
+      Function<? super F, ? extends T> function, int maximumSize, long expireAfter, TimeUnit unit) {
+    return MemoizingFunction.createWithWeakKeys(function, maximumSize, expireAfter, unit);
+  }
 }
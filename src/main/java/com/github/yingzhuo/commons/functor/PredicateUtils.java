@@ -16,7 +16,9 @@
 
 package com.github.yingzhuo.commons.functor;
 
+import static guava.base.Preconditions.checkArgument;
 import static guava.base.Preconditions.checkNotNull;
+import guava.annotations.Beta;
 import guava.base.Joiner;
 import guava.base.Objects;
 
@@ -24,7 +26,10 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nullable;
@@ -166,6 +171,53 @@ public final class PredicateUtils {
         checkNotNull(first), checkNotNull(second)));
   }
 
+  /**
+   * Returns a predicate equivalent to {@code predicate} that is cheaper to
+   * evaluate, assuming that its components are free of side effects and do
+   * not throw. Nested {@link #and}s and {@link #or}s are flattened into a
+   * single {@code and} or {@code or} of their components, components equal to
+   * an earlier one are dropped, {@link #alwaysTrue} and {@link #alwaysFalse}
+   * components are folded, and double negations are removed. Components are
+   * still evaluated in their original relative order.
+   *
+   * <p>Predicates built by rule engines can nest {@code and} and {@code or}
+   * dozens of levels deep; the optimized predicate evaluates them in a single
+   * loop per level of alternation, which also benefits filters such as
+   * {@code Iterables.filter} and {@code Collections2.filter}.
+   */
+  @Beta
+  public static <T> Predicate<T> optimize(Predicate<T> predicate) {
+    return PredicateUtils.<T>simplify(checkNotNull(predicate), 0);
+  }
+
+  /**
+   * Returns a predicate like {@link #optimize(Predicate)}, whose {@code and}s
+   * and {@code or}s also reorder their components by their observed cost and
+   * outcome. Each of them evaluates its first {@code warmUpSamples} inputs
+   * as usual, in the original order and short-circuiting, timing each
+   * component evaluated and counting how often it passes when reached. Then
+   * it settles on the order that minimizes the expected cost of a
+   * short-circuited evaluation when components are independent: ascending
+   * cost divided by rejection rate for an {@code and}, and by pass rate for an
+   * {@code or}. Components never reached during the warm-up stay last, in
+   * their original order. Only the warm-up takes a lock.
+   *
+   * <p>Guards such as {@code and(notNull(), p)}, whose later components may
+   * throw on inputs the earlier ones reject, are supported: should an
+   * evaluation in the new order throw, the predicate goes back to the
+   * original order for good, and evaluates the input again in that order.
+   *
+   * <p>A reordered predicate is serialized as a plain {@code and} or
+   * {@code or} of its components in their current order.
+   *
+   * @throws IllegalArgumentException if {@code warmUpSamples} is not positive
+   */
+  @Beta
+  public static <T> Predicate<T> optimize(Predicate<T> predicate, int warmUpSamples) {
+    checkArgument(warmUpSamples > 0, "warmUpSamples (%s) must be positive", warmUpSamples);
+    return PredicateUtils.<T>simplify(checkNotNull(predicate), warmUpSamples);
+  }
+
   /**
    * Returns a predicate that evaluates to {@code true} if the object being
    * tested {@code equals()} the given target or both are null.
@@ -387,6 +439,247 @@ public final class PredicateUtils {
     private static final long serialVersionUID = 0;
   }
 
+  /**
+   * Returns the simplified form of {@code predicate}, whose {@code and}s and
+   * {@code or}s are adaptive if {@code warmUpSamples} is positive.
+   */
+  @SuppressWarnings("unchecked") // simplification preserves the input type
+  private static <T> Predicate<T> simplify(Predicate<?> predicate, int warmUpSamples) {
+    if (predicate instanceof NotPredicate) {
+      Predicate<T> negated = simplify(((NotPredicate<?>) predicate).predicate, warmUpSamples);
+      if (negated instanceof NotPredicate) {
+        return ((NotPredicate<T>) negated).predicate;
+      } else if (negated == ObjectPredicate.ALWAYS_TRUE) {
+        return alwaysFalse();
+      } else if (negated == ObjectPredicate.ALWAYS_FALSE) {
+        return alwaysTrue();
+      } else if (negated == ObjectPredicate.IS_NULL) {
+        return notNull();
+      } else if (negated == ObjectPredicate.NOT_NULL) {
+        return isNull();
+      }
+      return new NotPredicate<T>(negated);
+    }
+    Boolean conjunction = conjunction(predicate);
+    if (conjunction == null) {
+      return (Predicate<T>) predicate;
+    }
+
+    // An and of ands, or an or of ors, is one flat and, or or.
+    Set<Predicate<? super T>> flattened = new LinkedHashSet<Predicate<? super T>>();
+    for (Predicate<?> component : components(predicate)) {
+      Predicate<T> simplified = simplify(component, warmUpSamples);
+      if (conjunction.equals(conjunction(simplified))) {
+        flattened.addAll((List<Predicate<? super T>>) components(simplified));
+      } else {
+        flattened.add(simplified);
+      }
+    }
+
+    // true is the identity of and, and false absorbs it; and vice versa for or
+    Predicate<Object> identity =
+        conjunction ? ObjectPredicate.ALWAYS_TRUE : ObjectPredicate.ALWAYS_FALSE;
+    Predicate<Object> absorbing =
+        conjunction ? ObjectPredicate.ALWAYS_FALSE : ObjectPredicate.ALWAYS_TRUE;
+    if (flattened.contains(absorbing)) {
+      return (Predicate<T>) absorbing;
+    }
+    flattened.remove(identity);
+    if (flattened.isEmpty()) {
+      return (Predicate<T>) identity;
+    } else if (flattened.size() == 1) {
+      return (Predicate<T>) flattened.iterator().next();
+    }
+    List<Predicate<? super T>> components = new ArrayList<Predicate<? super T>>(flattened);
+    if (warmUpSamples > 0) {
+      return new AdaptivePredicate<T>(conjunction, components, warmUpSamples);
+    }
+    return conjunction ? new AndPredicate<T>(components) : new OrPredicate<T>(components);
+  }
+
+  /**
+   * Returns {@code true} for an and, {@code false} for an or, and null for any
+   * other predicate.
+   */
+  @Nullable private static Boolean conjunction(Predicate<?> predicate) {
+    if (predicate instanceof AndPredicate) {
+      return true;
+    } else if (predicate instanceof OrPredicate) {
+      return false;
+    } else if (predicate instanceof AdaptivePredicate) {
+      return ((AdaptivePredicate<?>) predicate).conjunction;
+    }
+    return null;
+  }
+
+  private static List<? extends Predicate<?>> components(Predicate<?> predicate) {
+    if (predicate instanceof AndPredicate) {
+      return ((AndPredicate<?>) predicate).components;
+    } else if (predicate instanceof OrPredicate) {
+      return ((OrPredicate<?>) predicate).components;
+    }
+    return Arrays.asList(((AdaptivePredicate<?>) predicate).components);
+  }
+
+  /** @see PredicateUtils#optimize(Predicate, int) */
+  private static class AdaptivePredicate<T> implements Predicate<T>, Serializable {
+    final boolean conjunction;
+    final Predicate<? super T>[] components;
+    private final int warmUpSamples;
+
+    /**
+     * The components in evaluation order, null during the warm-up, or
+     * {@code components} itself once the original order is final.
+     */
+    private volatile Predicate<? super T>[] order;
+
+    // warm-up statistics, guarded by this
+    private int samples;
+    private final long[] nanos;
+    private final int[] evaluations;
+    private final int[] passes;
+
+    @SuppressWarnings({"unchecked", "rawtypes"}) // arrays of generic predicates
+    AdaptivePredicate(boolean conjunction,
+        List<Predicate<? super T>> components, int warmUpSamples) {
+      this.conjunction = conjunction;
+      this.components = components.toArray(new Predicate[components.size()]);
+      this.warmUpSamples = warmUpSamples;
+      this.nanos = new long[this.components.length];
+      this.evaluations = new int[this.components.length];
+      this.passes = new int[this.components.length];
+    }
+
+    @Override
+    public boolean apply(@Nullable T t) {
+      Predicate<? super T>[] order = this.order;
+      if (order == null) {
+        return sample(t);
+      } else if (order == components) {
+        return evaluate(components, t);
+      }
+      try {
+        return evaluate(order, t);
+      } catch (RuntimeException e) {
+        // a component guarded by an earlier one in the original order
+        this.order = components;
+        return evaluate(components, t);
+      }
+    }
+
+    private boolean evaluate(Predicate<? super T>[] order, @Nullable T t) {
+      for (Predicate<? super T> component : order) {
+        if (component.apply(t) != conjunction) {
+          return !conjunction;
+        }
+      }
+      return conjunction;
+    }
+
+    /**
+     * Evaluates the components in the original order, short-circuiting,
+     * and timing each component evaluated.
+     */
+    private boolean sample(@Nullable T t) {
+      int n = components.length;
+      long[] elapsed = new long[n];
+      boolean[] results = new boolean[n];
+      int evaluated = 0;
+      boolean result = conjunction;
+      while (evaluated < n) {
+        long start = System.nanoTime();
+        boolean passed = components[evaluated].apply(t);
+        elapsed[evaluated] = System.nanoTime() - start;
+        results[evaluated++] = passed;
+        if (passed != conjunction) {
+          result = !conjunction;
+          break;
+        }
+      }
+      synchronized (this) {
+        if (order == null) {
+          for (int i = 0; i < evaluated; i++) {
+            nanos[i] += elapsed[i];
+            evaluations[i]++;
+            passes[i] += results[i] ? 1 : 0;
+          }
+          if (++samples == warmUpSamples) {
+            order = reorder();
+          }
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Returns the components sorted by expected cost per decisive outcome:
+     * the outcome that ends a short-circuited evaluation is a rejection for
+     * an and, a pass for an or. Pass rates are those observed when each
+     * component was reached, smoothed so that a component that was never
+     * decisive still ranks by its cost. Components never reached keep their
+     * original order, last; so does everything if nothing would move.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"}) // arrays of generic predicates
+    private Predicate<? super T>[] reorder() {
+      int n = components.length;
+      final double[] rank = new double[n];
+      Integer[] indices = new Integer[n];
+      for (int i = 0; i < n; i++) {
+        if (evaluations[i] == 0) {
+          rank[i] = Double.POSITIVE_INFINITY;
+        } else {
+          double cost = Math.max(1.0, (double) nanos[i] / evaluations[i]);
+          double passRate = (passes[i] + 1.0) / (evaluations[i] + 2.0);
+          rank[i] = cost / (conjunction ? 1.0 - passRate : passRate);
+        }
+        indices[i] = i;
+      }
+      // a stable sort, so that ties keep their original order
+      Arrays.sort(indices, new Comparator<Integer>() {
+        @Override public int compare(Integer a, Integer b) {
+          return Double.compare(rank[a], rank[b]);
+        }
+      });
+      Predicate<? super T>[] order = new Predicate[n];
+      boolean moved = false;
+      for (int i = 0; i < n; i++) {
+        order[i] = components[indices[i]];
+        moved |= indices[i] != i;
+      }
+      return moved ? order : components;
+    }
+
+    @Override public int hashCode() {
+      // the hash of the equivalent and or or
+      return Arrays.asList(components).hashCode() + (conjunction ? 0x12472c2c : 0x053c91cf);
+    }
+
+    @Override public boolean equals(@Nullable Object obj) {
+      if (obj instanceof AdaptivePredicate) {
+        AdaptivePredicate<?> that = (AdaptivePredicate<?>) obj;
+        return conjunction == that.conjunction
+            && warmUpSamples == that.warmUpSamples
+            && Arrays.equals(components, that.components);
+      }
+      return false;
+    }
+
+    @Override public String toString() {
+      Predicate<? super T>[] order = this.order;
+      return (conjunction ? "AdaptiveAnd(" : "AdaptiveOr(")
+          + COMMA_JOINER.join((order == null) ? components : order) + ")";
+    }
+
+    private Object writeReplace() {
+      Predicate<? super T>[] order = this.order;
+      List<Predicate<? super T>> list =
+          new ArrayList<Predicate<? super T>>(Arrays.asList((order == null) ? components : order));
+      return conjunction ? new AndPredicate<T>(list) : new OrPredicate<T>(list);
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
   /** @see PredicateUtils#equalTo(Object) */
   private static class IsEqualToPredicate<T>
       implements Predicate<T>, Serializable {
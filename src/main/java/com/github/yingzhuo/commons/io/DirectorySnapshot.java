@@ -0,0 +1,567 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.yingzhuo.commons.io;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The names, sizes and last modification times of the files and directories
+ * in a directory tree, as found by a scan, which can be compared with a later
+ * scan of the same tree to find the entries created, changed and deleted.
+ * <p>
+ * A snapshot is taken by {@link #take(File, FileFilter, int)}, with the lazy
+ * {@link FileIterator} or, on several threads, a {@link ParallelDirectoryWalker},
+ * reading the attributes of each entry once. Entries are held in a single
+ * array, sorted by path with the entries of each directory following it, so
+ * that {@link #diff} compares two snapshots in a single merge, and
+ * {@link #refresh} can rescan the entries of a single directory, keeping
+ * those of its unchanged subdirectories, when it is known that nothing else
+ * has changed.
+ * <p>
+ * The directory itself is not part of the snapshot, and a directory that does
+ * not exist, or cannot be read, is taken as empty. Directories rejected by the
+ * filter are skipped with all their contents.
+ * <p>
+ * Instances are immutable.
+ */
+public class DirectorySnapshot implements Iterable<DirectorySnapshot.Entry> {
+
+    /**
+     * Orders entries by path, a directory coming right before its contents.
+     */
+    private static final Comparator<Entry> BY_PATH = new Comparator<Entry>() {
+        public int compare(Entry e1, Entry e2) {
+            return comparePaths(e1.path, e2.path);
+        }
+    };
+
+    private static final Entry[] EMPTY_ENTRY_ARRAY = new Entry[0];
+
+    /**
+     * Receives the differences between two snapshots.
+     */
+    public interface ChangeListener {
+        /**
+         * Called for an entry that is only in the newer snapshot.
+         *
+         * @param entry  the created entry
+         */
+        void created(Entry entry);
+
+        /**
+         * Called for an entry that is in both snapshots, with a different size,
+         * for a file, or last modification time.
+         *
+         * @param previous  the entry of the older snapshot
+         * @param current  the entry of the newer snapshot
+         */
+        void changed(Entry previous, Entry current);
+
+        /**
+         * Called for an entry that is only in the older snapshot.
+         *
+         * @param entry  the deleted entry
+         */
+        void deleted(Entry entry);
+    }
+
+    /**
+     * A file or directory in a snapshot.
+     */
+    public static final class Entry {
+        private final File file;
+        private final String path;
+        private final boolean directory;
+        private final long size;
+        private final long lastModified;
+
+        Entry(File file, boolean directory, long size, long lastModified) {
+            this.file = file;
+            this.path = file.getPath();
+            this.directory = directory;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Returns the file or directory.
+         *
+         * @return the file, under the directory of the snapshot
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Indicates whether the entry is a directory.
+         *
+         * @return true for a directory
+         */
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        /**
+         * Returns the size of the file when the snapshot was taken.
+         *
+         * @return the size in bytes, 0 for a directory
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Returns the last modification time of the file when the snapshot was taken.
+         *
+         * @return the time in milliseconds since the epoch
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Indicates whether this entry has changed since a previous one of the same path.
+         */
+        boolean changedSince(Entry previous) {
+            return lastModified != previous.lastModified || size != previous.size;
+        }
+
+        /**
+         * Returns a description of the entry.
+         *
+         * @return a string description
+         */
+        @Override
+        public String toString() {
+            return (directory ? "Directory[" : "File[") + path + ", size=" + size
+                    + ", lastModified=" + lastModified + "]";
+        }
+    }
+
+    private final File directory;
+    private final FileFilter filter;
+    private final Entry[] entries;
+
+    private DirectorySnapshot(File directory, FileFilter filter, Entry[] entries) {
+        this.directory = directory;
+        this.filter = filter;
+        this.entries = entries;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Takes a snapshot of a directory tree on the calling thread.
+     *
+     * @param directory  the directory to scan, must not be {@code null}
+     * @param filter  the filter accepting files and subdirectories, null means all
+     * @return the snapshot
+     * @throws NullPointerException if the directory is {@code null}
+     */
+    public static DirectorySnapshot take(File directory, FileFilter filter) {
+        return take(directory, filter, 1);
+    }
+
+    /**
+     * Takes a snapshot of a directory tree on <code>parallelism</code> threads.
+     * <p>
+     * With a parallelism of one, the tree is walked lazily on the calling thread,
+     * otherwise by a {@link ParallelDirectoryWalker}.
+     *
+     * @param directory  the directory to scan, must not be {@code null}
+     * @param filter  the filter accepting files and subdirectories, null means all
+     * @param parallelism  the number of threads to scan with
+     * @return the snapshot
+     * @throws NullPointerException if the directory is {@code null}
+     * @throws IllegalArgumentException if <code>parallelism</code> is not positive
+     */
+    public static DirectorySnapshot take(File directory, FileFilter filter, int parallelism) {
+        if (directory == null) {
+            throw new NullPointerException("Directory must not be null");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        List<Entry> entries = new ArrayList<Entry>();
+        if (parallelism == 1) {
+            scan(directory, filter, entries);
+        } else {
+            try {
+                new SnapshotWalker(filter, parallelism).take(directory, entries);
+            } catch (IOException e) {
+                // not thrown by the hooks of SnapshotWalker
+                throw new IllegalStateException(e);
+            }
+        }
+        Entry[] array = entries.toArray(EMPTY_ENTRY_ARRAY);
+        Arrays.sort(array, BY_PATH);
+        return new DirectorySnapshot(directory, filter, array);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Returns the directory of the snapshot.
+     *
+     * @return the directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the filter of the snapshot.
+     *
+     * @return the filter, null if none
+     */
+    public FileFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Returns the number of files and directories in the snapshot.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Returns the entry of a file, if it was found by the scan.
+     *
+     * @param file  the file, under the directory of the snapshot
+     * @return the entry, or null if there is none
+     */
+    public Entry get(File file) {
+        int index = indexOf(file.getPath());
+        return index < 0 ? null : entries[index];
+    }
+
+    /**
+     * Returns an iterator over the entries, a directory coming right before its contents.
+     *
+     * @return an unmodifiable iterator
+     */
+    public Iterator<Entry> iterator() {
+        return Collections.unmodifiableList(Arrays.asList(entries)).iterator();
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Takes a new snapshot of the tree, in which only the entries of a directory,
+     * and of any subdirectories created or replaced since, are scanned again.
+     * <p>
+     * This is suited to file systems that notify of the entries created, changed
+     * and deleted in a directory, as a <code>WatchService</code>. The subtrees of
+     * the other subdirectories are assumed unchanged, and carried over as they are.
+     * A directory of the tree which is not in this snapshot is not scanned at all,
+     * and is expected to be found by refreshing its parent.
+     *
+     * @param dir  the directory whose entries to scan, the directory of the
+     *  snapshot or one of its subdirectories
+     * @return the new snapshot, or this snapshot if <code>dir</code> is not in it
+     */
+    public DirectorySnapshot refresh(File dir) {
+        List<Entry> refreshed = new ArrayList<Entry>();
+        int from;  // the first entry to replace, that of dir unless it is the root
+        int start;  // the first entry under dir
+        int end;
+        if (dir.getPath().equals(directory.getPath())) {
+            from = 0;
+            start = 0;
+            end = entries.length;
+        } else {
+            from = indexOf(dir.getPath());
+            if (from < 0 || !entries[from].directory) {
+                return this;
+            }
+            start = from + 1;
+            end = endOf(from);
+            boolean accepted = filter == null || filter.accept(dir);
+            Entry entry = readEntry(dir);
+            if (entry == null || !entry.directory || !accepted) {
+                if (entry != null && accepted) {
+                    refreshed.add(entry);  // now a file
+                }
+                return splice(from, end, refreshed);
+            }
+            refreshed.add(entry);
+        }
+
+        Entry[] children = readEntries(dir.listFiles(filter));
+        int i = start;
+        for (Entry child : children) {
+            // carry over or drop the entries of the old children before this one
+            while (i < end && comparePaths(entries[i].path, child.path) < 0) {
+                i = endOf(i);
+            }
+            refreshed.add(child);
+            if (i < end && entries[i].path.equals(child.path)) {
+                int next = endOf(i);
+                if (child.directory && entries[i].directory) {
+                    refreshed.addAll(Arrays.asList(entries).subList(i + 1, next));
+                } else if (child.directory) {
+                    scanSubtree(child.file, refreshed);
+                }
+                i = next;
+            } else if (child.directory) {
+                scanSubtree(child.file, refreshed);
+            }
+        }
+        return splice(from, end, refreshed);
+    }
+
+    /**
+     * Compares this snapshot with a newer one of the same tree, reporting the
+     * differences to a listener in path order, a directory before its contents.
+     * <p>
+     * An entry whose type has changed is reported deleted, then created. Entries
+     * carried over unchanged by {@link #refresh} are skipped without comparing
+     * their paths.
+     *
+     * @param newer  the newer snapshot
+     * @param listener  the listener to report to
+     * @throws IllegalArgumentException if the snapshots are of different directories
+     */
+    public void diff(DirectorySnapshot newer, ChangeListener listener) {
+        if (!directory.getPath().equals(newer.directory.getPath())) {
+            throw new IllegalArgumentException("Snapshots of different directories: '"
+                    + directory + "' and '" + newer.directory + "'");
+        }
+        Entry[] previous = entries;
+        Entry[] current = newer.entries;
+        int i = 0;
+        int j = 0;
+        while (i < previous.length || j < current.length) {
+            if (i < previous.length && j < current.length && previous[i] == current[j]) {
+                i++;
+                j++;
+                continue;
+            }
+            int result = i == previous.length ? 1 : j == current.length ? -1
+                    : comparePaths(previous[i].path, current[j].path);
+            if (result < 0) {
+                listener.deleted(previous[i++]);
+            } else if (result > 0) {
+                listener.created(current[j++]);
+            } else {
+                Entry before = previous[i++];
+                Entry after = current[j++];
+                if (before.directory != after.directory) {
+                    listener.deleted(before);
+                    listener.created(after);
+                } else if (after.changedSince(before)) {
+                    listener.changed(before, after);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a description of the snapshot.
+     *
+     * @return a string description
+     */
+    @Override
+    public String toString() {
+        return "DirectorySnapshot[" + directory + ", entries=" + entries.length + "]";
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Returns a snapshot with the entries from <code>from</code> to <code>to</code>
+     * replaced.
+     */
+    private DirectorySnapshot splice(int from, int to, List<Entry> replacement) {
+        int size = replacement.size();
+        Entry[] array = new Entry[entries.length - (to - from) + size];
+        System.arraycopy(entries, 0, array, 0, from);
+        for (int i = 0; i < size; i++) {
+            array[from + i] = replacement.get(i);
+        }
+        System.arraycopy(entries, to, array, from + size, entries.length - to);
+        return new DirectorySnapshot(directory, filter, array);
+    }
+
+    /**
+     * Returns the index of the entry of a path, or -1.
+     */
+    private int indexOf(String path) {
+        int low = 0;
+        int high = entries.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int result = comparePaths(entries[mid].path, path);
+            if (result < 0) {
+                low = mid + 1;
+            } else if (result > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index after the entry at <code>index</code> and its contents.
+     */
+    private int endOf(int index) {
+        Entry entry = entries[index];
+        int end = index + 1;
+        if (entry.directory) {
+            int length = entry.path.length();
+            while (end < entries.length && isUnder(entries[end].path, entry.path, length)) {
+                end++;
+            }
+        }
+        return end;
+    }
+
+    private static boolean isUnder(String path, String directoryPath, int length) {
+        return path.length() > length && path.charAt(length) == File.separatorChar
+                && path.startsWith(directoryPath);
+    }
+
+    /**
+     * Compares paths as their names, separator by separator, so that a directory
+     * comes right before its contents.
+     */
+    static int comparePaths(String path1, String path2) {
+        int length = Math.min(path1.length(), path2.length());
+        for (int i = 0; i < length; i++) {
+            char c1 = path1.charAt(i);
+            char c2 = path2.charAt(i);
+            if (c1 != c2) {
+                if (c1 == File.separatorChar) {
+                    return -1;
+                }
+                if (c2 == File.separatorChar) {
+                    return 1;
+                }
+                return c1 - c2;
+            }
+        }
+        return path1.length() - path2.length();
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Reads the entry of a file, with a single call to the file system.
+     *
+     * @return the entry, or null if the file no longer exists
+     */
+    static Entry readEntry(File file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            boolean directory = attributes.isDirectory();
+            return new Entry(file, directory, directory ? 0 : attributes.size(),
+                    attributes.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            return null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the entries of files listed in a directory, sorted by path.
+     */
+    private static Entry[] readEntries(File[] files) {
+        if (files == null) {
+            return EMPTY_ENTRY_ARRAY;
+        }
+        List<Entry> entries = new ArrayList<Entry>(files.length);
+        for (File file : files) {
+            Entry entry = readEntry(file);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        Entry[] array = entries.toArray(EMPTY_ENTRY_ARRAY);
+        Arrays.sort(array, BY_PATH);
+        return array;
+    }
+
+    /**
+     * Adds the entries of the tree under a directory, in the order of <code>listFiles</code>.
+     */
+    private static void scan(File directory, FileFilter filter, Collection<Entry> entries) {
+        FileIterator iterator = new FileIterator(directory, filter, true);
+        iterator.next();  // the directory itself
+        while (iterator.hasNext()) {
+            // FileIterator has checked whether the file is a directory, readEntry
+            // checks again to read the size and time in the same call
+            Entry entry = readEntry(iterator.next());
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Adds the entries of the tree under a directory, sorted by path.
+     */
+    private void scanSubtree(File dir, List<Entry> entries) {
+        int from = entries.size();
+        scan(dir, filter, entries);
+        Collections.sort(entries.subList(from, entries.size()), BY_PATH);
+    }
+
+    /**
+     * Collects the entries of a tree on several threads.
+     */
+    private static final class SnapshotWalker extends ParallelDirectoryWalker<Entry> {
+
+        SnapshotWalker(FileFilter filter, int parallelism) {
+            super(filter, -1, parallelism);
+        }
+
+        void take(File directory, Collection<Entry> results) throws IOException {
+            parallelWalk(directory, results);
+        }
+
+        @Override
+        protected void handleDirectoryStart(File directory, int depth, Collection<Entry> results) {
+            if (depth > 0) {
+                Entry entry = readEntry(directory);
+                if (entry != null) {
+                    results.add(entry);
+                }
+            }
+        }
+
+        @Override
+        protected void handleFile(File file, int depth, Collection<Entry> results) {
+            Entry entry = readEntry(file);
+            if (entry != null) {
+                results.add(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,395 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.yingzhuo.commons.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+import com.github.yingzhuo.commons.io.filefilter.IOFileFilter;
+
+/**
+ * Statistics of the files in a directory tree, gathered in a single parallel
+ * pass: the total size, the numbers of files and directories, the largest
+ * files, and histograms of the number and size of files by age.
+ * <p>
+ * The tree is walked on a {@link ForkJoinPool}, with a task per directory,
+ * reading the attributes of each entry once. As with
+ * {@link FileUtils#sizeOfDirectory(File)}, symbolic links are neither
+ * followed nor counted, and directories that cannot be read count as empty,
+ * although their number is reported by {@link #getUnreadableDirectoryCount()}.
+ * Subdirectories rejected by an optional filter are skipped with all their
+ * contents.
+ * <p>
+ * File ages are measured from the time the computation starts to the last
+ * modification of each file, and sorted into buckets by ascending upper
+ * bounds: with bounds of one day and one week, the histograms have three
+ * buckets, for files modified within the last day, within the last week
+ * but not the last day, and earlier.
+ * <p>
+ * Instances are immutable.
+ */
+public class DirectoryStatistics {
+
+    /**
+     * The default upper bounds of the age buckets, in milliseconds: a day, a week,
+     * thirty days and a year.
+     */
+    private static final long[] DEFAULT_AGE_BOUNDS = {
+        TimeUnit.DAYS.toMillis(1), TimeUnit.DAYS.toMillis(7), TimeUnit.DAYS.toMillis(30), TimeUnit.DAYS.toMillis(365)
+    };
+
+    /**
+     * The default number of largest files to report.
+     */
+    private static final int DEFAULT_LARGEST_FILE_COUNT = 10;
+
+    /**
+     * Orders file entries by ascending size, then by path.
+     */
+    private static final Comparator<Map.Entry<File, Long>> BY_SIZE = new Comparator<Map.Entry<File, Long>>() {
+        public int compare(Map.Entry<File, Long> e1, Map.Entry<File, Long> e2) {
+            int result = e1.getValue().compareTo(e2.getValue());
+            return result != 0 ? result : e2.getKey().compareTo(e1.getKey());
+        }
+    };
+
+    private final long totalSize;
+    private final long fileCount;
+    private final long directoryCount;
+    private final long unreadableDirectoryCount;
+    private final Map<File, Long> largestFiles;
+    private final long[] ageBounds;
+    private final long[] fileCountsByAge;
+    private final long[] sizesByAge;
+
+    private DirectoryStatistics(Accumulator total, long[] ageBounds) {
+        this.totalSize = total.totalSize;
+        this.fileCount = total.fileCount;
+        this.directoryCount = total.directoryCount;
+        this.unreadableDirectoryCount = total.unreadableDirectoryCount;
+        List<Map.Entry<File, Long>> largest = new ArrayList<Map.Entry<File, Long>>(total.largestFiles);
+        Collections.sort(largest, Collections.reverseOrder(BY_SIZE));
+        Map<File, Long> largestFiles = new LinkedHashMap<File, Long>();
+        for (Map.Entry<File, Long> entry : largest) {
+            largestFiles.put(entry.getKey(), entry.getValue());
+        }
+        this.largestFiles = Collections.unmodifiableMap(largestFiles);
+        this.ageBounds = ageBounds;
+        this.fileCountsByAge = total.fileCountsByAge;
+        this.sizesByAge = total.sizesByAge;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Computes the statistics of a directory tree, reporting the ten largest files
+     * and ages bucketed by a day, a week, thirty days and a year.
+     *
+     * @param directory  the directory to inspect, must not be {@code null}
+     * @param directoryFilter  the filter accepting the subdirectories to walk, null means all
+     * @param parallelism  the number of threads to walk with
+     * @return the statistics of the tree
+     * @throws NullPointerException if the directory is {@code null}
+     * @throws IllegalArgumentException if the directory does not exist or is not a directory,
+     *  or if <code>parallelism</code> is not positive
+     */
+    public static DirectoryStatistics compute(File directory, IOFileFilter directoryFilter, int parallelism) {
+        return compute(directory, directoryFilter, DEFAULT_LARGEST_FILE_COUNT, DEFAULT_AGE_BOUNDS,
+                TimeUnit.MILLISECONDS, parallelism);
+    }
+
+    /**
+     * Computes the statistics of a directory tree.
+     *
+     * @param directory  the directory to inspect, must not be {@code null}
+     * @param directoryFilter  the filter accepting the subdirectories to walk, null means all
+     * @param largestFileCount  the number of largest files to report
+     * @param ageBounds  the ascending upper bounds of the age buckets, must not be {@code null}
+     * @param unit  the unit of <code>ageBounds</code>
+     * @param parallelism  the number of threads to walk with
+     * @return the statistics of the tree
+     * @throws NullPointerException if the directory or the age bounds are {@code null}
+     * @throws IllegalArgumentException if the directory does not exist or is not a directory,
+     *  if <code>largestFileCount</code> is negative, if the age bounds are not ascending,
+     *  or if <code>parallelism</code> is not positive
+     */
+    public static DirectoryStatistics compute(File directory, IOFileFilter directoryFilter,
+            int largestFileCount, long[] ageBounds, TimeUnit unit, int parallelism) {
+        FileUtils.checkDirectory(directory);
+        if (largestFileCount < 0) {
+            throw new IllegalArgumentException("Largest file count must not be negative: " + largestFileCount);
+        }
+        long[] ageBoundsMillis = new long[ageBounds.length];
+        for (int i = 0; i < ageBounds.length; i++) {
+            ageBoundsMillis[i] = unit.toMillis(ageBounds[i]);
+            if (i > 0 && ageBoundsMillis[i] <= ageBoundsMillis[i - 1]) {
+                throw new IllegalArgumentException("Age bounds must be ascending: " + Arrays.toString(ageBounds));
+            }
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+
+        Walk walk = new Walk(directoryFilter, largestFileCount, ageBoundsMillis, System.currentTimeMillis());
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return new DirectoryStatistics(pool.invoke(walk.new DirectoryTask(directory.toPath())), ageBoundsMillis);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Returns the total size in bytes of the files.
+     *
+     * @return the total size
+     */
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    /**
+     * Returns the number of files.
+     *
+     * @return the number of files
+     */
+    public long getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * Returns the number of directories walked, including the start directory.
+     *
+     * @return the number of directories
+     */
+    public long getDirectoryCount() {
+        return directoryCount;
+    }
+
+    /**
+     * Returns the number of directories whose contents could not be read, which
+     * are included in {@link #getDirectoryCount()} and counted as empty.
+     *
+     * @return the number of unreadable directories
+     */
+    public long getUnreadableDirectoryCount() {
+        return unreadableDirectoryCount;
+    }
+
+    /**
+     * Returns the largest files with their sizes in bytes, largest first.
+     *
+     * @return an unmodifiable map from the largest files to their sizes
+     */
+    public Map<File, Long> getLargestFiles() {
+        return largestFiles;
+    }
+
+    /**
+     * Returns the upper bounds of the age buckets, in milliseconds.
+     *
+     * @return a copy of the age bounds
+     */
+    public long[] getAgeBounds() {
+        return ageBounds.clone();
+    }
+
+    /**
+     * Returns the number of files per age bucket, with one more bucket than
+     * there are age bounds.
+     *
+     * @return a copy of the file counts by age
+     */
+    public long[] getFileCountsByAge() {
+        return fileCountsByAge.clone();
+    }
+
+    /**
+     * Returns the total size in bytes of the files per age bucket, with one more
+     * bucket than there are age bounds.
+     *
+     * @return a copy of the sizes by age
+     */
+    public long[] getSizesByAge() {
+        return sizesByAge.clone();
+    }
+
+    /**
+     * Gets a string version of the statistics.
+     *
+     * @return a string
+     */
+    @Override
+    public String toString() {
+        return "DirectoryStatistics[totalSize=" + totalSize + ", fileCount=" + fileCount
+                + ", directoryCount=" + directoryCount + ", unreadableDirectoryCount=" + unreadableDirectoryCount
+                + ", fileCountsByAge=" + Arrays.toString(fileCountsByAge) + "]";
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * The statistics of a subtree, merged into those of its parent.
+     */
+    private static final class Accumulator {
+        long totalSize;
+        long fileCount;
+        long directoryCount;
+        long unreadableDirectoryCount;
+        final PriorityQueue<Map.Entry<File, Long>> largestFiles;
+        final long[] fileCountsByAge;
+        final long[] sizesByAge;
+
+        Accumulator(int buckets) {
+            largestFiles = new PriorityQueue<Map.Entry<File, Long>>(11, BY_SIZE);
+            fileCountsByAge = new long[buckets];
+            sizesByAge = new long[buckets];
+        }
+
+        void merge(Accumulator other, int largestFileCount) {
+            totalSize += other.totalSize;
+            fileCount += other.fileCount;
+            directoryCount += other.directoryCount;
+            unreadableDirectoryCount += other.unreadableDirectoryCount;
+            for (Map.Entry<File, Long> entry : other.largestFiles) {
+                offerLargest(entry, largestFileCount);
+            }
+            for (int i = 0; i < fileCountsByAge.length; i++) {
+                fileCountsByAge[i] += other.fileCountsByAge[i];
+                sizesByAge[i] += other.sizesByAge[i];
+            }
+        }
+
+        void offerLargest(Map.Entry<File, Long> entry, int largestFileCount) {
+            if (largestFiles.size() < largestFileCount) {
+                largestFiles.add(entry);
+            } else if (largestFileCount > 0 && BY_SIZE.compare(entry, largestFiles.peek()) > 0) {
+                largestFiles.poll();
+                largestFiles.add(entry);
+            }
+        }
+    }
+
+    /**
+     * The settings of one computation.
+     */
+    private static final class Walk {
+        private final IOFileFilter directoryFilter;
+        private final int largestFileCount;
+        private final long[] ageBounds;
+        private final long now;
+
+        Walk(IOFileFilter directoryFilter, int largestFileCount, long[] ageBounds, long now) {
+            this.directoryFilter = directoryFilter;
+            this.largestFileCount = largestFileCount;
+            this.ageBounds = ageBounds;
+            this.now = now;
+        }
+
+        /**
+         * Finds the age bucket of a file.
+         */
+        int bucket(long lastModified) {
+            long age = now - lastModified;
+            int bucket = 0;
+            while (bucket < ageBounds.length && age >= ageBounds[bucket]) {
+                bucket++;
+            }
+            return bucket;
+        }
+
+        /**
+         * Computes the statistics of a directory, forking a task per subdirectory.
+         */
+        final class DirectoryTask extends RecursiveTask<Accumulator> {
+            private static final long serialVersionUID = 1L;
+            private final Path directory;
+
+            DirectoryTask(Path directory) {
+                this.directory = directory;
+            }
+
+            @Override
+            protected Accumulator compute() {
+                Accumulator accumulator = new Accumulator(ageBounds.length + 1);
+                accumulator.directoryCount = 1;
+                List<DirectoryTask> subtasks = new ArrayList<DirectoryTask>();
+                try {
+                    DirectoryStream<Path> entries = Files.newDirectoryStream(directory);
+                    try {
+                        for (Path entry : entries) {
+                            BasicFileAttributes attributes;
+                            try {
+                                attributes = Files.readAttributes(entry, BasicFileAttributes.class,
+                                        LinkOption.NOFOLLOW_LINKS);
+                            } catch (IOException e) {
+                                continue;  // deleted meanwhile, or not accessible
+                            }
+                            if (attributes.isDirectory()) {
+                                if (directoryFilter == null || directoryFilter.accept(entry.toFile())) {
+                                    DirectoryTask subtask = new DirectoryTask(entry);
+                                    subtask.fork();
+                                    subtasks.add(subtask);
+                                }
+                            } else if (attributes.isRegularFile() || attributes.isOther()) {
+                                long size = attributes.size();
+                                int bucket = bucket(attributes.lastModifiedTime().toMillis());
+                                accumulator.totalSize += size;
+                                accumulator.fileCount++;
+                                accumulator.fileCountsByAge[bucket]++;
+                                accumulator.sizesByAge[bucket] += size;
+                                if (largestFileCount > 0) {
+                                    accumulator.offerLargest(
+                                            new AbstractMap.SimpleImmutableEntry<File, Long>(
+                                                    entry.toFile(), size), largestFileCount);
+                                }
+                            }
+                            // symbolic links are skipped, as by FileUtils.sizeOfDirectory
+                        }
+                    } finally {
+                        IOUtils.closeQuietly(entries);
+                    }
+                } catch (IOException e) {
+                    accumulator.unreadableDirectoryCount++;
+                } catch (DirectoryIteratorException e) {  // thrown by the iterator of the stream
+                    accumulator.unreadableDirectoryCount++;
+                }
+                for (int i = subtasks.size(); --i >= 0; ) {
+                    accumulator.merge(subtasks.get(i).join(), largestFileCount);
+                }
+                return accumulator;
+            }
+        }
+    }
+}
@@ -308,6 +308,22 @@ public abstract class DirectoryWalker<T> {
         this.depthLimit = depthLimit;
     }
 
+    /**
+     * Gets the filter to apply to files and directories.
+     * @return the filter, null means visit all files
+     */
+    FileFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Gets the limit on the directory depth to walk.
+     * @return the depth limit, less than 0 means unlimited
+     */
+    int getDepthLimit() {
+        return depthLimit;
+    }
+
     //-----------------------------------------------------------------------
     /**
      * Internal method that walks the directory hierarchy in a depth-first manner.
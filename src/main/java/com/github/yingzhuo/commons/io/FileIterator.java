@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.yingzhuo.commons.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A lazy, depth-first Iterator over the files of a directory tree, as returned
+ * by {@link FileUtils#iterateFiles(File, com.github.yingzhuo.commons.io.filefilter.IOFileFilter,
+ * com.github.yingzhuo.commons.io.filefilter.IOFileFilter) FileUtils.iterateFiles}.
+ * <p>
+ * Files are returned in the order of the corresponding <code>listFiles</code>
+ * methods, but a directory is only listed when the iteration reaches it, so
+ * the first files are available at once and memory is only held for the
+ * listings of the directories on the current path. Directories rejected by
+ * the filter are not listed at all.
+ * <p>
+ * Iterating to the end releases all listings. An iteration abandoned earlier
+ * should be closed, which releases them at once:
+ * <pre>
+ * Iterator&lt;File&gt; it = FileUtils.iterateFiles(dir, filter, TrueFileFilter.INSTANCE);
+ * try {
+ *   while (it.hasNext()) {
+ *     File file = it.next();
+ *     // do something with file
+ *   }
+ * } finally {
+ *   FileIterator.closeQuietly(it);
+ * }
+ * </pre>
+ * The iterator reflects changes made to the tree while iterating in the
+ * directories it has not listed yet.
+ */
+public class FileIterator implements Iterator<File>, Closeable {
+
+    /** The filter accepting the files to return and the directories to descend into. */
+    private final FileFilter filter;
+    /** Whether to return the directories themselves. */
+    private final boolean includeDirectories;
+    /** The listings of the directories on the current path, innermost first. */
+    private final Deque<Listing> listings = new ArrayDeque<Listing>();
+    /** The directory to list before going on, if any. */
+    private File pendingDirectory;
+    /** The next file, if already found. */
+    private File cachedFile;
+    /** A flag indicating if the iterator has been fully read or closed. */
+    private boolean finished = false;
+
+    /**
+     * Constructs an iterator over the tree under a directory.
+     *
+     * @param directory  the validated directory to iterate
+     * @param filter  the filter accepting files to return and directories to descend into
+     * @param includeDirectories  whether to return the directories, including <code>directory</code>
+     */
+    FileIterator(File directory, FileFilter filter, boolean includeDirectories) {
+        this.filter = filter;
+        this.includeDirectories = includeDirectories;
+        this.pendingDirectory = directory;
+        if (includeDirectories) {
+            cachedFile = directory;
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Indicates whether there are more files, listing directories as needed.
+     *
+     * @return {@code true} if there are more files
+     */
+    public boolean hasNext() {
+        if (cachedFile != null) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        cachedFile = advance();
+        if (cachedFile == null) {
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the next file in the tree.
+     *
+     * @return the next file
+     * @throws NoSuchElementException if there are no more files
+     */
+    public File next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more files");
+        }
+        File file = cachedFile;
+        cachedFile = null;
+        return file;
+    }
+
+    /**
+     * Finds the next file, or returns null at the end of the tree.
+     *
+     * @return the next file, or null
+     */
+    private File advance() {
+        while (true) {
+            if (pendingDirectory != null) {
+                // null if an I/O error occurs, skipped as by FileUtils.listFiles
+                File[] found = pendingDirectory.listFiles(filter);
+                pendingDirectory = null;
+                if (found != null && found.length > 0) {
+                    listings.push(new Listing(found));
+                }
+            }
+            Listing listing = listings.peek();
+            if (listing == null) {
+                return null;
+            }
+            if (listing.index == listing.files.length) {
+                listings.pop();
+                continue;
+            }
+            File file = listing.files[listing.index];
+            listing.files[listing.index++] = null;
+            if (file.isDirectory()) {
+                pendingDirectory = file;
+                if (includeDirectories) {
+                    return file;
+                }
+            } else {
+                return file;
+            }
+        }
+    }
+
+    /**
+     * Stops the iteration, releasing the directory listings held.
+     * <p>
+     * Calling this method after the iteration has finished has no effect.
+     */
+    public void close() {
+        finished = true;
+        listings.clear();
+        pendingDirectory = null;
+        cachedFile = null;
+    }
+
+    /**
+     * Unsupported.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    public void remove() {
+        throw new UnsupportedOperationException("Remove unsupported on FileIterator");
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Closes the iterator, handling null and ignoring exceptions.
+     *
+     * @param iterator  the iterator to close
+     */
+    public static void closeQuietly(FileIterator iterator) {
+        if (iterator != null) {
+            iterator.close();
+        }
+    }
+
+    /**
+     * Closes the iterator if it is a <code>FileIterator</code>, as returned
+     * by the <code>FileUtils.iterateFiles</code> methods, handling null and
+     * ignoring exceptions.
+     *
+     * @param iterator  the iterator to close
+     */
+    public static void closeQuietly(Iterator<?> iterator) {
+        if (iterator instanceof FileIterator) {
+            ((FileIterator) iterator).close();
+        }
+    }
+
+    /**
+     * The listing of a directory, consumed from <code>index</code> on.
+     */
+    private static final class Listing {
+        private final File[] files;
+        private int index;
+
+        Listing(File[] files) {
+            this.files = files;
+        }
+    }
+}
@@ -614,9 +614,12 @@ public class FileUtils {
      * Allows iteration over the files in given directory (and optionally
      * its subdirectories).
      * <p>
-     * All files found are filtered by an IOFileFilter. This method is
-     * based on {@link #listFiles(File, IOFileFilter, IOFileFilter)},
-     * which supports Iterable ('foreach' loop).
+     * All files found are filtered by an IOFileFilter. The files are returned
+     * in the order of {@link #listFiles(File, IOFileFilter, IOFileFilter)},
+     * which supports Iterable ('foreach' loop), but are found lazily: each
+     * subdirectory is only listed when the iteration reaches it.
+     * An iteration abandoned before the end should be closed with
+     * {@link FileIterator#closeQuietly(Iterator)}.
      * <p>
      * @param directory  the directory to search in
      * @param fileFilter  filter to apply when finding files.
@@ -630,16 +633,24 @@ public class FileUtils {
      */
     public static Iterator<File> iterateFiles(
             File directory, IOFileFilter fileFilter, IOFileFilter dirFilter) {
-        return listFiles(directory, fileFilter, dirFilter).iterator();
+        validateListFilesParameters(directory, fileFilter);
+
+        IOFileFilter effFileFilter = setUpEffectiveFileFilter(fileFilter);
+        IOFileFilter effDirFilter = setUpEffectiveDirFilter(dirFilter);
+
+        return new FileIterator(directory, FileFilterUtils.or(effFileFilter, effDirFilter), false);
     }
 
     /**
      * Allows iteration over the files in given directory (and optionally
      * its subdirectories).
      * <p>
-     * All files found are filtered by an IOFileFilter. This method is
-     * based on {@link #listFilesAndDirs(File, IOFileFilter, IOFileFilter)},
-     * which supports Iterable ('foreach' loop).
+     * All files found are filtered by an IOFileFilter. The files are returned
+     * in the order of {@link #listFilesAndDirs(File, IOFileFilter, IOFileFilter)},
+     * which supports Iterable ('foreach' loop), but are found lazily: each
+     * subdirectory is only listed when the iteration reaches it.
+     * An iteration abandoned before the end should be closed with
+     * {@link FileIterator#closeQuietly(Iterator)}.
      * <p>
      * The resulting iterator includes the subdirectories themselves.
      * 
@@ -654,7 +665,12 @@ public class FileUtils {
      * @since 2.2
      */
     public static Iterator<File> iterateFilesAndDirs(File directory, IOFileFilter fileFilter, IOFileFilter dirFilter) {
-        return listFilesAndDirs(directory, fileFilter, dirFilter).iterator();
+        validateListFilesParameters(directory, fileFilter);
+
+        IOFileFilter effFileFilter = setUpEffectiveFileFilter(fileFilter);
+        IOFileFilter effDirFilter = setUpEffectiveDirFilter(dirFilter);
+
+        return new FileIterator(directory, FileFilterUtils.or(effFileFilter, effDirFilter), true);
     }
 
     //-----------------------------------------------------------------------
@@ -699,9 +715,10 @@ public class FileUtils {
 
     /**
      * Allows iteration over the files in a given directory (and optionally
-     * its subdirectories) which match an array of extensions. This method
-     * is based on {@link #listFiles(File, String[], boolean)},
-     * which supports Iterable ('foreach' loop).
+     * its subdirectories) which match an array of extensions. The files are
+     * returned lazily in the order of {@link #listFiles(File, String[], boolean)},
+     * which supports Iterable ('foreach' loop). An iteration abandoned before
+     * the end should be closed with {@link FileIterator#closeQuietly(Iterator)}.
      *
      * @param directory  the directory to search in
      * @param extensions  an array of extensions, ex. {"java","xml"}. If this
@@ -712,7 +729,15 @@ public class FileUtils {
      */
     public static Iterator<File> iterateFiles(
             File directory, String[] extensions, boolean recursive) {
-        return listFiles(directory, extensions, recursive).iterator();
+        IOFileFilter filter;
+        if (extensions == null) {
+            filter = TrueFileFilter.INSTANCE;
+        } else {
+            String[] suffixes = toSuffixes(extensions);
+            filter = new SuffixFileFilter(suffixes);
+        }
+        return iterateFiles(directory, filter,
+            recursive ? TrueFileFilter.INSTANCE : FalseFileFilter.INSTANCE);
     }
 
     //-----------------------------------------------------------------------
@@ -1130,7 +1155,7 @@ public class FileUtils {
      * @param preserveFileDate  whether to preserve the file date
      * @throws IOException if an error occurs
      */
-    private static void doCopyFile(File srcFile, File destFile, boolean preserveFileDate) throws IOException {
+    static void doCopyFile(File srcFile, File destFile, boolean preserveFileDate) throws IOException {
         if (destFile.exists() && destFile.isDirectory()) {
             throw new IOException("Destination '" + destFile + "' exists but is a directory");
         }
@@ -1363,6 +1388,46 @@ public class FileUtils {
      */
     public static void copyDirectory(File srcDir, File destDir,
             FileFilter filter, boolean preserveFileDate) throws IOException {
+        List<String> exclusionList = checkCopyDirectory(srcDir, destDir, filter);
+        doCopyDirectory(srcDir, destDir, filter, preserveFileDate, exclusionList);
+    }
+
+    /**
+     * Copies a filtered directory to a new location, copying files and
+     * walking subdirectories on <code>parallelism</code> threads.
+     * <p>
+     * This method behaves as {@link #copyDirectory(File, File, FileFilter, boolean)},
+     * except that files are not copied in a defined order, and that if copying fails
+     * in several places, the first failure noticed is thrown with the others suppressed.
+     *
+     * @param srcDir  an existing directory to copy, must not be {@code null}
+     * @param destDir  the new directory, must not be {@code null}
+     * @param filter  the filter to apply, null means copy all directories and files
+     * @param preserveFileDate  true if the file date of the copy
+     *  should be the same as the original
+     * @param parallelism  the number of threads to copy with
+     *
+     * @throws NullPointerException if source or destination is {@code null}
+     * @throws IllegalArgumentException if <code>parallelism</code> is not positive
+     * @throws IOException if source or destination is invalid
+     * @throws IOException if an IO error occurs during copying
+     * @see ParallelDirectoryCopier
+     */
+    public static void copyDirectory(File srcDir, File destDir,
+            FileFilter filter, boolean preserveFileDate, int parallelism) throws IOException {
+        new ParallelDirectoryCopier(parallelism).copyDirectory(srcDir, destDir, filter, preserveFileDate);
+    }
+
+    /**
+     * Validates the arguments of a directory copy.
+     *
+     * @param srcDir  the source directory
+     * @param destDir  the destination directory
+     * @param filter  the filter to apply, null means copy all directories and files
+     * @return the canonical paths to exclude from the copy, may be null
+     * @throws IOException if source or destination is invalid
+     */
+    static List<String> checkCopyDirectory(File srcDir, File destDir, FileFilter filter) throws IOException {
         if (srcDir == null) {
             throw new NullPointerException("Source must not be null");
         }
@@ -1391,7 +1456,7 @@ public class FileUtils {
                 }
             }
         }
-        doCopyDirectory(srcDir, destDir, filter, preserveFileDate, exclusionList);
+        return exclusionList;
     }
 
     /**
@@ -1408,6 +1473,35 @@ public class FileUtils {
     private static void doCopyDirectory(File srcDir, File destDir, FileFilter filter,
             boolean preserveFileDate, List<String> exclusionList) throws IOException {
         // recurse
+        File[] srcFiles = prepareCopyDirectory(srcDir, destDir, filter);
+        for (File srcFile : srcFiles) {
+            File dstFile = new File(destDir, srcFile.getName());
+            if (exclusionList == null || !exclusionList.contains(srcFile.getCanonicalPath())) {
+                if (srcFile.isDirectory()) {
+                    doCopyDirectory(srcFile, dstFile, filter, preserveFileDate, exclusionList);
+                } else {
+                    doCopyFile(srcFile, dstFile, preserveFileDate);
+                }
+            }
+        }
+
+        // Do this last, as the above has probably affected directory metadata
+        if (preserveFileDate) {
+            destDir.setLastModified(srcDir.lastModified());
+        }
+    }
+
+    /**
+     * Lists the contents of a source directory to copy, and creates the
+     * destination directory if needed.
+     *
+     * @param srcDir  the validated source directory, must not be {@code null}
+     * @param destDir  the validated destination directory, must not be {@code null}
+     * @param filter  the filter to apply, null means copy all directories and files
+     * @return the files and directories to copy
+     * @throws IOException if an error occurs
+     */
+    static File[] prepareCopyDirectory(File srcDir, File destDir, FileFilter filter) throws IOException {
         File[] srcFiles = filter == null ? srcDir.listFiles() : srcDir.listFiles(filter);
         if (srcFiles == null) {  // null if abstract pathname does not denote a directory, or if an I/O error occurs
             throw new IOException("Failed to list contents of " + srcDir);
@@ -1424,21 +1518,7 @@ public class FileUtils {
         if (destDir.canWrite() == false) {
             throw new IOException("Destination '" + destDir + "' cannot be written to");
         }
-        for (File srcFile : srcFiles) {
-            File dstFile = new File(destDir, srcFile.getName());
-            if (exclusionList == null || !exclusionList.contains(srcFile.getCanonicalPath())) {
-                if (srcFile.isDirectory()) {
-                    doCopyDirectory(srcFile, dstFile, filter, preserveFileDate, exclusionList);
-                } else {
-                    doCopyFile(srcFile, dstFile, preserveFileDate);
-                }
-            }
-        }
-
-        // Do this last, as the above has probably affected directory metadata
-        if (preserveFileDate) {
-            destDir.setLastModified(srcDir.lastModified());
-        }
+        return srcFiles;
     }
 
     //-----------------------------------------------------------------------
@@ -2526,13 +2606,35 @@ public class FileUtils {
         return size;
     }
 
+    /**
+     * Computes the statistics of a directory tree in a single pass on several threads:
+     * the total size, the numbers of files and directories, the largest files, and
+     * the numbers and sizes of files by age.
+     * <p>
+     * As with {@link #sizeOfDirectory(File)}, symbolic links are not followed and
+     * restricted directories count as empty.
+     *
+     * @param directory  directory to inspect, must not be {@code null}
+     * @param directoryFilter  the filter accepting the subdirectories to walk, null means all
+     * @param parallelism  the number of threads to walk with
+     * @return the statistics of the directory tree
+     * @throws NullPointerException if the directory is {@code null}
+     * @throws IllegalArgumentException if the directory does not exist or is not a directory,
+     *  or if <code>parallelism</code> is not positive
+     * @see DirectoryStatistics#compute(File, IOFileFilter, int, long[], java.util.concurrent.TimeUnit, int)
+     */
+    public static DirectoryStatistics statisticsOfDirectory(File directory, IOFileFilter directoryFilter,
+            int parallelism) {
+        return DirectoryStatistics.compute(directory, directoryFilter, parallelism);
+    }
+
     /**
      * Checks that the given {@code File} exists and is a directory.
      * 
      * @param directory The {@code File} to check.
      * @throws IllegalArgumentException if the given {@code File} does not exist or is not a directory.
      */
-    private static void checkDirectory(File directory) {
+    static void checkDirectory(File directory) {
         if (!directory.exists()) {
             throw new IllegalArgumentException(directory + " does not exist");
         }
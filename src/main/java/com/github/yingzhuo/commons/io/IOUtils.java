@@ -45,8 +45,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+import com.github.yingzhuo.commons.functor.Supplier;
 import com.github.yingzhuo.commons.io.output.ByteArrayOutputStream;
 import com.github.yingzhuo.commons.io.output.StringBuilderWriter;
+import com.github.yingzhuo.commons.lang.ObjectPool;
 
 
 
@@ -131,6 +133,24 @@ public class IOUtils {
      */
     private static final int DEFAULT_BUFFER_SIZE = 1024 * 4;
 
+    /**
+     * The idle byte buffers of {@link #DEFAULT_BUFFER_SIZE} used to copy streams.
+     */
+    private static final ObjectPool<byte[]> BYTE_BUFFERS = ObjectPool.builder(new Supplier<byte[]>() {
+        public byte[] get() {
+            return new byte[DEFAULT_BUFFER_SIZE];
+        }
+    }).build();
+
+    /**
+     * The idle char buffers of {@link #DEFAULT_BUFFER_SIZE} used to copy readers.
+     */
+    private static final ObjectPool<char[]> CHAR_BUFFERS = ObjectPool.builder(new Supplier<char[]>() {
+        public char[] get() {
+            return new char[DEFAULT_BUFFER_SIZE];
+        }
+    }).build();
+
     /**
      * The default buffer size to use for the skip() methods.
      */
@@ -1768,7 +1788,12 @@ public class IOUtils {
      */
     public static long copyLarge(InputStream input, OutputStream output)
             throws IOException {
-        return copyLarge(input, output, new byte[DEFAULT_BUFFER_SIZE]);
+        byte[] buffer = BYTE_BUFFERS.borrow();
+        try {
+            return copyLarge(input, output, buffer);
+        } finally {
+            BYTE_BUFFERS.release(buffer);
+        }
     }
 
     /**
@@ -1819,7 +1844,12 @@ public class IOUtils {
      */
     public static long copyLarge(InputStream input, OutputStream output, long inputOffset, long length)
             throws IOException {
-        return copyLarge(input, output, inputOffset, length, new byte[DEFAULT_BUFFER_SIZE]);
+        byte[] buffer = BYTE_BUFFERS.borrow();
+        try {
+            return copyLarge(input, output, inputOffset, length, buffer);
+        } finally {
+            BYTE_BUFFERS.release(buffer);
+        }
     }
 
     /**
@@ -1979,7 +2009,12 @@ public class IOUtils {
      * @since 1.3
      */
     public static long copyLarge(Reader input, Writer output) throws IOException {
-        return copyLarge(input, output, new char[DEFAULT_BUFFER_SIZE]);
+        char[] buffer = CHAR_BUFFERS.borrow();
+        try {
+            return copyLarge(input, output, buffer);
+        } finally {
+            CHAR_BUFFERS.release(buffer);
+        }
     }
 
     /**
@@ -2028,7 +2063,12 @@ public class IOUtils {
      */
     public static long copyLarge(Reader input, Writer output, final long inputOffset, final long length)
             throws IOException {
-        return  copyLarge(input, output, inputOffset, length, new char[DEFAULT_BUFFER_SIZE]);
+        char[] buffer = CHAR_BUFFERS.borrow();
+        try {
+            return copyLarge(input, output, inputOffset, length, buffer);
+        } finally {
+            CHAR_BUFFERS.release(buffer);
+        }
     }
 
     /**
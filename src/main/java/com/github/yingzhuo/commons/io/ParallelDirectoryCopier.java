@@ -0,0 +1,348 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.yingzhuo.commons.io;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.yingzhuo.commons.functor.Supplier;
+import com.github.yingzhuo.commons.lang.ObjectPool;
+
+/**
+ * Copies directory trees on several threads.
+ * <p>
+ * A copy is split into a task per file and per directory, run on a
+ * {@link ForkJoinPool} of the configured parallelism: a directory task lists
+ * its directory and forks a task per entry, so that files are copied while the
+ * rest of the tree is still being walked. Files up to {@link #SMALL_FILE_SIZE}
+ * bytes are copied with a single read and write through a pooled buffer,
+ * larger ones as by {@link FileUtils#copyFile(File, File, boolean)}.
+ * <p>
+ * Filtering, preservation of dates, merging into an existing destination and
+ * the exceptions thrown are those of
+ * {@link FileUtils#copyDirectory(File, File, FileFilter, boolean)}, except that
+ * files are not copied in a defined order: once a copy fails, no further copies
+ * are started, and the first failure noticed is thrown after the running ones
+ * complete, with any others {@linkplain Throwable#addSuppressed suppressed}.
+ * <p>
+ * Progress may be reported to a {@link ProgressListener}, at most once per
+ * interval while copying and once at the end of a successful copy.
+ */
+public class ParallelDirectoryCopier {
+
+    /**
+     * The size in bytes ({@value}) up to which files are copied through a
+     * pooled buffer rather than a file channel.
+     */
+    public static final int SMALL_FILE_SIZE = 64 * 1024;
+
+    /**
+     * The buffers for the small-file copies.
+     */
+    private static final ObjectPool<byte[]> SMALL_FILE_BUFFERS = ObjectPool.builder(new Supplier<byte[]>() {
+        public byte[] get() {
+            return new byte[SMALL_FILE_SIZE];
+        }
+    }).build();
+
+    /**
+     * Receives the progress of a copy.
+     */
+    public interface ProgressListener {
+        /**
+         * Reports the progress of a copy. Called by any of the copying threads,
+         * but never concurrently for the same copy.
+         *
+         * @param fileCount  the number of files copied so far
+         * @param byteCount  the number of bytes copied so far
+         * @param bytesPerSecond  the average rate of the copy so far
+         */
+        void progress(long fileCount, long byteCount, double bytesPerSecond);
+    }
+
+    private final int parallelism;
+    private final ProgressListener listener;
+    private final long progressIntervalNanos;
+
+    /**
+     * Constructs a copier that copies on <code>parallelism</code> threads.
+     *
+     * @param parallelism  the number of threads to copy with
+     * @throws IllegalArgumentException if <code>parallelism</code> is not positive
+     */
+    public ParallelDirectoryCopier(int parallelism) {
+        this(parallelism, null, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructs a copier that copies on <code>parallelism</code> threads and
+     * reports its progress to <code>listener</code>.
+     *
+     * @param parallelism  the number of threads to copy with
+     * @param listener  the listener to report progress to, null means none
+     * @param progressInterval  the minimum time between reports
+     * @param unit  the unit of <code>progressInterval</code>
+     * @throws IllegalArgumentException if <code>parallelism</code> is not positive
+     *  or <code>progressInterval</code> is negative
+     */
+    public ParallelDirectoryCopier(int parallelism, ProgressListener listener,
+            long progressInterval, TimeUnit unit) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        if (progressInterval < 0) {
+            throw new IllegalArgumentException("Progress interval must not be negative: " + progressInterval);
+        }
+        this.parallelism = parallelism;
+        this.listener = listener;
+        this.progressIntervalNanos = unit.toNanos(progressInterval);
+    }
+
+    /**
+     * Copies a filtered directory to a new location, as
+     * {@link FileUtils#copyDirectory(File, File, FileFilter, boolean)}.
+     *
+     * @param srcDir  an existing directory to copy, must not be {@code null}
+     * @param destDir  the new directory, must not be {@code null}
+     * @param filter  the filter to apply, null means copy all directories and files
+     * @param preserveFileDate  true if the file date of the copy
+     *  should be the same as the original
+     *
+     * @throws NullPointerException if source or destination is {@code null}
+     * @throws IOException if source or destination is invalid
+     * @throws IOException if an IO error occurs during copying
+     */
+    public void copyDirectory(File srcDir, File destDir, FileFilter filter, boolean preserveFileDate)
+            throws IOException {
+        List<String> exclusionList = FileUtils.checkCopyDirectory(srcDir, destDir, filter);
+        Copy copy = new Copy(filter, preserveFileDate, exclusionList);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(copy.new CopyDirectoryTask(srcDir, destDir));
+        } finally {
+            pool.shutdown();
+        }
+        if (copy.failure != null) {
+            throw copy.failure;
+        }
+        copy.reportProgress();
+    }
+
+    /**
+     * The state of one call to {@link #copyDirectory}.
+     */
+    private final class Copy {
+        private final FileFilter filter;
+        private final boolean preserveFileDate;
+        private final List<String> exclusionList;
+
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong nextProgressNanos = new AtomicLong(startNanos + progressIntervalNanos);
+        private final LongAdder fileCount = new LongAdder();
+        private final LongAdder byteCount = new LongAdder();
+
+        /** The first failure, guarded by this. */
+        private IOException failure;
+        /** Whether any copy failed, checked before starting each task. */
+        private volatile boolean failed;
+
+        Copy(FileFilter filter, boolean preserveFileDate, List<String> exclusionList) {
+            this.filter = filter;
+            this.preserveFileDate = preserveFileDate;
+            this.exclusionList = exclusionList;
+        }
+
+        synchronized void fail(IOException e) {
+            if (failure == null) {
+                failure = e;
+            } else {
+                failure.addSuppressed(e);
+            }
+            failed = true;
+        }
+
+        void copied(long bytes) {
+            fileCount.increment();
+            byteCount.add(bytes);
+            if (listener != null) {
+                long next = nextProgressNanos.get();
+                long now = System.nanoTime();
+                if (now - next >= 0 && nextProgressNanos.compareAndSet(next, now + progressIntervalNanos)) {
+                    reportProgress();
+                }
+            }
+        }
+
+        void reportProgress() {
+            if (listener == null) {
+                return;
+            }
+            synchronized (listener) {
+                long bytes = byteCount.sum();
+                long elapsedNanos = System.nanoTime() - startNanos;
+                double bytesPerSecond = elapsedNanos <= 0 ? 0 : bytes * 1e9 / elapsedNanos;
+                listener.progress(fileCount.sum(), bytes, bytesPerSecond);
+            }
+        }
+
+        /**
+         * Copies an entry of a directory, which may itself be a directory.
+         */
+        final class CopyEntryTask extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+            private final File srcFile;
+            private final File destFile;
+
+            CopyEntryTask(File srcFile, File destFile) {
+                this.srcFile = srcFile;
+                this.destFile = destFile;
+            }
+
+            @Override
+            protected void compute() {
+                if (failed) {
+                    return;
+                }
+                try {
+                    if (exclusionList != null && exclusionList.contains(srcFile.getCanonicalPath())) {
+                        return;
+                    }
+                    if (srcFile.isDirectory()) {
+                        new CopyDirectoryTask(srcFile, destFile).compute();
+                    } else {
+                        copied(copyFile(srcFile, destFile, preserveFileDate));
+                    }
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+        }
+
+        /**
+         * Copies a directory, forking a task per entry.
+         */
+        final class CopyDirectoryTask extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+            private final File srcDir;
+            private final File destDir;
+
+            CopyDirectoryTask(File srcDir, File destDir) {
+                this.srcDir = srcDir;
+                this.destDir = destDir;
+            }
+
+            @Override
+            protected void compute() {
+                if (failed) {
+                    return;
+                }
+                File[] srcFiles;
+                try {
+                    srcFiles = FileUtils.prepareCopyDirectory(srcDir, destDir, filter);
+                } catch (IOException e) {
+                    fail(e);
+                    return;
+                }
+                List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(srcFiles.length);
+                for (File srcFile : srcFiles) {
+                    tasks.add(new CopyEntryTask(srcFile, new File(destDir, srcFile.getName())).fork());
+                }
+                for (int i = tasks.size(); --i >= 0; ) {  // join in reverse, the newest being the likeliest to still be local
+                    tasks.get(i).join();
+                }
+
+                // Do this last, as the above has probably affected directory metadata
+                if (preserveFileDate && !failed) {
+                    destDir.setLastModified(srcDir.lastModified());
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies a file, through a pooled buffer if it is small.
+     *
+     * @param srcFile  the source file
+     * @param destFile  the destination file
+     * @param preserveFileDate  whether to preserve the file date
+     * @return the number of bytes copied
+     * @throws IOException if an error occurs
+     */
+    private static long copyFile(File srcFile, File destFile, boolean preserveFileDate) throws IOException {
+        if (srcFile.length() > SMALL_FILE_SIZE || !copySmallFile(srcFile, destFile)) {
+            FileUtils.doCopyFile(srcFile, destFile, preserveFileDate);
+            return destFile.length();
+        }
+        long length = srcFile.length();
+        if (length != destFile.length()) {
+            throw new IOException("Failed to copy full contents from '" +
+                    srcFile + "' to '" + destFile + "'");
+        }
+        if (preserveFileDate) {
+            destFile.setLastModified(srcFile.lastModified());
+        }
+        return length;
+    }
+
+    /**
+     * Copies a file expected to be small with a single read and write.
+     *
+     * @param srcFile  the source file
+     * @param destFile  the destination file
+     * @return false, without writing, if the file turned out to be too large
+     * @throws IOException if an error occurs
+     */
+    private static boolean copySmallFile(File srcFile, File destFile) throws IOException {
+        if (destFile.exists() && destFile.isDirectory()) {
+            throw new IOException("Destination '" + destFile + "' exists but is a directory");
+        }
+        byte[] buffer = SMALL_FILE_BUFFERS.borrow();
+        try {
+            int length;
+            FileInputStream input = new FileInputStream(srcFile);
+            try {
+                length = IOUtils.read(input, buffer);
+                if (length == buffer.length && input.read() != -1) {
+                    return false;
+                }
+            } finally {
+                IOUtils.closeQuietly(input);
+            }
+            FileOutputStream output = new FileOutputStream(destFile);
+            try {
+                output.write(buffer, 0, length);
+                output.close();
+            } finally {
+                IOUtils.closeQuietly(output);
+            }
+            return true;
+        } finally {
+            SMALL_FILE_BUFFERS.release(buffer);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.yingzhuo.commons.io;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.github.yingzhuo.commons.io.filefilter.IOFileFilter;
+
+/**
+ * Abstract class that walks through a directory hierarchy on several threads,
+ * with the hooks of {@link DirectoryWalker}.
+ * <p>
+ * {@link #parallelWalk} walks each directory in a task of its own on a
+ * {@link ForkJoinPool} of the configured parallelism: the files of a directory
+ * are handled by its task, in order, while its subdirectories are forked to
+ * other tasks. This suits walks bounded by the latency of file system calls
+ * rather than by CPU, such as over network file systems.
+ * <p>
+ * The hooks are called as by {@link DirectoryWalker#walk}, except that those
+ * for different directories may be called concurrently, from the threads of
+ * the pool: <code>handleDirectoryEnd</code> is called once the whole subtree
+ * of its directory has been walked, and <code>handleStart</code>,
+ * <code>handleEnd</code> and <code>handleCancelled</code> from the thread
+ * calling <code>parallelWalk</code>. Hooks must therefore be thread-safe,
+ * but the results collection passed to the hooks of a directory belongs to
+ * its task alone. The collections of the tasks are merged into the results
+ * of the walk in the order a sequential walk would have added them.
+ *
+ * <h3>Cancellation</h3>
+ * Cancellation is cooperative, as with {@link DirectoryWalker}: once
+ * {@link #handleIsCancelled} returns true, or a hook throws a
+ * {@link DirectoryWalker.CancelException CancelException}, no task calls
+ * further hooks, and <code>handleCancelled</code> is called with the
+ * results of the hooks called so far. The first other <code>IOException</code>
+ * thrown by a hook stops the walk in the same way and is rethrown, with any
+ * others thrown meanwhile suppressed.
+ *
+ * @param <T> The result type, in case objects are collected
+ */
+public abstract class ParallelDirectoryWalker<T> extends DirectoryWalker<T> {
+
+    /**
+     * The number of threads to walk with.
+     */
+    private final int parallelism;
+
+    /**
+     * Construct an instance with no filtering and unlimited <i>depth</i>.
+     *
+     * @param parallelism  the number of threads to walk with
+     * @throws IllegalArgumentException if <code>parallelism</code> is not positive
+     */
+    protected ParallelDirectoryWalker(int parallelism) {
+        this(null, -1, parallelism);
+    }
+
+    /**
+     * Construct an instance with a filter and limit the <i>depth</i> navigated to,
+     * as {@link DirectoryWalker#DirectoryWalker(FileFilter, int)}.
+     *
+     * @param filter  the filter to apply, null means visit all files
+     * @param depthLimit  controls how <i>deep</i> the hierarchy is
+     *  navigated to (less than 0 means unlimited)
+     * @param parallelism  the number of threads to walk with
+     * @throws IllegalArgumentException if <code>parallelism</code> is not positive
+     */
+    protected ParallelDirectoryWalker(FileFilter filter, int depthLimit, int parallelism) {
+        super(filter, depthLimit);
+        this.parallelism = checkParallelism(parallelism);
+    }
+
+    /**
+     * Construct an instance with a directory and a file filter and an optional
+     * limit on the <i>depth</i> navigated to, as
+     * {@link DirectoryWalker#DirectoryWalker(IOFileFilter, IOFileFilter, int)}.
+     *
+     * @param directoryFilter  the filter to apply to directories, null means visit all directories
+     * @param fileFilter  the filter to apply to files, null means visit all files
+     * @param depthLimit  controls how <i>deep</i> the hierarchy is
+     *  navigated to (less than 0 means unlimited)
+     * @param parallelism  the number of threads to walk with
+     * @throws IllegalArgumentException if <code>parallelism</code> is not positive
+     */
+    protected ParallelDirectoryWalker(IOFileFilter directoryFilter, IOFileFilter fileFilter,
+            int depthLimit, int parallelism) {
+        super(directoryFilter, fileFilter, depthLimit);
+        this.parallelism = checkParallelism(parallelism);
+    }
+
+    private static int checkParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        return parallelism;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Internal method that walks the directory hierarchy on several threads.
+     * <p>
+     * Writers of subclasses should call this method to start the directory walk,
+     * instead of {@link DirectoryWalker#walk}, which walks on the calling thread only.
+     *
+     * @param startDirectory  the directory to start from, not null
+     * @param results  the collection of result objects, may be updated
+     * @throws NullPointerException if the start directory is null
+     * @throws IOException if an I/O Error occurs
+     */
+    protected final void parallelWalk(File startDirectory, Collection<T> results) throws IOException {
+        if (startDirectory == null) {
+            throw new NullPointerException("Start Directory is null");
+        }
+        try {
+            handleStart(startDirectory, results);
+            Walk walk = new Walk();
+            Walk.DirectoryTask root = walk.new DirectoryTask(startDirectory, 0);
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(root);
+            } finally {
+                pool.shutdown();
+            }
+            root.mergeResults(results);
+            if (walk.failure != null) {
+                throw walk.failure;
+            }
+            handleEnd(results);
+        } catch (CancelException cancel) {
+            handleCancelled(startDirectory, results, cancel);
+        }
+    }
+
+    /**
+     * Thrown within a task to unwind it once the walk has stopped.
+     */
+    private static final class StoppedException extends IOException {
+        private static final long serialVersionUID = 1L;
+        static final StoppedException INSTANCE = new StoppedException();
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * The state of one call to {@link #parallelWalk}.
+     */
+    private final class Walk {
+        private final FileFilter filter = getFilter();
+        private final int depthLimit = getDepthLimit();
+
+        /** The first exception thrown by a hook, guarded by this. */
+        private IOException failure;
+        /** Whether a hook threw, checked before calling each hook. */
+        private volatile boolean stopped;
+
+        synchronized void stop(IOException e) {
+            if (failure == null) {
+                failure = e;
+            } else {
+                failure.addSuppressed(e);
+            }
+            stopped = true;
+        }
+
+        /**
+         * Checks for cancellation, by this walk or by {@link #handleIsCancelled}.
+         */
+        void check(File file, int depth, Collection<T> results) throws IOException {
+            if (stopped) {
+                throw StoppedException.INSTANCE;
+            }
+            checkIfCancelled(file, depth, results);
+        }
+
+        /**
+         * Walks a directory, forking a task per subdirectory.
+         */
+        final class DirectoryTask extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+            private final File directory;
+            private final int depth;
+            /** The results of this task, in order: each element is a List of results or a subtask. */
+            private final List<Object> parts = new ArrayList<Object>(1);
+
+            DirectoryTask(File directory, int depth) {
+                this.directory = directory;
+                this.depth = depth;
+            }
+
+            @Override
+            protected void compute() {
+                List<T> results = new ArrayList<T>();
+                parts.add(results);
+                int subtasks = 0;
+                try {
+                    check(directory, depth, results);
+                    if (handleDirectory(directory, depth, results)) {
+                        handleDirectoryStart(directory, depth, results);
+                        int childDepth = depth + 1;
+                        if (depthLimit < 0 || childDepth <= depthLimit) {
+                            check(directory, depth, results);
+                            File[] childFiles = filter == null ? directory.listFiles() : directory.listFiles(filter);
+                            childFiles = filterDirectoryContents(directory, depth, childFiles);
+                            if (childFiles == null) {
+                                handleRestricted(directory, childDepth, results);
+                            } else {
+                                for (File childFile : childFiles) {
+                                    if (childFile.isDirectory()) {
+                                        parts.add(new DirectoryTask(childFile, childDepth).fork());
+                                        subtasks++;
+                                        results = new ArrayList<T>();
+                                        parts.add(results);
+                                    } else {
+                                        check(childFile, childDepth, results);
+                                        handleFile(childFile, childDepth, results);
+                                        check(childFile, childDepth, results);
+                                    }
+                                }
+                            }
+                        }
+                        joinSubtasks(subtasks);
+                        subtasks = 0;
+                        check(directory, depth, results);
+                        handleDirectoryEnd(directory, depth, results);
+                    }
+                    check(directory, depth, results);
+                } catch (StoppedException e) {
+                    // another task stopped the walk
+                } catch (IOException e) {
+                    stop(e);
+                } finally {
+                    joinSubtasks(subtasks);
+                }
+            }
+
+            /**
+             * Joins the last subtasks forked, newest first.
+             */
+            @SuppressWarnings("unchecked") // parts only holds Lists of Ts and tasks
+            private void joinSubtasks(int count) {
+                for (int i = parts.size(); count > 0; ) {
+                    Object part = parts.get(--i);
+                    if (!(part instanceof List)) {
+                        ((DirectoryTask) part).join();
+                        count--;
+                    }
+                }
+            }
+
+            /**
+             * Adds the results of this task and its subtasks to a collection.
+             */
+            @SuppressWarnings("unchecked") // parts only holds Lists of Ts and tasks
+            void mergeResults(Collection<T> collection) {
+                for (Object part : parts) {
+                    if (part instanceof List) {
+                        collection.addAll((List<T>) part);
+                    } else {
+                        ((DirectoryTask) part).mergeResults(collection);
+                    }
+                }
+            }
+        }
+    }
+}
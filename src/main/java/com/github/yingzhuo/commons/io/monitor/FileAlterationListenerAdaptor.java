@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.yingzhuo.commons.io.monitor;
+
+import java.io.File;
+
+/**
+ * {@link FileAlterationListener} Adaptor, ignoring all events.
+ */
+public class FileAlterationListenerAdaptor implements FileAlterationListener {
+
+    /**
+     * Called before the observer reports the changes found by a check.
+     *
+     * @param observer  the observer
+     */
+    public void onStart(FileAlterationObserver observer) {
+    }
+
+    /**
+     * Called for a directory created.
+     *
+     * @param directory  the directory created
+     */
+    public void onDirectoryCreate(File directory) {
+    }
+
+    /**
+     * Called for a directory whose last modification time has changed.
+     *
+     * @param directory  the directory changed
+     */
+    public void onDirectoryChange(File directory) {
+    }
+
+    /**
+     * Called for a directory deleted.
+     *
+     * @param directory  the directory deleted
+     */
+    public void onDirectoryDelete(File directory) {
+    }
+
+    /**
+     * Called for a file created.
+     *
+     * @param file  the file created
+     */
+    public void onFileCreate(File file) {
+    }
+
+    /**
+     * Called for a file whose size or last modification time has changed.
+     *
+     * @param file  the file changed
+     */
+    public void onFileChange(File file) {
+    }
+
+    /**
+     * Called for a file deleted.
+     *
+     * @param file  the file deleted
+     */
+    public void onFileDelete(File file) {
+    }
+
+    /**
+     * Called after the observer has reported the changes found by a check.
+     *
+     * @param observer  the observer
+     */
+    public void onStop(FileAlterationObserver observer) {
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.yingzhuo.commons.io.monitor;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Polls {@link FileAlterationObserver}s at a fixed interval, on a thread of
+ * its own.
+ * <p>
+ * Each poll scans the whole tree of each observer, as
+ * {@link FileAlterationObserver#checkAndNotify()}. See
+ * {@link WatchServiceNotifier} to check only where the file system reports
+ * changes instead.
+ */
+public final class FileAlterationMonitor implements Runnable {
+
+    private final long interval;
+    private final List<FileAlterationObserver> observers = new CopyOnWriteArrayList<FileAlterationObserver>();
+    private Thread thread = null;
+    private ThreadFactory threadFactory;
+    private volatile boolean running = false;
+
+    /**
+     * Constructs a monitor polling every <code>interval</code> milliseconds.
+     *
+     * @param interval  the time between polls, in milliseconds
+     * @param observers  the observers to poll
+     */
+    public FileAlterationMonitor(long interval, FileAlterationObserver... observers) {
+        this.interval = interval;
+        for (FileAlterationObserver observer : observers) {
+            addObserver(observer);
+        }
+    }
+
+    /**
+     * Returns the time between polls.
+     *
+     * @return the interval, in milliseconds
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Sets the factory of the polling thread.
+     *
+     * @param threadFactory  the factory, null means a new non-daemon thread
+     */
+    public synchronized void setThreadFactory(ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Adds an observer to poll. An observer added while the monitor is running
+     * must already be initialized.
+     *
+     * @param observer  the observer to add, ignored if null
+     */
+    public void addObserver(FileAlterationObserver observer) {
+        if (observer != null) {
+            observers.add(observer);
+        }
+    }
+
+    /**
+     * Removes an observer.
+     *
+     * @param observer  the observer to remove
+     */
+    public void removeObserver(FileAlterationObserver observer) {
+        if (observer != null) {
+            while (observers.remove(observer)) {
+            }
+        }
+    }
+
+    /**
+     * Returns the observers polled.
+     *
+     * @return the observers, which may be iterated while changing
+     */
+    public Iterable<FileAlterationObserver> getObservers() {
+        return observers;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Initializes the observers and starts polling them.
+     *
+     * @throws IllegalStateException if the monitor is already running
+     */
+    public synchronized void start() {
+        if (running) {
+            throw new IllegalStateException("Monitor is already running");
+        }
+        for (FileAlterationObserver observer : observers) {
+            observer.initialize();
+        }
+        running = true;
+        if (threadFactory != null) {
+            thread = threadFactory.newThread(this);
+        } else {
+            thread = new Thread(this);
+        }
+        thread.start();
+    }
+
+    /**
+     * Stops polling, waiting for the current poll to complete, and destroys the
+     * observers.
+     *
+     * @throws IllegalStateException if the monitor is not running
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (!running) {
+            throw new IllegalStateException("Monitor is not running");
+        }
+        running = false;
+        thread.interrupt();
+        thread.join();
+        thread = null;
+        for (FileAlterationObserver observer : observers) {
+            observer.destroy();
+        }
+    }
+
+    /**
+     * Polls the observers until stopped.
+     */
+    public void run() {
+        while (running) {
+            for (FileAlterationObserver observer : observers) {
+                observer.checkAndNotify();
+            }
+            if (!running) {
+                break;
+            }
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException ignored) {
+                // stopped
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.yingzhuo.commons.io.monitor;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.github.yingzhuo.commons.io.DirectorySnapshot;
+
+/**
+ * Observes the changes to a directory tree, notifying registered
+ * {@link FileAlterationListener}s of the files and directories created,
+ * changed and deleted.
+ * <p>
+ * The observer holds a {@link DirectorySnapshot} of the tree, taken by
+ * {@link #initialize()}. Each check scans the tree again and reports the
+ * differences from the previous snapshot, which it then replaces:
+ * {@link #checkAndNotify()} scans the whole tree, and is suited to polling, for
+ * example by a {@link FileAlterationMonitor}, while
+ * {@link #checkAndNotify(Collection)} only scans the entries of the
+ * directories given, for a {@link WatchServiceNotifier} or any other source
+ * that knows where changes occurred. The events reported are the same either
+ * way.
+ * <p>
+ * For example, to poll a directory for XML files every five seconds:
+ * <pre>
+ *      FileAlterationObserver observer = new FileAlterationObserver(directory,
+ *              FileFilterUtils.or(FileFilterUtils.directoryFileFilter(),
+ *                                 FileFilterUtils.suffixFileFilter(".xml")));
+ *      observer.addListener(new FileAlterationListenerAdaptor() {
+ *          public void onFileChange(File file) {
+ *              // reload the file
+ *          }
+ *      });
+ *      FileAlterationMonitor monitor = new FileAlterationMonitor(5000, observer);
+ *      monitor.start();
+ * </pre>
+ * Checks are serialized, so an observer may be checked from several threads.
+ *
+ * @see FileAlterationListener
+ * @see FileAlterationMonitor
+ * @see WatchServiceNotifier
+ */
+public class FileAlterationObserver {
+
+    private final List<FileAlterationListener> listeners = new CopyOnWriteArrayList<FileAlterationListener>();
+    private final File directory;
+    private final FileFilter filter;
+    private final int parallelism;
+    private volatile DirectorySnapshot snapshot;
+
+    /**
+     * Constructs an observer of a directory tree.
+     *
+     * @param directory  the directory to observe, must not be {@code null}
+     */
+    public FileAlterationObserver(File directory) {
+        this(directory, null);
+    }
+
+    /**
+     * Constructs an observer of the files of a directory tree accepted by a filter.
+     *
+     * @param directory  the directory to observe, must not be {@code null}
+     * @param filter  the filter accepting files and subdirectories, null means all
+     */
+    public FileAlterationObserver(File directory, FileFilter filter) {
+        this(directory, filter, 1);
+    }
+
+    /**
+     * Constructs an observer of the files of a directory tree accepted by a filter,
+     * scanning the whole tree on <code>parallelism</code> threads.
+     *
+     * @param directory  the directory to observe, must not be {@code null}
+     * @param filter  the filter accepting files and subdirectories, null means all
+     * @param parallelism  the number of threads to scan the whole tree with
+     * @throws IllegalArgumentException if <code>parallelism</code> is not positive
+     */
+    public FileAlterationObserver(File directory, FileFilter filter, int parallelism) {
+        if (directory == null) {
+            throw new NullPointerException("Directory must not be null");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.directory = directory;
+        this.filter = filter;
+        this.parallelism = parallelism;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Returns the directory being observed.
+     *
+     * @return the directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the filter of the files and subdirectories observed.
+     *
+     * @return the filter, null if none
+     */
+    public FileFilter getFileFilter() {
+        return filter;
+    }
+
+    /**
+     * Returns the snapshot of the tree as of the last check.
+     *
+     * @return the snapshot, null before {@link #initialize()}
+     */
+    public DirectorySnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Adds a listener to notify of changes.
+     *
+     * @param listener  the listener to add, ignored if null
+     */
+    public void addListener(FileAlterationListener listener) {
+        if (listener != null) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener  the listener to remove
+     */
+    public void removeListener(FileAlterationListener listener) {
+        if (listener != null) {
+            while (listeners.remove(listener)) {
+            }
+        }
+    }
+
+    /**
+     * Returns the listeners.
+     *
+     * @return the listeners, which may be iterated while changing
+     */
+    public Iterable<FileAlterationListener> getListeners() {
+        return listeners;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Takes the initial snapshot of the tree, from which to report changes.
+     */
+    public synchronized void initialize() {
+        snapshot = DirectorySnapshot.take(directory, filter, parallelism);
+    }
+
+    /**
+     * Releases the snapshot of the tree.
+     */
+    public synchronized void destroy() {
+        snapshot = null;
+    }
+
+    /**
+     * Scans the whole tree and notifies the listeners of the changes since the
+     * previous check.
+     *
+     * @throws IllegalStateException if the observer has not been initialized
+     */
+    public synchronized void checkAndNotify() {
+        DirectorySnapshot previous = checkInitialized();
+        notify(previous, DirectorySnapshot.take(directory, filter, parallelism));
+    }
+
+    /**
+     * Scans the entries of the given directories of the tree and notifies the
+     * listeners of the changes since the previous check, assuming nothing has
+     * changed elsewhere.
+     * <p>
+     * See {@link DirectorySnapshot#refresh(File)} for the directories scanned.
+     *
+     * @param directories  the directories whose entries may have changed
+     * @throws IllegalStateException if the observer has not been initialized
+     */
+    public synchronized void checkAndNotify(Collection<File> directories) {
+        DirectorySnapshot previous = checkInitialized();
+        DirectorySnapshot current = previous;
+        for (File dir : directories) {
+            current = current.refresh(dir);
+        }
+        notify(previous, current);
+    }
+
+    private DirectorySnapshot checkInitialized() {
+        DirectorySnapshot previous = snapshot;
+        if (previous == null) {
+            throw new IllegalStateException("Observer of '" + directory + "' is not initialized");
+        }
+        return previous;
+    }
+
+    /**
+     * Replaces the snapshot and reports the differences.
+     */
+    private void notify(DirectorySnapshot previous, DirectorySnapshot current) {
+        snapshot = current;
+        for (FileAlterationListener listener : listeners) {
+            listener.onStart(this);
+        }
+        if (current != previous) {
+            previous.diff(current, new DirectorySnapshot.ChangeListener() {
+                public void created(DirectorySnapshot.Entry entry) {
+                    for (FileAlterationListener listener : listeners) {
+                        if (entry.isDirectory()) {
+                            listener.onDirectoryCreate(entry.getFile());
+                        } else {
+                            listener.onFileCreate(entry.getFile());
+                        }
+                    }
+                }
+
+                public void changed(DirectorySnapshot.Entry previous, DirectorySnapshot.Entry current) {
+                    for (FileAlterationListener listener : listeners) {
+                        if (current.isDirectory()) {
+                            listener.onDirectoryChange(current.getFile());
+                        } else {
+                            listener.onFileChange(current.getFile());
+                        }
+                    }
+                }
+
+                public void deleted(DirectorySnapshot.Entry entry) {
+                    for (FileAlterationListener listener : listeners) {
+                        if (entry.isDirectory()) {
+                            listener.onDirectoryDelete(entry.getFile());
+                        } else {
+                            listener.onFileDelete(entry.getFile());
+                        }
+                    }
+                }
+            });
+        }
+        for (FileAlterationListener listener : listeners) {
+            listener.onStop(this);
+        }
+    }
+
+    /**
+     * Returns a description of the observer.
+     *
+     * @return a string description
+     */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[directory='" + directory + "', filter=" + filter
+                + ", listeners=" + listeners.size() + "]";
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.yingzhuo.commons.io.monitor;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.github.yingzhuo.commons.io.DirectorySnapshot;
+
+/**
+ * Checks a {@link FileAlterationObserver} when its file system reports changes
+ * to its tree, through a {@link WatchService}, instead of polling it.
+ * <p>
+ * Every directory of the observed tree is registered with the watch service.
+ * When changes are reported, the notifier checks the observer with
+ * {@link FileAlterationObserver#checkAndNotify(java.util.Collection)}, which
+ * only scans the entries of the directories where changes occurred, so that
+ * the cost of a check is that of the directories changed rather than of the
+ * whole tree. The events reported to the listeners of the observer are
+ * the same as for polling. Should the watch service lose events, the whole
+ * tree is scanned, as by {@link FileAlterationObserver#checkAndNotify()}.
+ * Directories created are registered as they are reported, then scanned again
+ * for entries created before they could be registered; so are directories
+ * deleted and created again under the same name, whose registration the
+ * deletion cancelled.
+ * <p>
+ * The notifier runs until closed, on a thread supplied by the caller:
+ * <pre>
+ *      FileAlterationObserver observer = new FileAlterationObserver(directory);
+ *      observer.addListener(listener);
+ *      WatchServiceNotifier notifier = new WatchServiceNotifier(observer);
+ *      Thread thread = new Thread(notifier);
+ *      thread.setDaemon(true); // optional
+ *      thread.start();
+ *      ...
+ *      notifier.close();
+ * </pre>
+ * How soon changes are reported depends on the watch service of the file
+ * system; some implementations poll, and report changes seconds after they
+ * occur.
+ *
+ * @see FileAlterationMonitor
+ */
+public class WatchServiceNotifier implements Runnable, Closeable {
+
+    private static final Logger logger = Logger.getLogger(WatchServiceNotifier.class.getName());
+
+    private final FileAlterationObserver observer;
+    private final WatchService watchService;
+    /** The directories registered, guarded by this. */
+    private final Map<WatchKey, File> directories = new HashMap<WatchKey, File>();
+    /** The directories registered since they were scanned, guarded by this. */
+    private final Set<File> created = new LinkedHashSet<File>();
+    /** The directories whose registration was cancelled while they did not exist, guarded by this. */
+    private final Set<File> unwatched = new HashSet<File>();
+
+    /**
+     * Registers the directories created, to scan them once registered.
+     */
+    private final FileAlterationListener registrar = new FileAlterationListenerAdaptor() {
+        @Override
+        public void onDirectoryCreate(File directory) {
+            watch(directory);
+        }
+
+        @Override
+        public void onDirectoryChange(File directory) {
+            // replaced after its registration was cancelled, which the parent reports as a change
+            boolean replaced;
+            synchronized (WatchServiceNotifier.this) {
+                replaced = unwatched.contains(directory);
+            }
+            if (replaced) {
+                watch(directory);
+            }
+        }
+
+        @Override
+        public void onDirectoryDelete(File directory) {
+            synchronized (WatchServiceNotifier.this) {
+                unwatched.remove(directory);
+            }
+        }
+    };
+
+    /**
+     * Constructs a notifier checking an observer, initializing the observer if needed.
+     *
+     * @param observer  the observer to check
+     * @throws IOException if the directory of the observer cannot be watched
+     */
+    public WatchServiceNotifier(FileAlterationObserver observer) throws IOException {
+        this.observer = observer;
+        File root = observer.getDirectory();
+        this.watchService = root.toPath().getFileSystem().newWatchService();
+        try {
+            directories.put(root.toPath().register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), root);
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+        DirectorySnapshot snapshot = observer.getSnapshot();
+        if (snapshot == null) {
+            observer.initialize();
+            snapshot = observer.getSnapshot();
+        }
+        for (DirectorySnapshot.Entry entry : snapshot) {
+            if (entry.isDirectory()) {
+                register(entry.getFile());
+            }
+        }
+        observer.addListener(registrar);
+    }
+
+    /**
+     * Returns the observer checked.
+     *
+     * @return the observer
+     */
+    public FileAlterationObserver getObserver() {
+        return observer;
+    }
+
+    /**
+     * Checks the observer as changes are reported, until closed or interrupted.
+     * <p>
+     * The observer is checked once at first, for the changes made before its
+     * directories were registered.
+     */
+    public void run() {
+        try {
+            observer.checkAndNotify();
+            scanCreated();
+            while (true) {
+                WatchKey key = watchService.take();
+                Set<File> changed = new LinkedHashSet<File>();
+                boolean overflow = false;
+                do {
+                    overflow |= collect(key, changed);
+                    key = watchService.poll();
+                } while (key != null);
+                if (overflow) {
+                    observer.checkAndNotify();
+                } else {
+                    observer.checkAndNotify(changed);
+                }
+                scanCreated();
+            }
+        } catch (ClosedWatchServiceException e) {
+            // closed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops watching, and notifying the observer.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    public void close() throws IOException {
+        observer.removeListener(registrar);
+        watchService.close();
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Adds the directory of a signalled key to <code>changed</code>, and resets the key.
+     * A key cancelled because its directory was deleted is replaced if the directory
+     * exists again.
+     *
+     * @return true if events were lost
+     */
+    private boolean collect(WatchKey key, Set<File> changed) {
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                overflow = true;
+            }
+        }
+        File directory;
+        boolean cancelled;
+        synchronized (this) {
+            directory = directories.get(key);
+            cancelled = !key.reset();
+            if (cancelled) {
+                // deleted, or no longer accessible
+                directories.remove(key);
+            }
+        }
+        if (directory != null) {
+            changed.add(directory);
+            if (cancelled && !watch(directory)) {
+                // watched again if its parent reports it created or changed
+                synchronized (this) {
+                    unwatched.add(directory);
+                }
+            }
+        }
+        return overflow;
+    }
+
+    /**
+     * Registers a directory, and queues it to be scanned for the entries created
+     * before it was registered.
+     *
+     * @return true if registered
+     */
+    private boolean watch(File directory) {
+        if (!register(directory)) {
+            return false;
+        }
+        synchronized (this) {
+            unwatched.remove(directory);
+            created.add(directory);
+        }
+        return true;
+    }
+
+    /**
+     * Scans the directories registered since they were last scanned, until
+     * no more are registered.
+     */
+    private void scanCreated() {
+        while (true) {
+            List<File> scan;
+            synchronized (this) {
+                if (created.isEmpty()) {
+                    return;
+                }
+                scan = new ArrayList<File>(created);
+                created.clear();
+            }
+            observer.checkAndNotify(scan);
+        }
+    }
+
+    /**
+     * Registers a directory with the watch service.
+     *
+     * @return true if registered
+     */
+    private boolean register(File directory) {
+        try {
+            WatchKey key = directory.toPath().register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            synchronized (this) {
+                directories.put(key, directory);
+            }
+            return true;
+        } catch (IOException e) {
+            // deleted since, or not accessible: its changes are only found by its parent
+            logger.log(Level.FINE, "Cannot watch directory '" + directory + "'", e);
+            return false;
+        } catch (ClosedWatchServiceException e) {
+            return false;
+        }
+    }
+}
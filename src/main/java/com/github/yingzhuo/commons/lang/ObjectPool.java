@@ -0,0 +1,493 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.lang;
+
+import static guava.base.Preconditions.checkArgument;
+import static guava.base.Preconditions.checkNotNull;
+import static guava.base.Preconditions.checkState;
+
+import com.github.yingzhuo.commons.collections.MapMaker;
+import com.github.yingzhuo.commons.functor.Predicate;
+import com.github.yingzhuo.commons.functor.Supplier;
+
+import guava.annotations.Beta;
+import guava.annotations.GwtIncompatible;
+import guava.base.Objects;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.Nullable;
+
+/**
+ * A thread-safe pool of reusable objects, such as buffers, builders and
+ * calendars, that are expensive enough to allocate on every call of a hot
+ * path but cheap to reset.
+ *
+ * <p>{@link #borrow} takes an idle object from a small cache of the calling
+ * thread, then from a lock-free stack shared by all threads, and creates one
+ * with the pool's factory only if both are empty. {@link #release} passes the
+ * object to the pool's recycler, which resets it and may reject it, then
+ * returns it to the thread's cache, or to the shared stack if the cache is
+ * full. Both caches are bounded; objects that do not fit are left to the
+ * garbage collector. Usage is counted in {@link #stats}.
+ *
+ * <pre>   {@code
+ *
+ *   ObjectPool<StringBuilder> builders = ObjectPool.builder(
+ *       new Supplier<StringBuilder>() {
+ *         public StringBuilder get() {
+ *           return new StringBuilder(256);
+ *         }
+ *       })
+ *       .recycler(new Predicate<StringBuilder>() {
+ *         public boolean apply(StringBuilder builder) {
+ *           builder.setLength(0);
+ *           return builder.capacity() <= 8192;
+ *         }
+ *       })
+ *       .build();
+ *
+ *   StringBuilder builder = builders.borrow();
+ *   try {
+ *     ...
+ *   } finally {
+ *     builders.release(builder);
+ *   }}</pre>
+ *
+ * <p>A pool with leak detection records where each object was borrowed, and
+ * logs a warning with that stack trace when an object is garbage-collected
+ * without having been released; it also rejects releasing an object that is
+ * not borrowed from it. This costs an allocation per borrow, so it is meant
+ * for debugging: it is off unless requested by {@link Builder#leakDetection},
+ * or for every pool by setting the system property
+ * {@value #LEAK_DETECTION_PROPERTY} to {@code true}.
+ */
+@Beta
+@GwtIncompatible("java.lang.ref.WeakReference")
+public final class ObjectPool<T> {
+  /**
+   * The system property that turns on leak detection for pools whose
+   * builders do not specify it.
+   */
+  public static final String LEAK_DETECTION_PROPERTY =
+      "com.github.yingzhuo.commons.lang.ObjectPool.leakDetection";
+
+  private static final Logger logger = Logger.getLogger(ObjectPool.class.getName());
+
+  private static final int DEFAULT_THREAD_LOCAL_CAPACITY = 4;
+  private static final int DEFAULT_MAXIMUM_SIZE = 64;
+
+  /**
+   * Returns a builder of pools whose objects are created by {@code factory},
+   * which must not return null.
+   */
+  public static <T> Builder<T> builder(Supplier<? extends T> factory) {
+    return new Builder<T>(factory);
+  }
+
+  /**
+   * A builder of {@link ObjectPool} instances.
+   */
+  @Beta
+  public static final class Builder<T> {
+    private final Supplier<? extends T> factory;
+    @Nullable private Predicate<? super T> recycler;
+    private int threadLocalCapacity = DEFAULT_THREAD_LOCAL_CAPACITY;
+    private int maximumSize = DEFAULT_MAXIMUM_SIZE;
+    private boolean leakDetection = Boolean.getBoolean(LEAK_DETECTION_PROPERTY);
+
+    Builder(Supplier<? extends T> factory) {
+      this.factory = checkNotNull(factory);
+    }
+
+    /**
+     * Sets the predicate applied to each released object, which should reset
+     * it for reuse and return {@code false} if it should be discarded
+     * instead, for example because it grew too large. By default, objects are
+     * reused as they are released.
+     */
+    public Builder<T> recycler(Predicate<? super T> recycler) {
+      this.recycler = checkNotNull(recycler);
+      return this;
+    }
+
+    /**
+     * Sets the number of idle objects each thread keeps for itself; zero
+     * disables the thread caches. The default is 4.
+     *
+     * <p>Objects cached by a thread stay reachable until that thread dies, even
+     * once the pool itself is unreachable, so pools created in large numbers
+     * or with heavy objects should disable the thread caches.
+     */
+    public Builder<T> threadLocalCapacity(int threadLocalCapacity) {
+      checkArgument(threadLocalCapacity >= 0,
+          "threadLocalCapacity (%s) must not be negative", threadLocalCapacity);
+      this.threadLocalCapacity = threadLocalCapacity;
+      return this;
+    }
+
+    /**
+     * Sets the number of idle objects the stack shared by all threads holds.
+     * The default is 64.
+     */
+    public Builder<T> maximumSize(int maximumSize) {
+      checkArgument(maximumSize >= 0, "maximumSize (%s) must not be negative", maximumSize);
+      this.maximumSize = maximumSize;
+      return this;
+    }
+
+    /**
+     * Sets whether the pool tracks borrowed objects to report those that are
+     * never released. The default is the value of the system property
+     * {@value ObjectPool#LEAK_DETECTION_PROPERTY}.
+     */
+    public Builder<T> leakDetection(boolean leakDetection) {
+      this.leakDetection = leakDetection;
+      return this;
+    }
+
+    /** Returns a new, empty pool with the settings of this builder. */
+    public ObjectPool<T> build() {
+      return new ObjectPool<T>(this);
+    }
+  }
+
+  private final Supplier<? extends T> factory;
+  @Nullable private final Predicate<? super T> recycler;
+  private final int maximumSize;
+  @Nullable private final ThreadLocal<LocalCache<T>> localCaches;
+  @Nullable private final LeakDetector leakDetector;
+
+  /** The top of the shared Treiber stack. */
+  private final AtomicReference<Node<T>> top = new AtomicReference<Node<T>>();
+  private final AtomicInteger sharedSize = new AtomicInteger();
+
+  private final LongAdder borrowCount = new LongAdder();
+  private final LongAdder createCount = new LongAdder();
+  private final LongAdder releaseCount = new LongAdder();
+  private final LongAdder discardCount = new LongAdder();
+  private final LongAdder leakCount = new LongAdder();
+
+  private ObjectPool(Builder<T> builder) {
+    this.factory = builder.factory;
+    this.recycler = builder.recycler;
+    this.maximumSize = builder.maximumSize;
+    this.localCaches = (builder.threadLocalCapacity == 0)
+        ? null
+        : ObjectPool.<T>newLocalCaches(builder.threadLocalCapacity);
+    this.leakDetector = builder.leakDetection ? new LeakDetector() : null;
+  }
+
+  /**
+   * Returns an idle object of this pool, or a new one if there is none. The
+   * caller should pass it to {@link #release} when done with it, typically in
+   * a {@code finally} block.
+   */
+  public T borrow() {
+    borrowCount.increment();
+    T object = null;
+    if (localCaches != null) {
+      object = localCaches.get().pop();
+    }
+    if (object == null) {
+      object = popShared();
+    }
+    if (object == null) {
+      createCount.increment();
+      object = checkNotNull(factory.get(), "%s returned null", factory);
+    }
+    if (leakDetector != null) {
+      leakDetector.borrowed(object);
+    }
+    return object;
+  }
+
+  /**
+   * Returns {@code object}, borrowed from this pool, for reuse. The caller
+   * must not use it afterwards.
+   *
+   * @throws IllegalStateException if this pool detects leaks and
+   *     {@code object} is not currently borrowed from it
+   */
+  public void release(T object) {
+    checkNotNull(object);
+    if (leakDetector != null) {
+      leakDetector.released(object);
+    }
+    releaseCount.increment();
+    if (recycler != null && !recycler.apply(object)) {
+      discardCount.increment();
+      return;
+    }
+    if (localCaches != null && localCaches.get().push(object)) {
+      return;
+    }
+    if (!pushShared(object)) {
+      discardCount.increment();
+    }
+  }
+
+  private boolean pushShared(T object) {
+    if (sharedSize.incrementAndGet() > maximumSize) {
+      sharedSize.decrementAndGet();
+      return false;
+    }
+    Node<T> node = new Node<T>(object);
+    do {
+      node.next = top.get();
+    } while (!top.compareAndSet(node.next, node));
+    return true;
+  }
+
+  @Nullable private T popShared() {
+    Node<T> node;
+    do {
+      node = top.get();
+      if (node == null) {
+        return null;
+      }
+    } while (!top.compareAndSet(node, node.next));
+    sharedSize.decrementAndGet();
+    return node.object;
+  }
+
+  private static final class Node<T> {
+    final T object;
+    Node<T> next;
+
+    Node(T object) {
+      this.object = object;
+    }
+  }
+
+  /*
+   * The thread caches must not refer to the pool: a ThreadLocalMap entry keeps
+   * its value reachable from the thread, and a value reaching the pool would
+   * keep the pool, its factory and their class loader alive with it.
+   */
+  private static <T> ThreadLocal<LocalCache<T>> newLocalCaches(final int capacity) {
+    return new ThreadLocal<LocalCache<T>>() {
+      @Override protected LocalCache<T> initialValue() {
+        return new LocalCache<T>(capacity);
+      }
+    };
+  }
+
+  /** The idle objects of one thread, used as a stack. */
+  private static final class LocalCache<T> {
+    private final Object[] objects;
+    private int size;
+
+    LocalCache(int capacity) {
+      this.objects = new Object[capacity];
+    }
+
+    @SuppressWarnings("unchecked") // only Ts are pushed
+    @Nullable T pop() {
+      if (size == 0) {
+        return null;
+      }
+      T object = (T) objects[--size];
+      objects[size] = null;
+      return object;
+    }
+
+    boolean push(T object) {
+      if (size == objects.length) {
+        return false;
+      }
+      objects[size++] = object;
+      return true;
+    }
+  }
+
+  /**
+   * Tracks borrowed objects by identity, without keeping them reachable, to
+   * report those collected before being released.
+   */
+  private final class LeakDetector {
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+    private final ConcurrentMap<Object, BorrowRecord> records =
+        new MapMaker().weakKeys().makeMap();
+    // keeps the records themselves reachable until they are enqueued
+    private final Set<BorrowRecord> liveRecords =
+        ConcurrentHashMap.<BorrowRecord>newKeySet();
+
+    void borrowed(Object object) {
+      reportLeaks();
+      BorrowRecord record = new BorrowRecord(object, queue);
+      liveRecords.add(record);
+      records.put(object, record);
+    }
+
+    void released(Object object) {
+      BorrowRecord record = records.remove(object);
+      checkState(record != null, "%s@%s is not borrowed from %s",
+          object.getClass().getName(), Integer.toHexString(System.identityHashCode(object)),
+          ObjectPool.this);
+      liveRecords.remove(record);
+      record.clear();
+      reportLeaks();
+    }
+
+    private void reportLeaks() {
+      for (Reference<?> reference; (reference = queue.poll()) != null; ) {
+        if (liveRecords.remove(reference)) {
+          leakCount.increment();
+          logger.log(Level.WARNING, "An object borrowed from " + ObjectPool.this
+              + " was garbage-collected without being released",
+              ((BorrowRecord) reference).borrowSite);
+        }
+      }
+    }
+  }
+
+  private static final class BorrowRecord extends WeakReference<Object> {
+    final Throwable borrowSite = new Throwable("borrowed here");
+
+    BorrowRecord(Object object, ReferenceQueue<Object> queue) {
+      super(object, queue);
+    }
+  }
+
+  /**
+   * Returns a snapshot of this pool's usage statistics. The counts are not
+   * read atomically together, so concurrent use may make the snapshot
+   * slightly inconsistent.
+   */
+  public Stats stats() {
+    return new Stats(borrowCount.sum(), createCount.sum(), releaseCount.sum(),
+        discardCount.sum(), leakCount.sum(), Math.max(0, sharedSize.get()));
+  }
+
+  @Override public String toString() {
+    return Objects.toStringHelper(this)
+        .add("factory", factory)
+        .add("maximumSize", maximumSize)
+        .add("leakDetection", leakDetector != null)
+        .toString();
+  }
+
+  /**
+   * Usage statistics of an {@link ObjectPool}.
+   */
+  @Beta
+  public static final class Stats {
+    private final long borrowCount;
+    private final long createCount;
+    private final long releaseCount;
+    private final long discardCount;
+    private final long leakCount;
+    private final int sharedIdleCount;
+
+    Stats(long borrowCount, long createCount, long releaseCount,
+        long discardCount, long leakCount, int sharedIdleCount) {
+      this.borrowCount = borrowCount;
+      this.createCount = createCount;
+      this.releaseCount = releaseCount;
+      this.discardCount = discardCount;
+      this.leakCount = leakCount;
+      this.sharedIdleCount = sharedIdleCount;
+    }
+
+    /** Returns the number of calls to {@link ObjectPool#borrow}. */
+    public long borrowCount() {
+      return borrowCount;
+    }
+
+    /** Returns the number of objects the factory created. */
+    public long createCount() {
+      return createCount;
+    }
+
+    /**
+     * Returns the ratio of borrows served by an idle object to all borrows,
+     * or {@code 1.0} if there were none.
+     */
+    public double reuseRate() {
+      return (borrowCount == 0) ? 1.0 : (double) (borrowCount - createCount) / borrowCount;
+    }
+
+    /** Returns the number of calls to {@link ObjectPool#release}. */
+    public long releaseCount() {
+      return releaseCount;
+    }
+
+    /**
+     * Returns the number of released objects the pool did not keep, because
+     * the recycler rejected them or the caches were full.
+     */
+    public long discardCount() {
+      return discardCount;
+    }
+
+    /**
+     * Returns the number of borrowed objects found garbage-collected without
+     * having been released; always zero without leak detection.
+     */
+    public long leakCount() {
+      return leakCount;
+    }
+
+    /**
+     * Returns the number of idle objects in the shared stack, not counting
+     * those cached by threads.
+     */
+    public int sharedIdleCount() {
+      return sharedIdleCount;
+    }
+
+    @Override public boolean equals(@Nullable Object object) {
+      if (object instanceof Stats) {
+        Stats that = (Stats) object;
+        return borrowCount == that.borrowCount
+            && createCount == that.createCount
+            && releaseCount == that.releaseCount
+            && discardCount == that.discardCount
+            && leakCount == that.leakCount
+            && sharedIdleCount == that.sharedIdleCount;
+      }
+      return false;
+    }
+
+    @Override public int hashCode() {
+      return Objects.hashCode(borrowCount, createCount, releaseCount,
+          discardCount, leakCount, sharedIdleCount);
+    }
+
+    @Override public String toString() {
+      return Objects.toStringHelper(this)
+          .add("borrowCount", borrowCount)
+          .add("createCount", createCount)
+          .add("releaseCount", releaseCount)
+          .add("discardCount", discardCount)
+          .add("leakCount", leakCount)
+          .add("sharedIdleCount", sharedIdleCount)
+          .toString();
+    }
+  }
+}
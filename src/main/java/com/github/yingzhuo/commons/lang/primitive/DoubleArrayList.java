@@ -0,0 +1,456 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.lang.primitive;
+
+import static guava.base.Preconditions.checkArgument;
+import static guava.base.Preconditions.checkElementIndex;
+import static guava.base.Preconditions.checkNotNull;
+import static guava.base.Preconditions.checkPositionIndex;
+import static guava.base.Preconditions.checkPositionIndexes;
+
+import guava.annotations.Beta;
+import guava.annotations.GwtCompatible;
+import guava.annotations.GwtIncompatible;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import javax.annotation.Nullable;
+
+/**
+ * A growable list of {@code double} values, backed by a {@code double[]} in
+ * the manner of {@link java.util.ArrayList}, but storing its values unboxed.
+ *
+ * <p>Unlike {@link Doubles#asList}, which wraps a fixed array, this list grows as
+ * values are added, which makes it a good accumulator for values that would
+ * otherwise collect in an {@code ArrayList<Double>}. None of its own
+ * methods box. Where a {@code List<Double>} is required, {@link #asList}
+ * provides a modifiable view, and {@link #copyOf(Iterable)} converts from
+ * boxed collections in bulk.
+ *
+ * <p>As in {@link Doubles#indexOf}, the search methods compare values with
+ * {@code ==}, so they never find {@code NaN}. {@link #equals} and
+ * {@link #hashCode} follow {@link Double#equals} instead, as a
+ * {@code List<Double>} would.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @see IntArrayList
+ * @see LongArrayList
+ */
+@Beta
+@GwtCompatible
+public final class DoubleArrayList implements Serializable {
+  private static final int DEFAULT_CAPACITY = 10;
+
+  /** Creates a new, empty list. */
+  public static DoubleArrayList create() {
+    return new DoubleArrayList(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates a new, empty list with enough capacity to hold
+   * {@code expectedSize} values without growing.
+   *
+   * @throws IllegalArgumentException if {@code expectedSize} is negative
+   */
+  public static DoubleArrayList withExpectedSize(int expectedSize) {
+    checkArgument(expectedSize >= 0, "Invalid expectedSize: %s", expectedSize);
+    return new DoubleArrayList(expectedSize);
+  }
+
+  /** Creates a new list containing the given values, in order. */
+  public static DoubleArrayList of(double... values) {
+    DoubleArrayList list = new DoubleArrayList(values.length);
+    list.addAll(values);
+    return list;
+  }
+
+  /**
+   * Creates a new list containing each value of {@code values}, converted in
+   * the manner of {@link Number#doubleValue}. Collections are copied in one
+   * pass, as by {@link Doubles#toArray}.
+   *
+   * @throws NullPointerException if {@code values} or any of its elements is
+   *     null
+   */
+  public static DoubleArrayList copyOf(Iterable<? extends Number> values) {
+    DoubleArrayList list = new DoubleArrayList(0);
+    list.addAll(values);
+    return list;
+  }
+
+  private transient double[] array;
+  private int size;
+  @Nullable private transient AsList asList;
+
+  private DoubleArrayList(int initialCapacity) {
+    this.array = new double[initialCapacity];
+  }
+
+  /** Returns the number of values in this list. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns {@code true} if this list contains no values. */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the value at {@code index}.
+   *
+   * @throws IndexOutOfBoundsException if {@code index} is negative or not less
+   *     than {@link #size}
+   */
+  public double get(int index) {
+    checkElementIndex(index, size);
+    return array[index];
+  }
+
+  /**
+   * Replaces the value at {@code index}, returning the previous one.
+   *
+   * @throws IndexOutOfBoundsException if {@code index} is negative or not less
+   *     than {@link #size}
+   */
+  public double set(int index, double value) {
+    checkElementIndex(index, size);
+    double oldValue = array[index];
+    array[index] = value;
+    return oldValue;
+  }
+
+  /** Appends {@code value} to the end of this list. */
+  public void add(double value) {
+    ensureCapacity(size + 1);
+    array[size++] = value;
+    modified();
+  }
+
+  /**
+   * Inserts {@code value} at {@code index}, shifting later values to the
+   * right.
+   *
+   * @throws IndexOutOfBoundsException if {@code index} is negative or greater
+   *     than {@link #size}
+   */
+  public void add(int index, double value) {
+    checkPositionIndex(index, size);
+    ensureCapacity(size + 1);
+    System.arraycopy(array, index, array, index + 1, size - index);
+    array[index] = value;
+    size++;
+    modified();
+  }
+
+  /** Appends all of {@code values} to the end of this list, in order. */
+  public void addAll(double... values) {
+    addAll(values, 0, values.length);
+  }
+
+  /** Appends all the values of {@code values} to the end of this list. */
+  public void addAll(DoubleArrayList values) {
+    addAll(values.array, 0, values.size);
+  }
+
+  /**
+   * Appends each value of {@code values}, converted in the manner of
+   * {@link Number#doubleValue}, to the end of this list.
+   *
+   * @throws NullPointerException if {@code values} or any of its elements is
+   *     null
+   */
+  public void addAll(Iterable<? extends Number> values) {
+    if (values instanceof AsList) {
+      addAll(((AsList) values).owner());
+    } else if (values instanceof Collection) {
+      double[] newValues = Doubles.toArray((Collection<? extends Number>) values);
+      addAll(newValues, 0, newValues.length);
+    } else {
+      for (Number value : values) {
+        add(value.doubleValue());
+      }
+    }
+  }
+
+  private void addAll(double[] values, int offset, int length) {
+    ensureCapacity(size + length);
+    System.arraycopy(values, offset, array, size, length);
+    size += length;
+    modified();
+  }
+
+  /**
+   * Removes the value at {@code index}, shifting later values to the left.
+   *
+   * @return the removed value
+   * @throws IndexOutOfBoundsException if {@code index} is negative or not less
+   *     than {@link #size}
+   */
+  public double removeAt(int index) {
+    double oldValue = get(index);
+    removeRange(index, index + 1);
+    return oldValue;
+  }
+
+  /**
+   * Removes the values from {@code fromIndex}, inclusive, to {@code toIndex},
+   * exclusive, shifting later values to the left.
+   *
+   * @throws IndexOutOfBoundsException if {@code fromIndex} or {@code toIndex}
+   *     is negative or greater than {@link #size}, or if {@code toIndex} is
+   *     less than {@code fromIndex}
+   */
+  public void removeRange(int fromIndex, int toIndex) {
+    checkPositionIndexes(fromIndex, toIndex, size);
+    System.arraycopy(array, toIndex, array, fromIndex, size - toIndex);
+    size -= toIndex - fromIndex;
+    modified();
+  }
+
+  /** Removes all values from this list. Its capacity is retained. */
+  public void clear() {
+    size = 0;
+    modified();
+  }
+
+  /** Returns {@code true} if this list contains {@code target}. */
+  public boolean contains(double target) {
+    return indexOf(target) >= 0;
+  }
+
+  /**
+   * Returns the index of the first occurrence of {@code target} in this list,
+   * or -1 if there is none.
+   */
+  public int indexOf(double target) {
+    for (int i = 0; i < size; i++) {
+      if (array[i] == target) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the index of the last occurrence of {@code target} in this list,
+   * or -1 if there is none.
+   */
+  public int lastIndexOf(double target) {
+    for (int i = size - 1; i >= 0; i--) {
+      if (array[i] == target) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Sorts the values of this list into ascending order. */
+  public void sort() {
+    Arrays.sort(array, 0, size);
+  }
+
+  /**
+   * Searches this list, which must be sorted, for {@code key}, as by
+   * {@link Arrays#binarySearch(double[], int, int, double)}.
+   *
+   * @return the index of {@code key} if it is found; otherwise
+   *     {@code (-(insertion point) - 1)}
+   */
+  public int binarySearch(double key) {
+    return Arrays.binarySearch(array, 0, size, key);
+  }
+
+  /**
+   * Grows the backing array, if needed, so that it can hold at least
+   * {@code minCapacity} values without growing again.
+   */
+  public void ensureCapacity(int minCapacity) {
+    if (minCapacity > array.length) {
+      // grow by half, as ArrayList does
+      array = Doubles.ensureCapacity(array, minCapacity, Math.max(array.length >> 1, 1));
+    }
+  }
+
+  /** Shrinks the backing array to the size of this list. */
+  public void trimToSize() {
+    if (size < array.length) {
+      array = toArray();
+    }
+  }
+
+  /** Returns a new array containing the values of this list, in order. */
+  public double[] toArray() {
+    double[] result = new double[size];
+    System.arraycopy(array, 0, result, 0, size);
+    return result;
+  }
+
+  /**
+   * Returns a {@code List<Double>} view of this list. The view supports every
+   * list operation except adding or setting null, writes through to this
+   * list, and is fail-fast with respect to changes made through either.
+   */
+  public List<Double> asList() {
+    AsList result = asList;
+    return (result == null) ? asList = new AsList() : result;
+  }
+
+  private void modified() {
+    if (asList != null) {
+      asList.modified();
+    }
+  }
+
+  /**
+   * Returns {@code true} if {@code object} is a {@code DoubleArrayList} with the
+   * same values in the same order, compared as by {@link Double#equals}.
+   */
+  @Override public boolean equals(@Nullable Object object) {
+    if (object == this) {
+      return true;
+    }
+    if (object instanceof DoubleArrayList) {
+      DoubleArrayList that = (DoubleArrayList) object;
+      if (size != that.size) {
+        return false;
+      }
+      for (int i = 0; i < size; i++) {
+        if (Double.doubleToLongBits(array[i]) != Double.doubleToLongBits(that.array[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /** Returns the same hash code as {@link #asList}{@code .hashCode()}. */
+  @Override public int hashCode() {
+    int result = 1;
+    for (int i = 0; i < size; i++) {
+      result = 31 * result + Doubles.hashCode(array[i]);
+    }
+    return result;
+  }
+
+  @Override public String toString() {
+    StringBuilder builder = new StringBuilder(size * 5 + 2).append('[');
+    for (int i = 0; i < size; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      builder.append(array[i]);
+    }
+    return builder.append(']').toString();
+  }
+
+  private final class AsList extends AbstractList<Double> implements RandomAccess {
+    DoubleArrayList owner() {
+      return DoubleArrayList.this;
+    }
+
+    void modified() {
+      modCount++;
+    }
+
+    @Override public int size() {
+      return size;
+    }
+
+    @Override public Double get(int index) {
+      return DoubleArrayList.this.get(index);
+    }
+
+    @Override public Double set(int index, Double element) {
+      return DoubleArrayList.this.set(index, checkNotNull(element));
+    }
+
+    @Override public void add(int index, Double element) {
+      DoubleArrayList.this.add(index, checkNotNull(element));
+    }
+
+    @Override public boolean addAll(Collection<? extends Double> c) {
+      int oldSize = size;
+      DoubleArrayList.this.addAll(c);
+      return size != oldSize;
+    }
+
+    @Override public Double remove(int index) {
+      return removeAt(index);
+    }
+
+    @Override protected void removeRange(int fromIndex, int toIndex) {
+      DoubleArrayList.this.removeRange(fromIndex, toIndex);
+    }
+
+    @Override public void clear() {
+      DoubleArrayList.this.clear();
+    }
+
+    @Override public boolean contains(Object target) {
+      // Overridden to prevent a ton of boxing
+      return (target instanceof Double) && DoubleArrayList.this.contains((Double) target);
+    }
+
+    @Override public int indexOf(Object target) {
+      // Overridden to prevent a ton of boxing
+      return (target instanceof Double) ? DoubleArrayList.this.indexOf((Double) target) : -1;
+    }
+
+    @Override public int lastIndexOf(Object target) {
+      // Overridden to prevent a ton of boxing
+      return (target instanceof Double) ? DoubleArrayList.this.lastIndexOf((Double) target) : -1;
+    }
+
+    @Override public int hashCode() {
+      return DoubleArrayList.this.hashCode();
+    }
+
+    @Override public String toString() {
+      return DoubleArrayList.this.toString();
+    }
+  }
+
+  @GwtIncompatible("java.io.ObjectOutputStream")
+  private void writeObject(ObjectOutputStream stream) throws IOException {
+    stream.defaultWriteObject();
+    for (int i = 0; i < size; i++) {
+      stream.writeDouble(array[i]);
+    }
+  }
+
+  @GwtIncompatible("java.io.ObjectInputStream")
+  private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+    stream.defaultReadObject();
+    array = new double[size];
+    for (int i = 0; i < size; i++) {
+      array[i] = stream.readDouble();
+    }
+  }
+
+  private static final long serialVersionUID = 0;
+}
@@ -0,0 +1,450 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.lang.primitive;
+
+import static guava.base.Preconditions.checkArgument;
+import static guava.base.Preconditions.checkElementIndex;
+import static guava.base.Preconditions.checkPositionIndexes;
+import static guava.base.Preconditions.checkState;
+
+import guava.annotations.Beta;
+import guava.annotations.GwtCompatible;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import javax.annotation.Nullable;
+
+/**
+ * An immutable array of {@code int} values, which can be shared freely
+ * between threads.
+ *
+ * <p>Compared to an {@code ImmutableList<Integer>}, this class stores its
+ * values unboxed, in a single {@code int[]}. Compared to
+ * {@link Ints#asList}, it never exposes that array to writes. Slicing with
+ * {@link #subArray} takes constant time, as the slice shares the backing
+ * array of the original; {@link #trimmed} makes a compact copy when the
+ * original is no longer needed.
+ *
+ * <p>Two instances are {@linkplain #equals equal} when they contain the same
+ * values in the same order, whatever their backing arrays.
+ *
+ * @see ImmutableLongArray
+ */
+@Beta
+@GwtCompatible
+public final class ImmutableIntArray implements Serializable {
+  private static final ImmutableIntArray EMPTY = new ImmutableIntArray(new int[0]);
+
+  /** Returns the empty array. */
+  public static ImmutableIntArray of() {
+    return EMPTY;
+  }
+
+  /** Returns an immutable array containing the given values, in order. */
+  public static ImmutableIntArray of(int... values) {
+    return copyOf(values);
+  }
+
+  /** Returns an immutable array containing the given values, in order. */
+  public static ImmutableIntArray copyOf(int[] values) {
+    return (values.length == 0) ? EMPTY : new ImmutableIntArray(values.clone());
+  }
+
+  /**
+   * Returns an immutable array containing the given values, in order.
+   *
+   * @throws NullPointerException if {@code values} or any of its elements is
+   *     null
+   */
+  public static ImmutableIntArray copyOf(Collection<Integer> values) {
+    return values.isEmpty() ? EMPTY : new ImmutableIntArray(Ints.toArray(values));
+  }
+
+  /**
+   * Returns an immutable array containing the given values, in order.
+   *
+   * @throws NullPointerException if {@code values} or any of its elements is
+   *     null
+   */
+  public static ImmutableIntArray copyOf(Iterable<Integer> values) {
+    if (values instanceof Collection) {
+      return copyOf((Collection<Integer>) values);
+    }
+    return builder().addAll(values).build();
+  }
+
+  /** Returns a new, empty builder. */
+  public static Builder builder() {
+    return new Builder(10);
+  }
+
+  /**
+   * Returns a new, empty builder with room for {@code initialCapacity} values
+   * before it needs to grow.
+   *
+   * @throws IllegalArgumentException if {@code initialCapacity} is negative
+   */
+  public static Builder builder(int initialCapacity) {
+    checkArgument(initialCapacity >= 0, "Invalid initialCapacity: %s", initialCapacity);
+    return new Builder(initialCapacity);
+  }
+
+  /**
+   * A builder for {@code ImmutableIntArray} instances. Its buffer grows by
+   * half each time it fills up, through {@link Ints#ensureCapacity}, so adding
+   * values one at a time takes amortized constant time.
+   */
+  public static final class Builder {
+    private int[] array;
+    private int count = 0;
+
+    Builder(int initialCapacity) {
+      array = new int[initialCapacity];
+    }
+
+    /** Appends {@code value} to the values of the built array. */
+    public Builder add(int value) {
+      ensureRoomFor(1);
+      array[count++] = value;
+      return this;
+    }
+
+    /** Appends all of {@code values}, in order. */
+    public Builder addAll(int[] values) {
+      ensureRoomFor(values.length);
+      System.arraycopy(values, 0, array, count, values.length);
+      count += values.length;
+      return this;
+    }
+
+    /** Appends all the values of {@code values}, in order. */
+    public Builder addAll(ImmutableIntArray values) {
+      ensureRoomFor(values.length());
+      System.arraycopy(values.array, values.start, array, count, values.length());
+      count += values.length();
+      return this;
+    }
+
+    /**
+     * Appends all of {@code values}, in order.
+     *
+     * @throws NullPointerException if {@code values} or any of its elements
+     *     is null
+     */
+    public Builder addAll(Iterable<Integer> values) {
+      if (values instanceof Collection) {
+        return addAll(Ints.toArray((Collection<Integer>) values));
+      }
+      for (Integer value : values) {
+        add(value);
+      }
+      return this;
+    }
+
+    private void ensureRoomFor(int numberToAdd) {
+      int newCount = count + numberToAdd;
+      if (newCount > array.length) {
+        array = Ints.ensureCapacity(array, newCount, Math.max(array.length >> 1, 1));
+      }
+    }
+
+    /**
+     * Returns a new immutable array of the values added so far. The builder
+     * may be used again afterwards.
+     */
+    public ImmutableIntArray build() {
+      if (count == 0) {
+        return EMPTY;
+      }
+      int[] values = new int[count];
+      System.arraycopy(array, 0, values, 0, count);
+      return new ImmutableIntArray(values);
+    }
+  }
+
+  // the values are array[start] .. array[end - 1]; array is never modified
+  private final int[] array;
+  private final transient int start;
+  private final int end;
+
+  private ImmutableIntArray(int[] array) {
+    this(array, 0, array.length);
+  }
+
+  private ImmutableIntArray(int[] array, int start, int end) {
+    this.array = array;
+    this.start = start;
+    this.end = end;
+  }
+
+  /** Returns the number of values in this array. */
+  public int length() {
+    return end - start;
+  }
+
+  /** Returns {@code true} if there are no values in this array. */
+  public boolean isEmpty() {
+    return end == start;
+  }
+
+  /**
+   * Returns the value at {@code index}.
+   *
+   * @throws IndexOutOfBoundsException if {@code index} is negative or not less
+   *     than {@link #length}
+   */
+  public int get(int index) {
+    checkElementIndex(index, length());
+    return array[start + index];
+  }
+
+  /**
+   * Returns the smallest index at which {@code target} appears, or -1 if it
+   * does not appear.
+   */
+  public int indexOf(int target) {
+    for (int i = start; i < end; i++) {
+      if (array[i] == target) {
+        return i - start;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the largest index at which {@code target} appears, or -1 if it
+   * does not appear.
+   */
+  public int lastIndexOf(int target) {
+    for (int i = end - 1; i >= start; i--) {
+      if (array[i] == target) {
+        return i - start;
+      }
+    }
+    return -1;
+  }
+
+  /** Returns {@code true} if {@code target} appears in this array. */
+  public boolean contains(int target) {
+    return indexOf(target) >= 0;
+  }
+
+  /**
+   * Returns the values from {@code startIndex}, inclusive, to
+   * {@code endIndex}, exclusive. This takes constant time: the result shares
+   * the backing array of this instance, which it keeps reachable.
+   *
+   * @throws IndexOutOfBoundsException if {@code startIndex} or
+   *     {@code endIndex} is negative or greater than {@link #length}, or if
+   *     {@code endIndex} is less than {@code startIndex}
+   */
+  public ImmutableIntArray subArray(int startIndex, int endIndex) {
+    checkPositionIndexes(startIndex, endIndex, length());
+    return (startIndex == endIndex)
+        ? EMPTY
+        : new ImmutableIntArray(array, start + startIndex, start + endIndex);
+  }
+
+  /**
+   * Returns this array if its backing array holds exactly its values;
+   * otherwise, a copy that does. Call this on a small slice of a large array
+   * that is kept for a long time.
+   */
+  public ImmutableIntArray trimmed() {
+    return (start > 0 || end < array.length) ? new ImmutableIntArray(toArray()) : this;
+  }
+
+  /** Returns a new, mutable copy of the values in this array. */
+  public int[] toArray() {
+    int[] result = new int[length()];
+    System.arraycopy(array, start, result, 0, result.length);
+    return result;
+  }
+
+  // Reductions
+
+  /**
+   * Returns the sum of the values in this array, computed as a {@code long}
+   * so that it does not overflow; zero if the array is empty.
+   */
+  public long sum() {
+    long sum = 0L;
+    for (int i = start; i < end; i++) {
+      sum += array[i];
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the least value in this array.
+   *
+   * @throws IllegalStateException if this array is empty
+   */
+  public int min() {
+    checkState(!isEmpty(), "empty array");
+    int min = array[start];
+    for (int i = start + 1; i < end; i++) {
+      min = Math.min(min, array[i]);
+    }
+    return min;
+  }
+
+  /**
+   * Returns the greatest value in this array.
+   *
+   * @throws IllegalStateException if this array is empty
+   */
+  public int max() {
+    checkState(!isEmpty(), "empty array");
+    int max = array[start];
+    for (int i = start + 1; i < end; i++) {
+      max = Math.max(max, array[i]);
+    }
+    return max;
+  }
+
+  /**
+   * Returns the arithmetic mean of the values in this array.
+   *
+   * @throws IllegalStateException if this array is empty
+   */
+  public double mean() {
+    checkState(!isEmpty(), "empty array");
+    return (double) sum() / length();
+  }
+
+  /**
+   * Returns an immutable {@code List<Integer>} view of this array. Its
+   * values are boxed as they are read.
+   */
+  public List<Integer> asList() {
+    return new AsList(this);
+  }
+
+  private static final class AsList extends AbstractList<Integer>
+      implements RandomAccess, Serializable {
+    private final ImmutableIntArray parent;
+
+    AsList(ImmutableIntArray parent) {
+      this.parent = parent;
+    }
+
+    @Override public int size() {
+      return parent.length();
+    }
+
+    @Override public Integer get(int index) {
+      return parent.get(index);
+    }
+
+    @Override public boolean contains(Object target) {
+      // Overridden to prevent a ton of boxing
+      return indexOf(target) >= 0;
+    }
+
+    @Override public int indexOf(Object target) {
+      // Overridden to prevent a ton of boxing
+      return (target instanceof Integer) ? parent.indexOf((Integer) target) : -1;
+    }
+
+    @Override public int lastIndexOf(Object target) {
+      // Overridden to prevent a ton of boxing
+      return (target instanceof Integer) ? parent.lastIndexOf((Integer) target) : -1;
+    }
+
+    @Override public List<Integer> subList(int fromIndex, int toIndex) {
+      return parent.subArray(fromIndex, toIndex).asList();
+    }
+
+    @Override public boolean equals(@Nullable Object object) {
+      if (object instanceof AsList) {
+        return parent.equals(((AsList) object).parent);
+      }
+      return super.equals(object);
+    }
+
+    @Override public int hashCode() {
+      return parent.hashCode();
+    }
+
+    @Override public String toString() {
+      return parent.toString();
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  /**
+   * Returns {@code true} if {@code object} is an {@code ImmutableIntArray}
+   * with the same values in the same order.
+   */
+  @Override public boolean equals(@Nullable Object object) {
+    if (object == this) {
+      return true;
+    }
+    if (!(object instanceof ImmutableIntArray)) {
+      return false;
+    }
+    ImmutableIntArray that = (ImmutableIntArray) object;
+    if (length() != that.length()) {
+      return false;
+    }
+    for (int i = 0; i < length(); i++) {
+      if (array[start + i] != that.array[that.start + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the same hash code as {@link #asList}{@code .hashCode()}. */
+  @Override public int hashCode() {
+    int hash = 1;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + Ints.hashCode(array[i]);
+    }
+    return hash;
+  }
+
+  /** Returns a string like {@code [1, 2, 3]}. */
+  @Override public String toString() {
+    if (isEmpty()) {
+      return "[]";
+    }
+    StringBuilder builder = new StringBuilder(length() * 5);
+    builder.append('[').append(array[start]);
+    for (int i = start + 1; i < end; i++) {
+      builder.append(", ").append(array[i]);
+    }
+    return builder.append(']').toString();
+  }
+
+  // Serialize only the values, never the unused part of a shared array.
+  Object writeReplace() {
+    return trimmed();
+  }
+
+  Object readResolve() {
+    return isEmpty() ? EMPTY : this;
+  }
+
+  private static final long serialVersionUID = 0;
+}
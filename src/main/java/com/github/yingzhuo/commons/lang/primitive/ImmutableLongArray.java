@@ -0,0 +1,455 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.lang.primitive;
+
+import static guava.base.Preconditions.checkArgument;
+import static guava.base.Preconditions.checkElementIndex;
+import static guava.base.Preconditions.checkPositionIndexes;
+import static guava.base.Preconditions.checkState;
+
+import guava.annotations.Beta;
+import guava.annotations.GwtCompatible;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import javax.annotation.Nullable;
+
+/**
+ * An immutable array of {@code long} values, which can be shared freely
+ * between threads.
+ *
+ * <p>Compared to an {@code ImmutableList<Long>}, this class stores its
+ * values unboxed, in a single {@code long[]}. Compared to
+ * {@link Longs#asList}, it never exposes that array to writes. Slicing
+ * with {@link #subArray} takes constant time, as the slice shares the
+ * backing array of the original; {@link #trimmed} makes a compact copy when
+ * the original is no longer needed.
+ *
+ * <p>Two instances are {@linkplain #equals equal} when they contain the same
+ * values in the same order, whatever their backing arrays.
+ *
+ * @see ImmutableIntArray
+ */
+@Beta
+@GwtCompatible
+public final class ImmutableLongArray implements Serializable {
+  private static final ImmutableLongArray EMPTY = new ImmutableLongArray(new long[0]);
+
+  /** Returns the empty array. */
+  public static ImmutableLongArray of() {
+    return EMPTY;
+  }
+
+  /** Returns an immutable array containing the given values, in order. */
+  public static ImmutableLongArray of(long... values) {
+    return copyOf(values);
+  }
+
+  /** Returns an immutable array containing the given values, in order. */
+  public static ImmutableLongArray copyOf(long[] values) {
+    return (values.length == 0) ? EMPTY : new ImmutableLongArray(values.clone());
+  }
+
+  /**
+   * Returns an immutable array containing the given values, in order.
+   *
+   * @throws NullPointerException if {@code values} or any of its elements is
+   *     null
+   */
+  public static ImmutableLongArray copyOf(Collection<Long> values) {
+    return values.isEmpty() ? EMPTY : new ImmutableLongArray(Longs.toArray(values));
+  }
+
+  /**
+   * Returns an immutable array containing the given values, in order.
+   *
+   * @throws NullPointerException if {@code values} or any of its elements is
+   *     null
+   */
+  public static ImmutableLongArray copyOf(Iterable<Long> values) {
+    if (values instanceof Collection) {
+      return copyOf((Collection<Long>) values);
+    }
+    return builder().addAll(values).build();
+  }
+
+  /** Returns a new, empty builder. */
+  public static Builder builder() {
+    return new Builder(10);
+  }
+
+  /**
+   * Returns a new, empty builder with room for {@code initialCapacity} values
+   * before it needs to grow.
+   *
+   * @throws IllegalArgumentException if {@code initialCapacity} is negative
+   */
+  public static Builder builder(int initialCapacity) {
+    checkArgument(initialCapacity >= 0, "Invalid initialCapacity: %s", initialCapacity);
+    return new Builder(initialCapacity);
+  }
+
+  /**
+   * A builder for {@code ImmutableLongArray} instances. Its buffer grows by
+   * half each time it fills up, through {@link Longs#ensureCapacity}, so
+   * adding values one at a time takes amortized constant time.
+   */
+  public static final class Builder {
+    private long[] array;
+    private int count = 0;
+
+    Builder(int initialCapacity) {
+      array = new long[initialCapacity];
+    }
+
+    /** Appends {@code value} to the values of the built array. */
+    public Builder add(long value) {
+      ensureRoomFor(1);
+      array[count++] = value;
+      return this;
+    }
+
+    /** Appends all of {@code values}, in order. */
+    public Builder addAll(long[] values) {
+      ensureRoomFor(values.length);
+      System.arraycopy(values, 0, array, count, values.length);
+      count += values.length;
+      return this;
+    }
+
+    /** Appends all the values of {@code values}, in order. */
+    public Builder addAll(ImmutableLongArray values) {
+      ensureRoomFor(values.length());
+      System.arraycopy(values.array, values.start, array, count, values.length());
+      count += values.length();
+      return this;
+    }
+
+    /**
+     * Appends all of {@code values}, in order.
+     *
+     * @throws NullPointerException if {@code values} or any of its elements
+     *     is null
+     */
+    public Builder addAll(Iterable<Long> values) {
+      if (values instanceof Collection) {
+        return addAll(Longs.toArray((Collection<Long>) values));
+      }
+      for (Long value : values) {
+        add(value);
+      }
+      return this;
+    }
+
+    private void ensureRoomFor(int numberToAdd) {
+      int newCount = count + numberToAdd;
+      if (newCount > array.length) {
+        array = Longs.ensureCapacity(array, newCount, Math.max(array.length >> 1, 1));
+      }
+    }
+
+    /**
+     * Returns a new immutable array of the values added so far. The builder
+     * may be used again afterwards.
+     */
+    public ImmutableLongArray build() {
+      if (count == 0) {
+        return EMPTY;
+      }
+      long[] values = new long[count];
+      System.arraycopy(array, 0, values, 0, count);
+      return new ImmutableLongArray(values);
+    }
+  }
+
+  // the values are array[start] .. array[end - 1]; array is never modified
+  private final long[] array;
+  private final transient int start;
+  private final int end;
+
+  private ImmutableLongArray(long[] array) {
+    this(array, 0, array.length);
+  }
+
+  private ImmutableLongArray(long[] array, int start, int end) {
+    this.array = array;
+    this.start = start;
+    this.end = end;
+  }
+
+  /** Returns the number of values in this array. */
+  public int length() {
+    return end - start;
+  }
+
+  /** Returns {@code true} if there are no values in this array. */
+  public boolean isEmpty() {
+    return end == start;
+  }
+
+  /**
+   * Returns the value at {@code index}.
+   *
+   * @throws IndexOutOfBoundsException if {@code index} is negative or not less
+   *     than {@link #length}
+   */
+  public long get(int index) {
+    checkElementIndex(index, length());
+    return array[start + index];
+  }
+
+  /**
+   * Returns the smallest index at which {@code target} appears, or -1 if it
+   * does not appear.
+   */
+  public int indexOf(long target) {
+    for (int i = start; i < end; i++) {
+      if (array[i] == target) {
+        return i - start;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the largest index at which {@code target} appears, or -1 if it
+   * does not appear.
+   */
+  public int lastIndexOf(long target) {
+    for (int i = end - 1; i >= start; i--) {
+      if (array[i] == target) {
+        return i - start;
+      }
+    }
+    return -1;
+  }
+
+  /** Returns {@code true} if {@code target} appears in this array. */
+  public boolean contains(long target) {
+    return indexOf(target) >= 0;
+  }
+
+  /**
+   * Returns the values from {@code startIndex}, inclusive, to
+   * {@code endIndex}, exclusive. This takes constant time: the result shares
+   * the backing array of this instance, which it keeps reachable.
+   *
+   * @throws IndexOutOfBoundsException if {@code startIndex} or
+   *     {@code endIndex} is negative or greater than {@link #length}, or if
+   *     {@code endIndex} is less than {@code startIndex}
+   */
+  public ImmutableLongArray subArray(int startIndex, int endIndex) {
+    checkPositionIndexes(startIndex, endIndex, length());
+    return (startIndex == endIndex)
+        ? EMPTY
+        : new ImmutableLongArray(array, start + startIndex, start + endIndex);
+  }
+
+  /**
+   * Returns this array if its backing array holds exactly its values;
+   * otherwise, a copy that does. Call this on a small slice of a large array
+   * that is kept for a long time.
+   */
+  public ImmutableLongArray trimmed() {
+    return (start > 0 || end < array.length) ? new ImmutableLongArray(toArray()) : this;
+  }
+
+  /** Returns a new, mutable copy of the values in this array. */
+  public long[] toArray() {
+    long[] result = new long[length()];
+    System.arraycopy(array, start, result, 0, result.length);
+    return result;
+  }
+
+  // Reductions
+
+  /**
+   * Returns the sum of the values in this array, or zero if it is empty. The
+   * sum wraps around on overflow, as {@code long} addition does.
+   */
+  public long sum() {
+    long sum = 0L;
+    for (int i = start; i < end; i++) {
+      sum += array[i];
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the least value in this array.
+   *
+   * @throws IllegalStateException if this array is empty
+   */
+  public long min() {
+    checkState(!isEmpty(), "empty array");
+    long min = array[start];
+    for (int i = start + 1; i < end; i++) {
+      min = Math.min(min, array[i]);
+    }
+    return min;
+  }
+
+  /**
+   * Returns the greatest value in this array.
+   *
+   * @throws IllegalStateException if this array is empty
+   */
+  public long max() {
+    checkState(!isEmpty(), "empty array");
+    long max = array[start];
+    for (int i = start + 1; i < end; i++) {
+      max = Math.max(max, array[i]);
+    }
+    return max;
+  }
+
+  /**
+   * Returns the arithmetic mean of the values in this array.
+   *
+   * @throws IllegalStateException if this array is empty
+   */
+  public double mean() {
+    checkState(!isEmpty(), "empty array");
+    // summed as doubles, which unlike sum() cannot overflow
+    double sum = 0.0;
+    for (int i = start; i < end; i++) {
+      sum += array[i];
+    }
+    return sum / length();
+  }
+
+  /**
+   * Returns an immutable {@code List<Long>} view of this array. Its
+   * values are boxed as they are read.
+   */
+  public List<Long> asList() {
+    return new AsList(this);
+  }
+
+  private static final class AsList extends AbstractList<Long>
+      implements RandomAccess, Serializable {
+    private final ImmutableLongArray parent;
+
+    AsList(ImmutableLongArray parent) {
+      this.parent = parent;
+    }
+
+    @Override public int size() {
+      return parent.length();
+    }
+
+    @Override public Long get(int index) {
+      return parent.get(index);
+    }
+
+    @Override public boolean contains(Object target) {
+      // Overridden to prevent a ton of boxing
+      return indexOf(target) >= 0;
+    }
+
+    @Override public int indexOf(Object target) {
+      // Overridden to prevent a ton of boxing
+      return (target instanceof Long) ? parent.indexOf((Long) target) : -1;
+    }
+
+    @Override public int lastIndexOf(Object target) {
+      // Overridden to prevent a ton of boxing
+      return (target instanceof Long) ? parent.lastIndexOf((Long) target) : -1;
+    }
+
+    @Override public List<Long> subList(int fromIndex, int toIndex) {
+      return parent.subArray(fromIndex, toIndex).asList();
+    }
+
+    @Override public boolean equals(@Nullable Object object) {
+      if (object instanceof AsList) {
+        return parent.equals(((AsList) object).parent);
+      }
+      return super.equals(object);
+    }
+
+    @Override public int hashCode() {
+      return parent.hashCode();
+    }
+
+    @Override public String toString() {
+      return parent.toString();
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  /**
+   * Returns {@code true} if {@code object} is an {@code ImmutableLongArray}
+   * with the same values in the same order.
+   */
+  @Override public boolean equals(@Nullable Object object) {
+    if (object == this) {
+      return true;
+    }
+    if (!(object instanceof ImmutableLongArray)) {
+      return false;
+    }
+    ImmutableLongArray that = (ImmutableLongArray) object;
+    if (length() != that.length()) {
+      return false;
+    }
+    for (int i = 0; i < length(); i++) {
+      if (array[start + i] != that.array[that.start + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the same hash code as {@link #asList}{@code .hashCode()}. */
+  @Override public int hashCode() {
+    int hash = 1;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + Longs.hashCode(array[i]);
+    }
+    return hash;
+  }
+
+  /** Returns a string like {@code [1, 2, 3]}. */
+  @Override public String toString() {
+    if (isEmpty()) {
+      return "[]";
+    }
+    StringBuilder builder = new StringBuilder(length() * 5);
+    builder.append('[').append(array[start]);
+    for (int i = start + 1; i < end; i++) {
+      builder.append(", ").append(array[i]);
+    }
+    return builder.append(']').toString();
+  }
+
+  // Serialize only the values, never the unused part of a shared array.
+  Object writeReplace() {
+    return trimmed();
+  }
+
+  Object readResolve() {
+    return isEmpty() ? EMPTY : this;
+  }
+
+  private static final long serialVersionUID = 0;
+}
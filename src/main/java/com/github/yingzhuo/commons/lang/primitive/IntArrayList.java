@@ -0,0 +1,451 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.lang.primitive;
+
+import static guava.base.Preconditions.checkArgument;
+import static guava.base.Preconditions.checkElementIndex;
+import static guava.base.Preconditions.checkNotNull;
+import static guava.base.Preconditions.checkPositionIndex;
+import static guava.base.Preconditions.checkPositionIndexes;
+
+import guava.annotations.Beta;
+import guava.annotations.GwtCompatible;
+import guava.annotations.GwtIncompatible;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import javax.annotation.Nullable;
+
+/**
+ * A growable list of {@code int} values, backed by an {@code int[]} in the
+ * manner of {@link java.util.ArrayList}, but storing its values unboxed.
+ *
+ * <p>Unlike {@link Ints#asList}, which wraps a fixed array, this list grows as
+ * values are added, which makes it a good accumulator for batches of IDs that
+ * would otherwise collect in an {@code ArrayList<Integer>}. None of its own
+ * methods box. Where a {@code List<Integer>} is required, {@link #asList}
+ * provides a modifiable view, and {@link #copyOf(Iterable)} converts from
+ * boxed collections in bulk.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @see LongArrayList
+ * @see DoubleArrayList
+ */
+@Beta
+@GwtCompatible
+public final class IntArrayList implements Serializable {
+  private static final int DEFAULT_CAPACITY = 10;
+
+  /** Creates a new, empty list. */
+  public static IntArrayList create() {
+    return new IntArrayList(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates a new, empty list with enough capacity to hold
+   * {@code expectedSize} values without growing.
+   *
+   * @throws IllegalArgumentException if {@code expectedSize} is negative
+   */
+  public static IntArrayList withExpectedSize(int expectedSize) {
+    checkArgument(expectedSize >= 0, "Invalid expectedSize: %s", expectedSize);
+    return new IntArrayList(expectedSize);
+  }
+
+  /** Creates a new list containing the given values, in order. */
+  public static IntArrayList of(int... values) {
+    IntArrayList list = new IntArrayList(values.length);
+    list.addAll(values);
+    return list;
+  }
+
+  /**
+   * Creates a new list containing each value of {@code values}, converted in
+   * the manner of {@link Number#intValue}. Collections are copied in one
+   * pass, as by {@link Ints#toArray}.
+   *
+   * @throws NullPointerException if {@code values} or any of its elements is
+   *     null
+   */
+  public static IntArrayList copyOf(Iterable<? extends Number> values) {
+    IntArrayList list = new IntArrayList(0);
+    list.addAll(values);
+    return list;
+  }
+
+  private transient int[] array;
+  private int size;
+  @Nullable private transient AsList asList;
+
+  private IntArrayList(int initialCapacity) {
+    this.array = new int[initialCapacity];
+  }
+
+  /** Returns the number of values in this list. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns {@code true} if this list contains no values. */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the value at {@code index}.
+   *
+   * @throws IndexOutOfBoundsException if {@code index} is negative or not less
+   *     than {@link #size}
+   */
+  public int get(int index) {
+    checkElementIndex(index, size);
+    return array[index];
+  }
+
+  /**
+   * Replaces the value at {@code index}, returning the previous one.
+   *
+   * @throws IndexOutOfBoundsException if {@code index} is negative or not less
+   *     than {@link #size}
+   */
+  public int set(int index, int value) {
+    checkElementIndex(index, size);
+    int oldValue = array[index];
+    array[index] = value;
+    return oldValue;
+  }
+
+  /** Appends {@code value} to the end of this list. */
+  public void add(int value) {
+    ensureCapacity(size + 1);
+    array[size++] = value;
+    modified();
+  }
+
+  /**
+   * Inserts {@code value} at {@code index}, shifting later values to the
+   * right.
+   *
+   * @throws IndexOutOfBoundsException if {@code index} is negative or greater
+   *     than {@link #size}
+   */
+  public void add(int index, int value) {
+    checkPositionIndex(index, size);
+    ensureCapacity(size + 1);
+    System.arraycopy(array, index, array, index + 1, size - index);
+    array[index] = value;
+    size++;
+    modified();
+  }
+
+  /** Appends all of {@code values} to the end of this list, in order. */
+  public void addAll(int... values) {
+    addAll(values, 0, values.length);
+  }
+
+  /** Appends all the values of {@code values} to the end of this list. */
+  public void addAll(IntArrayList values) {
+    addAll(values.array, 0, values.size);
+  }
+
+  /**
+   * Appends each value of {@code values}, converted in the manner of
+   * {@link Number#intValue}, to the end of this list.
+   *
+   * @throws NullPointerException if {@code values} or any of its elements is
+   *     null
+   */
+  public void addAll(Iterable<? extends Number> values) {
+    if (values instanceof AsList) {
+      addAll(((AsList) values).owner());
+    } else if (values instanceof Collection) {
+      int[] newValues = Ints.toArray((Collection<? extends Number>) values);
+      addAll(newValues, 0, newValues.length);
+    } else {
+      for (Number value : values) {
+        add(value.intValue());
+      }
+    }
+  }
+
+  private void addAll(int[] values, int offset, int length) {
+    ensureCapacity(size + length);
+    System.arraycopy(values, offset, array, size, length);
+    size += length;
+    modified();
+  }
+
+  /**
+   * Removes the value at {@code index}, shifting later values to the left.
+   *
+   * @return the removed value
+   * @throws IndexOutOfBoundsException if {@code index} is negative or not less
+   *     than {@link #size}
+   */
+  public int removeAt(int index) {
+    int oldValue = get(index);
+    removeRange(index, index + 1);
+    return oldValue;
+  }
+
+  /**
+   * Removes the values from {@code fromIndex}, inclusive, to {@code toIndex},
+   * exclusive, shifting later values to the left.
+   *
+   * @throws IndexOutOfBoundsException if {@code fromIndex} or {@code toIndex}
+   *     is negative or greater than {@link #size}, or if {@code toIndex} is
+   *     less than {@code fromIndex}
+   */
+  public void removeRange(int fromIndex, int toIndex) {
+    checkPositionIndexes(fromIndex, toIndex, size);
+    System.arraycopy(array, toIndex, array, fromIndex, size - toIndex);
+    size -= toIndex - fromIndex;
+    modified();
+  }
+
+  /** Removes all values from this list. Its capacity is retained. */
+  public void clear() {
+    size = 0;
+    modified();
+  }
+
+  /** Returns {@code true} if this list contains {@code target}. */
+  public boolean contains(int target) {
+    return indexOf(target) >= 0;
+  }
+
+  /**
+   * Returns the index of the first occurrence of {@code target} in this list,
+   * or -1 if there is none.
+   */
+  public int indexOf(int target) {
+    for (int i = 0; i < size; i++) {
+      if (array[i] == target) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the index of the last occurrence of {@code target} in this list,
+   * or -1 if there is none.
+   */
+  public int lastIndexOf(int target) {
+    for (int i = size - 1; i >= 0; i--) {
+      if (array[i] == target) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Sorts the values of this list into ascending order. */
+  public void sort() {
+    Arrays.sort(array, 0, size);
+  }
+
+  /**
+   * Searches this list, which must be sorted, for {@code key}, as by
+   * {@link Arrays#binarySearch(int[], int, int, int)}.
+   *
+   * @return the index of {@code key} if it is found; otherwise
+   *     {@code (-(insertion point) - 1)}
+   */
+  public int binarySearch(int key) {
+    return Arrays.binarySearch(array, 0, size, key);
+  }
+
+  /**
+   * Grows the backing array, if needed, so that it can hold at least
+   * {@code minCapacity} values without growing again.
+   */
+  public void ensureCapacity(int minCapacity) {
+    if (minCapacity > array.length) {
+      // grow by half, as ArrayList does
+      array = Ints.ensureCapacity(array, minCapacity, Math.max(array.length >> 1, 1));
+    }
+  }
+
+  /** Shrinks the backing array to the size of this list. */
+  public void trimToSize() {
+    if (size < array.length) {
+      array = toArray();
+    }
+  }
+
+  /** Returns a new array containing the values of this list, in order. */
+  public int[] toArray() {
+    int[] result = new int[size];
+    System.arraycopy(array, 0, result, 0, size);
+    return result;
+  }
+
+  /**
+   * Returns a {@code List<Integer>} view of this list. The view supports every
+   * list operation except adding or setting null, writes through to this
+   * list, and is fail-fast with respect to changes made through either.
+   */
+  public List<Integer> asList() {
+    AsList result = asList;
+    return (result == null) ? asList = new AsList() : result;
+  }
+
+  private void modified() {
+    if (asList != null) {
+      asList.modified();
+    }
+  }
+
+  /**
+   * Returns {@code true} if {@code object} is an {@code IntArrayList} with the
+   * same values in the same order.
+   */
+  @Override public boolean equals(@Nullable Object object) {
+    if (object == this) {
+      return true;
+    }
+    if (object instanceof IntArrayList) {
+      IntArrayList that = (IntArrayList) object;
+      if (size != that.size) {
+        return false;
+      }
+      for (int i = 0; i < size; i++) {
+        if (array[i] != that.array[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /** Returns the same hash code as {@link #asList}{@code .hashCode()}. */
+  @Override public int hashCode() {
+    int result = 1;
+    for (int i = 0; i < size; i++) {
+      result = 31 * result + Ints.hashCode(array[i]);
+    }
+    return result;
+  }
+
+  @Override public String toString() {
+    StringBuilder builder = new StringBuilder(size * 5 + 2).append('[');
+    for (int i = 0; i < size; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      builder.append(array[i]);
+    }
+    return builder.append(']').toString();
+  }
+
+  private final class AsList extends AbstractList<Integer> implements RandomAccess {
+    IntArrayList owner() {
+      return IntArrayList.this;
+    }
+
+    void modified() {
+      modCount++;
+    }
+
+    @Override public int size() {
+      return size;
+    }
+
+    @Override public Integer get(int index) {
+      return IntArrayList.this.get(index);
+    }
+
+    @Override public Integer set(int index, Integer element) {
+      return IntArrayList.this.set(index, checkNotNull(element));
+    }
+
+    @Override public void add(int index, Integer element) {
+      IntArrayList.this.add(index, checkNotNull(element));
+    }
+
+    @Override public boolean addAll(Collection<? extends Integer> c) {
+      int oldSize = size;
+      IntArrayList.this.addAll(c);
+      return size != oldSize;
+    }
+
+    @Override public Integer remove(int index) {
+      return removeAt(index);
+    }
+
+    @Override protected void removeRange(int fromIndex, int toIndex) {
+      IntArrayList.this.removeRange(fromIndex, toIndex);
+    }
+
+    @Override public void clear() {
+      IntArrayList.this.clear();
+    }
+
+    @Override public boolean contains(Object target) {
+      // Overridden to prevent a ton of boxing
+      return (target instanceof Integer) && IntArrayList.this.contains((Integer) target);
+    }
+
+    @Override public int indexOf(Object target) {
+      // Overridden to prevent a ton of boxing
+      return (target instanceof Integer) ? IntArrayList.this.indexOf((Integer) target) : -1;
+    }
+
+    @Override public int lastIndexOf(Object target) {
+      // Overridden to prevent a ton of boxing
+      return (target instanceof Integer) ? IntArrayList.this.lastIndexOf((Integer) target) : -1;
+    }
+
+    @Override public int hashCode() {
+      return IntArrayList.this.hashCode();
+    }
+
+    @Override public String toString() {
+      return IntArrayList.this.toString();
+    }
+  }
+
+  @GwtIncompatible("java.io.ObjectOutputStream")
+  private void writeObject(ObjectOutputStream stream) throws IOException {
+    stream.defaultWriteObject();
+    for (int i = 0; i < size; i++) {
+      stream.writeInt(array[i]);
+    }
+  }
+
+  @GwtIncompatible("java.io.ObjectInputStream")
+  private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+    stream.defaultReadObject();
+    array = new int[size];
+    for (int i = 0; i < size; i++) {
+      array[i] = stream.readInt();
+    }
+  }
+
+  private static final long serialVersionUID = 0;
+}
@@ -0,0 +1,827 @@
+/*
+ * Copyright (C) 2014 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.yingzhuo.commons.lang.primitive;
+
+import static guava.base.Preconditions.checkArgument;
+
+import guava.annotations.Beta;
+import guava.annotations.GwtCompatible;
+import guava.annotations.GwtIncompatible;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Selection of the {@code k} least or greatest values of primitive arrays,
+ * the primitive counterpart of {@code Ordering.natural().leastOf(iterable, k)}
+ * and {@code greatestOf}: the results are in the same order as those methods
+ * return, and {@code double} values are compared as by {@link Double#compare},
+ * so that {@code -0.0} is less than {@code 0.0} and {@code NaN} is greater
+ * than every other value.
+ *
+ * <p>The array methods never modify their argument. They copy it and run an
+ * introselect over the copy -- a quickselect that falls back to sorting when
+ * its partitions shrink too slowly -- then sort only the {@code k} selected
+ * values, for {@code O(n + k log k)} expected and {@code O(n log n)} worst
+ * time. The {@code parallel} variants split arrays of at least
+ * {@value #PARALLEL_THRESHOLD} values into chunks, select within each chunk
+ * in the {@linkplain ForkJoinPool#commonPool common pool}, and select again
+ * among the chunk winners.
+ *
+ * <p>For values that arrive one at a time, {@link #leastLongs},
+ * {@link #leastDoubles} and their {@code greatest} counterparts return
+ * selectors that keep a bounded heap of {@code k} values, in {@code O(k)}
+ * memory.
+ *
+ * <p>Internally, every value is mapped to a {@code long} key whose signed
+ * order is the order of the selection, so a single implementation serves all
+ * three types, and greatest values are selected as least keys.
+ */
+@Beta
+@GwtCompatible
+public final class PrimitiveSelection {
+  private PrimitiveSelection() {}
+
+  /**
+   * The array length from which the {@code parallel} methods actually split
+   * their work; shorter arrays are selected on the calling thread.
+   */
+  public static final int PARALLEL_THRESHOLD = 1 << 20;
+
+  /** Ranges no longer than this are sorted by insertion instead. */
+  private static final int INSERTION_SORT_THRESHOLD = 16;
+
+  /** The smallest chunk a parallel selection hands to a worker. */
+  private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+  // Arrays
+
+  /**
+   * Returns the {@code k} least values of {@code values} in ascending order,
+   * or all of them if there are fewer than {@code k}.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   */
+  public static int[] leastOf(int[] values, int k) {
+    return toInts(select(keys(values, false), k), false);
+  }
+
+  /**
+   * Returns the {@code k} greatest values of {@code values} in descending
+   * order, or all of them if there are fewer than {@code k}.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   */
+  public static int[] greatestOf(int[] values, int k) {
+    return toInts(select(keys(values, true), k), true);
+  }
+
+  /**
+   * Returns the {@code k} least values of {@code values} in ascending order,
+   * or all of them if there are fewer than {@code k}.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   */
+  public static long[] leastOf(long[] values, int k) {
+    return toLongs(select(keys(values, false), k), false);
+  }
+
+  /**
+   * Returns the {@code k} greatest values of {@code values} in descending
+   * order, or all of them if there are fewer than {@code k}.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   */
+  public static long[] greatestOf(long[] values, int k) {
+    return toLongs(select(keys(values, true), k), true);
+  }
+
+  /**
+   * Returns the {@code k} least values of {@code values} in ascending order,
+   * or all of them if there are fewer than {@code k}.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   */
+  public static double[] leastOf(double[] values, int k) {
+    return toDoubles(select(keys(values, false), k), false);
+  }
+
+  /**
+   * Returns the {@code k} greatest values of {@code values} in descending
+   * order, or all of them if there are fewer than {@code k}.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   */
+  public static double[] greatestOf(double[] values, int k) {
+    return toDoubles(select(keys(values, true), k), true);
+  }
+
+  /**
+   * Returns the indices of the {@code k} least values of {@code values}, in
+   * ascending order of those values; indices of equal values are in ascending
+   * order too, and a lower index is selected before a higher one.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   */
+  public static int[] leastIndices(double[] values, int k) {
+    return selectIndices(values, k, false);
+  }
+
+  /**
+   * Returns the indices of the {@code k} greatest values of {@code values}, in
+   * descending order of those values; indices of equal values are in
+   * ascending order, and a lower index is selected before a higher one.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   */
+  public static int[] greatestIndices(double[] values, int k) {
+    return selectIndices(values, k, true);
+  }
+
+  // Parallel arrays
+
+  /**
+   * Returns the same values as {@link #leastOf(int[], int)}, computed in
+   * parallel if {@code values} has at least {@link #PARALLEL_THRESHOLD}
+   * values.
+   */
+  @GwtIncompatible("ForkJoinPool")
+  public static int[] parallelLeastOf(int[] values, int k) {
+    return toInts(parallelSelect(values.length, k, (from, to, keys) -> {
+      for (int i = from; i < to; i++) {
+        keys[i - from] = values[i];
+      }
+    }), false);
+  }
+
+  /**
+   * Returns the same values as {@link #greatestOf(int[], int)}, computed in
+   * parallel if {@code values} has at least {@link #PARALLEL_THRESHOLD}
+   * values.
+   */
+  @GwtIncompatible("ForkJoinPool")
+  public static int[] parallelGreatestOf(int[] values, int k) {
+    return toInts(parallelSelect(values.length, k, (from, to, keys) -> {
+      for (int i = from; i < to; i++) {
+        keys[i - from] = ~(long) values[i];
+      }
+    }), true);
+  }
+
+  /**
+   * Returns the same values as {@link #leastOf(long[], int)}, computed in
+   * parallel if {@code values} has at least {@link #PARALLEL_THRESHOLD}
+   * values.
+   */
+  @GwtIncompatible("ForkJoinPool")
+  public static long[] parallelLeastOf(long[] values, int k) {
+    return toLongs(parallelSelect(values.length, k, (from, to, keys) -> {
+      System.arraycopy(values, from, keys, 0, to - from);
+    }), false);
+  }
+
+  /**
+   * Returns the same values as {@link #greatestOf(long[], int)}, computed in
+   * parallel if {@code values} has at least {@link #PARALLEL_THRESHOLD}
+   * values.
+   */
+  @GwtIncompatible("ForkJoinPool")
+  public static long[] parallelGreatestOf(long[] values, int k) {
+    return toLongs(parallelSelect(values.length, k, (from, to, keys) -> {
+      for (int i = from; i < to; i++) {
+        keys[i - from] = ~values[i];
+      }
+    }), true);
+  }
+
+  /**
+   * Returns the same values as {@link #leastOf(double[], int)}, computed in
+   * parallel if {@code values} has at least {@link #PARALLEL_THRESHOLD}
+   * values.
+   */
+  @GwtIncompatible("ForkJoinPool")
+  public static double[] parallelLeastOf(double[] values, int k) {
+    return toDoubles(parallelSelect(values.length, k, (from, to, keys) -> {
+      for (int i = from; i < to; i++) {
+        keys[i - from] = key(values[i], false);
+      }
+    }), false);
+  }
+
+  /**
+   * Returns the same values as {@link #greatestOf(double[], int)}, computed
+   * in parallel if {@code values} has at least {@link #PARALLEL_THRESHOLD}
+   * values.
+   */
+  @GwtIncompatible("ForkJoinPool")
+  public static double[] parallelGreatestOf(double[] values, int k) {
+    return toDoubles(parallelSelect(values.length, k, (from, to, keys) -> {
+      for (int i = from; i < to; i++) {
+        keys[i - from] = key(values[i], true);
+      }
+    }), true);
+  }
+
+  /**
+   * Returns the same indices as {@link #leastIndices}, computed in parallel if
+   * {@code values} has at least {@link #PARALLEL_THRESHOLD} values.
+   */
+  @GwtIncompatible("ForkJoinPool")
+  public static int[] parallelLeastIndices(double[] values, int k) {
+    return parallelSelectIndices(values, k, false);
+  }
+
+  /**
+   * Returns the same indices as {@link #greatestIndices}, computed in
+   * parallel if {@code values} has at least {@link #PARALLEL_THRESHOLD}
+   * values.
+   */
+  @GwtIncompatible("ForkJoinPool")
+  public static int[] parallelGreatestIndices(double[] values, int k) {
+    return parallelSelectIndices(values, k, true);
+  }
+
+  // Streams
+
+  /**
+   * Returns a selector that retains the {@code k} least values offered to it.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   */
+  public static LongSelector leastLongs(int k) {
+    return new LongSelector(k, false);
+  }
+
+  /**
+   * Returns a selector that retains the {@code k} greatest values offered to
+   * it.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   */
+  public static LongSelector greatestLongs(int k) {
+    return new LongSelector(k, true);
+  }
+
+  /**
+   * Returns a selector that retains the {@code k} least values offered to it.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   */
+  public static DoubleSelector leastDoubles(int k) {
+    return new DoubleSelector(k, false);
+  }
+
+  /**
+   * Returns a selector that retains the {@code k} greatest values offered to
+   * it.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   */
+  public static DoubleSelector greatestDoubles(int k) {
+    return new DoubleSelector(k, true);
+  }
+
+  /**
+   * Retains the {@code k} least (or greatest) of a stream of {@code long}
+   * values, together with their positions in the stream, in a bounded heap.
+   * Each value costs one comparison once the heap is full and the value does
+   * not make the cut, and {@code O(log k)} time otherwise. Of equal values,
+   * the earliest ones are retained.
+   *
+   * <p>Instances are not thread-safe.
+   */
+  public static final class LongSelector {
+    private final KeyHeap heap;
+    private final boolean greatest;
+
+    LongSelector(int k, boolean greatest) {
+      this.heap = new KeyHeap(k);
+      this.greatest = greatest;
+    }
+
+    /** Offers the next value of the stream. */
+    public LongSelector offer(long value) {
+      heap.offer(greatest ? ~value : value);
+      return this;
+    }
+
+    /** Offers each of {@code values}, in order. */
+    public LongSelector offerAll(long[] values) {
+      for (long value : values) {
+        offer(value);
+      }
+      return this;
+    }
+
+    /** Returns the number of values offered so far. */
+    public long offered() {
+      return heap.offered;
+    }
+
+    /**
+     * Returns the values retained so far, least (or greatest) first. The
+     * selector may be used again afterwards.
+     */
+    public long[] values() {
+      return toLongs(heap.sortedKeys(), greatest);
+    }
+
+    /**
+     * Returns the positions in the stream, starting from 0, of the values
+     * returned by {@link #values}, in the same order.
+     *
+     * @throws IllegalStateException if more than {@link Integer#MAX_VALUE}
+     *     values were offered
+     */
+    public int[] indices() {
+      return heap.sortedIds();
+    }
+  }
+
+  /**
+   * Retains the {@code k} least (or greatest) of a stream of {@code double}
+   * values, together with their positions in the stream, in a bounded heap.
+   * Each value costs one comparison once the heap is full and the value does
+   * not make the cut, and {@code O(log k)} time otherwise. Of equal values,
+   * the earliest ones are retained.
+   *
+   * <p>Instances are not thread-safe.
+   */
+  public static final class DoubleSelector {
+    private final KeyHeap heap;
+    private final boolean greatest;
+
+    DoubleSelector(int k, boolean greatest) {
+      this.heap = new KeyHeap(k);
+      this.greatest = greatest;
+    }
+
+    /** Offers the next value of the stream. */
+    public DoubleSelector offer(double value) {
+      heap.offer(key(value, greatest));
+      return this;
+    }
+
+    /** Offers each of {@code values}, in order. */
+    public DoubleSelector offerAll(double[] values) {
+      for (double value : values) {
+        offer(value);
+      }
+      return this;
+    }
+
+    /** Returns the number of values offered so far. */
+    public long offered() {
+      return heap.offered;
+    }
+
+    /**
+     * Returns the values retained so far, least (or greatest) first. The
+     * selector may be used again afterwards.
+     */
+    public double[] values() {
+      return toDoubles(heap.sortedKeys(), greatest);
+    }
+
+    /**
+     * Returns the positions in the stream, starting from 0, of the values
+     * returned by {@link #values}, in the same order.
+     *
+     * @throws IllegalStateException if more than {@link Integer#MAX_VALUE}
+     *     values were offered
+     */
+    public int[] indices() {
+      return heap.sortedIds();
+    }
+  }
+
+  /**
+   * A max-heap of at most {@code k} (key, id) pairs, where ids are stream
+   * positions, so that its root is the pair to evict next.
+   */
+  private static final class KeyHeap {
+    final long[] keys;
+    final int[] ids;
+    int size;
+    long offered;
+
+    KeyHeap(int k) {
+      checkArgument(k >= 0, "k (%s) must be nonnegative", k);
+      this.keys = new long[k];
+      this.ids = new int[k];
+    }
+
+    void offer(long key) {
+      int id = (int) offered++;
+      if (size < keys.length) {
+        // sift up
+        int index = size++;
+        while (index > 0) {
+          int parent = (index - 1) >>> 1;
+          if (keys[parent] > key) {
+            break;
+          }
+          keys[index] = keys[parent];
+          ids[index] = ids[parent];
+          index = parent;
+        }
+        keys[index] = key;
+        ids[index] = id;
+      } else if (size > 0 && key < keys[0]) {
+        // an equal key arrived later, so it loses to the root
+        keys[0] = key;
+        ids[0] = id;
+        siftDown(keys, ids, 0, size);
+      }
+    }
+
+    long[] sortedKeys() {
+      long[] sortedKeys = Arrays.copyOf(keys, size);
+      heapSort(sortedKeys, Arrays.copyOf(ids, size), 0, size);
+      return sortedKeys;
+    }
+
+    int[] sortedIds() {
+      if (offered > Integer.MAX_VALUE + 1L) {
+        throw new IllegalStateException("too many values offered: " + offered);
+      }
+      int[] sortedIds = Arrays.copyOf(ids, size);
+      heapSort(Arrays.copyOf(keys, size), sortedIds, 0, size);
+      return sortedIds;
+    }
+  }
+
+  // Keys
+
+  /**
+   * Returns a key whose signed order is the order of {@link Double#compare}
+   * on {@code value}, or its reverse if {@code reverse}. The mapping without
+   * reversal is an involution on the raw bits, which {@link #toDoubles}
+   * undoes.
+   */
+  static long key(double value, boolean reverse) {
+    long bits = Double.doubleToLongBits(value);
+    long key = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    return reverse ? ~key : key;
+  }
+
+  private static long[] keys(int[] values, boolean reverse) {
+    long[] keys = new long[values.length];
+    for (int i = 0; i < values.length; i++) {
+      keys[i] = reverse ? ~(long) values[i] : values[i];
+    }
+    return keys;
+  }
+
+  private static long[] keys(long[] values, boolean reverse) {
+    if (!reverse) {
+      return values.clone();
+    }
+    long[] keys = new long[values.length];
+    for (int i = 0; i < values.length; i++) {
+      keys[i] = ~values[i];
+    }
+    return keys;
+  }
+
+  private static long[] keys(double[] values, boolean reverse) {
+    long[] keys = new long[values.length];
+    for (int i = 0; i < values.length; i++) {
+      keys[i] = key(values[i], reverse);
+    }
+    return keys;
+  }
+
+  private static int[] toInts(long[] keys, boolean reverse) {
+    int[] values = new int[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      values[i] = (int) (reverse ? ~keys[i] : keys[i]);
+    }
+    return values;
+  }
+
+  private static long[] toLongs(long[] keys, boolean reverse) {
+    if (reverse) {
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = ~keys[i];
+      }
+    }
+    return keys;
+  }
+
+  private static double[] toDoubles(long[] keys, boolean reverse) {
+    double[] values = new double[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      long key = reverse ? ~keys[i] : keys[i];
+      values[i] = Double.longBitsToDouble(key ^ ((key >> 63) & Long.MAX_VALUE));
+    }
+    return values;
+  }
+
+  // Selection of keys
+
+  /**
+   * Returns the {@code k} least of {@code keys}, sorted, reordering
+   * {@code keys} in the process.
+   */
+  private static long[] select(long[] keys, int k) {
+    checkArgument(k >= 0, "k (%s) must be nonnegative", k);
+    k = Math.min(k, keys.length);
+    if (k == 0) {
+      return new long[0];
+    }
+    if (k < keys.length) {
+      select(keys, 0, keys.length, k - 1);
+    }
+    Arrays.sort(keys, 0, k);
+    return (k == keys.length) ? keys : Arrays.copyOf(keys, k);
+  }
+
+  /**
+   * Reorders {@code keys[from, to)} so that the key at {@code nth} is the one
+   * a sort would put there, no key before it is greater and no key after it is
+   * less.
+   */
+  static void select(long[] keys, int from, int to, int nth) {
+    int depthLimit = 2 * (32 - Integer.numberOfLeadingZeros(to - from));
+    while (to - from > INSERTION_SORT_THRESHOLD) {
+      if (depthLimit-- == 0) {
+        Arrays.sort(keys, from, to);
+        return;
+      }
+      long pivot = medianOfThree(keys[from], keys[(from + to) >>> 1], keys[to - 1]);
+
+      // Three-way partition, so that runs of equal keys end the search:
+      // [from, lt) < pivot, [lt, i) == pivot, (gt, to) > pivot
+      int lt = from;
+      int gt = to - 1;
+      int i = from;
+      while (i <= gt) {
+        long key = keys[i];
+        if (key < pivot) {
+          keys[i++] = keys[lt];
+          keys[lt++] = key;
+        } else if (key > pivot) {
+          keys[i] = keys[gt];
+          keys[gt--] = key;
+        } else {
+          i++;
+        }
+      }
+      if (nth < lt) {
+        to = lt;
+      } else if (nth > gt) {
+        from = gt + 1;
+      } else {
+        return;
+      }
+    }
+    for (int i = from + 1; i < to; i++) {
+      long key = keys[i];
+      int j = i - 1;
+      while (j >= from && keys[j] > key) {
+        keys[j + 1] = keys[j];
+        j--;
+      }
+      keys[j + 1] = key;
+    }
+  }
+
+  private static long medianOfThree(long a, long b, long c) {
+    return (a < b)
+        ? ((b < c) ? b : (a < c) ? c : a)
+        : ((a < c) ? a : (b < c) ? c : b);
+  }
+
+  /** Copies a chunk of the values to select from, as keys. */
+  private interface KeyReader {
+    void read(int from, int to, long[] keys);
+  }
+
+  @GwtIncompatible("ForkJoinPool")
+  private static long[] parallelSelect(int length, final int k, final KeyReader reader) {
+    checkArgument(k >= 0, "k (%s) must be nonnegative", k);
+    final int chunks = chunkCount(length);
+    if (chunks == 1 || k == 0) {
+      long[] keys = new long[length];
+      reader.read(0, length, keys);
+      return select(keys, k);
+    }
+    final int chunkSize = (length + chunks - 1) / chunks;
+    final int length0 = length;
+    long[][] winners = IntStream.range(0, chunks).parallel()
+        .mapToObj(chunk -> {
+          int from = chunk * chunkSize;
+          long[] keys = new long[Math.min(from + chunkSize, length0) - from];
+          reader.read(from, from + keys.length, keys);
+          int m = Math.min(k, keys.length);
+          if (m < keys.length) {
+            select(keys, 0, keys.length, m - 1);
+          }
+          return Arrays.copyOf(keys, m);
+        })
+        .toArray(long[][]::new);
+    return select(concat(winners), k);
+  }
+
+  private static long[] concat(long[][] arrays) {
+    int length = 0;
+    for (long[] array : arrays) {
+      length += array.length;
+    }
+    long[] result = new long[length];
+    int pos = 0;
+    for (long[] array : arrays) {
+      System.arraycopy(array, 0, result, pos, array.length);
+      pos += array.length;
+    }
+    return result;
+  }
+
+  @GwtIncompatible("ForkJoinPool")
+  private static int chunkCount(int length) {
+    if (length < PARALLEL_THRESHOLD) {
+      return 1;
+    }
+    int parallelism = ForkJoinPool.getCommonPoolParallelism();
+    return Math.max(1, Math.min(parallelism * 4, length / MIN_CHUNK_SIZE));
+  }
+
+  // Selection of indices
+
+  private static int[] selectIndices(double[] values, int k, boolean greatest) {
+    checkArgument(k >= 0, "k (%s) must be nonnegative", k);
+    int n = values.length;
+    long[] keys = keys(values, greatest);
+    int[] ids = new int[n];
+    for (int i = 0; i < n; i++) {
+      ids[i] = i;
+    }
+    return selectPairs(keys, ids, k);
+  }
+
+  @GwtIncompatible("ForkJoinPool")
+  private static int[] parallelSelectIndices(
+      final double[] values, final int k, final boolean greatest) {
+    checkArgument(k >= 0, "k (%s) must be nonnegative", k);
+    final int chunks = chunkCount(values.length);
+    if (chunks == 1 || k == 0) {
+      return selectIndices(values, k, greatest);
+    }
+    final int chunkSize = (values.length + chunks - 1) / chunks;
+    long[][] winnerKeys = new long[chunks][];
+    int[][] winnerIds = new int[chunks][];
+    IntStream.range(0, chunks).parallel().forEach(chunk -> {
+      int from = chunk * chunkSize;
+      int to = Math.min(from + chunkSize, values.length);
+      long[] keys = new long[to - from];
+      int[] ids = new int[to - from];
+      for (int i = from; i < to; i++) {
+        keys[i - from] = key(values[i], greatest);
+        ids[i - from] = i;
+      }
+      int m = Math.min(k, keys.length);
+      if (m < keys.length) {
+        selectPairs(keys, ids, 0, keys.length, m - 1);
+      }
+      winnerKeys[chunk] = Arrays.copyOf(keys, m);
+      winnerIds[chunk] = Arrays.copyOf(ids, m);
+    });
+    long[] keys = concat(winnerKeys);
+    int[] ids = new int[keys.length];
+    int pos = 0;
+    for (int[] chunkIds : winnerIds) {
+      System.arraycopy(chunkIds, 0, ids, pos, chunkIds.length);
+      pos += chunkIds.length;
+    }
+    return selectPairs(keys, ids, k);
+  }
+
+  /**
+   * Returns the ids of the {@code k} least (key, id) pairs, sorted,
+   * reordering both arrays in the process.
+   */
+  private static int[] selectPairs(long[] keys, int[] ids, int k) {
+    k = Math.min(k, keys.length);
+    if (k == 0) {
+      return new int[0];
+    }
+    if (k < keys.length) {
+      selectPairs(keys, ids, 0, keys.length, k - 1);
+    }
+    heapSort(keys, ids, 0, k);
+    return (k == ids.length) ? ids : Arrays.copyOf(ids, k);
+  }
+
+  /**
+   * Like {@link #select(long[], int, int, int)}, for the pairs
+   * {@code (keys[i], ids[i])} ordered by key, then id. Ids are distinct, so
+   * a two-way partition suffices.
+   */
+  private static void selectPairs(long[] keys, int[] ids, int from, int to, int nth) {
+    int depthLimit = 2 * (32 - Integer.numberOfLeadingZeros(to - from));
+    while (to - from > INSERTION_SORT_THRESHOLD) {
+      if (depthLimit-- == 0) {
+        heapSort(keys, ids, from, to);
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      // median of three, moved to the end
+      if (less(keys, ids, mid, from)) {
+        swap(keys, ids, mid, from);
+      }
+      if (less(keys, ids, to - 1, from)) {
+        swap(keys, ids, to - 1, from);
+      }
+      if (less(keys, ids, mid, to - 1)) {
+        swap(keys, ids, mid, to - 1);
+      }
+      long pivotKey = keys[to - 1];
+      int pivotId = ids[to - 1];
+      int store = from;
+      for (int i = from; i < to - 1; i++) {
+        if (keys[i] < pivotKey || (keys[i] == pivotKey && ids[i] < pivotId)) {
+          swap(keys, ids, i, store++);
+        }
+      }
+      swap(keys, ids, store, to - 1);
+      if (nth < store) {
+        to = store;
+      } else if (nth > store) {
+        from = store + 1;
+      } else {
+        return;
+      }
+    }
+    for (int i = from + 1; i < to; i++) {
+      for (int j = i; j > from && less(keys, ids, j, j - 1); j--) {
+        swap(keys, ids, j, j - 1);
+      }
+    }
+  }
+
+  private static boolean less(long[] keys, int[] ids, int a, int b) {
+    return keys[a] < keys[b] || (keys[a] == keys[b] && ids[a] < ids[b]);
+  }
+
+  private static void swap(long[] keys, int[] ids, int a, int b) {
+    long key = keys[a];
+    keys[a] = keys[b];
+    keys[b] = key;
+    int id = ids[a];
+    ids[a] = ids[b];
+    ids[b] = id;
+  }
+
+  /** Sorts the pairs in {@code [from, to)} by key, then id. */
+  private static void heapSort(long[] keys, int[] ids, int from, int to) {
+    int n = to - from;
+    for (int i = (n >>> 1) - 1; i >= 0; i--) {
+      siftDown(keys, ids, from, i, n);
+    }
+    for (int end = n - 1; end > 0; end--) {
+      swap(keys, ids, from, from + end);
+      siftDown(keys, ids, from, 0, end);
+    }
+  }
+
+  private static void siftDown(long[] keys, int[] ids, int index, int size) {
+    siftDown(keys, ids, 0, index, size);
+  }
+
+  /**
+   * Sifts the pair at {@code offset + index} down the max-heap rooted at
+   * {@code offset} of {@code size} pairs.
+   */
+  private static void siftDown(long[] keys, int[] ids, int offset, int index, int size) {
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= size) {
+        return;
+      }
+      if (child + 1 < size && less(keys, ids, offset + child, offset + child + 1)) {
+        child++;
+      }
+      if (!less(keys, ids, offset + index, offset + child)) {
+        return;
+      }
+      swap(keys, ids, offset + index, offset + child);
+      index = child;
+    }
+  }
+}
@@ -32,6 +32,8 @@ import java.util.TimeZone;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import com.github.yingzhuo.commons.functor.Supplier;
+import com.github.yingzhuo.commons.lang.ObjectPool;
 import com.github.yingzhuo.commons.lang.Validate;
 
 /**
@@ -103,6 +105,16 @@ public class FastDateFormat extends Format {
      */
     public static final int SHORT = DateFormat.SHORT;
 
+    /**
+     * The idle calendars used to format dates, shared by all formats: each
+     * borrower sets the time zone and week rules it needs.
+     */
+    private static final ObjectPool<Calendar> CALENDARS = ObjectPool.builder(new Supplier<Calendar>() {
+        public Calendar get() {
+            return new GregorianCalendar();  // hard code GregorianCalendar
+        }
+    }).build();
+
     private static final FormatCache<FastDateFormat> cache= new FormatCache<FastDateFormat>() {
         @Override
         protected FastDateFormat createInstance(String pattern,    TimeZone timeZone, Locale locale) {
@@ -133,6 +145,14 @@ public class FastDateFormat extends Format {
      * The estimated maximum length.
      */
     private transient int mMaxLengthEstimate;
+    /**
+     * The first day of the week in the locale.
+     */
+    private transient int mFirstDayOfWeek;
+    /**
+     * The minimal days in the first week of the year in the locale.
+     */
+    private transient int mMinimalDaysInFirstWeek;
 
     //-----------------------------------------------------------------------
     /**
@@ -449,6 +469,10 @@ public class FastDateFormat extends Format {
         }
 
         mMaxLengthEstimate = len;
+
+        Calendar c = new GregorianCalendar(mTimeZone, mLocale);
+        mFirstDayOfWeek = c.getFirstDayOfWeek();
+        mMinimalDaysInFirstWeek = c.getMinimalDaysInFirstWeek();
     }
 
     // Parse the pattern
@@ -702,9 +726,13 @@ public class FastDateFormat extends Format {
      * @return the formatted string
      */
     public String format(Date date) {
-        Calendar c = new GregorianCalendar(mTimeZone, mLocale);  // hard code GregorianCalendar
-        c.setTime(date);
-        return applyRules(c, new StringBuffer(mMaxLengthEstimate)).toString();
+        Calendar c = borrowCalendar();
+        try {
+            c.setTime(date);
+            return applyRules(c, new StringBuffer(mMaxLengthEstimate)).toString();
+        } finally {
+            CALENDARS.release(c);
+        }
     }
 
     /**
@@ -739,9 +767,27 @@ public class FastDateFormat extends Format {
      * @return the specified string buffer
      */
     public StringBuffer format(Date date, StringBuffer buf) {
-        Calendar c = new GregorianCalendar(mTimeZone, mLocale);  // hard code GregorianCalendar
-        c.setTime(date);
-        return applyRules(c, buf);
+        Calendar c = borrowCalendar();
+        try {
+            c.setTime(date);
+            return applyRules(c, buf);
+        } finally {
+            CALENDARS.release(c);
+        }
+    }
+
+    /**
+     * <p>Borrows a shared calendar set up for the time zone and locale of
+     * this format.</p>
+     *
+     * @return a calendar to release to {@code CALENDARS}
+     */
+    private Calendar borrowCalendar() {
+        Calendar c = CALENDARS.borrow();
+        c.setTimeZone(mTimeZone);
+        c.setFirstDayOfWeek(mFirstDayOfWeek);
+        c.setMinimalDaysInFirstWeek(mMinimalDaysInFirstWeek);
+        return c;
     }
 
     /**